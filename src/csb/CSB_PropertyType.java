@@ -12,6 +12,8 @@ package csb;
 public enum CSB_PropertyType {
         // LOADED FROM properties.xml
         PROP_APP_TITLE,
+        COURSE_FILE_FORMAT,
+        COURSE_DATABASE_URL,
         
         // APPLICATION ICONS
         NEW_COURSE_ICON,
@@ -71,5 +73,7 @@ public enum CSB_PropertyType {
         COURSE_LOADED_MESSAGE,
         COURSE_SAVED_MESSAGE,
         SITE_EXPORTED_MESSAGE,
+        PAGES_REWRITTEN_MESSAGE,
+        CHOOSE_COURSE_MESSAGE,
         SAVE_UNSAVED_WORK_MESSAGE
 }
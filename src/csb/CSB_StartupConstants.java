@@ -27,6 +27,9 @@ public class CSB_StartupConstants
     public static final String JSON_FILE_PATH_SEMESTERS = PATH_DATA + "semesters.json";
     //end added
     public static final String JSON_FILE_PATH_LAST_INSTRUCTOR = PATH_DATA + "last_instructor.json";
+
+    // GIVE THIS ON THE COMMAND LINE TO LOG HOW LONG STARTING UP TOOK
+    public static final String STARTUP_TIMELINE_OPTION = "--startup-timeline";
     
     // ERRO MESSAGE ASSOCIATED WITH PROPERTIES FILE LOADING ERRORS
     public static String PROPERTIES_FILE_ERROR_MESSAGE = "Error Loading properties.xml";
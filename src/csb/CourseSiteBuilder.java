@@ -5,12 +5,23 @@ import static csb.CSB_PropertyType.*;
 import csb.data.CourseDataManager;
 import csb.data.Instructor;
 import csb.error.ErrorHandler;
+import csb.file.CachingCourseFileManager;
+import csb.file.CourseFileFormat;
+import csb.file.CourseFileManager;
+import csb.file.JdbcCourseFileManager;
 import csb.file.JsonCourseFileManager;
+import csb.file.PropertiesSnapshot;
 import csb.file.CourseSiteExporter;
 import csb.gui.CSB_GUI;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javafx.animation.AnimationTimer;
 import javafx.application.Application;
 import javafx.stage.Stage;
 import properties_manager.PropertiesManager;
@@ -28,55 +39,176 @@ public class CourseSiteBuilder extends Application {
     // AFTER THE PROPERTIES FILE IS LOADED
    CSB_GUI gui;
 
+    // THIS SAVES AND LOADS OUR COURSES, AND MUST BE CLOSED WHEN WE'RE DONE
+    CourseFileManager courseFileManager;
+
+    // HOW MANY THREADS LOAD WHAT WE NEED AT STARTUP, ONE FOR EACH
+    // THING WE LOAD, SINCE THEY'RE MOSTLY WAITING FOR THE DISK
+    static final int STARTUP_THREADS = 5;
+
     /**
      * This is where our Application begins its initialization, it will
-     * create the GUI and initialize all of its components.
+     * create the GUI and initialize all of its components. Note that the
+     * properties, subjects, semesters and last instructor don't depend on
+     * one another, so they're all loaded at once on other threads, and
+     * only waited for when the GUI needs them. Note that the properties
+     * manager and error handler are made on this thread before any of
+     * that starts, since nothing says they may be made on two threads at
+     * once. How long each of these takes is logged if the
+     * STARTUP_TIMELINE_OPTION is given on the command line.
      * 
      * @param primaryStage This application's window.
      */
     @Override
     public void start(Stage primaryStage) {
-        // LET'S START BY GIVING THE PRIMARY STAGE TO OUR ERROR HANDLER
+        // KEEP TRACK OF HOW LONG EACH PART OF STARTING UP TAKES
+        StartupTimeline timeline = new StartupTimeline();
+        boolean logTimeline = getParameters().getRaw().contains(STARTUP_TIMELINE_OPTION);
+
+        // MAKE THE PROPERTIES MANAGER AND ERROR HANDLER, WHICH USES IT,
+        // HERE BEFORE ANY OTHER THREAD CAN ASK FOR THEM, THEN GIVE THE
+        // PRIMARY STAGE TO OUR ERROR HANDLER AND MAKE THE GUI, WHICH
+        // WE'LL INITIALIZE ONCE IT HAS ITS DATA
+        long phaseStart = timeline.begin();
+        PropertiesManager props = PropertiesManager.getPropertiesManager();
         ErrorHandler eH = ErrorHandler.getErrorHandler();
         eH.initMessageDialog(primaryStage);
-        
-        // LOAD APP SETTINGS INTO THE GUI AND START IT UP
-        boolean success = loadProperties();
-        if (success) {
-            PropertiesManager props = PropertiesManager.getPropertiesManager();
+        gui = new CSB_GUI(primaryStage);
+        timeline.record("set up error handler and GUI object", phaseStart);
+
+        // START LOADING EVERYTHING RIGHT AWAY, NOTE THAT EVERY FORMAT USES
+        // JSON FOR THE SUBJECTS, SEMESTERS AND LAST INSTRUCTOR, SO THEY
+        // DON'T HAVE TO WAIT FOR THE PROPERTIES TO TELL US THE FORMAT
+        ExecutorService startupPool = Executors.newFixedThreadPool(STARTUP_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "CSB Startup Loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Future<Boolean> propertiesLoad = startupPool.submit(timeline.timed("load properties", () -> {
+            loadPropertiesFile(props);
+            return true;
+        }));
+        Future<Instructor> lastInstructorLoad = startupPool.submit(timeline.timed("load last instructor",
+                () -> new JsonCourseFileManager().loadLastInstructor(JSON_FILE_PATH_LAST_INSTRUCTOR)));
+        Future<ArrayList<String>> subjectsLoad = startupPool.submit(timeline.timed("load subjects",
+                () -> new JsonCourseFileManager().loadSubjects(JSON_FILE_PATH_SUBJECTS)));
+        Future<ArrayList<String>> semestersLoad = startupPool.submit(timeline.timed("load semesters",
+                () -> new JsonCourseFileManager().loadSemesters(JSON_FILE_PATH_SEMESTERS)));
+
+        // AND THIS ONE WILL DO THE COURSE WEB PAGE EXPORTING
+        Future<CourseSiteExporter> exporterSetup = startupPool.submit(timeline.timed("set up exporter",
+                () -> new CourseSiteExporter(PATH_BASE, PATH_SITES)));
+        try {
+            // NOTHING ELSE CAN BE DONE UNTIL THE PROPERTIES ARE LOADED
+            phaseStart = timeline.begin();
+            join(propertiesLoad);
+            timeline.record("wait for properties", phaseStart);
             String appTitle = props.getProperty(PROP_APP_TITLE);
-            try {                
-                // WE WILL SAVE OUR COURSE DATA USING THE JSON FILE
-                // FORMAT SO WE'LL LET THIS OBJECT DO THIS FOR US
-                JsonCourseFileManager jsonFileManager = new JsonCourseFileManager();
-                
-                // AND THIS ONE WILL DO THE COURSE WEB PAGE EXPORTING
-                CourseSiteExporter exporter = new CourseSiteExporter(PATH_BASE, PATH_SITES);
-                
-                Instructor lastInstructor = jsonFileManager.loadLastInstructor(JSON_FILE_PATH_LAST_INSTRUCTOR);
-                ArrayList<String> subjects = jsonFileManager.loadSubjects(JSON_FILE_PATH_SUBJECTS);
-                ArrayList<String> semesters = jsonFileManager.loadSemesters(JSON_FILE_PATH_SEMESTERS); 
-                // AND NOW GIVE ALL OF THIS STUFF TO THE GUI
-                // INITIALIZE THE USER INTERFACE COMPONENTS
-                gui = new CSB_GUI(primaryStage);
-                gui.setCourseFileManager(jsonFileManager);
-                gui.setSiteExporter(exporter);
-                
-                // CONSTRUCT THE DATA MANAGER AND GIVE IT TO THE GUI
-                CourseDataManager dataManager = new CourseDataManager(gui, lastInstructor); 
-                gui.setDataManager(dataManager);
-
-                // FINALLY, START UP THE USER INTERFACE WINDOW AFTER ALL
-                // REMAINING INITIALIZATION
-                gui.initGUI(appTitle, subjects,semesters);                
-            }
-            catch(IOException ioe) {
-                eH = ErrorHandler.getErrorHandler();
-                eH.handlePropertiesFileError();
-            }
+
+            // WE WILL SAVE OUR COURSE DATA USING THE FILE FORMAT
+            // CHOSEN IN properties.xml SO WE'LL LET THIS OBJECT DO
+            // THIS FOR US
+            JsonCourseFileManager jsonFileManager = makeCourseFileManager(props);
+
+            // NOW WAIT FOR EVERYTHING ELSE THE GUI NEEDS
+            phaseStart = timeline.begin();
+            Instructor lastInstructor = join(lastInstructorLoad);
+            ArrayList<String> subjects = join(subjectsLoad);
+            ArrayList<String> semesters = join(semestersLoad);
+            CourseSiteExporter exporter = join(exporterSetup);
+            timeline.record("wait for startup loads", phaseStart);
+
+            // AND NOW GIVE ALL OF THIS STUFF TO THE GUI
+            // SWITCHING BACK TO A COURSE LOADS IT FROM THIS CACHE
+            // RATHER THAN READING ITS FILE ALL OVER AGAIN
+            phaseStart = timeline.begin();
+            courseFileManager = new CachingCourseFileManager(jsonFileManager);
+            gui.setCourseFileManager(courseFileManager);
+            gui.setSiteExporter(exporter);
+
+            // CONSTRUCT THE DATA MANAGER AND GIVE IT TO THE GUI
+            CourseDataManager dataManager = new CourseDataManager(gui, lastInstructor); 
+            gui.setDataManager(dataManager);
+
+            // FINALLY, START UP THE USER INTERFACE WINDOW AFTER ALL
+            // REMAINING INITIALIZATION
+            gui.initGUI(appTitle, subjects,semesters);
+            timeline.record("init GUI", phaseStart);
+
+            // THE FIRST PULSE AFTER THE WINDOW IS SHOWN IS THE ONE THAT
+            // DRAWS IT, WHICH IS WHEN THE USER CAN FIRST USE IT
+            new AnimationTimer() {
+                @Override
+                public void handle(long now) {
+                    stop();
+                    timeline.mark("first frame");
+                    if (logTimeline) {
+                        System.err.print(timeline);
+                    }
+                }
+            }.start();
+        }
+        catch(IOException ioe) {
+            eH = ErrorHandler.getErrorHandler();
+            eH.handlePropertiesFileError();
+        }
+        finally {
+            // THE LOADS ARE ALL DONE, OR NOT NEEDED ANYMORE
+            startupPool.shutdownNow();
         }
     }
     
+    /**
+     * This is called when the application's window is closed, and closes
+     * the course file manager so everything that's been saved is finished.
+     * Note that exiting with the exit button closes it before getting here.
+     */
+    @Override
+    public void stop() {
+        if (courseFileManager != null) {
+            try {
+                courseFileManager.close();
+            } catch (IOException ioe) {
+                // THE APP IS GOING AWAY, SO ALL WE CAN DO IS SAY SO
+                System.err.println("Couldn't close course file manager: " + ioe.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Gets the format courses are to be saved in from the properties file,
+     * using JSON if none is chosen or the choice isn't one we know.
+     * 
+     * @param props The properties loaded from the properties file.
+     * 
+     * @return The format to save courses in.
+     */
+    public CourseFileFormat getCourseFileFormat(PropertiesManager props) {
+        String formatName = props.getProperty(COURSE_FILE_FORMAT);
+        try {
+            return (formatName == null) ? CourseFileFormat.JSON : CourseFileFormat.valueOf(formatName.trim());
+        } catch (IllegalArgumentException iae) {
+            return CourseFileFormat.JSON;
+        }
+    }
+
+    /**
+     * Makes the file manager for the format chosen in the properties file,
+     * using the database it names if courses are saved in a database.
+     * 
+     * @param props The properties loaded from the properties file.
+     * 
+     * @return The file manager to save courses with.
+     */
+    public JsonCourseFileManager makeCourseFileManager(PropertiesManager props) {
+        CourseFileFormat courseFileFormat = getCourseFileFormat(props);
+        String databaseURL = props.getProperty(COURSE_DATABASE_URL);
+        if ((courseFileFormat == CourseFileFormat.SQL) && (databaseURL != null) && !databaseURL.trim().isEmpty()) {
+            return new JdbcCourseFileManager(databaseURL.trim());
+        }
+        return courseFileFormat.makeFileManager();
+    }
+
     /**
      * Loads this application's properties file, which has a number of settings
      * for initializing the user interface.
@@ -85,10 +217,7 @@ public class CourseSiteBuilder extends Application {
      */
     public boolean loadProperties() {
         try {
-            // LOAD THE SETTINGS FOR STARTING THE APP
-            PropertiesManager props = PropertiesManager.getPropertiesManager();
-            props.addProperty(PropertiesManager.DATA_PATH_PROPERTY, PATH_DATA);
-            props.loadProperties(PROPERTIES_FILE_NAME, PROPERTIES_SCHEMA_FILE_NAME);
+            loadPropertiesFile(PropertiesManager.getPropertiesManager());
             return true;
        } catch (InvalidXMLFileFormatException ixmlffe) {
             // SOMETHING WENT WRONG INITIALIZING THE XML FILE
@@ -98,6 +227,52 @@ public class CourseSiteBuilder extends Application {
         }        
     }
 
+    // LOADS THE SETTINGS FOR STARTING THE APP INTO props, WITHOUT TELLING
+    // THE USER IF IT FAILS, SO IT CAN BE DONE ON ANY THREAD ONCE props HAS
+    // BEEN MADE. NOTE THAT IF NEITHER properties.xml NOR ITS SCHEMA HAVE
+    // CHANGED SINCE THE LAST TIME THEY WERE VALIDATED, WE USE THE SNAPSHOT
+    // OF THE PROPERTIES SAVED THEN
+    private void loadPropertiesFile(PropertiesManager props) throws InvalidXMLFileFormatException {
+        props.addProperty(PropertiesManager.DATA_PATH_PROPERTY, PATH_DATA);
+        PropertiesSnapshot snapshot = new PropertiesSnapshot(PATH_DATA,
+                PROPERTIES_FILE_NAME, PROPERTIES_SCHEMA_FILE_NAME);
+        Map<String, String> snapshotProperties = snapshot.load();
+        if (snapshotProperties != null) {
+            for (Map.Entry<String, String> property : snapshotProperties.entrySet()) {
+                props.addProperty(property.getKey(), property.getValue());
+            }
+            return;
+        }
+        props.loadProperties(PROPERTIES_FILE_NAME, PROPERTIES_SCHEMA_FILE_NAME);
+        try {
+            snapshot.save(props);
+        } catch (IOException ioe) {
+            // THE SNAPSHOT ONLY SAVES TIME, SO WITHOUT IT
+            // WE'LL JUST VALIDATE AGAIN NEXT TIME
+        }
+    }
+
+    // WAITS FOR SOMETHING BEING LOADED AT STARTUP, THROWING ANY
+    // PROBLEM LOADING IT AS AN IOException
+    private <T> T join(Future<T> startupLoad) throws IOException {
+        try {
+            return startupLoad.get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while starting up");
+        } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
     /**
      * This is where program execution begins. Since this is a JavaFX app
      * it will simply call launch, which gets JavaFX rolling, resulting in
@@ -0,0 +1,140 @@
+package csb;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * This class records how long each phase of starting up the application
+ * takes, and on which thread, so that time to the first frame of the
+ * window can be tracked from one release to the next. Phases may be
+ * recorded from any thread, since several of them run at the same time,
+ * and all times are measured from when the timeline was made, which is
+ * the start of CourseSiteBuilder's start method. How long the JVM took
+ * to get there is recorded as well.
+ *
+ * @author Richard McKenna
+ */
+public class StartupTimeline {
+    // WHEN THE TIMELINE STARTED, AND HOW LONG THE JVM HAD BEEN RUNNING BY THEN
+    long startTime;
+    long launchMillis;
+
+    // EVERY PHASE AND MILESTONE RECORDED SO FAR
+    List<Phase> phases;
+
+    /**
+     * This constructor starts the timeline now.
+     */
+    public StartupTimeline() {
+        startTime = System.nanoTime();
+        launchMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+        phases = new ArrayList();
+    }
+
+    /**
+     * Provides the time a phase is starting at, to give to record
+     * once the phase is done.
+     *
+     * @return The current time in nanoseconds.
+     */
+    public long begin() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Records a phase that started at phaseStart and has just finished,
+     * on the current thread.
+     *
+     * @param phaseName What was done in the phase.
+     * @param phaseStart When the phase started, as provided by begin.
+     */
+    public void record(String phaseName, long phaseStart) {
+        long phaseEnd = System.nanoTime();
+        Phase phase = new Phase(phaseName, Thread.currentThread().getName(),
+                phaseStart - startTime, phaseEnd - phaseStart);
+        synchronized (this) {
+            phases.add(phase);
+        }
+    }
+
+    /**
+     * Records a milestone that has just been reached, like the first
+     * frame of the window being drawn.
+     *
+     * @param milestoneName The milestone reached.
+     */
+    public void mark(String milestoneName) {
+        record(milestoneName, System.nanoTime());
+    }
+
+    /**
+     * Wraps task so that running it records it as a phase, on whichever
+     * thread ends up running it.
+     *
+     * @param <T> What the task produces.
+     * @param phaseName What the task does.
+     * @param task The task to time.
+     *
+     * @return A task that runs task and records how long it took.
+     */
+    public <T> Callable<T> timed(String phaseName, Callable<T> task) {
+        return () -> {
+            long phaseStart = begin();
+            try {
+                return task.call();
+            } finally {
+                record(phaseName, phaseStart);
+            }
+        };
+    }
+
+    /**
+     * Accessor method for how long it's been since the timeline started.
+     *
+     * @return The time since the timeline started, in milliseconds.
+     */
+    public double getElapsedMillis() {
+        return (System.nanoTime() - startTime) / 1000000.0;
+    }
+
+    /**
+     * Provides every phase recorded, in the order they started, with when
+     * each started, how long it took, and the thread it ran on.
+     *
+     * @return The timeline, one phase per line.
+     */
+    @Override
+    public synchronized String toString() {
+        ArrayList<Phase> sortedPhases = new ArrayList(phases);
+        Collections.sort(sortedPhases, Comparator.comparingLong(phase -> phase.offset));
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Startup timeline, starting %d ms after the JVM did%n", launchMillis));
+        for (Phase phase : sortedPhases) {
+            sb.append(String.format("%9.1f ms %+9.1f ms  %-24s [%s]%n",
+                    phase.offset / 1000000.0, phase.duration / 1000000.0, phase.name, phase.threadName));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * This holds one phase of starting up, with when it started and how
+     * long it took, both in nanoseconds.
+     */
+    static class Phase {
+        String name;
+        String threadName;
+        long offset;
+        long duration;
+
+        Phase(String initName, String initThreadName, long initOffset, long initDuration) {
+            name = initName;
+            threadName = initThreadName;
+            offset = initOffset;
+            duration = initDuration;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package csb.controller;
 
 import csb.data.Course;
+import csb.data.CourseDataManager;
 import csb.error.ErrorHandler;
 import csb.gui.CSB_GUI;
 import java.time.DayOfWeek;
@@ -50,12 +51,21 @@ public class CourseEditController {
         if (enabled) {
             try {
                 // UPDATE THE COURSE, VERIFYING INPUT VALUES
-                gui.updateCourseInfo(gui.getDataManager().getCourse());
+                CourseDataManager dataManager = gui.getDataManager();
+                Course course = dataManager.getCourse();
+                long versionBefore = course.getVersion();
+                gui.updateCourseInfo(course);
                 
-                // THE COURSE IS NOW DIRTY, MEANING IT'S BEEN 
-                // CHANGED SINCE IT WAS LAST SAVED, SO MAKE SURE
-                // THE SAVE BUTTON IS ENABLED
-                gui.getFileController().markAsEdited(gui);
+                // NOTE THAT A CONTROL MAY SAY IT'S CHANGED WITHOUT ITS
+                // VALUE REALLY BEING DIFFERENT, WHICH CHANGES NOTHING
+                if (course.hasChangedSince(versionBefore)) {
+                    dataManager.courseChanged();
+                
+                    // THE COURSE IS NOW DIRTY, MEANING IT'S BEEN 
+                    // CHANGED SINCE IT WAS LAST SAVED, SO MAKE SURE
+                    // THE SAVE BUTTON IS ENABLED
+                    gui.getFileController().markAsEdited(gui);
+                }
             } catch (Exception e) {
                 // SOMETHING WENT WRONG
                 ErrorHandler eH = ErrorHandler.getErrorHandler();
@@ -122,7 +132,9 @@ public class CourseEditController {
             } // IN THIS CASE ALL IS GOOD
             else {
                 // MAKE SURE THE COURSE HAS THE CHANGES
-                gui.updateCourseInfo(gui.getDataManager().getCourse());
+                CourseDataManager dataManager = gui.getDataManager();
+                gui.updateCourseInfo(dataManager.getCourse());
+                dataManager.courseChanged();
             }
         }
     }
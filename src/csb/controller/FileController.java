@@ -1,9 +1,12 @@
 package csb.controller;
 
 import static csb.CSB_PropertyType.COURSE_SAVED_MESSAGE;
+import static csb.CSB_PropertyType.CHOOSE_COURSE_MESSAGE;
 import static csb.CSB_PropertyType.COURSE_LOADED_MESSAGE;
 import static csb.CSB_PropertyType.NEW_COURSE_CREATED_MESSAGE;
+import static csb.CSB_PropertyType.PAGES_REWRITTEN_MESSAGE;
 import static csb.CSB_PropertyType.SAVE_UNSAVED_WORK_MESSAGE;
+import static csb.CSB_PropertyType.SITE_EXPORTED_MESSAGE;
 import static csb.CSB_StartupConstants.CLOSE_BUTTON_LABEL;
 import static csb.CSB_StartupConstants.JSON_FILE_PATH_LAST_INSTRUCTOR;
 import static csb.CSB_StartupConstants.PATH_COURSES;
@@ -12,15 +15,22 @@ import csb.data.CourseDataManager;
 import csb.data.CoursePage;
 import csb.data.Instructor;
 import csb.error.ErrorHandler;
+import csb.file.CachingCourseFileManager;
+import csb.file.CourseCatalog;
 import csb.file.CourseFileManager;
 import csb.file.CourseSiteExporter;
 import csb.gui.CSB_GUI;
+import csb.gui.CourseCatalogDialog;
 import csb.gui.MessageDialog;
 import csb.gui.WebBrowser;
 import csb.gui.YesNoCancelDialog;
 import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javafx.application.Platform;
 import javafx.stage.Stage;
 import javafx.stage.FileChooser;
 import properties_manager.PropertiesManager;
@@ -36,12 +46,24 @@ public class FileController {
     // WE WANT TO KEEP TRACK OF WHEN SOMETHING HAS NOT BEEN SAVED
     private boolean saved;
 
+    // THE VERSION THE COURSE HAD WHEN IT WAS LAST SAVED OR LOADED, SO
+    // WE DON'T WRITE IT AGAIN IF IT HASN'T CHANGED, OR -1 IF IT'S NEW
+    private long savedVersion;
+
     // THIS GUY KNOWS HOW TO READ AND WRITE COURSE DATA
     private CourseFileManager courseIO;
 
     // THIS GUY KNOWS HOW TO EXPORT COURSE SCHEDULE PAGES
     private CourseSiteExporter exporter;
 
+    // EXPORTS RUN HERE, ONE AFTER ANOTHER, SO THE USER CAN KEEP EDITING
+    // WHILE A SITE IS WRITTEN AND TWO EXPORTS NEVER WRITE THE SAME PAGES
+    private ExecutorService exportService;
+
+    // THIS KEEPS TRACK OF ALL THE SAVED COURSES SO WE CAN
+    // LIST THEM WITHOUT OPENING EVERY COURSE FILE
+    private CourseCatalog catalog;
+
     // THIS WILL PROVIDE FEEDBACK TO THE USER WHEN SOMETHING GOES WRONG
     ErrorHandler errorHandler;
     
@@ -51,6 +73,9 @@ public class FileController {
     
     // AND WE'LL USE THIS TO ASK YES/NO/CANCEL QUESTIONS
     YesNoCancelDialog yesNoCancelDialog;
+
+    // AND THIS TO ASK WHICH COURSE TO OPEN
+    CourseCatalogDialog catalogDialog;
     
     // WE'LL USE THIS TO GET OUR VERIFICATION FEEDBACK
     PropertiesManager properties;
@@ -72,10 +97,25 @@ public class FileController {
             CourseSiteExporter initExporter) {
         // NOTHING YET
         saved = true;
+        savedVersion = -1;
         
         // KEEP THESE GUYS FOR LATER
         courseIO = initCourseIO;
         exporter = initExporter;
+        exportService = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "CSB Site Exporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        // THE CATALOG READS EVERY COURSE THAT CHANGES, WHICH WOULD PUSH
+        // THE COURSES THE USER ACTUALLY OPENS OUT OF A CACHE, SO IT
+        // GOES STRAIGHT TO THE FILE MANAGER BEHIND ANY CACHE
+        CourseFileManager catalogIO = courseIO;
+        if (courseIO instanceof CachingCourseFileManager) {
+            catalogIO = ((CachingCourseFileManager) courseIO).getFileManager();
+        }
+        catalog = new CourseCatalog(PATH_COURSES, catalogIO);
         
         // BE READY FOR ERRORS
         errorHandler = ErrorHandler.getErrorHandler();
@@ -83,6 +123,7 @@ public class FileController {
         // AND GET READY TO PROVIDE FEEDBACK
         messageDialog = new MessageDialog(primaryStage, CLOSE_BUTTON_LABEL);
         yesNoCancelDialog = new YesNoCancelDialog(primaryStage);
+        catalogDialog = new CourseCatalogDialog(primaryStage, catalog);
         properties = PropertiesManager.getPropertiesManager();
     }
     
@@ -122,6 +163,7 @@ public class FileController {
                 CourseDataManager dataManager = gui.getDataManager();
                 dataManager.reset();
                 saved = false;
+                savedVersion = -1;
 
                 // REFRESH THE GUI, WHICH WILL ENABLE AND DISABLE
                 // THE APPROPRIATE CONTROLS
@@ -176,7 +218,7 @@ public class FileController {
     public void handleSaveCourseRequest(CSB_GUI gui, Course courseToSave) {
         try {
             // SAVE IT TO A FILE
-            courseIO.saveCourse(courseToSave);
+            saveCourse(courseToSave);
 
             // MARK IT AS SAVED
             saved = true;
@@ -193,35 +235,32 @@ public class FileController {
     }
 
     /**
-     * This method will export the current course.
+     * This method will export the current course. Note that the export
+     * happens on another thread, and the user is told how it went, and
+     * shown the exported page, once it's done.
      * 
      * @param gui
      */
     public void handleExportCourseRequest(CSB_GUI gui) {
-        // EXPORT THE COURSE
+        // EXPORT A COPY OF THE COURSE AS IT IS NOW, WHICH NOTHING
+        // ELSE WILL CHANGE, SO EXPORTING DOESN'T HAVE TO HOLD UP EDITING
         CourseDataManager dataManager = gui.getDataManager();
-        Course courseToExport = dataManager.getCourse();
+        Course courseToExport = dataManager.getSnapshot().toCourse();
 
         // WE'LL NEED THIS TO LOAD THE EXPORTED PAGE FOR VIEWING
         String courseURL = exporter.getPageURLPath(courseToExport, CoursePage.SCHEDULE);
         
-        // NOW GET THE EXPORTER
-        try {
-            // AND EXPORT THE COURSE
-            exporter.exportCourseSite(courseToExport);
-            
-            // AND THEN OPEN UP THE PAGE IN A BROWSER
-            Stage webBrowserStage = new Stage();
-            WebBrowser webBrowser = new WebBrowser(webBrowserStage, courseURL);
-            webBrowserStage.show();
-        }
-        // WE'LL HANDLE COURSE EXPORT PROBLEMS AND COURSE PAGE VIEWING
-        // PROBLEMS USING DIFFERENT ERROR MESSAGES
-        catch (MalformedURLException murle) {
-            errorHandler.handleViewSchedulePageError(courseURL);
-        } catch (IOException ioe) {
-            errorHandler.handleExportCourseError(courseToExport);
-        }
+        // NOW EXPORT THE COURSE OFF OF THE FX THREAD, NOTE THAT PAGES THAT
+        // HAVEN'T CHANGED WON'T BE WRITTEN AGAIN, AND THAT WE HAVE TO GO
+        // BACK TO THE FX THREAD TO TELL THE USER HOW IT WENT
+        exportService.submit(() -> {
+            try {
+                int pagesWritten = exporter.exportCourseSite(courseToExport);
+                Platform.runLater(() -> showExportedSite(courseURL, pagesWritten));
+            } catch (IOException ioe) {
+                Platform.runLater(() -> errorHandler.handleExportCourseError(courseToExport));
+            }
+        });
     }
 
     /**
@@ -241,6 +280,18 @@ public class FileController {
 
             // IF THE USER REALLY WANTS TO EXIT THE APP
             if (continueToExit) {
+                // FINISH WRITING EVERYTHING THAT'S BEEN SAVED, WHICH
+                // SOME FORMATS, LIKE LOG AND SQL, DON'T DO RIGHT AWAY
+                courseIO.close();
+
+                // LET ANY EXPORT THAT'S STILL GOING FINISH
+                exportService.shutdown();
+                try {
+                    exportService.awaitTermination(1, TimeUnit.MINUTES);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+
                 // EXIT THE APPLICATION
                 System.exit(0);
             }
@@ -276,7 +327,7 @@ public class FileController {
         if (selection.equals(YesNoCancelDialog.YES)) {
             // SAVE THE COURSE
             CourseDataManager dataManager = gui.getDataManager();
-            courseIO.saveCourse(dataManager.getCourse());
+            saveCourse(dataManager.getCourse());
             saved = true;
             
             // AND THE INSTRUCTOR INFO
@@ -295,22 +346,82 @@ public class FileController {
     }
 
     /**
-     * This helper method asks the user for a file to open. The user-selected
-     * file is then loaded and the GUI updated. Note that if the user cancels
-     * the open process, nothing is done. If an error occurs loading the file, a
-     * message is displayed, but nothing changes.
+     * This helper method saves a course and then updates its entry in the
+     * catalog. Note that the catalog is only a cache of what's in the course
+     * files, so if it can't be updated now its next refresh will catch up.
+     * If the course hasn't changed since it was last saved or loaded, its
+     * file already has what it would be saved as, so nothing is written.
+     */
+    private void saveCourse(Course courseToSave) throws IOException {
+        if ((savedVersion >= 0) && !courseToSave.hasChangedSince(savedVersion)) {
+            return;
+        }
+        courseIO.saveCourse(courseToSave);
+        savedVersion = courseToSave.getVersion();
+        try {
+            catalog.updateCourse(courseToSave, courseIO.getCourseFilePath(courseToSave));
+        } catch (IOException ioe) {
+            // THE COURSE ITSELF IS SAVED, WHICH IS WHAT MATTERS
+        }
+    }
+
+    /**
+     * This helper method tells the user a course's site has been exported,
+     * and how many of its pages actually changed, and then opens its
+     * schedule page in a browser. Note that it must be called on the FX
+     * thread.
+     */
+    private void showExportedSite(String courseURL, int pagesWritten) {
+        // TELL THE USER HOW MUCH ACTUALLY CHANGED
+        messageDialog.show(properties.getProperty(SITE_EXPORTED_MESSAGE) + ", "
+                + properties.getProperty(PAGES_REWRITTEN_MESSAGE) + pagesWritten);
+
+        // AND THEN OPEN UP THE PAGE IN A BROWSER
+        try {
+            Stage webBrowserStage = new Stage();
+            WebBrowser webBrowser = new WebBrowser(webBrowserStage, courseURL);
+            webBrowserStage.show();
+        } catch (MalformedURLException murle) {
+            errorHandler.handleViewSchedulePageError(courseURL);
+        }
+    }
+
+    /**
+     * This helper method asks the user which course to open, listing all the
+     * courses in the catalog, or letting the user browse for a course file
+     * that isn't listed. The user-selected file is then loaded and the GUI
+     * updated. Note that if the user cancels the open process, nothing is
+     * done. If an error occurs loading the file, a message is displayed, but
+     * nothing changes.
      */
     private void promptToOpen(CSB_GUI gui) {
+        // FIRST PICK UP ANY COURSE FILES THAT HAVE CHANGED, IF WE CAN'T
+        // WE'LL JUST LIST WHAT THE CATALOG ALREADY KNOWS ABOUT
+        try {
+            catalog.refresh();
+        } catch (IOException ioe) {
+            // THE USER CAN STILL BROWSE FOR THE FILE
+        }
+
         // AND NOW ASK THE USER FOR THE COURSE TO OPEN
-        FileChooser courseFileChooser = new FileChooser();
-        courseFileChooser.setInitialDirectory(new File(PATH_COURSES));
-        File selectedFile = courseFileChooser.showOpenDialog(gui.getWindow());
+        File selectedFile = null;
+        catalogDialog.show(properties.getProperty(CHOOSE_COURSE_MESSAGE));
+        String selection = catalogDialog.getSelection();
+        if (selection.equals(CourseCatalogDialog.OPEN)) {
+            selectedFile = new File(catalogDialog.getSelectedEntry().getFilePath());
+        } else if (selection.equals(CourseCatalogDialog.BROWSE)) {
+            FileChooser courseFileChooser = new FileChooser();
+            courseFileChooser.setInitialDirectory(new File(PATH_COURSES));
+            selectedFile = courseFileChooser.showOpenDialog(gui.getWindow());
+        }
 
         // ONLY OPEN A NEW FILE IF THE USER SAYS OK
         if (selectedFile != null) {
             try {
                 Course courseToLoad = gui.getDataManager().getCourse();
                 courseIO.loadCourse(courseToLoad, selectedFile.getAbsolutePath());
+                gui.getDataManager().courseChanged();
+                savedVersion = courseToLoad.getVersion();
                 
                 saved = true;
                 gui.updateToolbarControls(saved);
@@ -336,6 +447,15 @@ public class FileController {
         saved = false;
     }
 
+    /**
+     * Accessor method for the catalog of all the saved courses.
+     *
+     * @return The catalog this controller keeps up to date.
+     */
+    public CourseCatalog getCatalog() {
+        return catalog;
+    }
+
     /**
      * Accessor method for checking to see if the current course has been saved
      * since it was last edited.
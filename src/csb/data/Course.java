@@ -3,15 +3,41 @@ package csb.data;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * This class represents a course to be edited and then used to
  * generate a site.
  * 
+ * <p>Note that a course's pages and lecture days are each kept as a
+ * bitmask, with one bit for each enum constant, so checking for one is
+ * a single test and a course takes up very little memory. The lists of
+ * pages and lecture days a course provides are shared by every course
+ * with the same ones, can't be changed, and always list them in the
+ * order of their constants, no matter what order they were added in.</p>
+ * 
+ * <p>A course also keeps track of what's been changed in it. Every change
+ * that actually changes something gives the course a new, bigger version
+ * number, and each field remembers the version it was last changed in,
+ * so whoever uses a course can remember the version they last looked at
+ * and later ask which fields have changed since then, and only redo the
+ * work those fields need. Setting a field to the value it already has
+ * isn't a change.</p>
+ * 
  * @author Richard McKenna
  */
 public class Course {
+    // EVERY LIST OF PAGES AND OF LECTURE DAYS THERE CAN BE, INDEXED BY
+    // BITMASK, SO PROVIDING ONE NEVER MAKES A NEW LIST. THERE ARE ONLY
+    // 32 AND 128 OF THEM, SINCE THERE ARE SO FEW PAGES AND DAYS
+    static final CoursePage[] PAGES = CoursePage.values();
+    static final DayOfWeek[] DAYS = DayOfWeek.values();
+    static final List<CoursePage>[] PAGE_LISTS = makeLists(PAGES);
+    static final List<DayOfWeek>[] LECTURE_DAY_LISTS = makeLists(DAYS);
+
     // THESE COURSE DETAILS DESCRIBE WHAT'S REQUIRED BY
     // THE COURSE SITE PAGES
     Subject subject;
@@ -22,8 +48,13 @@ public class Course {
     Instructor instructor;
     LocalDate startingMonday;
     LocalDate endingFriday;
-    List<CoursePage> pages;
-    List<DayOfWeek> lectureDays;
+    int pagesMask;
+    int lectureDaysMask;
+
+    // THE VERSION OF THIS COURSE, AND THE VERSION EACH OF
+    // ITS FIELDS WAS LAST CHANGED IN, INDEXED BY ORDINAL
+    long version;
+    long[] fieldVersions = new long[CourseField.values().length];
 
     /**
      * Constructor for setting up a Course, it initializes the 
@@ -34,11 +65,8 @@ public class Course {
      * mutator methods on it.
      */
     public Course(Instructor initInstructor) {
-        // INITIALIZE THIS OBJECT'S DATA STRUCTURES
-        pages = new ArrayList();
-        lectureDays = new ArrayList();
-        
-        // AND KEEP THE INSTRUCTOR
+        // THERE ARE NO PAGES OR LECTURE DAYS YET, SO
+        // ALL WE HAVE TO DO IS KEEP THE INSTRUCTOR
         instructor = initInstructor;
     }
 
@@ -47,7 +75,7 @@ public class Course {
     // THESE AS USERS INPUT VALUES IN THE GUI
      
     public boolean hasCoursePage(CoursePage testPage) {
-        return pages.contains(testPage);
+        return (pagesMask & bit(testPage)) != 0;
     }
 
     public Subject getSubject() {
@@ -55,7 +83,10 @@ public class Course {
     }
 
     public void setSubject(Subject subject) {
-        this.subject = subject;
+        if (this.subject != subject) {
+            this.subject = subject;
+            changed(CourseField.SUBJECT);
+        }
     }
     
     public int getNumber() {
@@ -63,26 +94,38 @@ public class Course {
     }
 
     public void setNumber(int number) {
-        this.number = number;
+        if (this.number != number) {
+            this.number = number;
+            changed(CourseField.NUMBER);
+        }
     }
     public Semester getSemester(){
         return semester;
     }
     public void setSemester(Semester semester){
-        this.semester = semester;
+        if (this.semester != semester) {
+            this.semester = semester;
+            changed(CourseField.SEMESTER);
+        }
     }
     public int getYear(){
         return year;
     }
     public void setYear(int year){
-        this.year = year;
+        if (this.year != year) {
+            this.year = year;
+            changed(CourseField.YEAR);
+        }
     }
     public String getTitle() {
         return title;
     }
 
     public void setTitle(String title) {
-        this.title = title;
+        if (!Objects.equals(this.title, title)) {
+            this.title = title;
+            changed(CourseField.TITLE);
+        }
     }
 
     public Instructor getInstructor() {
@@ -90,7 +133,27 @@ public class Course {
     }
 
     public void setInstructor(Instructor instructor) {
-        this.instructor = instructor;
+        if (this.instructor != instructor) {
+            this.instructor = instructor;
+            changed(CourseField.INSTRUCTOR);
+        }
+    }
+
+    /**
+     * Changes the name and homepage of this course's instructor. Note that
+     * the Instructor's own mutator methods may also be used, but then this
+     * course can't tell that it's been changed.
+     * 
+     * @param name The instructor's name.
+     * @param homepageURL The instructor's homepage.
+     */
+    public void setInstructorInfo(String name, String homepageURL) {
+        if (!Objects.equals(instructor.getName(), name)
+                || !Objects.equals(instructor.getHomepageURL(), homepageURL)) {
+            instructor.setName(name);
+            instructor.setHomepageURL(homepageURL);
+            changed(CourseField.INSTRUCTOR);
+        }
     }
 
     public LocalDate getStartingMonday() {
@@ -98,7 +161,10 @@ public class Course {
     }
 
     public void setStartingMonday(LocalDate startingMonday) {
-        this.startingMonday = startingMonday;
+        if (!Objects.equals(this.startingMonday, startingMonday)) {
+            this.startingMonday = startingMonday;
+            changed(CourseField.STARTING_MONDAY);
+        }
     }
 
     public LocalDate getEndingFriday() {
@@ -106,7 +172,10 @@ public class Course {
     }
     
     public void setEndingFriday(LocalDate endingFriday) {
-        this.endingFriday = endingFriday;
+        if (!Objects.equals(this.endingFriday, endingFriday)) {
+            this.endingFriday = endingFriday;
+            changed(CourseField.ENDING_FRIDAY);
+        }
     }
     
     public void setScheduleDates(LocalDate initStartingMonday, LocalDate initEndingFriday) {
@@ -115,59 +184,202 @@ public class Course {
     }
         
     public void addPage(CoursePage pageToAdd) {
-        pages.add(pageToAdd);
+        changePages(pagesMask | bit(pageToAdd));
     }
     
     public List<CoursePage> getPages() {
-        return pages;
+        return PAGE_LISTS[pagesMask];
     }
     
     public void selectPage(CoursePage coursePage) {
-        if (!pages.contains(coursePage))
-            pages.add(coursePage);
+        changePages(pagesMask | bit(coursePage));
     }
     
     public void unselectPage(CoursePage coursePage) {
-        if (pages.contains(coursePage))
-            pages.remove(coursePage);
+        changePages(pagesMask & ~bit(coursePage));
     }
 
     public List<DayOfWeek> getLectureDays() {
-        return lectureDays;
+        return LECTURE_DAY_LISTS[lectureDaysMask];
     }
     
     // BELOW ARE ADDITIONAL METHODS FOR UPDATING A COURSE
     
     public void selectLectureDay(DayOfWeek dayOfWeek) {
-        if (!lectureDays.contains(dayOfWeek))
-            lectureDays.add(dayOfWeek);
-        else
-            lectureDays.remove(dayOfWeek);
+        changeLectureDays(lectureDaysMask ^ bit(dayOfWeek));
     }
     
     public void selectLectureDay(DayOfWeek dayOfWeek, boolean isSelected) {
         if (isSelected) {
-            if (!lectureDays.contains(dayOfWeek))
-                lectureDays.add(dayOfWeek);
+            changeLectureDays(lectureDaysMask | bit(dayOfWeek));
         }
         else {
-            lectureDays.remove(dayOfWeek);
+            changeLectureDays(lectureDaysMask & ~bit(dayOfWeek));
         }
     }
 
     public void clearPages() {
-        pages.clear();
+        changePages(0);
     }
 
     public void clearLectureDays() {
-        lectureDays.clear();
+        changeLectureDays(0);
     }
 
     public void addLectureDay(DayOfWeek dayOfWeek) {
-        lectureDays.add(dayOfWeek);
+        changeLectureDays(lectureDaysMask | bit(dayOfWeek));
     }
 
     public boolean hasLectureDay(DayOfWeek dayOfWeek) {
-        return lectureDays.contains(dayOfWeek);
+        return (lectureDaysMask & bit(dayOfWeek)) != 0;
+    }
+
+    // THE BITMASKS THEMSELVES, WITH BIT i SET IF THE CONSTANT WITH ORDINAL
+    // i IS INCLUDED, FOR FILE FORMATS THAT SAVE THEM THAT WAY
+
+    public int getPagesMask() {
+        return pagesMask;
+    }
+
+    public void setPagesMask(int initPagesMask) {
+        changePages(initPagesMask & (PAGE_LISTS.length - 1));
+    }
+
+    public int getLectureDaysMask() {
+        return lectureDaysMask;
+    }
+
+    public void setLectureDaysMask(int initLectureDaysMask) {
+        changeLectureDays(initLectureDaysMask & (LECTURE_DAY_LISTS.length - 1));
+    }
+
+    // BELOW ARE THE METHODS FOR FINDING OUT WHAT'S CHANGED
+
+    /**
+     * Accessor method for this course's version, which goes up every time
+     * the course is changed. Remember it to later ask what's changed since.
+     * 
+     * @return The course's current version.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Finds which fields have been changed since the course had the
+     * sinceVersion version.
+     * 
+     * @param sinceVersion A version this course had.
+     * 
+     * @return A bitmask with bit i set if the field with ordinal i has
+     * been changed, which is 0 if nothing has been.
+     */
+    public int getChangedFields(long sinceVersion) {
+        int changedFields = 0;
+        if (version > sinceVersion) {
+            for (int i = 0; i < fieldVersions.length; i++) {
+                if (fieldVersions[i] > sinceVersion) {
+                    changedFields |= (1 << i);
+                }
+            }
+        }
+        return changedFields;
+    }
+
+    /**
+     * Tests whether one field has been changed since the course had the
+     * sinceVersion version.
+     * 
+     * @param field The field to test.
+     * @param sinceVersion A version this course had.
+     * 
+     * @return true if field has been changed since then, false otherwise.
+     */
+    public boolean hasChangedSince(CourseField field, long sinceVersion) {
+        return fieldVersions[field.ordinal()] > sinceVersion;
+    }
+
+    /**
+     * Tests whether anything has been changed since the course had the
+     * sinceVersion version.
+     * 
+     * @param sinceVersion A version this course had.
+     * 
+     * @return true if any field has been changed since then, false otherwise.
+     */
+    public boolean hasChangedSince(long sinceVersion) {
+        return version > sinceVersion;
+    }
+
+    /**
+     * Makes this course a copy of courseToCopy. Note that it gets its own
+     * instructor, pages and lecture days, so changing one of the two
+     * courses afterwards never changes the other. Every field counts as
+     * changed, whether or not it's any different.
+     * 
+     * @param courseToCopy The course whose data we're copying.
+     */
+    public void copyFrom(Course courseToCopy) {
+        subject = courseToCopy.subject;
+        semester = courseToCopy.semester;
+        year = courseToCopy.year;
+        number = courseToCopy.number;
+        title = courseToCopy.title;
+        instructor = (courseToCopy.instructor == null) ? null
+                : new Instructor(courseToCopy.instructor.getName(), courseToCopy.instructor.getHomepageURL());
+        startingMonday = courseToCopy.startingMonday;
+        endingFriday = courseToCopy.endingFriday;
+        pagesMask = courseToCopy.pagesMask;
+        lectureDaysMask = courseToCopy.lectureDaysMask;
+        changedAll();
+    }
+
+    // RECORDS THAT field HAS JUST BEEN CHANGED
+    private void changed(CourseField field) {
+        version++;
+        fieldVersions[field.ordinal()] = version;
+    }
+
+    // RECORDS THAT EVERY FIELD HAS JUST BEEN CHANGED
+    void changedAll() {
+        version++;
+        Arrays.fill(fieldVersions, version);
+    }
+
+    // CHANGES THE PAGES TO THE ONES IN newPagesMask, IF THEY'RE DIFFERENT
+    private void changePages(int newPagesMask) {
+        if (pagesMask != newPagesMask) {
+            pagesMask = newPagesMask;
+            changed(CourseField.PAGES);
+        }
+    }
+
+    // CHANGES THE LECTURE DAYS TO THE ONES IN newLectureDaysMask, IF THEY'RE DIFFERENT
+    private void changeLectureDays(int newLectureDaysMask) {
+        if (lectureDaysMask != newLectureDaysMask) {
+            lectureDaysMask = newLectureDaysMask;
+            changed(CourseField.LECTURE_DAYS);
+        }
+    }
+
+    // GETS THE BIT FOR AN ENUM CONSTANT IN A BITMASK
+    private static int bit(Enum constant) {
+        return 1 << constant.ordinal();
+    }
+
+    // MAKES EVERY LIST OF THE CONSTANTS THERE CAN BE, WITH THE LIST AT
+    // INDEX mask HOLDING THE CONSTANTS WHOSE BITS ARE SET IN mask
+    private static <E extends Enum<E>> List<E>[] makeLists(E[] constants) {
+        List<E>[] lists = new List[1 << constants.length];
+        for (int mask = 0; mask < lists.length; mask++) {
+            ArrayList<E> list = new ArrayList();
+            for (E constant : constants) {
+                if ((mask & bit(constant)) != 0) {
+                    list.add(constant);
+                }
+            }
+            lists[mask] = Collections.unmodifiableList(list);
+        }
+        return lists;
     }
 }
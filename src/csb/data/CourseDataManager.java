@@ -8,6 +8,12 @@ import java.time.LocalDate;
  * This class manages a Course, which means it knows how to
  * reset one with default values and generate useful dates.
  * 
+ * <p>The course itself may only be used on the thread that edits it,
+ * which is the UI's. For work on other threads, like exporting or
+ * saving in the background, this class publishes a snapshot of the
+ * course every time it changes, which any thread may read. Publishing
+ * one only copies a few fields, so it's cheap to do on every edit.</p>
+ * 
  * @author Richard McKenna
  */
 public class CourseDataManager {
@@ -21,6 +27,9 @@ public class CourseDataManager {
     // THIS HELPS US LOAD THINGS FOR OUR COURSE
     CourseFileManager fileManager;
     
+    // THE LATEST SNAPSHOT OF THE COURSE, WHICH OTHER THREADS MAY READ
+    volatile CourseSnapshot snapshot;
+    
     // DEFAULT INITIALIZATION VALUES FOR NEW COURSES
     static Subject  DEFAULT_COURSE_SUBJECT = Subject.CSE;
     static int      DEFAULT_NUM = 219;
@@ -31,6 +40,7 @@ public class CourseDataManager {
                                 Instructor lastInstructor) {
         view = initView;
         course = new Course(lastInstructor);
+        snapshot = new CourseSnapshot(course);
     }
     
     /**
@@ -40,6 +50,28 @@ public class CourseDataManager {
         return course;
     }
     
+    /**
+     * Accessor method for getting the latest snapshot of the course,
+     * which may be called on any thread.
+     * 
+     * @return A copy of the course as of its last change.
+     */
+    public CourseSnapshot getSnapshot() {
+        return snapshot;
+    }
+    
+    /**
+     * This method must be called on the UI thread every time the course
+     * is changed, so that the change gets into the snapshot other threads
+     * can read. Note that if nothing was really changed, which the
+     * course's version tells us, the snapshot we have is kept.
+     */
+    public void courseChanged() {
+        if (course.getVersion() != snapshot.getVersion()) {
+            snapshot = new CourseSnapshot(course);
+        }
+    }
+    
     /**
      * Accessor method for getting the file manager, which knows how
      * to read and write course data from/to files.
@@ -65,6 +97,11 @@ public class CourseDataManager {
         course.clearLectureDays();
         course.clearPages();
         
+        // A NEW COURSE IS ALL CHANGED, EVEN WHERE IT
+        // HAPPENS TO MATCH THE COURSE IT REPLACES
+        course.changedAll();
+        courseChanged();
+        
         // AND THEN FORCE THE UI TO RELOAD THE UPDATED COURSE
         view.reloadCourse(course);
     }
@@ -0,0 +1,20 @@
+package csb.data;
+
+/**
+ * This type represents the parts of a course that may be changed
+ * separately, so we can keep track of which ones have been.
+ * 
+ * @author Richard McKenna
+ */
+public enum CourseField {
+    SUBJECT,
+    NUMBER,
+    SEMESTER,
+    YEAR,
+    TITLE,
+    INSTRUCTOR,
+    STARTING_MONDAY,
+    ENDING_FRIDAY,
+    PAGES,
+    LECTURE_DAYS
+}
@@ -0,0 +1,87 @@
+package csb.data;
+
+/**
+ * This class holds just the few fields that identify a course, which is
+ * all that's needed to list and search courses. A file manager can read
+ * a header without reading the rest of the course, like its pages, lecture
+ * days and dates, so browsing a big archive of courses doesn't pay for
+ * loading every one of them. Headers never change once they're made, so
+ * they may be shared between threads.
+ *
+ * @author Richard McKenna
+ */
+public class CourseHeader {
+    // WHAT A COURSE IS, AND WHO TEACHES IT
+    final Subject subject;
+    final int number;
+    final Semester semester;
+    final int year;
+    final String title;
+    final String instructorName;
+
+    /**
+     * This constructor makes a header with all the data provided.
+     *
+     * @param initSubject The course's subject.
+     * @param initNumber The course's number.
+     * @param initSemester The semester the course is taught.
+     * @param initYear The year the course is taught.
+     * @param initTitle The course's title.
+     * @param initInstructorName The name of the course's instructor.
+     */
+    public CourseHeader(Subject initSubject, int initNumber, Semester initSemester, int initYear,
+            String initTitle, String initInstructorName) {
+        subject = initSubject;
+        number = initNumber;
+        semester = initSemester;
+        year = initYear;
+        title = initTitle;
+        instructorName = initInstructorName;
+    }
+
+    /**
+     * This constructor makes the header of a course that's already loaded.
+     *
+     * @param course The course whose header we want.
+     */
+    public CourseHeader(Course course) {
+        this(course.getSubject(), course.getNumber(), course.getSemester(), course.getYear(),
+                course.getTitle(), course.getInstructor().getName());
+    }
+
+    // ACCESSOR METHODS
+
+    public Subject getSubject() {
+        return subject;
+    }
+
+    public int getNumber() {
+        return number;
+    }
+
+    public Semester getSemester() {
+        return semester;
+    }
+
+    public int getYear() {
+        return year;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getInstructorName() {
+        return instructorName;
+    }
+
+    /**
+     * Provides a description of this course for showing in lists.
+     *
+     * @return The course's subject, number, title, semester and year.
+     */
+    @Override
+    public String toString() {
+        return subject + " " + number + " - " + title + " (" + semester + " " + year + ")";
+    }
+}
@@ -0,0 +1,146 @@
+package csb.data;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * This class holds a copy of all of a course's data as it was at one
+ * moment while it was being edited. Snapshots never change once they're
+ * made, so a worker thread, like one exporting or saving a course, can
+ * read one while the user keeps editing the course itself, without ever
+ * seeing half of an edit. Each snapshot carries the version of the course
+ * it was taken from, so a newer snapshot always has a bigger version,
+ * and a snapshot of an unchanged course needn't be made again.
+ *
+ * @author Richard McKenna
+ */
+public class CourseSnapshot {
+    // WHICH VERSION OF THE COURSE THIS IS A COPY OF
+    final long version;
+
+    // AND ALL THE COURSE'S DATA, INCLUDING ITS INSTRUCTOR'S
+    final Subject subject;
+    final Semester semester;
+    final int year;
+    final int number;
+    final String title;
+    final String instructorName;
+    final String instructorHomepageURL;
+    final LocalDate startingMonday;
+    final LocalDate endingFriday;
+    final int pagesMask;
+    final int lectureDaysMask;
+
+    /**
+     * This constructor copies all the data of a course. Note that it must
+     * be called on the thread that edits the course, since the course
+     * itself isn't safe to read while it's being changed.
+     *
+     * @param course The course to copy.
+     */
+    public CourseSnapshot(Course course) {
+        version = course.version;
+        subject = course.subject;
+        semester = course.semester;
+        year = course.year;
+        number = course.number;
+        title = course.title;
+        Instructor instructor = course.instructor;
+        instructorName = (instructor == null) ? null : instructor.getName();
+        instructorHomepageURL = (instructor == null) ? null : instructor.getHomepageURL();
+        startingMonday = course.startingMonday;
+        endingFriday = course.endingFriday;
+        pagesMask = course.pagesMask;
+        lectureDaysMask = course.lectureDaysMask;
+    }
+
+    // ACCESSOR METHODS
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Subject getSubject() {
+        return subject;
+    }
+
+    public Semester getSemester() {
+        return semester;
+    }
+
+    public int getYear() {
+        return year;
+    }
+
+    public int getNumber() {
+        return number;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getInstructorName() {
+        return instructorName;
+    }
+
+    public String getInstructorHomepageURL() {
+        return instructorHomepageURL;
+    }
+
+    public LocalDate getStartingMonday() {
+        return startingMonday;
+    }
+
+    public LocalDate getEndingFriday() {
+        return endingFriday;
+    }
+
+    public boolean hasCoursePage(CoursePage testPage) {
+        return (pagesMask & (1 << testPage.ordinal())) != 0;
+    }
+
+    public List<CoursePage> getPages() {
+        return Course.PAGE_LISTS[pagesMask];
+    }
+
+    public boolean hasLectureDay(DayOfWeek dayOfWeek) {
+        return (lectureDaysMask & (1 << dayOfWeek.ordinal())) != 0;
+    }
+
+    public List<DayOfWeek> getLectureDays() {
+        return Course.LECTURE_DAY_LISTS[lectureDaysMask];
+    }
+
+    /**
+     * Makes a new course with the data in this snapshot, for code like
+     * the file managers and the exporter that work with courses. The course
+     * belongs to whoever asked for it, so it's safe to use on any thread.
+     *
+     * @return A new course with this snapshot's data.
+     */
+    public Course toCourse() {
+        Course course = new Course((instructorName == null) ? null
+                : new Instructor(instructorName, instructorHomepageURL));
+        course.subject = subject;
+        course.semester = semester;
+        course.year = year;
+        course.number = number;
+        course.title = title;
+        course.startingMonday = startingMonday;
+        course.endingFriday = endingFriday;
+        course.pagesMask = pagesMask;
+        course.lectureDaysMask = lectureDaysMask;
+        return course;
+    }
+
+    /**
+     * Makes the header of the course in this snapshot, for listing it.
+     *
+     * @return The header of the snapshot's course.
+     */
+    public CourseHeader getHeader() {
+        return new CourseHeader(subject, number, semester, year, title, instructorName);
+    }
+}
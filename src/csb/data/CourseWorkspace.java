@@ -0,0 +1,579 @@
+package csb.data;
+
+import csb.file.CourseCatalogEntry;
+import csb.file.CourseFileManager;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * This class holds many courses at once, like all of a semester's, so
+ * they can be browsed, filtered and worked on together. Courses are
+ * indexed by subject, by semester and year, by instructor and by number,
+ * so finding, say, all the CSE courses taught in the FALL of a year only
+ * looks at those courses, never at the rest of the workspace.
+ *
+ * <p>Only a course's header is needed to index it, so a workspace may be
+ * filled from the course catalog without reading any course files, and
+ * a course is only loaded when it's asked for. To keep memory bounded, at
+ * most a fixed number of courses stay loaded, and when there are more the
+ * least recently used ones are dropped again. A course that's being
+ * edited, or that has changes that haven't been saved, is never dropped,
+ * so no work is ever lost.</p>
+ *
+ * <p>Loaded courses may be edited directly, and the indexes catch up
+ * with those edits before they're next used, which only means checking
+ * the version of each loaded course. Note that, just like a course, a
+ * workspace may only be used on the thread that edits its courses.</p>
+ *
+ * @author Richard McKenna
+ */
+public class CourseWorkspace {
+    // HOW MANY COURSES WE KEEP LOADED BY DEFAULT
+    public static final int DEFAULT_MAX_LOADED_COURSES = 16;
+
+    // THE FIELDS THAT GO INTO A COURSE'S HEADER, SO IF NONE OF
+    // THEM HAVE CHANGED THE COURSE DOESN'T NEED REINDEXING
+    static final int HEADER_FIELDS = (1 << CourseField.SUBJECT.ordinal())
+            | (1 << CourseField.NUMBER.ordinal())
+            | (1 << CourseField.SEMESTER.ordinal())
+            | (1 << CourseField.YEAR.ordinal())
+            | (1 << CourseField.TITLE.ordinal())
+            | (1 << CourseField.INSTRUCTOR.ordinal());
+
+    // QUERIES LIST COURSES IN THIS ORDER
+    static final Comparator<CourseWorkspaceEntry> COURSE_ORDER = Comparator
+            .comparing((CourseWorkspaceEntry entry) -> entry.header.getSubject())
+            .thenComparingInt(entry -> entry.header.getNumber())
+            .thenComparingInt(entry -> entry.header.getYear())
+            .thenComparing(entry -> entry.header.getSemester());
+
+    // THIS LOADS AND SAVES THE COURSES
+    CourseFileManager fileManager;
+
+    // EVERY COURSE IN THE WORKSPACE, KEYED BY THE ABSOLUTE PATH OF ITS
+    // FILE, SINCE THE SAME FILE MAY BE NAMED BY DIFFERENT PATHS
+    HashMap<String, CourseWorkspaceEntry> entries;
+
+    // THE INDEXES, NOTE THAT A SEMESTER'S KEY INCLUDES ITS YEAR
+    EnumMap<Subject, Set<CourseWorkspaceEntry>> bySubject;
+    HashMap<Integer, Set<CourseWorkspaceEntry>> bySemester;
+    HashMap<String, Set<CourseWorkspaceEntry>> byInstructor;
+    TreeMap<Integer, Set<CourseWorkspaceEntry>> byNumber;
+
+    // THE LOADED COURSES, KEYED THE SAME WAY, WITH THE LEAST RECENTLY
+    // USED FIRST, AND HOW MANY OF THEM WE KEEP WHEN WE CAN DROP SOME
+    LinkedHashMap<String, CourseWorkspaceEntry> loadedEntries;
+    int maxLoadedCourses;
+
+    // THE COURSE BEING EDITED, WHICH IS ALWAYS KEPT LOADED
+    CourseWorkspaceEntry activeEntry;
+
+    /**
+     * This constructor sets up an empty workspace that keeps the default
+     * number of courses loaded.
+     *
+     * @param initFileManager Used for loading and saving courses.
+     */
+    public CourseWorkspace(CourseFileManager initFileManager) {
+        this(initFileManager, DEFAULT_MAX_LOADED_COURSES);
+    }
+
+    /**
+     * This constructor sets up an empty workspace that keeps at most
+     * initMaxLoadedCourses courses loaded, not counting courses that
+     * are being edited or have unsaved changes.
+     *
+     * @param initFileManager Used for loading and saving courses.
+     * @param initMaxLoadedCourses The most courses to keep loaded.
+     */
+    public CourseWorkspace(CourseFileManager initFileManager, int initMaxLoadedCourses) {
+        fileManager = initFileManager;
+        maxLoadedCourses = Math.max(1, initMaxLoadedCourses);
+        entries = new HashMap();
+        bySubject = new EnumMap(Subject.class);
+        bySemester = new HashMap();
+        byInstructor = new HashMap();
+        byNumber = new TreeMap();
+        loadedEntries = new LinkedHashMap(16, 0.75f, true);
+    }
+
+    /**
+     * Adds a saved course to the workspace without loading it. If the
+     * course is already here and isn't loaded, its header is replaced.
+     *
+     * @param filePath Path of the course's file.
+     * @param header The course's header.
+     *
+     * @return The course's entry.
+     */
+    public CourseWorkspaceEntry addCourse(String filePath, CourseHeader header) {
+        String key = getKey(filePath);
+        CourseWorkspaceEntry entry = entries.get(key);
+        if (entry == null) {
+            entry = new CourseWorkspaceEntry(filePath, header);
+            entries.put(key, entry);
+            index(entry);
+        } else if (entry.course == null) {
+            unindex(entry);
+            entry.header = header;
+            index(entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Adds all the courses listed in the catalog to the workspace, which
+     * doesn't read any course files.
+     *
+     * @param catalogEntries The courses to add, like those from a catalog.
+     */
+    public void addCourses(Collection<CourseCatalogEntry> catalogEntries) {
+        for (CourseCatalogEntry catalogEntry : catalogEntries) {
+            addCourse(catalogEntry.getFilePath(), new CourseHeader(catalogEntry.getSubject(),
+                    catalogEntry.getNumber(), catalogEntry.getSemester(), catalogEntry.getYear(),
+                    catalogEntry.getTitle(), catalogEntry.getInstructorName()));
+        }
+    }
+
+    /**
+     * Adds a course that hasn't been saved yet to the workspace. It stays
+     * loaded at least until it is saved.
+     *
+     * @param newCourse The course to add.
+     *
+     * @return The course's entry.
+     */
+    public CourseWorkspaceEntry addNewCourse(Course newCourse) {
+        String filePath = fileManager.getCourseFilePath(newCourse);
+        String key = getKey(filePath);
+        removeCourse(entries.get(key));
+        CourseWorkspaceEntry entry = new CourseWorkspaceEntry(filePath, new CourseHeader(newCourse));
+        entry.course = newCourse;
+        entry.indexedVersion = newCourse.getVersion();
+        entries.put(key, entry);
+        index(entry);
+        loadedEntries.put(key, entry);
+        evictIfNeeded();
+        return entry;
+    }
+
+    /**
+     * Removes a course from the workspace, losing any unsaved changes to it.
+     * Note that its file isn't touched.
+     *
+     * @param entry The entry of the course to remove, which may be null.
+     */
+    public void removeCourse(CourseWorkspaceEntry entry) {
+        if (entry == null) {
+            return;
+        }
+        String key = getKey(entry.filePath);
+        if (entries.get(key) != entry) {
+            return;
+        }
+        unindex(entry);
+        entries.remove(key);
+        loadedEntries.remove(key);
+        entry.course = null;
+        if (activeEntry == entry) {
+            activeEntry = null;
+        }
+    }
+
+    /**
+     * Accessor method for the entry of the course saved at filePath.
+     *
+     * @param filePath Path of the course's file.
+     *
+     * @return The course's entry, or null if it isn't in the workspace.
+     */
+    public CourseWorkspaceEntry getEntry(String filePath) {
+        return entries.get(getKey(filePath));
+    }
+
+    /**
+     * Accessor method for every course in the workspace.
+     *
+     * @return All the entries, in order of subject and number.
+     */
+    public List<CourseWorkspaceEntry> getEntries() {
+        updateIndexes();
+        return sorted(entries.values());
+    }
+
+    /**
+     * Accessor method for the number of courses in the workspace.
+     *
+     * @return How many courses there are, loaded or not.
+     */
+    public int getCourseCount() {
+        return entries.size();
+    }
+
+    /**
+     * Accessor method for the number of courses that are loaded.
+     *
+     * @return How many courses are in memory right now.
+     */
+    public int getLoadedCourseCount() {
+        return loadedEntries.size();
+    }
+
+    /**
+     * Provides a course, loading it if it isn't already loaded, which
+     * may drop the least recently used of the other loaded courses.
+     *
+     * @param entry The entry of the course we want.
+     *
+     * @return The course.
+     *
+     * @throws IOException Thrown when the course has to be loaded
+     * and can't be.
+     */
+    public Course getCourse(CourseWorkspaceEntry entry) throws IOException {
+        if (entry.course != null) {
+            // GETTING IT MAKES IT THE MOST RECENTLY USED
+            loadedEntries.get(getKey(entry.filePath));
+            return entry.course;
+        }
+        Course course = new Course(new Instructor("", ""));
+        fileManager.loadCourse(course, entry.filePath);
+        entry.course = course;
+        entry.savedVersion = course.getVersion();
+
+        // THE FILE MAY NOT HAVE HAD WHAT ITS HEADER SAID
+        reindex(entry);
+        loadedEntries.put(getKey(entry.filePath), entry);
+        evictIfNeeded();
+        return course;
+    }
+
+    /**
+     * Makes a course the one being edited, loading it if needed. The
+     * course being edited always stays loaded.
+     *
+     * @param entry The entry of the course to edit, or null for none.
+     *
+     * @return The course to edit, or null if there isn't one.
+     *
+     * @throws IOException Thrown when the course can't be loaded.
+     */
+    public Course setActiveCourse(CourseWorkspaceEntry entry) throws IOException {
+        activeEntry = entry;
+        Course activeCourse = (entry == null) ? null : getCourse(entry);
+        evictIfNeeded();
+        return activeCourse;
+    }
+
+    /**
+     * Accessor method for the entry of the course being edited.
+     *
+     * @return The active course's entry, or null if there isn't one.
+     */
+    public CourseWorkspaceEntry getActiveEntry() {
+        return activeEntry;
+    }
+
+    /**
+     * Saves a course if it has changes that haven't been saved, after
+     * which it may be dropped from memory when it isn't being used.
+     *
+     * @param entry The entry of the course to save.
+     *
+     * @return true if the course was saved, false if it had no changes.
+     *
+     * @throws IOException Thrown when the course can't be saved, including
+     * when its subject or number were changed so that it would be saved
+     * over another course with unsaved changes or that's being edited.
+     */
+    public boolean saveCourse(CourseWorkspaceEntry entry) throws IOException {
+        if (!entry.isEdited()) {
+            return false;
+        }
+        checkCanSave(entry);
+        fileManager.saveCourse(entry.course);
+        courseSaved(entry);
+        evictIfNeeded();
+        return true;
+    }
+
+    /**
+     * Saves every course with changes that haven't been saved. Note that
+     * only loaded courses can have changes, so the rest aren't looked at.
+     *
+     * @return The number of courses that were saved.
+     *
+     * @throws IOException Thrown when a course can't be saved, like when it
+     * would be saved over a course with unsaved changes, in which case the
+     * courses after it aren't saved either.
+     */
+    public int saveEditedCourses() throws IOException {
+        ArrayList<CourseWorkspaceEntry> editedEntries = new ArrayList();
+        for (CourseWorkspaceEntry entry : loadedEntries.values()) {
+            if (entry.isEdited()) {
+                editedEntries.add(entry);
+            }
+        }
+        for (CourseWorkspaceEntry entry : editedEntries) {
+            checkCanSave(entry);
+            fileManager.saveCourse(entry.course);
+            courseSaved(entry);
+        }
+        evictIfNeeded();
+        return editedEntries.size();
+    }
+
+    /**
+     * Takes snapshots of a group of courses, like the results of a query,
+     * loading each one that isn't loaded. Since snapshots never change and
+     * are small, they may be used for work like exporting every course in
+     * the group on other threads, without keeping all the courses loaded.
+     *
+     * @param entriesToSnapshot The entries of the courses we want.
+     *
+     * @return A snapshot of each course, in the same order as the entries.
+     *
+     * @throws IOException Thrown when a course can't be loaded.
+     */
+    public List<CourseSnapshot> getSnapshots(List<CourseWorkspaceEntry> entriesToSnapshot) throws IOException {
+        ArrayList<CourseSnapshot> snapshots = new ArrayList();
+        for (CourseWorkspaceEntry entry : entriesToSnapshot) {
+            snapshots.add(new CourseSnapshot(getCourse(entry)));
+        }
+        return snapshots;
+    }
+
+    // BELOW ARE THE QUERIES, WHICH ONLY LOOK AT THE COURSES THAT MATCH
+
+    /**
+     * Finds all the courses of a subject.
+     *
+     * @param subject The subject of the courses.
+     *
+     * @return The matching entries, in order of subject and number.
+     */
+    public List<CourseWorkspaceEntry> getCourses(Subject subject) {
+        updateIndexes();
+        return sorted(bySubject.get(subject));
+    }
+
+    /**
+     * Finds all the courses taught in a particular semester.
+     *
+     * @param semester The semester the courses are taught.
+     * @param year The year the courses are taught.
+     *
+     * @return The matching entries, in order of subject and number.
+     */
+    public List<CourseWorkspaceEntry> getCourses(Semester semester, int year) {
+        updateIndexes();
+        return sorted(bySemester.get(getSemesterKey(semester, year)));
+    }
+
+    /**
+     * Finds all the courses of a subject taught in a particular semester,
+     * like all the CSE courses in the FALL, which only looks at whichever
+     * of the two groups of courses is smaller.
+     *
+     * @param subject The subject of the courses.
+     * @param semester The semester the courses are taught.
+     * @param year The year the courses are taught.
+     *
+     * @return The matching entries, in order of subject and number.
+     */
+    public List<CourseWorkspaceEntry> getCourses(Subject subject, Semester semester, int year) {
+        updateIndexes();
+        Set<CourseWorkspaceEntry> subjectCourses = bySubject.get(subject);
+        Set<CourseWorkspaceEntry> semesterCourses = bySemester.get(getSemesterKey(semester, year));
+        if ((subjectCourses == null) || (semesterCourses == null)) {
+            return new ArrayList();
+        }
+        Set<CourseWorkspaceEntry> smaller = subjectCourses;
+        Set<CourseWorkspaceEntry> larger = semesterCourses;
+        if (smaller.size() > larger.size()) {
+            smaller = semesterCourses;
+            larger = subjectCourses;
+        }
+        ArrayList<CourseWorkspaceEntry> matches = new ArrayList();
+        for (CourseWorkspaceEntry entry : smaller) {
+            if (larger.contains(entry)) {
+                matches.add(entry);
+            }
+        }
+        matches.sort(COURSE_ORDER);
+        return matches;
+    }
+
+    /**
+     * Finds all the courses taught by an instructor, ignoring case.
+     *
+     * @param instructorName The name of the instructor.
+     *
+     * @return The matching entries, in order of subject and number.
+     */
+    public List<CourseWorkspaceEntry> getCoursesTaughtBy(String instructorName) {
+        updateIndexes();
+        return sorted(byInstructor.get(getInstructorKey(instructorName)));
+    }
+
+    /**
+     * Finds all the courses whose numbers are in a range, of any subject.
+     *
+     * @param lowNumber The lowest number to include.
+     * @param highNumber The highest number to include.
+     *
+     * @return The matching entries, in order of subject and number.
+     */
+    public List<CourseWorkspaceEntry> getCoursesNumbered(int lowNumber, int highNumber) {
+        updateIndexes();
+        ArrayList<CourseWorkspaceEntry> matches = new ArrayList();
+        if (lowNumber > highNumber) {
+            return matches;
+        }
+        for (Set<CourseWorkspaceEntry> numberCourses : byNumber.subMap(lowNumber, true, highNumber, true).values()) {
+            matches.addAll(numberCourses);
+        }
+        matches.sort(COURSE_ORDER);
+        return matches;
+    }
+
+    // BELOW ARE THE PRIVATE HELPER METHODS
+
+    // MAKES SURE SAVING A COURSE WON'T WRITE OVER ANOTHER COURSE WE'D
+    // HAVE TO DROP, WHICH WE CAN'T DO IF IT HAS WORK THAT WOULD BE LOST
+    private void checkCanSave(CourseWorkspaceEntry entry) throws IOException {
+        String newKey = getKey(fileManager.getCourseFilePath(entry.course));
+        CourseWorkspaceEntry replacedEntry = entries.get(newKey);
+        if ((replacedEntry != null) && (replacedEntry != entry)
+                && (replacedEntry.isEdited() || (replacedEntry == activeEntry))) {
+            throw new IOException("Saving " + entry.course.getSubject() + " " + entry.course.getNumber()
+                    + " would replace " + replacedEntry + ", which is being edited");
+        }
+    }
+
+    // RECORDS THAT A COURSE HAS JUST BEEN SAVED, NOTE THAT IF ITS SUBJECT
+    // OR NUMBER CHANGED IT WAS SAVED TO A NEW FILE, WHICH IT NOW BELONGS
+    // TO, AND THE COURSE THAT WAS THERE, WHICH checkCanSave MADE SURE HAD
+    // NOTHING UNSAVED, WAS WRITTEN OVER
+    private void courseSaved(CourseWorkspaceEntry entry) {
+        entry.savedVersion = entry.course.getVersion();
+        String newFilePath = fileManager.getCourseFilePath(entry.course);
+        String oldKey = getKey(entry.filePath);
+        String newKey = getKey(newFilePath);
+        if (!newKey.equals(oldKey)) {
+            removeCourse(entries.get(newKey));
+            entries.remove(oldKey);
+            loadedEntries.remove(oldKey);
+            entry.filePath = newFilePath;
+            entries.put(newKey, entry);
+            loadedEntries.put(newKey, entry);
+        }
+    }
+
+    // REINDEXES ANY LOADED COURSE WHOSE HEADER HAS BEEN EDITED SINCE IT
+    // WAS INDEXED, NOTE THAT COURSES THAT AREN'T LOADED CAN'T BE EDITED
+    private void updateIndexes() {
+        for (CourseWorkspaceEntry entry : loadedEntries.values()) {
+            updateIndex(entry);
+        }
+    }
+
+    // REINDEXES A LOADED COURSE IF ITS HEADER HAS BEEN EDITED
+    private void updateIndex(CourseWorkspaceEntry entry) {
+        Course course = entry.course;
+        if (course.getVersion() != entry.indexedVersion) {
+            if ((course.getChangedFields(entry.indexedVersion) & HEADER_FIELDS) != 0) {
+                reindex(entry);
+            } else {
+                entry.indexedVersion = course.getVersion();
+            }
+        }
+    }
+
+    // INDEXES A LOADED COURSE UNDER WHAT IT HAS NOW
+    private void reindex(CourseWorkspaceEntry entry) {
+        unindex(entry);
+        entry.header = new CourseHeader(entry.course);
+        entry.indexedVersion = entry.course.getVersion();
+        index(entry);
+    }
+
+    // ADDS AN ENTRY TO EVERY INDEX UNDER ITS HEADER
+    private void index(CourseWorkspaceEntry entry) {
+        CourseHeader header = entry.header;
+        bySubject.computeIfAbsent(header.getSubject(), key -> new LinkedHashSet()).add(entry);
+        bySemester.computeIfAbsent(getSemesterKey(header.getSemester(), header.getYear()),
+                key -> new LinkedHashSet()).add(entry);
+        byInstructor.computeIfAbsent(getInstructorKey(header.getInstructorName()),
+                key -> new LinkedHashSet()).add(entry);
+        byNumber.computeIfAbsent(header.getNumber(), key -> new LinkedHashSet()).add(entry);
+    }
+
+    // REMOVES AN ENTRY FROM EVERY INDEX, USING THE HEADER IT WAS INDEXED WITH
+    private void unindex(CourseWorkspaceEntry entry) {
+        CourseHeader header = entry.header;
+        removeFromIndex(bySubject, header.getSubject(), entry);
+        removeFromIndex(bySemester, getSemesterKey(header.getSemester(), header.getYear()), entry);
+        removeFromIndex(byInstructor, getInstructorKey(header.getInstructorName()), entry);
+        removeFromIndex(byNumber, header.getNumber(), entry);
+    }
+
+    // REMOVES AN ENTRY FROM ONE INDEX, DROPPING ITS KEY IF IT WAS THE LAST
+    private <K> void removeFromIndex(Map<K, Set<CourseWorkspaceEntry>> index, K key, CourseWorkspaceEntry entry) {
+        Set<CourseWorkspaceEntry> keyEntries = index.get(key);
+        if ((keyEntries != null) && keyEntries.remove(entry) && keyEntries.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    // DROPS THE LEAST RECENTLY USED COURSES WE CAN DROP, UNTIL NO
+    // MORE THAN THE MOST WE KEEP ARE LOADED, OR NONE ARE LEFT TO DROP
+    private void evictIfNeeded() {
+        Iterator<CourseWorkspaceEntry> loadedIterator = loadedEntries.values().iterator();
+        while ((loadedEntries.size() > maxLoadedCourses) && loadedIterator.hasNext()) {
+            CourseWorkspaceEntry entry = loadedIterator.next();
+            if ((entry != activeEntry) && !entry.isEdited()) {
+                // ITS HEADER MUST BE RIGHT, SINCE IT'S ALL WE'LL HAVE LEFT
+                updateIndex(entry);
+                entry.course = null;
+                loadedIterator.remove();
+            }
+        }
+    }
+
+    // THE KEY A COURSE IS KEPT UNDER, WHICH IS THE ABSOLUTE PATH OF ITS
+    // FILE, SO ./data/courses/CSE219.json AND ./data/courses//CSE219.json
+    // ARE THE SAME COURSE
+    private static String getKey(String filePath) {
+        return new File(filePath).getAbsoluteFile().toPath().normalize().toString();
+    }
+
+    // THE KEY A SEMESTER IS INDEXED UNDER
+    private static int getSemesterKey(Semester semester, int year) {
+        return (year * Semester.values().length) + semester.ordinal();
+    }
+
+    // THE KEY AN INSTRUCTOR IS INDEXED UNDER
+    private static String getInstructorKey(String instructorName) {
+        return (instructorName == null) ? "" : instructorName.trim().toLowerCase();
+    }
+
+    // LISTS A GROUP OF ENTRIES IN ORDER OF SUBJECT AND NUMBER
+    private static List<CourseWorkspaceEntry> sorted(Collection<CourseWorkspaceEntry> group) {
+        ArrayList<CourseWorkspaceEntry> sortedEntries = (group == null) ? new ArrayList() : new ArrayList(group);
+        sortedEntries.sort(COURSE_ORDER);
+        return sortedEntries;
+    }
+}
@@ -0,0 +1,73 @@
+package csb.data;
+
+/**
+ * This class holds what a CourseWorkspace knows about one of its courses,
+ * which is where the course is saved and its header, which is what the
+ * workspace's indexes are built from. The course itself is only loaded
+ * when it's needed, and may be dropped again later if it hasn't been
+ * changed since it was last saved or loaded.
+ *
+ * @author Richard McKenna
+ */
+public class CourseWorkspaceEntry {
+    // WHERE THE COURSE IS SAVED, WHICH MAY MOVE IF IT'S SAVED
+    // AFTER ITS SUBJECT OR NUMBER HAVE BEEN CHANGED
+    String filePath;
+
+    // WHAT THE COURSE IS, AS IT'S INDEXED RIGHT NOW
+    CourseHeader header;
+
+    // THE COURSE ITSELF, OR null IF IT ISN'T LOADED
+    Course course;
+
+    // THE VERSION THE COURSE HAD WHEN IT WAS LAST SAVED OR LOADED, OR -1
+    // IF IT NEVER HAS BEEN, AND THE VERSION IT HAD WHEN IT WAS LAST INDEXED
+    long savedVersion;
+    long indexedVersion;
+
+    /**
+     * This constructor makes an entry for a course that isn't loaded yet.
+     *
+     * @param initFilePath Path of the course's file.
+     * @param initHeader The course's header.
+     */
+    CourseWorkspaceEntry(String initFilePath, CourseHeader initHeader) {
+        filePath = initFilePath;
+        header = initHeader;
+        savedVersion = -1;
+    }
+
+    // ACCESSOR METHODS
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public CourseHeader getHeader() {
+        return header;
+    }
+
+    public boolean isLoaded() {
+        return course != null;
+    }
+
+    /**
+     * Tests to see if this entry's course has been changed since it was
+     * last saved or loaded, in which case it can't be dropped from memory.
+     *
+     * @return true if the course is loaded and has unsaved changes.
+     */
+    public boolean isEdited() {
+        return (course != null) && course.hasChangedSince(savedVersion);
+    }
+
+    /**
+     * Provides a description of this course for showing in lists.
+     *
+     * @return The course's subject, number, title, semester and year.
+     */
+    @Override
+    public String toString() {
+        return header.toString();
+    }
+}
@@ -0,0 +1,15 @@
+package csb.file;
+
+/**
+ * This type represents the ways our site exporter can provide a course
+ * site with its stylesheets and images.
+ *
+ * @author Richard McKenna
+ */
+public enum AssetMode {
+    // EVERY COURSE SITE GETS ITS OWN COPY OF EVERY FILE
+    COPY,
+
+    // EVERY FILE IS STORED ONCE AND COURSE SITES LINK TO IT
+    SHARED
+}
@@ -0,0 +1,180 @@
+package csb.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.HashSet;
+
+/**
+ * This class keeps the stylesheets and images of a course site the same as
+ * those in the base site. It's run every time a course is exported, so it
+ * has to be cheap when nothing has changed, which is why a file is only
+ * copied when its size or modification time differs from the base site's
+ * copy, or, if we're being careful, when its contents' digest differs.
+ * Files that have been removed from the base site are removed from the
+ * course site as well.
+ *
+ * @author Richard McKenna
+ */
+public class AssetSynchronizer {
+    // THE DIRECTORIES IN A SITE THAT HOLD ITS ASSETS
+    static final String[] ASSET_DIRS = {CourseSiteExporter.CSS_DIR, CourseSiteExporter.IMAGES_DIR};
+
+    // THE DIRECTORY WITH THE BASE SITE'S ASSETS
+    File baseDir;
+
+    // THE STORE WE LINK ASSETS FROM, OR null IF WE COPY THEM
+    SharedAssetStore assetStore;
+
+    // WHETHER WE CHECK THE CONTENTS OF FILES THAT LOOK THE SAME
+    boolean verifyDigests;
+
+    /**
+     * This constructor sets up a synchronizer that copies its assets from
+     * the base site in initBaseDir.
+     *
+     * @param initBaseDir Directory that contains the base site files.
+     */
+    public AssetSynchronizer(String initBaseDir) {
+        baseDir = new File(initBaseDir);
+        verifyDigests = false;
+    }
+
+    /**
+     * Mutator method for the store assets are linked from. Note that if
+     * this is null, assets are copied instead.
+     *
+     * @param initAssetStore The store to link assets from, or null.
+     */
+    public void setAssetStore(SharedAssetStore initAssetStore) {
+        assetStore = initAssetStore;
+    }
+
+    /**
+     * Mutator method for whether files whose size and modification time
+     * match should still have their contents compared.
+     *
+     * @param initVerifyDigests true to compare digests as well.
+     */
+    public void setVerifyDigests(boolean initVerifyDigests) {
+        verifyDigests = initVerifyDigests;
+    }
+
+    /**
+     * Makes the stylesheets and images of the course site in
+     * courseExportPath match the base site's, making any directories
+     * that are missing.
+     *
+     * @param courseExportPath Directory of the course's site.
+     *
+     * @return The number of files that were copied, linked or removed.
+     *
+     * @throws IOException Thrown when an asset can't be read or written.
+     */
+    public int syncCourseSite(String courseExportPath) throws IOException {
+        int filesChanged = 0;
+        for (String assetDir : ASSET_DIRS) {
+            filesChanged += syncDirectory(new File(baseDir, assetDir), new File(courseExportPath, assetDir));
+        }
+        return filesChanged;
+    }
+
+    /**
+     * Copies the file at sourcePath to destinationPath by having the file
+     * system move the bytes from one channel to the other, and then gives
+     * the copy the same modification time as the original.
+     *
+     * @param sourcePath The file to copy.
+     * @param destinationPath Where to copy it, replacing anything there.
+     *
+     * @throws IOException Thrown when the file can't be copied.
+     */
+    public static void transferFile(Path sourcePath, Path destinationPath) throws IOException {
+        try (FileChannel source = FileChannel.open(sourcePath, StandardOpenOption.READ);
+                FileChannel destination = FileChannel.open(destinationPath,
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = source.size();
+            long position = 0;
+            while (position < size) {
+                position += source.transferTo(position, size - position, destination);
+            }
+        }
+        Files.setLastModifiedTime(destinationPath, Files.getLastModifiedTime(sourcePath));
+    }
+
+    // BELOW ARE THE PRIVATE HELPER METHODS
+
+    // MAKES ONE ASSET DIRECTORY MATCH ITS BASE SITE DIRECTORY
+    private int syncDirectory(File baseAssetDir, File siteAssetDir) throws IOException {
+        int filesChanged = 0;
+        siteAssetDir.mkdirs();
+
+        // FIRST BRING OVER EVERYTHING THAT'S NEW OR CHANGED
+        HashSet<String> baseFileNames = new HashSet();
+        File[] baseFiles = baseAssetDir.listFiles();
+        if (baseFiles != null) {
+            for (File baseFile : baseFiles) {
+                if (!baseFile.isFile()) {
+                    continue;
+                }
+                baseFileNames.add(baseFile.getName());
+                File siteFile = new File(siteAssetDir, baseFile.getName());
+                if (!isSame(baseFile, siteFile)) {
+                    placeAsset(baseFile, siteFile);
+                    filesChanged++;
+                }
+            }
+        }
+
+        // THEN GET RID OF ANYTHING THAT'S NO LONGER IN THE BASE SITE
+        File[] siteFiles = siteAssetDir.listFiles();
+        if (siteFiles != null) {
+            for (File siteFile : siteFiles) {
+                if (!baseFileNames.contains(siteFile.getName()) && !siteFile.isDirectory()) {
+                    Files.delete(siteFile.toPath());
+                    filesChanged++;
+                }
+            }
+        }
+        return filesChanged;
+    }
+
+    // TESTS TO SEE IF A SITE'S FILE IS ALREADY THE SAME AS THE BASE SITE'S,
+    // NOTE THAT FOR LINKED FILES WE LOOK AT THE FILE BEING LINKED TO
+    private boolean isSame(File baseFile, File siteFile) throws IOException {
+        if (!siteFile.exists()) {
+            return false;
+        }
+        BasicFileAttributes baseAttributes = Files.readAttributes(baseFile.toPath(), BasicFileAttributes.class);
+        BasicFileAttributes siteAttributes = Files.readAttributes(siteFile.toPath(), BasicFileAttributes.class);
+        FileTime baseTime = baseAttributes.lastModifiedTime();
+        FileTime siteTime = siteAttributes.lastModifiedTime();
+        if ((baseAttributes.size() != siteAttributes.size())
+                || (baseTime.toMillis() != siteTime.toMillis())) {
+            return false;
+        }
+        if (verifyDigests) {
+            return SharedAssetStore.digestFile(baseFile).equals(SharedAssetStore.digestFile(siteFile));
+        }
+        return true;
+    }
+
+    // PUTS AN ASSET IN A COURSE SITE, EITHER BY COPYING IT
+    // OR BY LINKING TO ITS SHARED COPY
+    private void placeAsset(File baseFile, File siteFile) throws IOException {
+        if (assetStore != null) {
+            assetStore.placeAsset(baseFile, siteFile);
+        } else {
+            // SO WE NEVER WRITE THROUGH A LINK LEFT BY SHARED MODE
+            Files.deleteIfExists(siteFile.toPath());
+            transferFile(baseFile.toPath(), siteFile.toPath());
+        }
+    }
+}
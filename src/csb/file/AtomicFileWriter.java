@@ -0,0 +1,287 @@
+package csb.file;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashSet;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * This class writes files such that a crash never leaves a half written one
+ * behind. Everything is first written to a temporary file in the same
+ * directory, which is then renamed over the real file in one step, so the
+ * file is always either entirely the old version or entirely the new one.
+ * How hard it works to get files onto the disk depends on its Durability.
+ * Note that with ON_BATCH_END each file's contents are still forced to disk
+ * before it replaces the real file, since otherwise a crash could leave an
+ * empty file in its place, but the renames are only forced to disk by
+ * flushBatch, which lets a bulk job force each directory once rather than
+ * once per file.
+ *
+ * <p>A file is written like this:</p>
+ * <pre>
+ * try (AtomicFileWriter.AtomicOutput output = fileWriter.open(filePath)) {
+ *     // WRITE EVERYTHING TO output.getOutputStream()
+ *     output.commit();
+ * }
+ * </pre>
+ * If commit is never reached, the temporary file is thrown away and the
+ * real file is left alone.
+ *
+ * @author Richard McKenna
+ */
+public class AtomicFileWriter {
+    // TEMPORARY FILES ARE NAMED AFTER THE REAL ONE WITH THESE AROUND IT
+    static final String TEMP_PREFIX = ".";
+    static final String TEMP_SUFFIX = ".tmp";
+
+    // THE SIZE OF THE BUFFER WE WRITE THROUGH
+    static final int BUFFER_SIZE = 65536;
+
+    // HOW HARD WE WORK TO GET FILES ONTO THE DISK
+    volatile Durability durability;
+
+    // DIRECTORIES WITH FILES RENAMED INTO THEM SINCE THE LAST BATCH ENDED,
+    // WHOSE ENTRIES STILL NEED TO BE FORCED TO DISK, ONLY USED FOR ON_BATCH_END
+    final LinkedHashSet<Path> pendingPaths;
+
+    /**
+     * This constructor sets up a writer with the provided durability.
+     *
+     * @param initDurability How hard to work to get files onto the disk.
+     */
+    public AtomicFileWriter(Durability initDurability) {
+        durability = initDurability;
+        pendingPaths = new LinkedHashSet();
+    }
+
+    /**
+     * Accessor method for how hard this writer works to get files onto the disk.
+     *
+     * @return The durability used for writing files.
+     */
+    public Durability getDurability() {
+        return durability;
+    }
+
+    /**
+     * Mutator method for how hard this writer works to get files onto the disk.
+     *
+     * @param initDurability The durability to use for writing files.
+     */
+    public void setDurability(Durability initDurability) {
+        durability = initDurability;
+    }
+
+    /**
+     * Starts writing the file at filePath. Nothing happens to the file
+     * itself until the returned output is committed.
+     *
+     * @param filePath Path of the file to write.
+     *
+     * @return The output to write the file's contents to.
+     *
+     * @throws IOException Thrown when the temporary file can't be made.
+     */
+    public AtomicOutput open(String filePath) throws IOException {
+        Path targetPath = Paths.get(filePath).toAbsolutePath();
+        while (true) {
+            Path tempPath = makeTempPath(targetPath);
+            try {
+                FileChannel channel = FileChannel.open(tempPath,
+                        StandardOpenOption.CREATE_NEW,
+                        StandardOpenOption.WRITE);
+                return new AtomicOutput(targetPath, tempPath, channel);
+            } catch (FileAlreadyExistsException faee) {
+                // SOMEBODY ELSE GOT THAT NAME, SO TRY ANOTHER
+            }
+        }
+    }
+
+    /**
+     * Makes a name for a temporary file in the same directory as targetPath,
+     * which is where it must be for it to be renamed over targetPath. Note
+     * that we don't use Files.createTempFile since the files it makes can
+     * only be read by their owner, which is no good for a web site.
+     *
+     * @param targetPath The file that the temporary file will replace.
+     *
+     * @return A path that is very unlikely to be in use.
+     */
+    static Path makeTempPath(Path targetPath) {
+        String tempName = TEMP_PREFIX + targetPath.getFileName()
+                + TEMP_PREFIX + Long.toHexString(ThreadLocalRandom.current().nextLong())
+                + TEMP_SUFFIX;
+        return targetPath.resolveSibling(tempName);
+    }
+
+    /**
+     * Forces the renames of every file written since the last batch ended
+     * onto the disk, the files' contents already being there. This only has
+     * anything to do when the durability is ON_BATCH_END.
+     *
+     * @throws IOException Thrown when the batch can't be forced to disk.
+     */
+    public void flushBatch() throws IOException {
+        Path[] paths;
+        synchronized (pendingPaths) {
+            paths = pendingPaths.toArray(new Path[pendingPaths.size()]);
+            pendingPaths.clear();
+        }
+        for (Path path : paths) {
+            if (Files.isDirectory(path)) {
+                forceDirectory(path);
+            }
+        }
+    }
+
+    // BELOW ARE THE PRIVATE HELPER METHODS
+
+    // FORCES A DIRECTORY'S ENTRIES ONTO THE DISK SO A RENAME IN IT SURVIVES
+    // A CRASH, NOTE THAT NOT EVERY PLATFORM LETS US DO THIS, IN WHICH CASE
+    // WE'LL HAVE TO LIVE WITHOUT IT
+    private static void forceDirectory(Path dirPath) {
+        try (FileChannel channel = FileChannel.open(dirPath, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ioe) {
+            // NOT SUPPORTED, SO NOTHING TO DO
+        }
+    }
+
+    // REMEMBERS A DIRECTORY TO BE FORCED TO DISK WHEN THE BATCH ENDS
+    private void addPending(Path dirPath) {
+        synchronized (pendingPaths) {
+            pendingPaths.add(dirPath);
+        }
+    }
+
+    /**
+     * This is a single file being written. Everything written to it goes to
+     * a temporary file until commit is called, which replaces the real file.
+     */
+    public class AtomicOutput implements Closeable {
+        // THE FILE WE'RE REPLACING AND THE ONE WE'RE REALLY WRITING
+        Path targetPath;
+        Path tempPath;
+
+        // HOW WE WRITE TO THE TEMPORARY FILE
+        FileChannel channel;
+        BufferedOutputStream bufferedStream;
+        OutputStream outputStream;
+
+        // HAS THE REAL FILE BEEN REPLACED YET?
+        boolean committed;
+
+        // ONLY open CAN MAKE THESE
+        private AtomicOutput(Path initTargetPath, Path initTempPath, FileChannel initChannel) {
+            targetPath = initTargetPath;
+            tempPath = initTempPath;
+            channel = initChannel;
+            bufferedStream = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+
+            // WE HAND OUT A STREAM THAT CAN'T BE CLOSED SO THAT THINGS LIKE
+            // WRITERS THAT CLOSE THEIR STREAMS DON'T CLOSE OUR FILE EARLY
+            outputStream = new FilterOutputStream(bufferedStream) {
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    bufferedStream.write(b, off, len);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    flush();
+                }
+            };
+            committed = false;
+        }
+
+        /**
+         * Accessor method for the buffered stream the file's contents
+         * should be written to. Note that closing it does nothing.
+         *
+         * @return The stream to write the file's contents to.
+         */
+        public OutputStream getOutputStream() {
+            return outputStream;
+        }
+
+        /**
+         * Writes all the provided buffers to the file at once, after anything
+         * already written to the output stream.
+         *
+         * @param buffers The bytes to write, in order.
+         *
+         * @throws IOException Thrown when the file can't be written.
+         */
+        public void write(ByteBuffer[] buffers) throws IOException {
+            bufferedStream.flush();
+            long remaining = 0;
+            for (ByteBuffer buffer : buffers) {
+                remaining += buffer.remaining();
+            }
+            while (remaining > 0) {
+                remaining -= channel.write(buffers);
+            }
+        }
+
+        /**
+         * Finishes writing the file and puts it in place of the real one.
+         *
+         * @throws IOException Thrown when the file can't be finished or
+         * can't replace the real one.
+         */
+        public void commit() throws IOException {
+            Durability commitDurability = durability;
+            bufferedStream.flush();
+
+            // THE CONTENTS MUST BE ON DISK BEFORE THE RENAME IS, OR A CRASH
+            // COULD LEAVE AN EMPTY OR TORN FILE WHERE THE OLD ONE WAS
+            if (commitDurability != Durability.NONE) {
+                channel.force(true);
+            }
+            channel.close();
+
+            // NOW SWAP IT IN, IF THE FILE SYSTEM CAN'T DO THAT IN ONE STEP
+            // WE STILL REPLACE IT, WHICH IS THE BEST WE CAN DO
+            try {
+                Files.move(tempPath, targetPath, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException amnse) {
+                Files.move(tempPath, targetPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+            committed = true;
+
+            // AND MAKE SURE THE RENAME ITSELF GETS TO DISK
+            if (commitDurability == Durability.ALWAYS) {
+                forceDirectory(targetPath.getParent());
+            } else if (commitDurability == Durability.ON_BATCH_END) {
+                addPending(targetPath.getParent());
+            }
+        }
+
+        /**
+         * Finishes with this file, throwing away what was written if it
+         * was never committed.
+         *
+         * @throws IOException Thrown when the temporary file can't be removed.
+         */
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                channel.close();
+                Files.deleteIfExists(tempPath);
+            }
+        }
+    }
+}
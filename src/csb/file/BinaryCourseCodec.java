@@ -0,0 +1,244 @@
+package csb.file;
+
+import csb.data.Course;
+import csb.data.CourseHeader;
+import csb.data.Instructor;
+import csb.data.Semester;
+import csb.data.Subject;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * This class turns a course into a few dozen bytes and back again. Enum
+ * values are stored as their ordinals, numbers as varints, which only use
+ * as many bytes as they need, dates as days since the epoch, with the ending
+ * Friday stored as how many days it comes after the starting Monday, and the
+ * pages and lecture days as bitmasks with one bit for each constant. Text is
+ * stored as UTF-8 after its length.
+ *
+ * <p>Every encoded course starts with MAGIC and then FORMAT_VERSION. Since
+ * ordinals are stored, the constants of Subject, Semester and CoursePage
+ * must never be reordered, new ones may only go at the end, otherwise the
+ * version must change.</p>
+ *
+ * @author Richard McKenna
+ */
+public class BinaryCourseCodec {
+    // THESE START EVERY ENCODED COURSE
+    static final byte[] MAGIC = {'C', 'S', 'B', 'C'};
+    public static final int FORMAT_VERSION = 1;
+
+    // WE DON'T EXPECT A STRING IN A COURSE TO BE ANYWHERE NEAR THIS LONG
+    static final int MAX_STRING_LENGTH = 1 << 20;
+
+    // WE ONLY WANT values() MAKING ITS ARRAYS ONCE
+    static final Subject[] SUBJECTS = Subject.values();
+    static final Semester[] SEMESTERS = Semester.values();
+
+    /**
+     * Encodes all the data of a course.
+     *
+     * @param course The course to encode.
+     *
+     * @return The encoded course.
+     */
+    public static byte[] encode(Course course) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+        out.write(MAGIC, 0, MAGIC.length);
+        out.write(FORMAT_VERSION);
+        out.write(course.getSubject().ordinal());
+        out.write(course.getSemester().ordinal());
+        writeVarint(out, course.getNumber());
+        writeVarint(out, course.getYear());
+
+        // ONE BIT FOR EACH PAGE AND LECTURE DAY, WHICH IS
+        // JUST HOW THE COURSE KEEPS THEM ANYWAY
+        writeVarint(out, course.getPagesMask());
+        writeVarint(out, course.getLectureDaysMask());
+
+        // THE DATES, NOTE THAT THE ENDING FRIDAY MAY COME BEFORE
+        // THE STARTING MONDAY WHILE A COURSE IS BEING EDITED
+        long startingDay = course.getStartingMonday().toEpochDay();
+        long endingDay = course.getEndingFriday().toEpochDay();
+        writeVarint(out, zigZag(startingDay));
+        writeVarint(out, zigZag(endingDay - startingDay));
+
+        // AND FINALLY THE TEXT
+        writeString(out, course.getTitle());
+        Instructor instructor = course.getInstructor();
+        writeString(out, instructor.getName());
+        writeString(out, instructor.getHomepageURL());
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes a course encoded by encode into courseToLoad. Note that the
+     * course is only changed once everything has been decoded.
+     *
+     * @param bytes The encoded course.
+     * @param courseToLoad The course to load.
+     *
+     * @throws IOException Thrown when bytes isn't an encoded course, or was
+     * encoded with a version of the format we don't know.
+     */
+    public static void decode(byte[] bytes, Course courseToLoad) throws IOException {
+        Decoder decoder = startDecoding(bytes);
+        Subject subject = SUBJECTS[decoder.readOrdinal(SUBJECTS.length)];
+        Semester semester = SEMESTERS[decoder.readOrdinal(SEMESTERS.length)];
+        int number = (int) decoder.readVarint();
+        int year = (int) decoder.readVarint();
+        long pagesMask = decoder.readVarint();
+        long lectureDaysMask = decoder.readVarint();
+        long startingDay = unZigZag(decoder.readVarint());
+        long endingDay = startingDay + unZigZag(decoder.readVarint());
+        String title = decoder.readString();
+        String instructorName = decoder.readString();
+        String homepageURL = decoder.readString();
+        LocalDate startingMonday;
+        LocalDate endingFriday;
+        try {
+            startingMonday = LocalDate.ofEpochDay(startingDay);
+            endingFriday = LocalDate.ofEpochDay(endingDay);
+        } catch (RuntimeException re) {
+            throw new IOException("Bad course dates");
+        }
+
+        // NOW LOAD THE COURSE
+        courseToLoad.setSubject(subject);
+        courseToLoad.setSemester(semester);
+        courseToLoad.setNumber(number);
+        courseToLoad.setYear(year);
+        courseToLoad.setTitle(title);
+        courseToLoad.setPagesMask((int) pagesMask);
+        courseToLoad.setLectureDaysMask((int) lectureDaysMask);
+        courseToLoad.setInstructor(new Instructor(instructorName, homepageURL));
+        courseToLoad.setStartingMonday(startingMonday);
+        courseToLoad.setEndingFriday(endingFriday);
+    }
+
+    /**
+     * Decodes just the header of a course encoded by encode. The pages,
+     * lecture days and dates are passed over without being decoded, and
+     * the instructor's homepage URL, which comes last, isn't read at all.
+     *
+     * @param bytes The encoded course.
+     *
+     * @return The course's header.
+     *
+     * @throws IOException Thrown when bytes isn't an encoded course, or was
+     * encoded with a version of the format we don't know.
+     */
+    public static CourseHeader decodeHeader(byte[] bytes) throws IOException {
+        Decoder decoder = startDecoding(bytes);
+        Subject subject = SUBJECTS[decoder.readOrdinal(SUBJECTS.length)];
+        Semester semester = SEMESTERS[decoder.readOrdinal(SEMESTERS.length)];
+        int number = (int) decoder.readVarint();
+        int year = (int) decoder.readVarint();
+
+        // THE PAGES AND LECTURE DAYS MASKS AND THE TWO DATES
+        for (int i = 0; i < 4; i++) {
+            decoder.readVarint();
+        }
+        String title = decoder.readString();
+        String instructorName = decoder.readString();
+        return new CourseHeader(subject, number, semester, year, title, instructorName);
+    }
+
+    // BELOW ARE THE PRIVATE HELPER METHODS
+
+    // MAKES A DECODER FOR bytes, MAKING SURE THEY START LIKE AN
+    // ENCODED COURSE OF THE VERSION WE KNOW
+    private static Decoder startDecoding(byte[] bytes) throws IOException {
+        Decoder decoder = new Decoder(bytes);
+        for (byte magicByte : MAGIC) {
+            if (decoder.readByte() != magicByte) {
+                throw new IOException("Not an encoded course");
+            }
+        }
+        int version = decoder.readByte();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unknown course format version " + version);
+        }
+        return decoder;
+    }
+
+    // WRITES A NUMBER SEVEN BITS AT A TIME, LOWEST FIRST, WITH THE TOP
+    // BIT OF EACH BYTE SET IF THERE ARE MORE BYTES TO COME
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    // WRITES A STRING AS ITS LENGTH IN BYTES FOLLOWED BY ITS UTF-8 BYTES
+    private static void writeString(ByteArrayOutputStream out, String text) {
+        byte[] textBytes = text.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, textBytes.length);
+        out.write(textBytes, 0, textBytes.length);
+    }
+
+    // MAPS SIGNED NUMBERS TO UNSIGNED ONES SO SMALL NEGATIVE
+    // NUMBERS ALSO ONLY TAKE A BYTE OR TWO AS VARINTS
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * This reads the parts of an encoded course in order, making sure
+     * it never reads past the end of the bytes.
+     */
+    static class Decoder {
+        byte[] bytes;
+        int position;
+
+        Decoder(byte[] initBytes) {
+            bytes = initBytes;
+            position = 0;
+        }
+
+        int readByte() throws IOException {
+            if (position >= bytes.length) {
+                throw new IOException("Encoded course is cut short");
+            }
+            return bytes[position++] & 0xFF;
+        }
+
+        int readOrdinal(int numConstants) throws IOException {
+            int ordinal = readByte();
+            if (ordinal >= numConstants) {
+                throw new IOException("Unknown constant " + ordinal);
+            }
+            return ordinal;
+        }
+
+        long readVarint() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Varint too long");
+        }
+
+        String readString() throws IOException {
+            long length = readVarint();
+            if ((length < 0) || (length > MAX_STRING_LENGTH) || (length > bytes.length - position)) {
+                throw new IOException("Bad string length " + length);
+            }
+            String text = new String(bytes, position, (int) length, StandardCharsets.UTF_8);
+            position += (int) length;
+            return text;
+        }
+    }
+}
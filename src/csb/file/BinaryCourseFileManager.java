@@ -0,0 +1,89 @@
+package csb.file;
+
+import csb.data.Course;
+import csb.data.CourseHeader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * This is a CourseFileManager that saves courses in the compact binary
+ * format of BinaryCourseCodec, which takes a fraction of the space of the
+ * JSON format and is much quicker to load, making it a good fit for
+ * archives of past semesters. Note that everything other than courses,
+ * like the subjects and the last instructor, is still saved as JSON.
+ *
+ * @author Richard McKenna
+ */
+public class BinaryCourseFileManager extends JsonCourseFileManager {
+    // THE EXTENSION OF BINARY COURSE FILES
+    public static final String BINARY_EXT = ".csbc";
+
+    /**
+     * This method saves all the data associated with a course to
+     * the binary file at filePath.
+     *
+     * @param courseToSave The course whose data we are saving.
+     * @param filePath Path of the file to save it to.
+     *
+     * @throws IOException Thrown when there are issues writing
+     * to the file.
+     */
+    @Override
+    public void saveCourse(Course courseToSave, String filePath) throws IOException {
+        byte[] bytes = BinaryCourseCodec.encode(courseToSave);
+        try (AtomicFileWriter.AtomicOutput output = fileWriter.open(filePath)) {
+            output.getOutputStream().write(bytes);
+            output.commit();
+        }
+    }
+
+    /**
+     * Loads the courseToLoad argument using the data found in the
+     * binary file.
+     *
+     * @param courseToLoad Course to load.
+     * @param filePath File containing the data to load.
+     *
+     * @throws IOException Thrown when IO fails or the file isn't a course.
+     */
+    @Override
+    public void loadCourse(Course courseToLoad, String filePath) throws IOException {
+        byte[] bytes = Files.readAllBytes(Paths.get(filePath));
+        try {
+            BinaryCourseCodec.decode(bytes, courseToLoad);
+        } catch (IOException ioe) {
+            throw new IOException(filePath + ": " + ioe.getMessage());
+        }
+    }
+
+    /**
+     * Loads just the header of the course in the binary file, for
+     * listing and searching courses.
+     *
+     * @param filePath File containing the course.
+     *
+     * @return The course's header.
+     *
+     * @throws IOException Thrown when IO fails or the file isn't a course.
+     */
+    @Override
+    public CourseHeader loadCourseHeader(String filePath) throws IOException {
+        byte[] bytes = Files.readAllBytes(Paths.get(filePath));
+        try {
+            return BinaryCourseCodec.decodeHeader(bytes);
+        } catch (IOException ioe) {
+            throw new IOException(filePath + ": " + ioe.getMessage());
+        }
+    }
+
+    /**
+     * Provides the extension of the files courses are saved to.
+     *
+     * @return The extension of binary course files.
+     */
+    @Override
+    public String getCourseFileExtension() {
+        return BINARY_EXT;
+    }
+}
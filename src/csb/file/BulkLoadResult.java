@@ -0,0 +1,78 @@
+package csb.file;
+
+import java.util.Map;
+
+/**
+ * This class describes what happened when a batch of courses was loaded
+ * by a CourseBulkLoader, including every course that couldn't be loaded
+ * and why, since one bad file doesn't stop the rest of the batch.
+ *
+ * @author Richard McKenna
+ */
+public class BulkLoadResult {
+    // HOW MANY COURSES WERE LOADED
+    int coursesLoaded;
+
+    // THE PROBLEM WITH EACH COURSE THAT COULDN'T BE LOADED, BY PATH
+    Map<String, Exception> failures;
+
+    // HOW LONG THE WHOLE BATCH TOOK
+    long elapsedNanos;
+
+    /**
+     * This constructor records the outcome of loading a batch of courses.
+     *
+     * @param initCoursesLoaded The number of courses that were loaded.
+     * @param initFailures The problem with each course that wasn't loaded.
+     * @param initElapsedNanos How long the batch took in nanoseconds.
+     */
+    public BulkLoadResult(int initCoursesLoaded, Map<String, Exception> initFailures, long initElapsedNanos) {
+        coursesLoaded = initCoursesLoaded;
+        failures = initFailures;
+        elapsedNanos = initElapsedNanos;
+    }
+
+    public int getCoursesLoaded() {
+        return coursesLoaded;
+    }
+
+    public Map<String, Exception> getFailures() {
+        return failures;
+    }
+
+    public boolean isSuccess() {
+        return failures.isEmpty();
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getElapsedMillis() {
+        return elapsedNanos / 1000000.0;
+    }
+
+    /**
+     * Provides how quickly the batch was loaded, counting the courses
+     * that failed as well, since they had to be read too.
+     *
+     * @return The number of courses read per second.
+     */
+    public double getCoursesPerSecond() {
+        if (elapsedNanos <= 0) {
+            return 0;
+        }
+        return (coursesLoaded + failures.size()) * 1000000000.0 / elapsedNanos;
+    }
+
+    /**
+     * Provides a summary of the batch for showing to the user.
+     *
+     * @return How many courses were loaded and failed, and how quickly.
+     */
+    @Override
+    public String toString() {
+        return String.format("Loaded %d courses, %d failed, in %.0f ms (%.0f courses per second)",
+                coursesLoaded, failures.size(), getElapsedMillis(), getCoursesPerSecond());
+    }
+}
@@ -0,0 +1,378 @@
+package csb.file;
+
+import csb.data.Course;
+import csb.data.CourseHeader;
+import csb.data.Instructor;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This is a CourseFileManager that keeps the courses most recently loaded
+ * by another CourseFileManager, so switching back to a course doesn't read
+ * and parse its file all over again. Each cached course remembers the
+ * modification time and size its file had when it was loaded, and is only
+ * used while the file still has them, so a file changed by someone else is
+ * always loaded again. Saving a course drops it from the cache.
+ *
+ * <p>The cache is bounded both by how many courses it holds and by roughly
+ * how many bytes they take up, getting rid of the least recently used
+ * courses first, and it counts its hits, misses and evictions so it can be
+ * sized sensibly. Note that for formats that don't keep each course in its
+ * own file there's no file to check, so instead we check whatever state the
+ * file manager we wrap keeps for the course, which for LOG is where the
+ * course's latest record is and which compaction of the log that's in, and
+ * for SQL is when the course was last saved.</p>
+ *
+ * @author Richard McKenna
+ */
+public class CachingCourseFileManager implements CourseFileManager {
+    // HOW MANY COURSES WE KEEP, AND ABOUT HOW MANY BYTES OF THEM, BY DEFAULT
+    public static final int DEFAULT_MAX_COURSES = 64;
+    public static final long DEFAULT_MAX_BYTES = 1 << 20;
+
+    // WHAT WE GUESS A COURSE TAKES UP BEFORE COUNTING ITS TEXT, NOTE
+    // THAT ITS PAGES AND LECTURE DAYS ARE JUST BITS, SO THEY'RE IN HERE
+    static final int COURSE_OVERHEAD_BYTES = 256;
+
+    // THIS DOES THE ACTUAL LOADING AND SAVING
+    CourseFileManager fileManager;
+
+    // THE CACHED COURSES, KEYED BY ABSOLUTE PATH, WITH THE LEAST
+    // RECENTLY USED COURSE FIRST
+    LinkedHashMap<String, CachedCourse> cachedCourses;
+
+    // HOW BIG THE CACHE MAY GET, AND HOW BIG IT IS
+    int maxCourses;
+    long maxBytes;
+    long cachedBytes;
+
+    // HOW THE CACHE HAS BEEN DOING
+    long hits;
+    long misses;
+    long evictions;
+    long staleCourses;
+
+    // COUNTS EVERY TIME A COURSE IS DROPPED BECAUSE IT WAS SAVED, SO A LOAD
+    // THAT RAN WHILE A SAVE DID DOESN'T CACHE WHAT WAS THERE BEFORE THE SAVE
+    long invalidations;
+
+    /**
+     * This constructor sets up a cache of the default size in front of
+     * initFileManager.
+     *
+     * @param initFileManager Used for loading and saving courses.
+     */
+    public CachingCourseFileManager(CourseFileManager initFileManager) {
+        this(initFileManager, DEFAULT_MAX_COURSES, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * This constructor sets up a cache in front of initFileManager that
+     * holds at most initMaxCourses courses and about initMaxBytes bytes.
+     *
+     * @param initFileManager Used for loading and saving courses.
+     * @param initMaxCourses The most courses to keep.
+     * @param initMaxBytes About the most bytes of courses to keep.
+     */
+    public CachingCourseFileManager(CourseFileManager initFileManager, int initMaxCourses, long initMaxBytes) {
+        fileManager = initFileManager;
+        maxCourses = Math.max(1, initMaxCourses);
+        maxBytes = Math.max(1, initMaxBytes);
+        cachedCourses = new LinkedHashMap(16, 0.75f, true);
+    }
+
+    /**
+     * Accessor method for the file manager this cache is in front of,
+     * for loading courses without filling up the cache with them.
+     *
+     * @return The file manager that does the actual loading and saving.
+     */
+    public CourseFileManager getFileManager() {
+        return fileManager;
+    }
+
+    /**
+     * Saves the course and drops it from the cache, so it's loaded
+     * from what was saved the next time.
+     *
+     * @param courseToSave The course whose data we are saving.
+     *
+     * @throws IOException Thrown when the course can't be saved.
+     */
+    @Override
+    public void saveCourse(Course courseToSave) throws IOException {
+        String coursePath = getCacheKey(fileManager.getCourseFilePath(courseToSave));
+        try {
+            fileManager.saveCourse(courseToSave);
+        } finally {
+            // EVEN A SAVE THAT FAILED MAY HAVE CHANGED THE FILE
+            invalidate(coursePath);
+        }
+    }
+
+    /**
+     * Loads the courseToLoad argument, using the cached course if its
+     * file hasn't changed since it was cached.
+     *
+     * @param courseToLoad Course to load.
+     * @param coursePath Path of the course to load.
+     *
+     * @throws IOException Thrown when the course isn't cached and
+     * can't be loaded.
+     */
+    @Override
+    public void loadCourse(Course courseToLoad, String coursePath) throws IOException {
+        // WE LOOK AT THE FILE BEFORE LOADING IT, SO IF IT CHANGES WHILE IT'S
+        // BEING LOADED THE CACHED COURSE LOOKS STALE, NOT THE OTHER WAY AROUND
+        String cacheKey = getCacheKey(coursePath);
+        long[] fileState = getFileState(cacheKey);
+        long invalidationsBeforeLoad;
+        synchronized (this) {
+            invalidationsBeforeLoad = invalidations;
+            CachedCourse cachedCourse = cachedCourses.get(cacheKey);
+            if (cachedCourse != null) {
+                if ((cachedCourse.lastModified == fileState[0]) && (cachedCourse.size == fileState[1])) {
+                    hits++;
+                    courseToLoad.copyFrom(cachedCourse.course);
+                    return;
+                }
+
+                // SOMEONE ELSE CHANGED THE FILE
+                staleCourses++;
+                remove(cacheKey);
+            }
+            misses++;
+        }
+
+        // LOAD IT INTO A COURSE OF OUR OWN, SO NOTHING THE CALLER
+        // DOES TO THEIR COURSE CAN CHANGE THE CACHED ONE
+        Course loadedCourse = new Course(new Instructor("", ""));
+        fileManager.loadCourse(loadedCourse, coursePath);
+        courseToLoad.copyFrom(loadedCourse);
+        synchronized (this) {
+            if (invalidations != invalidationsBeforeLoad) {
+                return;
+            }
+            remove(cacheKey);
+            CachedCourse cachedCourse = new CachedCourse(loadedCourse, fileState[0], fileState[1]);
+            cachedCourses.put(cacheKey, cachedCourse);
+            cachedBytes += cachedCourse.estimatedBytes;
+            evictIfNeeded();
+        }
+    }
+
+    /**
+     * Provides the header of the course at coursePath, taking it from the
+     * cached course if its file hasn't changed. Note that headers are never
+     * cached themselves, since listing a lot of courses would only push out
+     * the courses actually being opened.
+     *
+     * @param coursePath Path of the course.
+     *
+     * @return The course's header.
+     *
+     * @throws IOException Thrown when the course isn't cached and its
+     * header can't be loaded.
+     */
+    @Override
+    public CourseHeader loadCourseHeader(String coursePath) throws IOException {
+        String cacheKey = getCacheKey(coursePath);
+        long[] fileState = getFileState(cacheKey);
+        synchronized (this) {
+            CachedCourse cachedCourse = cachedCourses.get(cacheKey);
+            if ((cachedCourse != null) && (cachedCourse.lastModified == fileState[0])
+                    && (cachedCourse.size == fileState[1])) {
+                return new CourseHeader(cachedCourse.course);
+            }
+        }
+        return fileManager.loadCourseHeader(coursePath);
+    }
+
+    /**
+     * Drops the course at coursePath from the cache, if it's there.
+     *
+     * @param coursePath Path of the course to drop.
+     */
+    public synchronized void invalidate(String coursePath) {
+        remove(getCacheKey(coursePath));
+        invalidations++;
+    }
+
+    /**
+     * Drops every course from the cache.
+     */
+    public synchronized void invalidateAll() {
+        cachedCourses.clear();
+        cachedBytes = 0;
+        invalidations++;
+    }
+
+    // ACCESSOR METHODS FOR HOW THE CACHE IS DOING
+
+    public synchronized int getCachedCourses() {
+        return cachedCourses.size();
+    }
+
+    public synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized long getStaleCourses() {
+        return staleCourses;
+    }
+
+    public synchronized double getHitRatio() {
+        long loads = hits + misses;
+        return (loads == 0) ? 0 : (double) hits / loads;
+    }
+
+    /**
+     * Provides a summary of how the cache is doing, for sizing it.
+     *
+     * @return The cache's size and all its counters.
+     */
+    @Override
+    public synchronized String toString() {
+        return String.format("%d courses (%d bytes), %d hits, %d misses, %d evictions, %d stale",
+                cachedCourses.size(), cachedBytes, hits, misses, evictions, staleCourses);
+    }
+
+    // EVERYTHING ELSE IS LEFT TO THE FILE MANAGER
+
+    @Override
+    public String getCourseFilePath(Course course) {
+        return fileManager.getCourseFilePath(course);
+    }
+
+    @Override
+    public String getCourseFileExtension() {
+        return fileManager.getCourseFileExtension();
+    }
+
+    @Override
+    public List<String> getCourseFilePaths(String coursesDir) throws IOException {
+        return fileManager.getCourseFilePaths(coursesDir);
+    }
+
+    @Override
+    public long[] getCourseState(String coursePath) throws IOException {
+        return fileManager.getCourseState(coursePath);
+    }
+
+    @Override
+    public Map<String, long[]> getCourseStates(String coursesDir) throws IOException {
+        return fileManager.getCourseStates(coursesDir);
+    }
+
+    @Override
+    public void saveLastInstructor(Instructor lastInstructor, String filePath) throws IOException {
+        fileManager.saveLastInstructor(lastInstructor, filePath);
+    }
+
+    @Override
+    public Instructor loadLastInstructor(String filePath) throws IOException {
+        return fileManager.loadLastInstructor(filePath);
+    }
+
+    @Override
+    public void saveSubjects(List<Object> subjects, String filePath) throws IOException {
+        fileManager.saveSubjects(subjects, filePath);
+    }
+
+    @Override
+    public ArrayList<String> loadSubjects(String filePath) throws IOException {
+        return fileManager.loadSubjects(filePath);
+    }
+
+    @Override
+    public ArrayList<String> loadSemesters(String filePath) throws IOException {
+        return fileManager.loadSemesters(filePath);
+    }
+
+    /**
+     * Drops every course from the cache and closes the file manager,
+     * which makes sure everything saved through it is finished.
+     *
+     * @throws IOException Thrown when the file manager can't be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        invalidateAll();
+        fileManager.close();
+    }
+
+    // BELOW ARE THE PRIVATE HELPER METHODS
+
+    // GETS THE KEY A COURSE IS CACHED UNDER, WHICH IS ITS ABSOLUTE PATH
+    // SO THE SAME FILE IS NEVER CACHED TWICE UNDER DIFFERENT NAMES
+    private String getCacheKey(String coursePath) {
+        return new File(coursePath).getAbsoluteFile().toPath().normalize().toString();
+    }
+
+    // GETS WHAT WE COMPARE TO TELL IF A COURSE HAS CHANGED, WHICH IS
+    // WHATEVER STATE THE FILE MANAGER WE WRAP KEEPS FOR IT
+    private long[] getFileState(String cacheKey) throws IOException {
+        return fileManager.getCourseState(cacheKey);
+    }
+
+    // DROPS A COURSE FROM THE CACHE, IF IT'S THERE
+    private void remove(String cacheKey) {
+        CachedCourse cachedCourse = cachedCourses.remove(cacheKey);
+        if (cachedCourse != null) {
+            cachedBytes -= cachedCourse.estimatedBytes;
+        }
+    }
+
+    // GETS RID OF THE LEAST RECENTLY USED COURSES UNTIL THE CACHE FITS,
+    // NOTE THAT WE ALWAYS KEEP THE COURSE JUST ADDED, HOWEVER BIG IT IS
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<String, CachedCourse>> iterator = cachedCourses.entrySet().iterator();
+        while (((cachedCourses.size() > maxCourses) || (cachedBytes > maxBytes)) && (cachedCourses.size() > 1)) {
+            CachedCourse cachedCourse = iterator.next().getValue();
+            iterator.remove();
+            cachedBytes -= cachedCourse.estimatedBytes;
+            evictions++;
+        }
+    }
+
+    /**
+     * This holds a cached course, what its file looked like when it
+     * was loaded, and about how many bytes it takes up.
+     */
+    static class CachedCourse {
+        Course course;
+        long lastModified;
+        long size;
+        long estimatedBytes;
+
+        CachedCourse(Course initCourse, long initLastModified, long initSize) {
+            course = initCourse;
+            lastModified = initLastModified;
+            size = initSize;
+            estimatedBytes = COURSE_OVERHEAD_BYTES
+                    + 2L * (length(course.getTitle()) + length(course.getInstructor().getName())
+                            + length(course.getInstructor().getHomepageURL()));
+        }
+
+        static int length(String text) {
+            return (text == null) ? 0 : text.length();
+        }
+    }
+}
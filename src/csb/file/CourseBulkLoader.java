@@ -0,0 +1,261 @@
+package csb.file;
+
+import static csb.CSB_StartupConstants.PATH_COURSES;
+import csb.data.Course;
+import csb.data.CourseHeader;
+import csb.data.Instructor;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * This class loads a whole batch of courses, like every course in a
+ * directory, reading several at once on a bounded pool of threads so the
+ * waiting on one file overlaps the reading of others. Each course is handed
+ * to a CourseLoadListener as soon as it's loaded, rather than holding all
+ * of them until the end, and only a few dozen courses for each thread are
+ * ever read ahead of the listener, so even a huge batch doesn't fill up
+ * memory. A course that can't be loaded doesn't stop the others, it's just
+ * reported in the batch's result. For listing courses, just their headers
+ * may be loaded instead, which is much quicker for big batches.
+ *
+ * <p>It may be run from the command line to see how quickly a directory of
+ * courses loads, like this:</p>
+ * <pre>
+ * java csb.file.CourseBulkLoader JSON [directory] [glob]
+ * </pre>
+ *
+ * @author Richard McKenna
+ */
+public class CourseBulkLoader {
+    // HOW MANY COURSES ONE TASK LOADS, SINCE HANDING EVERY COURSE TO
+    // ANOTHER THREAD AND BACK COSTS ABOUT AS MUCH AS LOADING IT
+    static final int COURSES_PER_TASK = 16;
+
+    // HOW MANY TASKS EACH THREAD MAY HAVE WAITING FOR IT
+    static final int TASKS_PER_THREAD = 2;
+
+    // THIS DOES THE ACTUAL LOADING, NOTE THAT IT MUST
+    // BE ABLE TO LOAD MORE THAN ONE COURSE AT A TIME
+    CourseFileManager fileManager;
+
+    // THE MOST THREADS A BATCH MAY USE
+    int loadThreads;
+
+    /**
+     * This constructor sets up a loader that loads courses using
+     * initFileManager. Since loading is mostly waiting for the disk,
+     * it uses twice as many threads as there are processors.
+     *
+     * @param initFileManager Used for loading each course.
+     */
+    public CourseBulkLoader(CourseFileManager initFileManager) {
+        fileManager = initFileManager;
+        loadThreads = 2 * Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Mutator method for the most threads a batch may use.
+     *
+     * @param initLoadThreads The most threads to load a batch with.
+     */
+    public void setLoadThreads(int initLoadThreads) {
+        loadThreads = Math.max(1, initLoadThreads);
+    }
+
+    /**
+     * Loads every course in coursesDir whose file name matches glob.
+     *
+     * @param coursesDir Directory the courses are kept in.
+     * @param glob Pattern file names must match, like CSE*, or null for
+     * every course.
+     * @param listener Given each course as soon as it's loaded.
+     *
+     * @return What happened, including every course that wasn't loaded.
+     *
+     * @throws IOException Thrown when the courses can't be listed.
+     */
+    public BulkLoadResult loadDirectory(String coursesDir, String glob, CourseLoadListener listener)
+            throws IOException {
+        List<String> coursePaths = fileManager.getCourseFilePaths(coursesDir);
+        if (glob != null) {
+            PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+            ArrayList<String> matchingPaths = new ArrayList();
+            for (String coursePath : coursePaths) {
+                if (matcher.matches(Paths.get(new File(coursePath).getName()))) {
+                    matchingPaths.add(coursePath);
+                }
+            }
+            coursePaths = matchingPaths;
+        }
+        return loadAll(coursePaths, listener);
+    }
+
+    /**
+     * Loads all the courses at coursePaths, spreading the work over a
+     * bounded pool of threads. Note that the listener hears about the
+     * courses in the order they finish loading, not the order of the paths.
+     *
+     * @param coursePaths The paths of the courses to load.
+     * @param listener Given each course as soon as it's loaded.
+     *
+     * @return What happened, including every course that wasn't loaded.
+     */
+    public BulkLoadResult loadAll(List<String> coursePaths, CourseLoadListener listener) {
+        return load(coursePaths, false, listener, null);
+    }
+
+    /**
+     * Loads just the headers of all the courses at coursePaths, the same
+     * way loadAll loads whole courses. Note that a course whose header
+     * loads fine may still turn out to be damaged when it's fully loaded.
+     *
+     * @param coursePaths The paths of the courses whose headers to load.
+     * @param listener Given each header as soon as it's loaded.
+     *
+     * @return What happened, including every header that wasn't loaded.
+     */
+    public BulkLoadResult loadAllHeaders(List<String> coursePaths, CourseHeaderListener listener) {
+        return load(coursePaths, true, null, listener);
+    }
+
+    /**
+     * Loads the courses in a directory from the command line, reporting
+     * how long it took and any that couldn't be loaded.
+     *
+     * @param args The format of the courses and, if not the usual courses
+     * directory, the directory to load them from, and then the pattern
+     * their file names must match.
+     *
+     * @throws IOException Thrown when the courses can't be listed.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: CourseBulkLoader <format> [directory] [glob]");
+            System.exit(1);
+        }
+        String coursesDir = (args.length > 1) ? args[1] : PATH_COURSES;
+        String glob = (args.length > 2) ? args[2] : null;
+        JsonCourseFileManager fileManager = CourseFileFormat.valueOf(args[0]).makeFileManager(coursesDir);
+        try {
+            BulkLoadResult result = new CourseBulkLoader(fileManager).loadDirectory(coursesDir, glob,
+                    (coursePath, loadedCourse) -> { });
+            for (String failedPath : result.getFailures().keySet()) {
+                System.err.println(failedPath + ": " + result.getFailures().get(failedPath).getMessage());
+            }
+            System.out.println(result);
+        } finally {
+            fileManager.close();
+        }
+    }
+
+    // BELOW ARE THE PRIVATE HELPER METHODS
+
+    // LOADS ALL THE COURSES, OR JUST THEIR HEADERS, SPREADING THE WORK
+    // OVER A BOUNDED POOL OF THREADS AND GIVING EACH ONE TO ITS LISTENER
+    private BulkLoadResult load(List<String> coursePaths, boolean headersOnly,
+            CourseLoadListener courseListener, CourseHeaderListener headerListener) {
+        long startTime = System.nanoTime();
+        int coursesLoaded = 0;
+        LinkedHashMap<String, Exception> failures = new LinkedHashMap();
+        if (coursePaths.isEmpty()) {
+            return new BulkLoadResult(coursesLoaded, failures, System.nanoTime() - startTime);
+        }
+
+        // THERE'S NO POINT IN MAKING MORE THREADS THAN TASKS
+        int numTasks = (coursePaths.size() + COURSES_PER_TASK - 1) / COURSES_PER_TASK;
+        int poolSize = Math.min(loadThreads, numTasks);
+        ExecutorService loadPool = Executors.newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "Course Bulk Loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        CompletionService<List<CourseLoad>> tasks = new ExecutorCompletionService(loadPool);
+        try {
+            // KEEP A FEW TASKS WAITING FOR EACH THREAD, STARTING
+            // ANOTHER EACH TIME ONE FINISHES
+            int maxTasksStarted = poolSize * TASKS_PER_THREAD;
+            int nextPath = 0;
+            int tasksStarted = 0;
+            while ((nextPath < coursePaths.size()) || (tasksStarted > 0)) {
+                while ((nextPath < coursePaths.size()) && (tasksStarted < maxTasksStarted)) {
+                    int endPath = Math.min(nextPath + COURSES_PER_TASK, coursePaths.size());
+                    List<String> taskPaths = coursePaths.subList(nextPath, endPath);
+                    tasks.submit(() -> loadTask(taskPaths, headersOnly));
+                    nextPath = endPath;
+                    tasksStarted++;
+                }
+                List<CourseLoad> loads = tasks.take().get();
+                tasksStarted--;
+                for (CourseLoad load : loads) {
+                    if (load.error != null) {
+                        failures.put(load.coursePath, load.error);
+                    } else if (headersOnly) {
+                        coursesLoaded++;
+                        headerListener.headerLoaded(load.coursePath, load.header);
+                    } else {
+                        coursesLoaded++;
+                        courseListener.courseLoaded(load.coursePath, load.course);
+                    }
+                }
+            }
+        } catch (InterruptedException ie) {
+            // STOP WHERE WE ARE, BUT LET WHOEVER CALLED US KNOW
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ee) {
+            // loadTask CATCHES EVERYTHING, SO THIS SHOULD NEVER HAPPEN
+            throw new IllegalStateException(ee.getCause());
+        } finally {
+            loadPool.shutdownNow();
+        }
+        return new BulkLoadResult(coursesLoaded, failures, System.nanoTime() - startTime);
+    }
+
+    // LOADS SOME COURSES, OR JUST THEIR HEADERS, NOTE THAT ANY
+    // PROBLEM IS PUT IN THE RESULTS RATHER THAN THROWN
+    private List<CourseLoad> loadTask(List<String> coursePaths, boolean headersOnly) {
+        ArrayList<CourseLoad> loads = new ArrayList();
+        for (String coursePath : coursePaths) {
+            try {
+                if (headersOnly) {
+                    CourseHeader header = fileManager.loadCourseHeader(coursePath);
+                    loads.add(new CourseLoad(coursePath, null, header, null));
+                } else {
+                    Course course = new Course(new Instructor("", ""));
+                    fileManager.loadCourse(course, coursePath);
+                    loads.add(new CourseLoad(coursePath, course, null, null));
+                }
+            } catch (Exception e) {
+                loads.add(new CourseLoad(coursePath, null, null, e));
+            }
+        }
+        return loads;
+    }
+
+    /**
+     * This holds what happened when one course, or its header, was loaded.
+     */
+    static class CourseLoad {
+        String coursePath;
+        Course course;
+        CourseHeader header;
+        Exception error;
+
+        CourseLoad(String initCoursePath, Course initCourse, CourseHeader initHeader, Exception initError) {
+            coursePath = initCoursePath;
+            course = initCourse;
+            header = initHeader;
+            error = initError;
+        }
+    }
+}
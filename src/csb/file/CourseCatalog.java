@@ -0,0 +1,274 @@
+package csb.file;
+
+import csb.data.Course;
+import csb.data.Semester;
+import csb.data.Subject;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * This class keeps an index of all the courses saved in a directory, so
+ * they can be listed and searched without opening every course file. The
+ * index is kept in a compact file next to the course files and records,
+ * for each file, what the course is along with the file's size and
+ * modification time. When the directory is refreshed only files whose
+ * size or modification time no longer match their entry are read again,
+ * and only as far as the course's header, and saving a course updates its
+ * entry right away.
+ *
+ * @author Richard McKenna
+ */
+public class CourseCatalog {
+    // THE FILE IN THE COURSES DIRECTORY WHERE WE KEEP THE INDEX
+    public static final String CATALOG_FILE_NAME = ".csb_catalog";
+
+    // THESE START THE CATALOG FILE, SO WE KNOW IT'S ONE WE CAN READ
+    static final int CATALOG_MAGIC = 0x43534243;
+    static final int CATALOG_VERSION = 1;
+
+    // THE DIRECTORY WITH THE COURSE FILES
+    File coursesDir;
+
+    // USED FOR READING COURSE FILES THAT AREN'T IN THE CATALOG YET,
+    // SEVERAL AT A TIME WHEN A LOT OF THEM HAVE CHANGED
+    CourseFileManager fileManager;
+    CourseBulkLoader bulkLoader;
+
+    // THE CATALOG IS A CACHE WE CAN ALWAYS REBUILD, SO
+    // WE DON'T WAIT FOR IT TO REACH THE DISK
+    AtomicFileWriter fileWriter;
+
+    // ALL THE ENTRIES, KEYED BY COURSE FILE NAME
+    TreeMap<String, CourseCatalogEntry> entries;
+
+    // THE FILES WE COULDN'T READ AS COURSES AND WHAT THEY LOOKED LIKE WHEN
+    // WE TRIED, SO WE DON'T TRY AGAIN UNTIL THEY CHANGE
+    HashMap<String, String> unreadableFiles;
+
+    /**
+     * This constructor sets up a catalog for the courses in initCoursesDir,
+     * loading the catalog file if there is one. Note that refresh should be
+     * called before using it to pick up any changes made to the course files
+     * by someone else.
+     *
+     * @param initCoursesDir Directory with the course files.
+     * @param initFileManager Used for reading course files.
+     */
+    public CourseCatalog(String initCoursesDir, CourseFileManager initFileManager) {
+        coursesDir = new File(initCoursesDir);
+        fileManager = initFileManager;
+        bulkLoader = new CourseBulkLoader(fileManager);
+        fileWriter = new AtomicFileWriter(Durability.NONE);
+        entries = new TreeMap();
+        unreadableFiles = new HashMap();
+        loadCatalog();
+    }
+
+    /**
+     * Makes the catalog match the course files now in its directory,
+     * only reading files that are new or have changed, and then saves
+     * it if anything changed. Files that can't be read as courses are
+     * left out of the catalog.
+     *
+     * @return The number of entries that were added, updated or removed.
+     *
+     * @throws IOException Thrown when the directory can't be listed or
+     * the catalog file can't be saved.
+     */
+    public synchronized int refresh() throws IOException {
+        int entriesChanged = 0;
+        TreeMap<String, CourseCatalogEntry> freshEntries = new TreeMap();
+        HashMap<String, long[]> changedCourses = new HashMap();
+        ArrayList<String> changedPaths = new ArrayList();
+
+        // THE FILE MANAGER TELLS US THE STATE OF ALL ITS COURSES AT ONCE
+        for (Map.Entry<String, long[]> courseStateEntry
+                : fileManager.getCourseStates(coursesDir.getPath()).entrySet()) {
+            String coursePath = courseStateEntry.getKey();
+            String fileName = new File(coursePath).getName();
+            long[] courseState = courseStateEntry.getValue();
+            long lastModified = courseState[0];
+            long size = courseState[1];
+            CourseCatalogEntry entry = entries.get(fileName);
+            if ((entry == null) || (entry.lastModified != lastModified) || (entry.size != size)) {
+                String fileState = lastModified + ":" + size;
+                if (!fileState.equals(unreadableFiles.get(fileName))) {
+                    changedCourses.put(coursePath, courseState);
+                    changedPaths.add(coursePath);
+                }
+                continue;
+            }
+            freshEntries.put(fileName, entry);
+        }
+
+        // NOW READ EVERYTHING THAT'S NEW OR CHANGED ALL AT ONCE, NOTE THAT
+        // WE ONLY NEED THEIR HEADERS, NOT WHOLE COURSES
+        BulkLoadResult loadResult = bulkLoader.loadAllHeaders(changedPaths, (coursePath, loadedHeader) -> {
+            long[] courseState = changedCourses.get(coursePath);
+            String fileName = new File(coursePath).getName();
+            freshEntries.put(fileName, new CourseCatalogEntry(coursePath, courseState[0], courseState[1], loadedHeader));
+            unreadableFiles.remove(fileName);
+        });
+        entriesChanged += loadResult.getCoursesLoaded();
+        for (String failedPath : loadResult.getFailures().keySet()) {
+            long[] courseState = changedCourses.get(failedPath);
+            unreadableFiles.put(new File(failedPath).getName(), courseState[0] + ":" + courseState[1]);
+        }
+
+        // COUNT ANYTHING THAT'S GONE AS A CHANGE AS WELL
+        for (String fileName : entries.keySet()) {
+            if (!freshEntries.containsKey(fileName)) {
+                entriesChanged++;
+            }
+        }
+        entries = freshEntries;
+        if (entriesChanged > 0) {
+            saveCatalog();
+        }
+        return entriesChanged;
+    }
+
+    /**
+     * Updates the entry of a course that has just been saved to the file
+     * at courseFilePath, and then saves the catalog. Note that courses saved
+     * outside of the catalog's directory are ignored.
+     *
+     * @param savedCourse The course that was saved.
+     * @param courseFilePath The file it was saved to.
+     *
+     * @throws IOException Thrown when the course file or the catalog
+     * file can't be accessed.
+     */
+    public synchronized void updateCourse(Course savedCourse, String courseFilePath) throws IOException {
+        File courseFile = new File(courseFilePath);
+        if (!courseFile.toPath().toAbsolutePath().normalize().getParent()
+                .equals(coursesDir.toPath().toAbsolutePath().normalize())) {
+            // IT'S NOT ONE OF OUR COURSES
+            return;
+        }
+        long[] courseState = fileManager.getCourseState(courseFile.getPath());
+        CourseCatalogEntry entry = new CourseCatalogEntry(courseFile.getPath(),
+                courseState[0], courseState[1], savedCourse);
+        entries.put(courseFile.getName(), entry);
+        saveCatalog();
+    }
+
+    /**
+     * Accessor method for all the entries in the catalog.
+     *
+     * @return Every entry, in order of course file name.
+     */
+    public synchronized List<CourseCatalogEntry> getEntries() {
+        return new ArrayList(entries.values());
+    }
+
+    /**
+     * Finds all the entries with something that matches the query, ignoring
+     * case, like part of the subject and number, title or instructor name.
+     *
+     * @param query The text to look for.
+     *
+     * @return The matching entries, in order of course file name.
+     */
+    public synchronized List<CourseCatalogEntry> search(String query) {
+        String lowerCaseQuery = query.trim().toLowerCase();
+        ArrayList<CourseCatalogEntry> matches = new ArrayList();
+        for (CourseCatalogEntry entry : entries.values()) {
+            if (entry.matches(lowerCaseQuery)) {
+                matches.add(entry);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Finds all the entries for courses taught in a particular semester.
+     *
+     * @param semester The semester the courses are taught.
+     * @param year The year the courses are taught.
+     *
+     * @return The matching entries, in order of course file name.
+     */
+    public synchronized List<CourseCatalogEntry> getEntries(Semester semester, int year) {
+        ArrayList<CourseCatalogEntry> matches = new ArrayList();
+        for (CourseCatalogEntry entry : entries.values()) {
+            if ((entry.semester == semester) && (entry.year == year)) {
+                matches.add(entry);
+            }
+        }
+        return matches;
+    }
+
+    // BELOW ARE THE PRIVATE HELPER METHODS
+
+    // GETS THE FILE WHERE THE CATALOG IS SAVED
+    private File getCatalogFile() {
+        return new File(coursesDir, CATALOG_FILE_NAME);
+    }
+
+    // LOADS THE CATALOG FILE, NOTE THAT IF IT'S MISSING OR
+    // DAMAGED WE JUST START OVER AND LET refresh REBUILD IT
+    private void loadCatalog() {
+        File catalogFile = getCatalogFile();
+        if (!catalogFile.exists()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(catalogFile)))) {
+            if ((in.readInt() != CATALOG_MAGIC) || (in.readInt() != CATALOG_VERSION)) {
+                return;
+            }
+            int numEntries = in.readInt();
+            TreeMap<String, CourseCatalogEntry> loadedEntries = new TreeMap();
+            for (int i = 0; i < numEntries; i++) {
+                String fileName = in.readUTF();
+                long lastModified = in.readLong();
+                long size = in.readLong();
+                Subject subject = Subject.valueOf(in.readUTF());
+                int number = in.readInt();
+                Semester semester = Semester.valueOf(in.readUTF());
+                int year = in.readInt();
+                String title = in.readUTF();
+                String instructorName = in.readUTF();
+                String filePath = new File(coursesDir, fileName).getPath();
+                loadedEntries.put(fileName, new CourseCatalogEntry(filePath, lastModified, size,
+                        subject, number, semester, year, title, instructorName));
+            }
+            entries = loadedEntries;
+        } catch (IOException | IllegalArgumentException e) {
+            entries.clear();
+        }
+    }
+
+    // SAVES THE WHOLE CATALOG
+    private void saveCatalog() throws IOException {
+        try (AtomicFileWriter.AtomicOutput output = fileWriter.open(getCatalogFile().getPath())) {
+            DataOutputStream out = new DataOutputStream(output.getOutputStream());
+            out.writeInt(CATALOG_MAGIC);
+            out.writeInt(CATALOG_VERSION);
+            out.writeInt(entries.size());
+            for (Map.Entry<String, CourseCatalogEntry> catalogEntry : entries.entrySet()) {
+                CourseCatalogEntry entry = catalogEntry.getValue();
+                out.writeUTF(catalogEntry.getKey());
+                out.writeLong(entry.lastModified);
+                out.writeLong(entry.size);
+                out.writeUTF(entry.subject.name());
+                out.writeInt(entry.number);
+                out.writeUTF(entry.semester.name());
+                out.writeInt(entry.year);
+                out.writeUTF(entry.title);
+                out.writeUTF(entry.instructorName);
+            }
+            out.flush();
+            output.commit();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package csb.file;
+
+import csb.data.Course;
+import csb.data.CourseHeader;
+import csb.data.Semester;
+import csb.data.Subject;
+
+/**
+ * This class holds what the course catalog knows about one course file,
+ * which is enough to list and search courses without reading the file,
+ * along with the file's size and modification time so that we can tell
+ * when the file has changed since the entry was made.
+ *
+ * @author Richard McKenna
+ */
+public class CourseCatalogEntry {
+    // WHERE THE COURSE IS SAVED, AND WHAT THE FILE LOOKED LIKE WHEN WE READ IT
+    String filePath;
+    long lastModified;
+    long size;
+
+    // WHAT WE NEED TO KNOW ABOUT THE COURSE TO LIST AND SEARCH IT
+    Subject subject;
+    int number;
+    Semester semester;
+    int year;
+    String title;
+    String instructorName;
+
+    // EVERYTHING A SEARCH MAY MATCH, IN LOWER CASE, SO WE ONLY MAKE IT ONCE
+    String searchText;
+
+    /**
+     * This constructor makes an entry with all the data provided.
+     *
+     * @param initFilePath Path of the course's file.
+     * @param initLastModified When the course's file was last modified.
+     * @param initSize How many bytes the course's file has.
+     * @param initSubject The course's subject.
+     * @param initNumber The course's number.
+     * @param initSemester The semester the course is taught.
+     * @param initYear The year the course is taught.
+     * @param initTitle The course's title.
+     * @param initInstructorName The name of the course's instructor.
+     */
+    public CourseCatalogEntry(String initFilePath, long initLastModified, long initSize,
+            Subject initSubject, int initNumber, Semester initSemester, int initYear,
+            String initTitle, String initInstructorName) {
+        filePath = initFilePath;
+        lastModified = initLastModified;
+        size = initSize;
+        subject = initSubject;
+        number = initNumber;
+        semester = initSemester;
+        year = initYear;
+        title = initTitle;
+        instructorName = initInstructorName;
+        searchText = ("" + subject + number + " " + this + " " + instructorName).toLowerCase();
+    }
+
+    /**
+     * This constructor makes an entry for a course that was just loaded
+     * from or saved to the file at initFilePath.
+     *
+     * @param initFilePath Path of the course's file.
+     * @param initLastModified When the course's file was last modified.
+     * @param initSize How many bytes the course's file has.
+     * @param course The course found in the file.
+     */
+    public CourseCatalogEntry(String initFilePath, long initLastModified, long initSize, Course course) {
+        this(initFilePath, initLastModified, initSize,
+                course.getSubject(), course.getNumber(), course.getSemester(), course.getYear(),
+                course.getTitle(), course.getInstructor().getName());
+    }
+
+    /**
+     * This constructor makes an entry for a course whose header was just
+     * loaded from the file at initFilePath.
+     *
+     * @param initFilePath Path of the course's file.
+     * @param initLastModified When the course's file was last modified.
+     * @param initSize How many bytes the course's file has.
+     * @param header The header of the course found in the file.
+     */
+    public CourseCatalogEntry(String initFilePath, long initLastModified, long initSize, CourseHeader header) {
+        this(initFilePath, initLastModified, initSize,
+                header.getSubject(), header.getNumber(), header.getSemester(), header.getYear(),
+                header.getTitle(), header.getInstructorName());
+    }
+
+    // ACCESSOR METHODS
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public Subject getSubject() {
+        return subject;
+    }
+
+    public int getNumber() {
+        return number;
+    }
+
+    public Semester getSemester() {
+        return semester;
+    }
+
+    public int getYear() {
+        return year;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getInstructorName() {
+        return instructorName;
+    }
+
+    /**
+     * Tests to see if this entry has anything matching the query text,
+     * ignoring case. Note that the subject and number are checked both
+     * with and without a space between them, so both CSE219 and CSE 219
+     * find the same course.
+     *
+     * @param lowerCaseQuery The text to look for, already in lower case.
+     *
+     * @return true if the query is found in the entry, false otherwise.
+     */
+    public boolean matches(String lowerCaseQuery) {
+        return searchText.contains(lowerCaseQuery);
+    }
+
+    /**
+     * Provides a description of this course for showing in lists.
+     *
+     * @return The course's subject, number, title, semester and year.
+     */
+    @Override
+    public String toString() {
+        return subject + " " + number + " - " + title + " (" + semester + " " + year + ")";
+    }
+}
@@ -0,0 +1,59 @@
+package csb.file;
+
+import static csb.CSB_StartupConstants.PATH_COURSES;
+
+/**
+ * This type represents the formats courses may be saved in, one of
+ * which is chosen at startup in properties.xml.
+ * 
+ * @author Richard McKenna
+ */
+public enum CourseFileFormat {
+    // SAVED AS JSON USING javax.json
+    JSON,
+    
+    // THE SAME JSON, BUT READ AND WRITTEN BYTE BY BYTE BY OUR OWN CODE
+    FAST_JSON,
+    
+    // A FEW DOZEN BYTES PER COURSE, SEE BinaryCourseCodec
+    BINARY,
+    
+    // EVERY COURSE IN ONE LOG FILE, SEE LogCourseFileManager
+    LOG,
+    
+    // EVERY COURSE IN A DATABASE, SEE JdbcCourseFileManager
+    SQL;
+
+    /**
+     * Makes a file manager that saves courses in this format in the
+     * usual courses directory.
+     * 
+     * @return A new file manager for this format.
+     */
+    public JsonCourseFileManager makeFileManager() {
+        return makeFileManager(PATH_COURSES);
+    }
+
+    /**
+     * Makes a file manager that saves courses in this format. Note that
+     * the directory only matters for formats that keep their own files,
+     * the others save courses wherever they're told to.
+     * 
+     * @param coursesDir Directory the courses are kept in.
+     * 
+     * @return A new file manager for this format.
+     */
+    public JsonCourseFileManager makeFileManager(String coursesDir) {
+        if (this == FAST_JSON) {
+            return new FastJsonCourseFileManager();
+        } else if (this == BINARY) {
+            return new BinaryCourseFileManager();
+        } else if (this == LOG) {
+            return new LogCourseFileManager(coursesDir);
+        } else if (this == SQL) {
+            return new JdbcCourseFileManager(JdbcCourseFileManager.getDefaultDatabaseURL(coursesDir));
+        } else {
+            return new JsonCourseFileManager();
+        }
+    }
+}
@@ -1,24 +1,35 @@
 package csb.file;
 
 import csb.data.Course;
+import csb.data.CourseHeader;
 import csb.data.Instructor;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * This interface provides an abstraction of what a file manager should do. Note
  * that file managers know how to read and write courses, instructors, and subjects,
- * but now how to export sites.
+ * but now how to export sites. A course's state is a pair of numbers that
+ * changes whenever the course is saved, like its file's modification time
+ * and size, which tells whether something read from it earlier is stale.
  * 
  * @author Richard McKenna
  */
 public interface CourseFileManager {
     public void                 saveCourse(Course courseToSave) throws IOException;
+    public String               getCourseFilePath(Course course);
+    public String               getCourseFileExtension();
+    public List<String>         getCourseFilePaths(String coursesDir) throws IOException;
     public void                 loadCourse(Course courseToLoad, String coursePath) throws IOException;
+    public CourseHeader         loadCourseHeader(String coursePath) throws IOException;
+    public long[]               getCourseState(String coursePath) throws IOException;
+    public Map<String, long[]>  getCourseStates(String coursesDir) throws IOException;
     public void                 saveLastInstructor(Instructor lastInstructor, String filePath) throws IOException;    
     public Instructor           loadLastInstructor(String filePath) throws IOException;
     public void                 saveSubjects(List<Object> subjects, String filePath) throws IOException;
     public ArrayList<String>    loadSubjects(String filePath) throws IOException;
     public ArrayList<String>    loadSemesters(String filePath) throws IOException;
+    public void                 close() throws IOException;
 }
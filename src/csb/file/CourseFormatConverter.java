@@ -0,0 +1,103 @@
+package csb.file;
+
+import static csb.CSB_StartupConstants.PATH_COURSES;
+import csb.data.Course;
+import csb.data.Instructor;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * This class converts every course in a directory from one format to
+ * another, like from JSON to binary to save space in an archive of past
+ * semesters, or from binary back to JSON. Converted courses are written
+ * next to the originals, which are left alone. Note that a course that
+ * already has a file in the destination format, like one converted back
+ * from binary to JSON, has that file replaced by the converted course.
+ * Since a conversion can write a great many files, we only wait for them
+ * to reach the disk once, after they've all been written.
+ *
+ * <p>It may be run from the command line like this:</p>
+ * <pre>
+ * java csb.file.CourseFormatConverter JSON LOG [directory]
+ * </pre>
+ *
+ * @author Richard McKenna
+ */
+public class CourseFormatConverter {
+    // WHAT WE'RE CONVERTING FROM AND TO
+    CourseFileFormat sourceFormat;
+    CourseFileFormat destinationFormat;
+
+    /**
+     * This constructor sets up a converter between the two formats.
+     *
+     * @param initSourceFormat The format of the courses to convert.
+     * @param initDestinationFormat The format to convert them to.
+     */
+    public CourseFormatConverter(CourseFileFormat initSourceFormat, CourseFileFormat initDestinationFormat) {
+        sourceFormat = initSourceFormat;
+        destinationFormat = initDestinationFormat;
+    }
+
+    /**
+     * Converts every course file in coursesDir, replacing any destination
+     * files that are already there. Note that this stops at the
+     * first course that can't be converted, but everything converted before
+     * it is kept.
+     *
+     * @param coursesDir Directory with the course files to convert.
+     *
+     * @return The number of courses converted.
+     *
+     * @throws IOException Thrown when a course can't be read or written.
+     */
+    public int convertAll(String coursesDir) throws IOException {
+        JsonCourseFileManager sourceFileManager = sourceFormat.makeFileManager(coursesDir);
+        JsonCourseFileManager destinationFileManager = destinationFormat.makeFileManager(coursesDir);
+        destinationFileManager.getFileWriter().setDurability(Durability.ON_BATCH_END);
+        String sourceExtension = sourceFileManager.getCourseFileExtension();
+        String destinationExtension = destinationFileManager.getCourseFileExtension();
+        int coursesConverted = 0;
+        Course course = new Course(new Instructor("", ""));
+        try {
+            for (String coursePath : sourceFileManager.getCourseFilePaths(coursesDir)) {
+                File courseFile = new File(coursePath);
+                String fileName = courseFile.getName();
+                String baseName = fileName.substring(0, fileName.length() - sourceExtension.length());
+                File convertedFile = new File(courseFile.getParentFile(), baseName + destinationExtension);
+                sourceFileManager.loadCourse(course, coursePath);
+                destinationFileManager.saveCourse(course, convertedFile.getPath());
+                coursesConverted++;
+            }
+        } finally {
+            destinationFileManager.getFileWriter().flushBatch();
+            destinationFileManager.close();
+            sourceFileManager.close();
+        }
+        return coursesConverted;
+    }
+
+    /**
+     * Converts the courses in a directory from the command line.
+     *
+     * @param args The source format, the destination format and, if not
+     * the usual courses directory, the directory to convert.
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: CourseFormatConverter <from format> <to format> [directory]");
+            System.exit(1);
+        }
+        try {
+            CourseFileFormat sourceFormat = CourseFileFormat.valueOf(args[0]);
+            CourseFileFormat destinationFormat = CourseFileFormat.valueOf(args[1]);
+            String coursesDir = (args.length > 2) ? args[2] : PATH_COURSES;
+            CourseFormatConverter converter = new CourseFormatConverter(sourceFormat, destinationFormat);
+            int coursesConverted = converter.convertAll(coursesDir);
+            System.out.println("Converted " + coursesConverted + " courses in " + coursesDir);
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package csb.file;
+
+import static csb.file.CourseSiteExporter.*;
+import csb.data.Course;
+import csb.data.CoursePage;
+import csb.data.Instructor;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.EnumMap;
+
+/**
+ * This class holds the parts of a course's site that are the same on every
+ * page, like its banner and the link to its instructor, so that they only
+ * have to be built once per course no matter how many pages are exported.
+ * Note that the navbar differs from page to page only in which link is
+ * open, so we keep one for each page. The HTML for each part is only built
+ * the first time it's needed, after which it's shared by all the pages
+ * being exported, even at the same time.
+ *
+ * @author Richard McKenna
+ */
+public class CourseFragments {
+    // HTML WE NEED TO WRITE FOR OUR FRAGMENTS
+    static final String BR = "<br>";
+
+    // THE COURSE THESE ARE THE FRAGMENTS OF
+    Course course;
+
+    // THE TEXT THAT GOES IN EACH PAGE'S TITLE AND BANNER
+    String titleText;
+    String bannerText;
+
+    // THE HTML FOR EACH SLOT THAT'S THE SAME ON EVERY PAGE, AND
+    // FOR THE NAVBAR OF EACH PAGE, READY TO BE WRITTEN
+    EnumMap<SegmentTemplate.Slot, ByteBuffer> slotHTML;
+    EnumMap<CoursePage, ByteBuffer> navBarHTML;
+
+    /**
+     * This constructor sets up the fragments for initCourse. Note that
+     * the course must not change while its pages are being exported.
+     *
+     * @param initCourse The course whose site is being exported.
+     */
+    public CourseFragments(Course initCourse) {
+        course = initCourse;
+        titleText = course.getSubject() + " " + course.getNumber();
+        bannerText = CourseSiteExporter.getBannerText(course);
+        slotHTML = new EnumMap(SegmentTemplate.Slot.class);
+        navBarHTML = new EnumMap(CoursePage.class);
+    }
+
+    // ACCESSOR METHODS
+
+    public Course getCourse() {
+        return course;
+    }
+
+    public String getTitleText() {
+        return titleText;
+    }
+
+    public String getBannerText() {
+        return bannerText;
+    }
+
+    /**
+     * Provides the HTML for a slot on a page, building it if this is
+     * the first time it's been needed.
+     *
+     * @param slot The slot whose content we want.
+     * @param currentPage The page being written, used for the navbar.
+     *
+     * @return The slot's HTML, ready to be written.
+     */
+    public synchronized ByteBuffer getSlotHTML(SegmentTemplate.Slot slot, CoursePage currentPage) {
+        ByteBuffer html;
+        if (slot == SegmentTemplate.Slot.NAVBAR) {
+            html = navBarHTML.get(currentPage);
+            if (html == null) {
+                html = buildHTML(slot, currentPage);
+                navBarHTML.put(currentPage, html);
+            }
+        } else {
+            html = slotHTML.get(slot);
+            if (html == null) {
+                html = buildHTML(slot, currentPage);
+                slotHTML.put(slot, html);
+            }
+        }
+        // EVERY PAGE GETS ITS OWN POSITION IN THE SHARED BYTES
+        return html.duplicate();
+    }
+
+    // BELOW ARE THE PRIVATE HELPER METHODS
+
+    // BUILDS THE HTML FOR ONE SLOT
+    private ByteBuffer buildHTML(SegmentTemplate.Slot slot, CoursePage currentPage) {
+        StringBuilder sb = new StringBuilder();
+        if (slot == SegmentTemplate.Slot.TITLE) {
+            appendText(sb, titleText);
+        } else if (slot == SegmentTemplate.Slot.NAVBAR) {
+            for (CoursePage page : course.getPages()) {
+                sb.append("<a class=\"").append(page == currentPage ? CLASS_OPEN_NAV : CLASS_NAV);
+                sb.append("\" href=\"").append(getLink(page));
+                sb.append("\" id=\"").append(getLinkId(page)).append("\">");
+                sb.append(getLinkHeader(page)).append("</a>");
+            }
+        } else if (slot == SegmentTemplate.Slot.BANNER) {
+            appendText(sb, bannerText);
+            sb.append(BR);
+            appendText(sb, course.getTitle());
+        } else if (slot == SegmentTemplate.Slot.SCHEDULE) {
+            appendScheduleRows(sb);
+        } else {
+            Instructor instructor = course.getInstructor();
+            sb.append("<a href=\"");
+            appendText(sb, instructor.getHomepageURL());
+            sb.append("\">");
+            appendText(sb, instructor.getName());
+            sb.append("</a>");
+        }
+        return SegmentTemplate.encode(sb.toString());
+    }
+
+    // WRITES TWO TABLE ROWS FOR EACH WEEK OF THE SCHEDULE
+    private void appendScheduleRows(StringBuilder sb) {
+        String[] dayHeaders = {MONDAY_HEADER, TUESDAY_HEADER, WEDNESDAY_HEADER, THURSDAY_HEADER, FRIDAY_HEADER};
+        LocalDate countingDate = course.getStartingMonday();
+        LocalDate endingFriday = course.getEndingFriday();
+        while (!countingDate.isAfter(endingFriday)) {
+            sb.append("<tr>");
+            for (String dayHeader : dayHeaders) {
+                sb.append("<th class=\"").append(CLASS_SCH).append("\">").append(dayHeader).append("</th>");
+            }
+            sb.append("</tr><tr>");
+            for (int i = 0; i < dayHeaders.length; i++) {
+                sb.append("<td class=\"").append(CLASS_SCH).append("\"><strong>");
+                sb.append(countingDate.getMonthValue()).append(SLASH).append(countingDate.getDayOfMonth());
+                sb.append("</strong></td>");
+                countingDate = countingDate.plusDays(1);
+            }
+            sb.append("</tr>");
+            countingDate = countingDate.plusDays(7 - dayHeaders.length);
+        }
+    }
+
+    // ADDS TEXT, ESCAPING ANYTHING THAT WOULD BE TAKEN AS MARKUP
+    private static void appendText(StringBuilder sb, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '&') {
+                sb.append("&amp;");
+            } else if (c == '<') {
+                sb.append("&lt;");
+            } else if (c == '>') {
+                sb.append("&gt;");
+            } else if (c == '"') {
+                sb.append("&quot;");
+            } else {
+                sb.append(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package csb.file;
+
+import csb.data.CourseHeader;
+
+/**
+ * This interface is for anything that wants to hear about each course
+ * header as soon as it's loaded by a CourseBulkLoader. Like a
+ * CourseLoadListener, it's always called on the thread that started the
+ * batch, one header at a time, so it doesn't need to be thread safe.
+ *
+ * @author Richard McKenna
+ */
+public interface CourseHeaderListener {
+    public void headerLoaded(String coursePath, CourseHeader loadedHeader);
+}
@@ -0,0 +1,15 @@
+package csb.file;
+
+import csb.data.Course;
+
+/**
+ * This interface is for anything that wants to hear about each course as
+ * soon as it's loaded by a CourseBulkLoader, rather than waiting for the
+ * whole batch. Note that it's always called on the thread that started
+ * the batch, one course at a time, so it doesn't need to be thread safe.
+ *
+ * @author Richard McKenna
+ */
+public interface CourseLoadListener {
+    public void courseLoaded(String coursePath, Course loadedCourse);
+}
@@ -8,13 +8,13 @@ import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.nio.file.Files;
-import java.nio.file.StandardCopyOption;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import javax.swing.text.html.HTML;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Result;
@@ -32,10 +32,11 @@ import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
 /**
- * This class is responsible for exporting schedule.html to its proper
- * directory. Note that it uses a base file in the baseDir directory, which gets
- * loaded first and that each course will have its own file exported to a
- * directory in the sitesDir directory.
+ * This class is responsible for exporting the pages of a course's site, like
+ * schedule.html, to their proper directory. Note that each page uses a base
+ * file of the same name in the baseDir directory, which gets loaded first and
+ * that each course will have its own files exported to a directory in the
+ * sitesDir directory.
  *
  * @author Richard McKenna
  */
@@ -76,9 +77,33 @@ public class CourseSiteExporter {
     public static String HWS_PAGE = "hws.html";
     public static String PROJECTS_PAGE = "projects.html";
 
+    // THIS GOES INTO EVERY PAGE'S FINGERPRINT, SO IT MUST BE CHANGED
+    // WHENEVER A CHANGE TO THIS CLASS CHANGES THE PAGES IT EXPORTS
+    public static final String EXPORTER_VERSION = "2";
+
+    // THESE ARE THE PLACES IN THE SCHEDULE PAGE WHERE COURSE CONTENT GOES
+    static final SegmentTemplate.Slot[] SCHEDULE_SLOTS = {
+        SegmentTemplate.Slot.TITLE,
+        SegmentTemplate.Slot.NAVBAR,
+        SegmentTemplate.Slot.BANNER,
+        SegmentTemplate.Slot.SCHEDULE,
+        SegmentTemplate.Slot.INSTRUCTOR_LINK
+    };
+
+    // AND IN ALL THE OTHER PAGES, WHICH DON'T HAVE A SCHEDULE
+    static final SegmentTemplate.Slot[] PAGE_SLOTS = {
+        SegmentTemplate.Slot.TITLE,
+        SegmentTemplate.Slot.NAVBAR,
+        SegmentTemplate.Slot.BANNER,
+        SegmentTemplate.Slot.INSTRUCTOR_LINK
+    };
+
     // THIS IS THE DIRECTORY STRUCTURE USED BY OUR SITE
     public static final String CSS_DIR = "css";
     public static final String IMAGES_DIR = "images";
+
+    // AND THIS IS WHERE SHARED ASSETS GO, INSIDE THE SITES DIRECTORY
+    public static final String ASSETS_DIR = ".assets";
     
     // AND SOME TEXT WE'LL NEED TO ADD ON THE FLY
     public static final String SLASH = "/";
@@ -90,6 +115,33 @@ public class CourseSiteExporter {
     String baseDir;
     String sitesDir;
 
+    // THIS KEEPS THE PARSED BASE PAGES SO WE DON'T HAVE TO
+    // PARSE THEM AGAIN FOR EVERY COURSE WE EXPORT
+    TemplateCache templateCache;
+
+    // THIS IS HOW WE'LL RENDER PAGES, AND THE RENDERER WE'LL
+    // USE IF WE'RE STREAMING THEM
+    ExportEngine engine;
+    StreamingPageRenderer streamingRenderer;
+
+    // TRANSFORMERS AREN'T THREAD SAFE, SO EACH THREAD THAT
+    // SAVES PAGES GETS ITS OWN, ALL MADE BY ONE FACTORY
+    TransformerFactory transformerFactory;
+    ThreadLocal<Transformer> transformers;
+
+    // THE MOST THREADS WE'LL USE WHEN EXPORTING A BATCH OF COURSES
+    int exportThreads;
+
+    // EVERY FILE WE EXPORT IS WRITTEN THROUGH THIS, SO A CRASH
+    // NEVER LEAVES A HALF WRITTEN PAGE BEHIND
+    AtomicFileWriter fileWriter;
+
+    // HOW COURSE SITES GET THEIR STYLESHEETS AND IMAGES, THE STORE
+    // WE KEEP THEM IN IF THEY'RE SHARED, AND WHAT KEEPS THEM UP TO DATE
+    AssetMode assetMode;
+    SharedAssetStore assetStore;
+    AssetSynchronizer assetSynchronizer;
+
     /**
      * This constructor initializes this exporter to load the schedule
      * page from the initBaseDir and export course pages to directories
@@ -101,34 +153,166 @@ public class CourseSiteExporter {
      * that each course will have a directory here containing its site.
      */
     public CourseSiteExporter(String initBaseDir, String initSitesDir) {
+        this(initBaseDir, initSitesDir, ExportEngine.DOM);
+    }
+
+    /**
+     * This constructor initializes this exporter just like the one above,
+     * but also lets us pick the engine that will render the pages, which
+     * lets us compare them.
+     * 
+     * @param initBaseDir Directory that contains the base site files.
+     * 
+     * @param initSitesDir Directory where course sites will be exported to.
+     * 
+     * @param initEngine The engine to use for rendering pages.
+     */
+    public CourseSiteExporter(String initBaseDir, String initSitesDir, ExportEngine initEngine) {
         baseDir = initBaseDir;
         sitesDir = initSitesDir;
+        engine = initEngine;
+        templateCache = new TemplateCache();
+        if (engine == ExportEngine.STREAMING) {
+            streamingRenderer = new StreamingPageRenderer();
+        }
+        transformerFactory = TransformerFactory.newInstance();
+        transformers = new ThreadLocal();
+        exportThreads = Runtime.getRuntime().availableProcessors();
+        fileWriter = new AtomicFileWriter(Durability.NONE);
+        assetMode = AssetMode.COPY;
+        assetSynchronizer = new AssetSynchronizer(baseDir);
+    }
+
+    /**
+     * Accessor method for the engine this exporter renders pages with.
+     * 
+     * @return The engine used to render pages.
+     */
+    public ExportEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Accessor method for the writer all exported files go through, which
+     * may be used to change how hard it works to get pages onto the disk.
+     * 
+     * @return The writer used for exported files.
+     */
+    public AtomicFileWriter getFileWriter() {
+        return fileWriter;
+    }
+
+    /**
+     * Accessor method for how course sites get their stylesheets and images.
+     * 
+     * @return The mode used for providing site assets.
+     */
+    public AssetMode getAssetMode() {
+        return assetMode;
+    }
+
+    /**
+     * Mutator method for how course sites get their stylesheets and images.
+     * Note that in SHARED mode each file is stored only once, in a directory
+     * inside the sites directory, and course sites link to it.
+     * 
+     * @param initAssetMode The mode to use for providing site assets.
+     */
+    public void setAssetMode(AssetMode initAssetMode) {
+        assetMode = initAssetMode;
+        if ((assetMode == AssetMode.SHARED) && (assetStore == null)) {
+            assetStore = new SharedAssetStore(sitesDir + SLASH + ASSETS_DIR);
+        }
+        assetSynchronizer.setAssetStore((assetMode == AssetMode.SHARED) ? assetStore : null);
+    }
+
+    /**
+     * Mutator method for whether site assets whose size and modification
+     * time match the base site's should still have their contents checked
+     * when exporting. This is off by default since it means reading them.
+     * 
+     * @param verifyAssetDigests true to check the contents of assets.
+     */
+    public void setVerifyAssetDigests(boolean verifyAssetDigests) {
+        assetSynchronizer.setVerifyDigests(verifyAssetDigests);
+    }
+
+    /**
+     * Mutator method for the most threads a batch export may use. Note that
+     * this defaults to the number of available processors.
+     * 
+     * @param initExportThreads The most threads to export a batch with.
+     */
+    public void setExportThreads(int initExportThreads) {
+        exportThreads = Math.max(1, initExportThreads);
+    }
+
+    /**
+     * This method exports the sites for all the coursesToExport, spreading
+     * the work over a bounded pool of threads. Note that a course that
+     * fails to export doesn't stop the others, instead every course gets
+     * a result saying whether it worked and how long it took.
+     * 
+     * @param coursesToExport The courses whose sites are to be built. Note
+     * that no two of these should have the same subject and number, since
+     * they would be exported to the same directory.
+     * 
+     * @return One result for each course, in the same order as the courses.
+     * 
+     * @throws IOException Thrown when the exported files can't be forced
+     * to disk at the end of the batch.
+     */
+    public List<ExportResult> exportAll(Collection<Course> coursesToExport) throws IOException {
+        ArrayList<ExportResult> results = new ArrayList();
+        if (coursesToExport.isEmpty()) {
+            return results;
+        }
+
+        // THERE'S NO POINT IN MAKING MORE THREADS THAN COURSES
+        int poolSize = Math.min(exportThreads, coursesToExport.size());
+        ForkJoinPool exportPool = new ForkJoinPool(poolSize);
+        try {
+            // START ALL THE EXPORTS
+            ArrayList<ForkJoinTask<ExportResult>> exports = new ArrayList();
+            for (Course courseToExport : coursesToExport) {
+                exports.add(exportPool.submit(() -> exportWithResult(courseToExport)));
+            }
+
+            // AND THEN COLLECT ALL THE RESULTS
+            for (ForkJoinTask<ExportResult> export : exports) {
+                results.add(export.join());
+            }
+        } finally {
+            exportPool.shutdown();
+        }
+
+        // FORCE THE WHOLE BATCH TO DISK AT ONCE IF THAT'S WHAT WE'RE DOING
+        fileWriter.flushBatch();
+        return results;
     }
 
     /**
      * This method is the facade to a lot of work done to export the site. It
      * will setup the necessary course directory if it doesn't already exist
-     * and copy the needed stylesheets and images and will then export the
-     * necessary pages.
+     * and bring its stylesheets and images up to date with the base site's
+     * and will then export all of the course's pages, along with the
+     * schedule page, which every site has. Note that a page is only written
+     * if the course data or base page it's built from has changed since it
+     * was last exported, and that the pages are exported at the same time.
      * 
      * @param courseToExport Course whose site is being built.
      * 
+     * @return The number of pages that were actually written.
+     * 
      * @throws IOException This exception is thrown when a problem occurs
      * creating the course site directory and/or files.
      */
-    public void exportCourseSite(Course courseToExport) throws IOException {
-        // GET THE DIRECTORY TO EXPORT THE SITE
-        String courseExportPath = (new File(sitesDir) + SLASH)
-                + courseToExport.getSubject() + courseToExport.getNumber();
+    public int exportCourseSite(Course courseToExport) throws IOException {
+        int pagesWritten = exportCourseSiteFiles(courseToExport);
 
-        // FIRST EXPORT ANCILLARY FILES LIKE STYLE SHEETS AND IMAGES. NOTE
-        // THAT THIS ONLY NEEDS TO BE DONE ONCE FOR EACH COURSE
-        if (!new File(courseExportPath).exists()) {
-            setupCourseSite(courseExportPath);
-        }
-
-        // EXPORT THE schedule.html PAGE
-        exportSchedulePage(courseToExport, courseExportPath);        
+        // A SINGLE COURSE IS A BATCH ALL BY ITSELF
+        fileWriter.flushBatch();
+        return pagesWritten;
     }
 
     /**
@@ -144,21 +328,24 @@ public class CourseSiteExporter {
      */
     public void exportSchedulePage(Course courseToExport, String courseExportPath)
             throws IOException {
-        try {
-            // NOW THAT EVERYTHING IS SETUP, BUILD THE PAGE DOCUMENT
-            Document scheduleDoc = buildSchedulePage(courseToExport);
+        exportPage(courseToExport, CoursePage.SCHEDULE, courseExportPath);
+    }
 
-            // AND SAVE IT TO A FILE
-            saveDocument(scheduleDoc, courseExportPath + SLASH + SCHEDULE_PAGE);
-            
-            // NOTE THAT IF ANYTHING GOES WRONG WE WILL REFLECT AND/OR PASS ALL EXCEPTIONS
-        } catch(    TransformerException 
-                |   SAXException
-                |   ParserConfigurationException exception) {
-            // WE ARE GOING TO REFLECT ALL OF THESE EXCEPTIONS AS
-            // IOExceptions, WHICH WE'LL HANDLE TOGETHER
-            throw new IOException(exception.getMessage());
-        }
+    /**
+     * This function exports just one page of the courseToExport
+     * course's site, whether it has changed or not.
+     * 
+     * @param courseToExport Course whose site we are to export.
+     * @param page The page to export.
+     * @param courseExportPath The directory where courseToExport's site
+     * pages are to be exported to.
+     * 
+     * @throws IOException Thrown when there is a problem exporting
+     * the page for this site.
+     */
+    public void exportPage(Course courseToExport, CoursePage page, String courseExportPath)
+            throws IOException {
+        exportPage(new CourseFragments(courseToExport), page, courseExportPath);
     }
 
     /**
@@ -173,7 +360,7 @@ public class CourseSiteExporter {
     public String getPageURLPath(Course course, CoursePage cP) {
         String urlPath = PATH_SITES + course.getSubject() 
                 + course.getNumber() 
-                + SLASH + this.getLink(cP);
+                + SLASH + getLink(cP);
         File webPageFile = new File(urlPath);
         try {
             URL pageURL = webPageFile.toURI().toURL();
@@ -185,65 +372,178 @@ public class CourseSiteExporter {
     
     // BELOW ARE ALL THE PRIVATE HELPER METHODS
 
-    // BUILDS A SCHEDULE PAGE AND RETURNS IT AS A SINGLE Document
-    private Document buildSchedulePage(Course courseToExport) throws SAXException, TransformerException, IOException, ParserConfigurationException {
-        // MAKE A PATH FOR THE SCHEDULE PAGE
-        String schedulePath = baseDir + SLASH + SCHEDULE_PAGE;
+    // EXPORTS A SINGLE COURSE FOR A BATCH, RECORDING WHAT HAPPENED
+    // RATHER THAN THROWING AN EXCEPTION
+    private ExportResult exportWithResult(Course courseToExport) {
+        long startTime = System.nanoTime();
+        try {
+            int pagesWritten = exportCourseSiteFiles(courseToExport);
+            return new ExportResult(courseToExport, pagesWritten, null, System.nanoTime() - startTime);
+        } catch (Exception e) {
+            return new ExportResult(courseToExport, 0, e, System.nanoTime() - startTime);
+        }
+    }
+
+    // EXPORTS A COURSE'S SITE WITHOUT ENDING THE BATCH, WHICH LETS A
+    // BATCH FORCE ALL OF ITS FILES TO DISK AT ONCE WHEN IT'S DONE
+    private int exportCourseSiteFiles(Course courseToExport) throws IOException {
+        // GET THE DIRECTORY TO EXPORT THE SITE
+        String courseExportPath = (new File(sitesDir) + SLASH)
+                + courseToExport.getSubject() + courseToExport.getNumber();
+
+        // FIRST SYNC ANCILLARY FILES LIKE STYLE SHEETS AND IMAGES. NOTE
+        // THAT ONLY THE ONES THAT HAVE CHANGED IN THE BASE SITE ARE COPIED
+        assetSynchronizer.syncCourseSite(courseExportPath);
+
+        // FIND THE PAGES THAT HAVE CHANGED SINCE THEY WERE LAST EXPORTED
+        ExportManifest manifest = ExportManifest.load(courseExportPath);
+        ArrayList<CoursePage> changedPages = new ArrayList();
+        ArrayList<String> changedFingerprints = new ArrayList();
+        for (CoursePage page : getPagesToExport(courseToExport)) {
+            String fingerprint = makeFingerprint(courseToExport, page);
+            if (!manifest.isUpToDate(getLink(page), fingerprint)) {
+                changedPages.add(page);
+                changedFingerprints.add(fingerprint);
+            }
+        }
+        if (changedPages.isEmpty()) {
+            return 0;
+        }
+
+        // THE PARTS THAT ARE THE SAME ON EVERY PAGE ONLY GET BUILT ONCE
+        CourseFragments fragments = new CourseFragments(courseToExport);
+
+        // NOW EXPORT ALL THE CHANGED PAGES AT THE SAME TIME
+        exportPages(fragments, changedPages, courseExportPath);
+
+        // AND REMEMBER WHAT WE'VE WRITTEN FOR NEXT TIME
+        for (int i = 0; i < changedPages.size(); i++) {
+            manifest.setFingerprint(getLink(changedPages.get(i)), changedFingerprints.get(i));
+        }
+        manifest.save(fileWriter);
+        return changedPages.size();
+    }
+
+    // THE PAGES OF A COURSE'S SITE WE EXPORT, WHICH ALWAYS INCLUDES THE
+    // SCHEDULE PAGE SINCE THAT'S THE ONE WE SHOW AFTER AN EXPORT
+    private List<CoursePage> getPagesToExport(Course courseToExport) {
+        ArrayList<CoursePage> pagesToExport = new ArrayList(courseToExport.getPages());
+        if (!pagesToExport.contains(CoursePage.SCHEDULE)) {
+            pagesToExport.add(CoursePage.SCHEDULE);
+        }
+        return pagesToExport;
+    }
+
+    // EXPORTS ALL THE PAGES AT ONCE, NOTE THAT IF WE'RE ALREADY IN A POOL,
+    // LIKE WHEN EXPORTING A BATCH, THE PAGES ARE EXPORTED IN THAT POOL
+    private void exportPages(CourseFragments fragments, List<CoursePage> pages, String courseExportPath)
+            throws IOException {
+        if (pages.size() == 1) {
+            exportPage(fragments, pages.get(0), courseExportPath);
+            return;
+        }
+        ArrayList<ForkJoinTask<Void>> pageExports = new ArrayList();
+        for (CoursePage page : pages) {
+            pageExports.add(ForkJoinTask.adapt(() -> {
+                exportPage(fragments, page, courseExportPath);
+                return null;
+            }));
+        }
+        try {
+            ForkJoinTask.invokeAll(pageExports);
+        } catch (RuntimeException re) {
+            // PASS ALONG THE PROBLEM THE PAGE ACTUALLY HAD
+            Throwable cause = re;
+            while ((cause != null) && !(cause instanceof IOException)) {
+                cause = cause.getCause();
+            }
+            if (cause != null) {
+                throw (IOException)cause;
+            }
+            throw re;
+        }
+    }
+
+    // EXPORTS A SINGLE PAGE OF A COURSE'S SITE USING OUR ENGINE
+    private void exportPage(CourseFragments fragments, CoursePage page, String courseExportPath)
+            throws IOException {
+        String templatePath = baseDir + SLASH + getLink(page);
+        String pagePath = courseExportPath + SLASH + getLink(page);
+        try {
+            if (engine == ExportEngine.STREAMING) {
+                // STREAM THE BASE PAGE RIGHT THROUGH TO THE FILE
+                streamingRenderer.renderPage(fragments, page, templatePath, fileWriter, pagePath);
+            } else if (engine == ExportEngine.SEGMENTS) {
+                // SPLICE THE COURSE CONTENT INTO THE COMPILED BASE PAGE
+                SegmentTemplate pageTemplate = templateCache.getSegmentTemplate(templatePath, getSlots(page));
+                pageTemplate.render(fragments, page, fileWriter, pagePath);
+            } else {
+                // NOW THAT EVERYTHING IS SETUP, BUILD THE PAGE DOCUMENT
+                Document pageDoc = buildPage(fragments, page);
+
+                // AND SAVE IT TO A FILE
+                saveDocument(pageDoc, pagePath);
+            }
+            
+            // NOTE THAT IF ANYTHING GOES WRONG WE WILL REFLECT AND/OR PASS ALL EXCEPTIONS
+        } catch(    TransformerException 
+                |   SAXException
+                |   ParserConfigurationException exception) {
+            // WE ARE GOING TO REFLECT ALL OF THESE EXCEPTIONS AS
+            // IOExceptions, WHICH WE'LL HANDLE TOGETHER
+            throw new IOException(exception.getMessage());
+        }
+    }
+
+    // THE PLACES IN A PAGE WHERE COURSE CONTENT GOES
+    private SegmentTemplate.Slot[] getSlots(CoursePage page) {
+        return (page == CoursePage.SCHEDULE) ? SCHEDULE_SLOTS : PAGE_SLOTS;
+    }
+
+    // MAKES THE FINGERPRINT OF EVERYTHING THAT GOES INTO A PAGE
+    private String makeFingerprint(Course courseToExport, CoursePage page) throws IOException {
+        try {
+            String templateDigest = templateCache.getTemplateDigest(baseDir + SLASH + getLink(page));
+            return ExportManifest.makeFingerprint(courseToExport, page, templateDigest,
+                    EXPORTER_VERSION + SLASH + engine);
+        } catch (SAXException | ParserConfigurationException exception) {
+            throw new IOException(exception.getMessage());
+        }
+    }
+
+    // BUILDS A PAGE AND RETURNS IT AS A SINGLE Document
+    private Document buildPage(CourseFragments fragments, CoursePage page) throws SAXException, TransformerException, IOException, ParserConfigurationException {
+        Course courseToExport = fragments.getCourse();
 
-        // NOW LOAD THE DOCUMENT
-        DocumentBuilderFactory docFactory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder docBuilder = docFactory.newDocumentBuilder();
-        Document scheduleDoc = docBuilder.parse(schedulePath);
+        // MAKE A PATH FOR THE BASE PAGE
+        String templatePath = baseDir + SLASH + getLink(page);
+
+        // NOW GET OUR OWN COPY OF THE DOCUMENT
+        Document pageDoc = templateCache.getTemplate(templatePath);
 
         // UPDATE THE PAGE HEADER
-        Node titleNode = scheduleDoc.getElementsByTagName(HTML.Tag.TITLE.toString()).item(0);
-        titleNode.setTextContent(courseToExport.getSubject() + " "
-                + courseToExport.getNumber());
+        Node titleNode = pageDoc.getElementsByTagName(HTML.Tag.TITLE.toString()).item(0);
+        titleNode.setTextContent(fragments.getTitleText());
         
         //BUILD THE NAV BAR
-        buildNavBar(scheduleDoc, courseToExport,CoursePage.SCHEDULE);
+        buildNavBar(pageDoc, courseToExport, page);
         
         // BUILD THE BANNER
-        setBanner(scheduleDoc, courseToExport);
+        setBanner(pageDoc, fragments);
         
-        // NOW BUILD THE SCHEDULE TABLE
-        fillScheduleTable(scheduleDoc, courseToExport);
+        // NOW BUILD THE SCHEDULE TABLE, WHICH ONLY THE SCHEDULE PAGE HAS
+        if (page == CoursePage.SCHEDULE) {
+            fillScheduleTable(pageDoc, courseToExport);
+        }
         
         // AND ADD THE INSTRUCTOR
-        appendInstructor(scheduleDoc, courseToExport.getInstructor());
+        appendInstructor(pageDoc, courseToExport.getInstructor());
 
         // AND RETURN THE FULL PAGE DOM
-        return scheduleDoc;
+        return pageDoc;
     }
     
     
-    // INITIALIZES ALL THE HELPER FILES AND DIRECTORIES, LIKE FOR CSS
-    private void setupCourseSite(String exportPath) throws IOException {
-        // FIRST MAKE THE FOLDERS
-        File siteDir = new File(exportPath);
-        siteDir.mkdir();
-        File cssDir = new File(exportPath + SLASH + CSS_DIR);
-        cssDir.mkdir();
-        File imagesDir = new File(exportPath + SLASH + IMAGES_DIR);
-        imagesDir.mkdir();
-
-        // THEN COPY THE STYLESHEETS OVER
-        File baseCSSDir = new File(baseDir + "/" + CSS_DIR);
-        File[] cssFiles = baseCSSDir.listFiles();
-        for (int i = 0; i < cssFiles.length; i++) {
-            File cssFile = new File(cssDir + SLASH + cssFiles[i].getName());
-            Files.copy(cssFiles[i].toPath(), cssFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-        }
-
-        // AND THEN COPY THE IMAGES OVER
-        File baseImagesDir = new File(baseDir + "/" + IMAGES_DIR);
-        File[] imageFiles = baseImagesDir.listFiles();
-        for (int i = 0; i < imageFiles.length; i++) {
-            File imageFile = new File(imagesDir + "/" + imageFiles[i].getName());
-            Files.copy(imageFiles[i].toPath(), imageFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-        }
-    }
-
     // APPENDS THE ISNTRUCTOR TO THE BOTTOM OF THE PAGE
     private void appendInstructor(Document pageDoc, Instructor courseInstructor) {
         Node instructorSpan = (Element)getNodeWithId(pageDoc, HTML.Tag.SPAN.toString(), ID_INSTRUCTOR_LINK);
@@ -255,19 +555,23 @@ public class CourseSiteExporter {
     
     // FILLS IN THE SCHEDULE PAGE'S SCHEDULE TABLE
     private void fillScheduleTable(Document scheduleDoc, Course courseToExport) {
+        // WE ONLY NEED TO FIND THE TABLE ONCE
+        Node scheduleTableNode = getNodeWithId(scheduleDoc, HTML.Tag.TABLE.toString(), ID_SCHEDULE);
+
+        // EVERY WEEK GETS THE SAME MONDAY-FRIDAY HEADERS, SO WE'LL
+        // BUILD THEM ONCE AND THEN JUST COPY THEM FOR EACH WEEK
+        Element dowRowHeaderTemplate = scheduleDoc.createElement(HTML.Tag.TR.toString());
+        addDayOfWeekHeader(scheduleDoc, dowRowHeaderTemplate, MONDAY_HEADER);
+        addDayOfWeekHeader(scheduleDoc, dowRowHeaderTemplate, TUESDAY_HEADER);
+        addDayOfWeekHeader(scheduleDoc, dowRowHeaderTemplate, WEDNESDAY_HEADER);
+        addDayOfWeekHeader(scheduleDoc, dowRowHeaderTemplate, THURSDAY_HEADER);
+        addDayOfWeekHeader(scheduleDoc, dowRowHeaderTemplate, FRIDAY_HEADER);
+
         LocalDate countingDate = courseToExport.getStartingMonday().minusDays(0);
         while (countingDate.isBefore(courseToExport.getEndingFriday())
                 || countingDate.isEqual(courseToExport.getEndingFriday())) {
-            // ADD THE MONDAY-FRIDAY HEADERS            
-            // FIRST FOR EACH WEEK MAKE A TABLE ROW            
-            Element dowRowHeaderElement = scheduleDoc.createElement(HTML.Tag.TR.toString());
-
-            // AND ADD DAY OF THE WEEK TABLE HEADERS
-            addDayOfWeekHeader(scheduleDoc, dowRowHeaderElement, MONDAY_HEADER);
-            addDayOfWeekHeader(scheduleDoc, dowRowHeaderElement, TUESDAY_HEADER);
-            addDayOfWeekHeader(scheduleDoc, dowRowHeaderElement, WEDNESDAY_HEADER);
-            addDayOfWeekHeader(scheduleDoc, dowRowHeaderElement, THURSDAY_HEADER);
-            addDayOfWeekHeader(scheduleDoc, dowRowHeaderElement, FRIDAY_HEADER);
+            // FIRST FOR EACH WEEK COPY THE ROW OF MONDAY-FRIDAY HEADERS
+            Node dowRowHeaderElement = dowRowHeaderTemplate.cloneNode(true);
             
             //ADD DAY OF THE WEEK ELEMENT
             //FIRST MAKE A TABLE ROW
@@ -284,7 +588,6 @@ public class CourseSiteExporter {
             countingDate = countingDate.plusDays(nextWeek);
             
             // AND PUT IT IN THE TABLE
-            Node scheduleTableNode = getNodeWithId(scheduleDoc, HTML.Tag.TABLE.toString(), ID_SCHEDULE);
             scheduleTableNode.appendChild(dowRowHeaderElement);
             scheduleTableNode.appendChild(dowRowDataElement);
         }
@@ -313,8 +616,14 @@ public class CourseSiteExporter {
         tableRow.appendChild(dayOfWeekElement);
     }
 
-    // FINDS AND RETURNS A NODE IN A DOCUMENT OF A CERTAIN TYPE WITH A CERTIAN ID
-    private Node getNodeWithId(Document doc, String tagType, String searchID) {
+    // FINDS AND RETURNS A NODE IN A DOCUMENT OF A CERTAIN TYPE WITH A CERTIAN ID,
+    // NOTE THAT OUR TEMPLATES COME WITH THEIR ids ALREADY INDEXED, SO WE ONLY
+    // HAVE TO SEARCH THE DOCUMENT WHEN THAT DOESN'T FIND IT
+    static Node getNodeWithId(Document doc, String tagType, String searchID) {
+        Element indexedElement = doc.getElementById(searchID);
+        if ((indexedElement != null) && indexedElement.getTagName().equals(tagType)) {
+            return indexedElement;
+        }
         NodeList divNodes = doc.getElementsByTagName(tagType);
         for (int i = 0; i < divNodes.getLength(); i++) {
             Node testNode = divNodes.item(i);
@@ -331,15 +640,30 @@ public class CourseSiteExporter {
 
     // SAVES THE DOCUMENT OBJECT TO A FILE, WHICH WOULD BE AN HTIM FILE
     private void saveDocument(Document doc, String outputFilePath)
-            throws TransformerException, TransformerConfigurationException {
-        TransformerFactory factory = TransformerFactory.newInstance();
-        Transformer transformer = factory.newTransformer();
-        transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-        transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
-        Result result = new StreamResult(new File(outputFilePath));
-        Source source = new DOMSource(doc);
-        transformer.transform(source, result);
+            throws IOException, TransformerException, TransformerConfigurationException {
+        Transformer transformer = getTransformer();
+        try (AtomicFileWriter.AtomicOutput output = fileWriter.open(outputFilePath)) {
+            Result result = new StreamResult(output.getOutputStream());
+            Source source = new DOMSource(doc);
+            transformer.transform(source, result);
+            output.commit();
+        }
+    }
+
+    // GETS THIS THREAD'S TRANSFORMER, MAKING IT IF NEEDED
+    private Transformer getTransformer() throws TransformerConfigurationException {
+        Transformer transformer = transformers.get();
+        if (transformer == null) {
+            // THE FACTORY ISN'T THREAD SAFE EITHER
+            synchronized (transformerFactory) {
+                transformer = transformerFactory.newTransformer();
+            }
+            setOutputProperties(transformer);
+            transformers.set(transformer);
+        }
+        return transformer;
     }
+
     //SETS THE REQUIRED NAV BAR
     private void buildNavBar(Document doc, Course courseToExport, CoursePage currentPage){
         //first grab navbar div element in doc
@@ -351,48 +675,11 @@ public class CourseSiteExporter {
            
             Element navLink = doc.createElement(HTML.Tag.A.toString());
 
-           //now create a link with the coursePage
-            
-            if(pageIterator.equals(CoursePage.HWS)){
-                //set link ID
-                navLink.setAttribute(HTML.Attribute.ID.toString(), ID_HWS_LINK);
-                //set links location
-                navLink.setAttribute(HTML.Attribute.HREF.toString(),HWS_PAGE);
-                //set links text
-                navLink.setTextContent(HWS_HEADER);
-            }
-            if(pageIterator.equals(CoursePage.INDEX)){
-                //set link ID
-                navLink.setAttribute(HTML.Attribute.ID.toString(), ID_HOME_LINK);
-                //set links location
-                navLink.setAttribute(HTML.Attribute.HREF.toString(),INDEX_PAGE);
-                //set links text
-                navLink.setTextContent(INDEX_HEADER);
-            }
-            if(pageIterator.equals(CoursePage.PROJECTS)){
-                //set link ID
-                navLink.setAttribute(HTML.Attribute.ID.toString(), ID_PROJECTS_LINK);
-                //set links location
-                navLink.setAttribute(HTML.Attribute.HREF.toString(),PROJECTS_PAGE);
-                //set links text
-                navLink.setTextContent(PROJECTS_HEADER);
-            }
-            if(pageIterator.equals(CoursePage.SCHEDULE)){
-                //set link ID
-                navLink.setAttribute(HTML.Attribute.ID.toString(), ID_SCHEDULE_LINK);
-                //set links location
-                navLink.setAttribute(HTML.Attribute.HREF.toString(),SCHEDULE_PAGE);
-                //set links text
-                navLink.setTextContent(SCHEDULE_HEADER);
-            }
-            if(pageIterator.equals(CoursePage.SYLLABUS)){
-                //set link ID
-                navLink.setAttribute(HTML.Attribute.ID.toString(), ID_SYLLABUS_LINK);
-                //set links location
-                navLink.setAttribute(HTML.Attribute.HREF.toString(),SYLLABUS_PAGE);
-                //set links text
-                navLink.setTextContent(SYLLABUS_HEADER);
-            }
+            //now create a link with the coursePage
+            navLink.setAttribute(HTML.Attribute.ID.toString(), getLinkId(pageIterator));
+            navLink.setAttribute(HTML.Attribute.HREF.toString(), getLink(pageIterator));
+            navLink.setTextContent(getLinkHeader(pageIterator));
+
             //check to see this the navLink is for the currentPage
             //set navLink to open_nav class
             if(pageIterator.equals(currentPage))
@@ -406,25 +693,66 @@ public class CourseSiteExporter {
         }
     }
     // SETS THE COURSE PAGE BANNER
-    private void setBanner(Document doc, Course courseToExport) {
+    private void setBanner(Document doc, CourseFragments fragments) {
        //first get the banner div
         Node bannerNode = getNodeWithId(doc, HTML.Tag.DIV.toString(), ID_BANNER);
         
         //then create a node to hold the first bit of text and append it to bannerNodes children
-        Node subjectAndTermNode = doc.createTextNode(courseToExport.getSubject().toString() + " " + courseToExport.getNumber()
-                +" "+DASH+" "+courseToExport.getSemester()+" "+courseToExport.getYear());
+        Node subjectAndTermNode = doc.createTextNode(fragments.getBannerText());
         bannerNode.appendChild(subjectAndTermNode);
         
         //add a line brake element to bannerNode children
         bannerNode.appendChild(doc.createElement(HTML.Tag.BR.toString()));
         
         //now we need the last bit of text added to bannerNodes children
-        bannerNode.appendChild(doc.createTextNode(courseToExport.getTitle()));
+        bannerNode.appendChild(doc.createTextNode(fragments.getCourse().getTitle()));
    
     }
     
+    // SETS UP A TRANSFORMER TO WRITE OUR PAGES THE WAY WE WANT THEM TO LOOK
+    static void setOutputProperties(Transformer transformer) {
+        transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+        transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
+    }
+
+    // BUILDS THE FIRST LINE OF TEXT FOR THE PAGE BANNER
+    static String getBannerText(Course courseToExport) {
+        return courseToExport.getSubject().toString() + " " + courseToExport.getNumber()
+                + " " + DASH + " " + courseToExport.getSemester() + " " + courseToExport.getYear();
+    }
+
+    // USED FOR GETTING THE ID OF A PAGE LINK IN THE NAVBAR
+    static String getLinkId(CoursePage page) {
+        if (page == CoursePage.INDEX) {
+            return ID_HOME_LINK;
+        } else if (page == CoursePage.SYLLABUS) {
+            return ID_SYLLABUS_LINK;
+        } else if (page == CoursePage.SCHEDULE) {
+            return ID_SCHEDULE_LINK;
+        } else if (page == CoursePage.HWS) {
+            return ID_HWS_LINK;
+        } else {
+            return ID_PROJECTS_LINK;
+        }
+    }
+
+    // USED FOR GETTING THE TEXT OF A PAGE LINK IN THE NAVBAR
+    static String getLinkHeader(CoursePage page) {
+        if (page == CoursePage.INDEX) {
+            return INDEX_HEADER;
+        } else if (page == CoursePage.SYLLABUS) {
+            return SYLLABUS_HEADER;
+        } else if (page == CoursePage.SCHEDULE) {
+            return SCHEDULE_HEADER;
+        } else if (page == CoursePage.HWS) {
+            return HWS_HEADER;
+        } else {
+            return PROJECTS_HEADER;
+        }
+    }
+
     // USED FOR GETTING THE PAGE LINKS FOR PAGE LINKS IN THE NAVBAR
-    private String getLink(CoursePage page) {
+    static String getLink(CoursePage page) {
         if (page == CoursePage.INDEX) {
             return INDEX_PAGE;
         } else if (page == CoursePage.SYLLABUS) {
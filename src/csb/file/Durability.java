@@ -0,0 +1,21 @@
+package csb.file;
+
+/**
+ * This type represents how hard our file writer works to make sure what
+ * it writes has actually reached the disk before moving on. Note that no
+ * matter which is used, a file is always either entirely the old version
+ * or entirely the new one, never something in between.
+ *
+ * @author Richard McKenna
+ */
+public enum Durability {
+    // LEAVES IT TO THE OPERATING SYSTEM TO WRITE FILES TO DISK
+    NONE,
+
+    // FORCES EVERY FILE TO DISK BEFORE IT REPLACES THE OLD ONE, BUT ONLY
+    // FORCES THE RENAMES TO DISK AT THE END OF A BATCH OF WORK
+    ON_BATCH_END,
+
+    // FORCES EVERY FILE TO DISK BEFORE IT REPLACES THE OLD ONE
+    ALWAYS
+}
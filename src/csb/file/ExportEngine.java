@@ -0,0 +1,18 @@
+package csb.file;
+
+/**
+ * This type represents the ways our site exporter can render
+ * the pages of a course site.
+ * 
+ * @author Richard McKenna
+ */
+public enum ExportEngine {
+    // BUILDS A FULL DOM FOR EACH PAGE AND THEN SAVES IT
+    DOM,
+    
+    // STREAMS THE BASE PAGE THROUGH A FILTER STRAIGHT TO THE FILE
+    STREAMING,
+    
+    // SPLICES COURSE CONTENT INTO A BASE PAGE COMPILED INTO BYTE SEGMENTS
+    SEGMENTS
+}
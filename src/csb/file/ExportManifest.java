@@ -0,0 +1,178 @@
+package csb.file;
+
+import csb.data.Course;
+import csb.data.CoursePage;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Properties;
+
+/**
+ * This class keeps track of what each page of an exported course site was
+ * built from. Every page gets a fingerprint made from only the course data
+ * that goes into it, the base page it was built from, and the version of
+ * the exporter that built it, so changing the schedule's dates only means
+ * exporting the schedule page again. These are stored in a small file in the
+ * course's site directory so that the next export can skip any page whose
+ * fingerprint hasn't changed.
+ *
+ * @author Richard McKenna
+ */
+public class ExportManifest {
+    // THE FILE IN EACH COURSE SITE DIRECTORY WHERE WE KEEP THE FINGERPRINTS
+    public static final String MANIFEST_FILE_NAME = ".csb_export";
+
+    // THE ALGORITHM WE USE FOR MAKING FINGERPRINTS
+    static final String DIGEST_ALGORITHM = "SHA-256";
+
+    // THE DIRECTORY OF THE COURSE SITE THIS MANIFEST IS FOR
+    File siteDir;
+
+    // AND ALL THE FINGERPRINTS, KEYED BY PAGE FILE NAME
+    Properties fingerprints;
+
+    // ONLY load CAN MAKE THESE
+    private ExportManifest(File initSiteDir) {
+        siteDir = initSiteDir;
+        fingerprints = new Properties();
+    }
+
+    /**
+     * Loads the manifest for the course site in courseExportPath. Note that
+     * if there isn't one yet an empty one is provided.
+     *
+     * @param courseExportPath Directory of the course's site.
+     *
+     * @return The manifest for that site.
+     *
+     * @throws IOException Thrown when the manifest exists but can't be read.
+     */
+    public static ExportManifest load(String courseExportPath) throws IOException {
+        ExportManifest manifest = new ExportManifest(new File(courseExportPath));
+        File manifestFile = manifest.getManifestFile();
+        if (manifestFile.exists()) {
+            try (InputStream is = new FileInputStream(manifestFile)) {
+                manifest.fingerprints.load(is);
+            }
+        }
+        return manifest;
+    }
+
+    /**
+     * Tests to see if a page has already been exported with the provided
+     * fingerprint, which means it doesn't need to be exported again.
+     *
+     * @param pageFileName The name of the page file, like schedule.html.
+     * @param fingerprint The fingerprint of what the page would be built from.
+     *
+     * @return true if the page is there and was built from the same
+     * content, false otherwise.
+     */
+    public boolean isUpToDate(String pageFileName, String fingerprint) {
+        return fingerprint.equals(fingerprints.getProperty(pageFileName))
+                && new File(siteDir, pageFileName).exists();
+    }
+
+    /**
+     * Records the fingerprint of a page that has just been exported.
+     *
+     * @param pageFileName The name of the page file, like schedule.html.
+     * @param fingerprint The fingerprint of what the page was built from.
+     */
+    public void setFingerprint(String pageFileName, String fingerprint) {
+        fingerprints.setProperty(pageFileName, fingerprint);
+    }
+
+    /**
+     * Saves this manifest to its course site directory.
+     *
+     * @param fileWriter The writer the manifest is written through.
+     *
+     * @throws IOException Thrown when the manifest can't be written.
+     */
+    public void save(AtomicFileWriter fileWriter) throws IOException {
+        try (AtomicFileWriter.AtomicOutput output = fileWriter.open(getManifestFile().getPath())) {
+            fingerprints.store(output.getOutputStream(), null);
+            output.commit();
+        }
+    }
+
+    /**
+     * Makes the fingerprint for a page of a course's site, which covers
+     * the course data the page shows as well as what the page is built
+     * from. Every page shows the course's title, banner, navbar and
+     * instructor link, but only the schedule page shows its dates. Note
+     * that the lecture days aren't shown on any page, so they aren't
+     * part of any fingerprint.
+     *
+     * @param course The course being exported.
+     * @param page The page of the course's site being exported.
+     * @param templateDigest Digest of the base page's bytes.
+     * @param exporterVersion Describes the exporter and engine building
+     * the page, so that a change to them means rebuilding it.
+     *
+     * @return The fingerprint, as hex text.
+     */
+    public static String makeFingerprint(Course course, CoursePage page,
+            String templateDigest, String exporterVersion) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream data = new DataOutputStream(bytes);
+            data.writeUTF(exporterVersion);
+            data.writeUTF(templateDigest);
+            data.writeUTF(page.toString());
+            data.writeUTF(String.valueOf(course.getSubject()));
+            data.writeInt(course.getNumber());
+            data.writeUTF(String.valueOf(course.getSemester()));
+            data.writeInt(course.getYear());
+            data.writeUTF(String.valueOf(course.getTitle()));
+            data.writeUTF(String.valueOf(course.getInstructor().getName()));
+            data.writeUTF(String.valueOf(course.getInstructor().getHomepageURL()));
+            data.writeInt(course.getPages().size());
+            for (CoursePage coursePage : course.getPages()) {
+                data.writeUTF(coursePage.toString());
+            }
+            if (page == CoursePage.SCHEDULE) {
+                data.writeUTF(String.valueOf(course.getStartingMonday()));
+                data.writeUTF(String.valueOf(course.getEndingFriday()));
+            }
+            data.flush();
+            return digest(bytes.toByteArray());
+        } catch (IOException ioe) {
+            // THIS CAN'T HAPPEN SINCE WE'RE WRITING TO MEMORY
+            throw new IllegalStateException(ioe);
+        }
+    }
+
+    /**
+     * Makes a digest of the provided bytes.
+     *
+     * @param bytes The bytes to digest.
+     *
+     * @return The digest, as hex text.
+     */
+    public static String digest(byte[] bytes) {
+        try {
+            MessageDigest md = MessageDigest.getInstance(DIGEST_ALGORITHM);
+            byte[] digest = md.digest(bytes);
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException nsae) {
+            // EVERY JAVA PLATFORM HAS TO SUPPORT SHA-256
+            throw new IllegalStateException(nsae);
+        }
+    }
+
+    // THE FILE THIS MANIFEST IS KEPT IN
+    private File getManifestFile() {
+        return new File(siteDir, MANIFEST_FILE_NAME);
+    }
+}
@@ -0,0 +1,80 @@
+package csb.file;
+
+import csb.data.Course;
+import java.util.List;
+
+/**
+ * This class describes what happened when a single course's site was
+ * exported as part of a batch, which lets a batch keep going when one
+ * course fails rather than stopping at the first problem.
+ *
+ * @author Richard McKenna
+ */
+public class ExportResult {
+    // THE COURSE THAT WAS EXPORTED
+    Course course;
+
+    // HOW MANY OF ITS PAGES WERE ACTUALLY WRITTEN, NOTE THAT
+    // PAGES THAT HADN'T CHANGED ARE SKIPPED
+    int pagesWritten;
+
+    // THE PROBLEM THAT STOPPED THE EXPORT, OR null IF IT WORKED
+    Exception error;
+
+    // HOW LONG THE EXPORT TOOK
+    long elapsedNanos;
+
+    /**
+     * This constructor records the outcome of exporting a course.
+     *
+     * @param initCourse The course that was exported.
+     * @param initPagesWritten The number of pages that were written.
+     * @param initError The problem that stopped the export, null if none.
+     * @param initElapsedNanos How long the export took in nanoseconds.
+     */
+    public ExportResult(Course initCourse, int initPagesWritten, Exception initError, long initElapsedNanos) {
+        course = initCourse;
+        pagesWritten = initPagesWritten;
+        error = initError;
+        elapsedNanos = initElapsedNanos;
+    }
+
+    public Course getCourse() {
+        return course;
+    }
+
+    public int getPagesWritten() {
+        return pagesWritten;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    public Exception getError() {
+        return error;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getElapsedMillis() {
+        return elapsedNanos / 1000000.0;
+    }
+
+    /**
+     * Adds up the pages written for a whole batch of exports.
+     *
+     * @param results The results of exporting a batch of courses.
+     *
+     * @return The total number of pages written.
+     */
+    public static int countPagesWritten(List<ExportResult> results) {
+        int pagesWritten = 0;
+        for (ExportResult result : results) {
+            pagesWritten += result.getPagesWritten();
+        }
+        return pagesWritten;
+    }
+}
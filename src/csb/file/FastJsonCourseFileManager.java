@@ -0,0 +1,810 @@
+package csb.file;
+
+import csb.data.Course;
+import csb.data.CourseHeader;
+import csb.data.CoursePage;
+import csb.data.Instructor;
+import csb.data.Semester;
+import csb.data.Subject;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * This is a CourseFileManager that reads and writes course files itself,
+ * byte by byte, rather than going through javax.json. Since a course file
+ * always has the same few fields we know exactly what to look for, so the
+ * UTF-8 bytes of a file go straight into the course's fields. Enum values,
+ * like a subject or a page, are found by comparing their bytes with the
+ * names of the constants, so no Strings are made for them, and the bytes
+ * read and written go through buffers that each thread keeps and reuses.
+ * Course files are read and written in exactly the same format as
+ * JsonCourseFileManager uses, so the two can be used interchangeably, and
+ * everything other than courses is still handled by JsonCourseFileManager.
+ * Note that loading a course is only about twice as fast as it is with
+ * javax.json, because most of the time left goes into opening and reading
+ * the file, which CSB_Test_CourseFileBenchmark also times on its own.
+ *
+ * @author Richard McKenna
+ */
+public class FastJsonCourseFileManager extends JsonCourseFileManager {
+    // HOW BIG THE BUFFERS WE READ AND WRITE THROUGH START OUT,
+    // THEY GROW IF A FILE IS BIGGER THAN THIS
+    static final int INITIAL_BUFFER_SIZE = 4096;
+
+    // THE BYTES OF ALL THE KEYS WE LOOK FOR
+    static final byte[] KEY_SUBJECT = bytes(JSON_SUBJECT);
+    static final byte[] KEY_NUMBER = bytes(JSON_NUMBER);
+    static final byte[] KEY_SEMESTER = bytes(JSON_SEMESTER);
+    static final byte[] KEY_YEAR = bytes(JSON_YEAR);
+    static final byte[] KEY_TITLE = bytes(JSON_TITLE);
+    static final byte[] KEY_PAGES = bytes(JSON_PAGES);
+    static final byte[] KEY_INSTRUCTOR = bytes(JSON_INSTRUCTOR);
+    static final byte[] KEY_INSTRUCTOR_NAME = bytes(JSON_INSTRUCTOR_NAME);
+    static final byte[] KEY_HOMEPAGE_URL = bytes(JSON_HOMEPAGE_URL);
+    static final byte[] KEY_STARTING_MONDAY = bytes(JSON_STARTING_MONDAY);
+    static final byte[] KEY_ENDING_FRIDAY = bytes(JSON_ENDING_FRIDAY);
+    static final byte[] KEY_MONTH = bytes(JSON_MONTH);
+    static final byte[] KEY_DAY = bytes(JSON_DAY);
+    static final byte[] KEY_LECTURE_DAYS = bytes(JSON_LECTURE_DAYS);
+
+    // ALL THE ENUM CONSTANTS WE READ, SINCE values() MAKES A NEW
+    // ARRAY EVERY TIME, AND THE BYTES OF THEIR NAMES
+    static final Subject[] SUBJECTS = Subject.values();
+    static final Semester[] SEMESTERS = Semester.values();
+    static final CoursePage[] PAGES = CoursePage.values();
+    static final DayOfWeek[] DAYS = DayOfWeek.values();
+    static final byte[][] SUBJECT_NAMES = enumBytes(SUBJECTS);
+    static final byte[][] SEMESTER_NAMES = enumBytes(SEMESTERS);
+    static final byte[][] PAGE_NAMES = enumBytes(PAGES);
+    static final byte[][] DAY_NAMES = enumBytes(DAYS);
+
+    // USED FOR WRITING CHARACTERS THAT HAVE TO BE ESCAPED
+    static final byte[] HEX_DIGITS = bytes("0123456789abcdef");
+
+    // EACH THREAD READS AND WRITES THROUGH ITS OWN BUFFER, WHICH
+    // IT KEEPS FOR NEXT TIME RATHER THAN MAKING A NEW ONE
+    static final ThreadLocal<CourseReader> readers = new ThreadLocal<CourseReader>() {
+        @Override
+        protected CourseReader initialValue() {
+            return new CourseReader();
+        }
+    };
+    static final ThreadLocal<CourseWriter> writers = new ThreadLocal<CourseWriter>() {
+        @Override
+        protected CourseWriter initialValue() {
+            return new CourseWriter();
+        }
+    };
+
+    /**
+     * This method saves all the data associated with a course to
+     * the JSON file at jsonFilePath.
+     *
+     * @param courseToSave The course whose data we are saving.
+     * @param jsonFilePath Path of the file to save it to.
+     *
+     * @throws IOException Thrown when there are issues writing
+     * to the JSON file.
+     */
+    @Override
+    public void saveCourse(Course courseToSave, String jsonFilePath) throws IOException {
+        CourseWriter writer = writers.get();
+        writer.writeCourse(courseToSave);
+        try (AtomicFileWriter.AtomicOutput output = fileWriter.open(jsonFilePath)) {
+            output.getOutputStream().write(writer.bytes, 0, writer.length);
+            output.commit();
+        }
+    }
+
+    /**
+     * Loads the courseToLoad argument using the data found in the json
+     * file. Note that the course is only changed once the whole file
+     * has been read.
+     *
+     * @param courseToLoad Course to load.
+     * @param jsonFilePath File containing the data to load.
+     *
+     * @throws IOException Thrown when IO fails or the file isn't a course.
+     */
+    @Override
+    public void loadCourse(Course courseToLoad, String jsonFilePath) throws IOException {
+        CourseReader reader = readers.get();
+        reader.readFile(jsonFilePath);
+        try {
+            reader.readCourse(courseToLoad);
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new IOException(jsonFilePath + ": " + e.getMessage());
+        } catch (IOException ioe) {
+            throw new IOException(jsonFilePath + ": " + ioe.getMessage());
+        }
+    }
+
+    /**
+     * Loads just the header of the course in the json file, for listing
+     * and searching courses. Note that reading stops as soon as everything
+     * in the header has been found, so the pages, lecture days and dates
+     * are never parsed.
+     *
+     * @param jsonFilePath File containing the course.
+     *
+     * @return The course's header.
+     *
+     * @throws IOException Thrown when IO fails or the file isn't a course.
+     */
+    @Override
+    public CourseHeader loadCourseHeader(String jsonFilePath) throws IOException {
+        CourseReader reader = readers.get();
+        reader.readFile(jsonFilePath);
+        try {
+            return reader.readHeader();
+        } catch (IOException ioe) {
+            throw new IOException(jsonFilePath + ": " + ioe.getMessage());
+        }
+    }
+
+    // BELOW ARE THE PRIVATE HELPER METHODS
+
+    // GETS THE UTF-8 BYTES OF A STRING
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // GETS THE BYTES OF THE NAMES OF ENUM CONSTANTS, IN ORDER
+    private static byte[][] enumBytes(Enum[] constants) {
+        byte[][] names = new byte[constants.length][];
+        for (int i = 0; i < constants.length; i++) {
+            names[i] = bytes(constants[i].name());
+        }
+        return names;
+    }
+
+    /**
+     * This reads one course file at a time from a buffer it reuses. It
+     * understands any JSON, so it can skip keys it doesn't know, but it
+     * only ever makes objects for the parts of a course that need them.
+     */
+    static class CourseReader {
+        // THE FILE BEING READ AND HOW MUCH OF THE BUFFER IT FILLS
+        byte[] bytes;
+        int length;
+
+        // WHERE WE ARE IN THE FILE
+        int position;
+
+        // WHERE THE LAST STRING WE READ IS, AND WHETHER IT HAS ANY
+        // ESCAPES, IN WHICH CASE IT CAN'T BE COMPARED BYTE BY BYTE
+        int stringStart;
+        int stringEnd;
+        boolean stringEscaped;
+
+        CourseReader() {
+            bytes = new byte[INITIAL_BUFFER_SIZE];
+        }
+
+        // READS A WHOLE FILE INTO OUR BUFFER
+        void readFile(String filePath) throws IOException {
+            try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+                long size = channel.size();
+                if (size > Integer.MAX_VALUE - 8) {
+                    throw new IOException(filePath + ": too big to be a course");
+                }
+                if (size > bytes.length) {
+                    bytes = new byte[(int) size];
+                }
+                // STOP ONCE WE HAVE size BYTES RATHER THAN READING AGAIN TO
+                // FIND THE END, WHICH SAVES A READ FOR EVERY FILE. COURSE
+                // FILES ARE REPLACED WHOLE WHEN SAVED, NEVER ADDED TO, SO
+                // THE FILE WE OPENED CAN'T GROW WHILE WE READ IT
+                ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, (int) size);
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) < 0) {
+                        break;
+                    }
+                }
+                length = buffer.position();
+                position = 0;
+            }
+        }
+
+        // READS THE COURSE IN OUR BUFFER INTO courseToLoad
+        void readCourse(Course courseToLoad) throws IOException {
+            // EVERYTHING WE READ, WHICH WON'T GO INTO THE COURSE UNTIL WE'RE DONE,
+            // AND FOR THE NUMBERS WHETHER WE'VE SEEN THEM, SINCE ANY int IS
+            // A VALUE SOMEBODY COULD HAVE SAVED
+            Subject subject = null;
+            Semester semester = null;
+            int year = 0;
+            int number = 0;
+            boolean hasYear = false;
+            boolean hasNumber = false;
+            String title = null;
+            int pagesMask = 0;
+            int lectureDaysMask = 0;
+            boolean hasPages = false;
+            boolean hasLectureDays = false;
+            Instructor instructor = null;
+            LocalDate startingMonday = null;
+            LocalDate endingFriday = null;
+
+            expect('{');
+            if (!nextIs('}')) {
+                do {
+                    readKey();
+                    if (stringIs(KEY_SUBJECT)) {
+                        subject = SUBJECTS[readEnum(SUBJECT_NAMES, Subject.class)];
+                    } else if (stringIs(KEY_SEMESTER)) {
+                        semester = SEMESTERS[readEnum(SEMESTER_NAMES, Semester.class)];
+                    } else if (stringIs(KEY_YEAR)) {
+                        year = readInt();
+                        hasYear = true;
+                    } else if (stringIs(KEY_NUMBER)) {
+                        number = readInt();
+                        hasNumber = true;
+                    } else if (stringIs(KEY_TITLE)) {
+                        title = readString();
+                    } else if (stringIs(KEY_PAGES)) {
+                        pagesMask = readEnumMask(PAGE_NAMES, CoursePage.class);
+                        hasPages = true;
+                    } else if (stringIs(KEY_LECTURE_DAYS)) {
+                        lectureDaysMask = readEnumMask(DAY_NAMES, DayOfWeek.class);
+                        hasLectureDays = true;
+                    } else if (stringIs(KEY_INSTRUCTOR)) {
+                        instructor = readInstructor();
+                    } else if (stringIs(KEY_STARTING_MONDAY)) {
+                        startingMonday = readLocalDate();
+                    } else if (stringIs(KEY_ENDING_FRIDAY)) {
+                        endingFriday = readLocalDate();
+                    } else {
+                        // NOT SOMETHING WE USE, SO PASS OVER IT
+                        skipValue();
+                    }
+                } while (nextIs(','));
+                expect('}');
+            }
+
+            // MAKE SURE WE GOT EVERYTHING A COURSE NEEDS
+            if ((subject == null) || (semester == null) || !hasYear || !hasNumber
+                    || (title == null) || !hasPages || !hasLectureDays
+                    || (instructor == null) || (startingMonday == null) || (endingFriday == null)) {
+                throw new IOException("missing course data");
+            }
+
+            // NOW LOAD THE COURSE
+            courseToLoad.setSubject(subject);
+            courseToLoad.setSemester(semester);
+            courseToLoad.setYear(year);
+            courseToLoad.setNumber(number);
+            courseToLoad.setTitle(title);
+            courseToLoad.setPagesMask(pagesMask);
+            courseToLoad.setLectureDaysMask(lectureDaysMask);
+            courseToLoad.setInstructor(instructor);
+            courseToLoad.setStartingMonday(startingMonday);
+            courseToLoad.setEndingFriday(endingFriday);
+        }
+
+        // READS JUST THE HEADER OF THE COURSE IN OUR BUFFER, STOPPING
+        // AS SOON AS WE HAVE EVERYTHING IN IT
+        CourseHeader readHeader() throws IOException {
+            Subject subject = null;
+            Semester semester = null;
+            int year = 0;
+            int number = 0;
+            boolean hasYear = false;
+            boolean hasNumber = false;
+            String title = null;
+            String instructorName = null;
+
+            expect('{');
+            if (!nextIs('}')) {
+                do {
+                    readKey();
+                    if (stringIs(KEY_SUBJECT)) {
+                        subject = SUBJECTS[readEnum(SUBJECT_NAMES, Subject.class)];
+                    } else if (stringIs(KEY_SEMESTER)) {
+                        semester = SEMESTERS[readEnum(SEMESTER_NAMES, Semester.class)];
+                    } else if (stringIs(KEY_YEAR)) {
+                        year = readInt();
+                        hasYear = true;
+                    } else if (stringIs(KEY_NUMBER)) {
+                        number = readInt();
+                        hasNumber = true;
+                    } else if (stringIs(KEY_TITLE)) {
+                        title = readString();
+                    } else if (stringIs(KEY_INSTRUCTOR)) {
+                        instructorName = readInstructor().getName();
+                    } else {
+                        // THE PAGES, DAYS AND DATES AREN'T PART OF THE HEADER
+                        skipValue();
+                    }
+                    if ((subject != null) && (semester != null) && hasYear && hasNumber
+                            && (title != null) && (instructorName != null)) {
+                        return new CourseHeader(subject, number, semester, year, title, instructorName);
+                    }
+                } while (nextIs(','));
+                expect('}');
+            }
+            throw new IOException("missing course data");
+        }
+
+        // READS AN INSTRUCTOR OBJECT
+        Instructor readInstructor() throws IOException {
+            String name = null;
+            String homepageURL = null;
+            expect('{');
+            if (!nextIs('}')) {
+                do {
+                    readKey();
+                    if (stringIs(KEY_INSTRUCTOR_NAME)) {
+                        name = readString();
+                    } else if (stringIs(KEY_HOMEPAGE_URL)) {
+                        homepageURL = readString();
+                    } else {
+                        skipValue();
+                    }
+                } while (nextIs(','));
+                expect('}');
+            }
+            if ((name == null) || (homepageURL == null)) {
+                throw new IOException("incomplete " + JSON_INSTRUCTOR);
+            }
+            return new Instructor(name, homepageURL);
+        }
+
+        // READS A DATE OBJECT
+        LocalDate readLocalDate() throws IOException {
+            int year = 0;
+            int month = 0;
+            int day = 0;
+            boolean hasYear = false;
+            boolean hasMonth = false;
+            boolean hasDay = false;
+            expect('{');
+            if (!nextIs('}')) {
+                do {
+                    readKey();
+                    if (stringIs(KEY_YEAR)) {
+                        year = readInt();
+                        hasYear = true;
+                    } else if (stringIs(KEY_MONTH)) {
+                        month = readInt();
+                        hasMonth = true;
+                    } else if (stringIs(KEY_DAY)) {
+                        day = readInt();
+                        hasDay = true;
+                    } else {
+                        skipValue();
+                    }
+                } while (nextIs(','));
+                expect('}');
+            }
+            if (!hasYear || !hasMonth || !hasDay) {
+                throw new IOException("incomplete date");
+            }
+            return LocalDate.of(year, month, day);
+        }
+
+        // READS A KEY AND THE COLON AFTER IT
+        void readKey() throws IOException {
+            findString();
+            expect(':');
+        }
+
+        // READS A STRING THAT MUST BE THE NAME OF ONE OF THE CONSTANTS,
+        // RETURNING WHICH ONE
+        int readEnum(byte[][] names, Class enumClass) throws IOException {
+            findString();
+            if (!stringEscaped) {
+                for (int i = 0; i < names.length; i++) {
+                    if (stringIs(names[i])) {
+                        return i;
+                    }
+                }
+            } else {
+                // SOMEBODY ESCAPED PART OF A NAME, WHICH IS ALLOWED BUT
+                // RARE ENOUGH THAT WE DON'T MIND MAKING A STRING FOR IT
+                String name = decodeString();
+                for (int i = 0; i < names.length; i++) {
+                    if (name.equals(new String(names[i], StandardCharsets.UTF_8))) {
+                        return i;
+                    }
+                }
+            }
+            throw new IOException("no " + enumClass.getSimpleName() + " named "
+                    + new String(bytes, stringStart, stringEnd - stringStart, StandardCharsets.UTF_8));
+        }
+
+        // READS AN ARRAY OF STRINGS THAT MUST ALL BE NAMES OF THE
+        // CONSTANTS, RETURNING A BITMASK OF WHICH ONES THEY ARE
+        int readEnumMask(byte[][] names, Class enumClass) throws IOException {
+            int mask = 0;
+            expect('[');
+            if (!nextIs(']')) {
+                do {
+                    mask |= 1 << readEnum(names, enumClass);
+                } while (nextIs(','));
+                expect(']');
+            }
+            return mask;
+        }
+
+        // READS A STRING VALUE
+        String readString() throws IOException {
+            findString();
+            return decodeString();
+        }
+
+        // READS A WHOLE NUMBER VALUE
+        int readInt() throws IOException {
+            skipWhitespace();
+            boolean negative = false;
+            if ((position < length) && (bytes[position] == '-')) {
+                negative = true;
+                position++;
+            }
+            int start = position;
+            long value = 0;
+            while ((position < length) && (bytes[position] >= '0') && (bytes[position] <= '9')) {
+                value = (value * 10) + (bytes[position] - '0');
+                if (value > Integer.MAX_VALUE) {
+                    throw error("number too big");
+                }
+                position++;
+            }
+            if (position == start) {
+                throw error("expected a number");
+            }
+            if ((position < length) && ((bytes[position] == '.')
+                    || (bytes[position] == 'e') || (bytes[position] == 'E'))) {
+                throw error("expected a whole number");
+            }
+            return (int) (negative ? -value : value);
+        }
+
+        // FINDS WHERE THE NEXT STRING STARTS AND ENDS, LEAVING
+        // US JUST AFTER ITS CLOSING QUOTE
+        void findString() throws IOException {
+            expect('"');
+            stringStart = position;
+            stringEscaped = false;
+            while (position < length) {
+                byte b = bytes[position];
+                if (b == '"') {
+                    stringEnd = position;
+                    position++;
+                    return;
+                } else if (b == '\\') {
+                    stringEscaped = true;
+                    position += 2;
+                } else if ((b >= 0) && (b < 0x20)) {
+                    throw error("control character in string");
+                } else {
+                    position++;
+                }
+            }
+            throw error("unterminated string");
+        }
+
+        // TESTS TO SEE IF THE LAST STRING WE FOUND IS EXACTLY expected
+        boolean stringIs(byte[] expected) {
+            if (stringEscaped || (stringEnd - stringStart != expected.length)) {
+                return false;
+            }
+            for (int i = 0; i < expected.length; i++) {
+                if (bytes[stringStart + i] != expected[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // MAKES A String OUT OF THE LAST STRING WE FOUND
+        String decodeString() throws IOException {
+            if (!stringEscaped) {
+                return new String(bytes, stringStart, stringEnd - stringStart, StandardCharsets.UTF_8);
+            }
+            StringBuilder sb = new StringBuilder(stringEnd - stringStart);
+            int runStart = stringStart;
+            int i = stringStart;
+            while (i < stringEnd) {
+                if (bytes[i] != '\\') {
+                    i++;
+                    continue;
+                }
+                sb.append(new String(bytes, runStart, i - runStart, StandardCharsets.UTF_8));
+                byte escaped = bytes[i + 1];
+                i += 2;
+                if (escaped == 'u') {
+                    if (i + 4 > stringEnd) {
+                        throw error("bad unicode escape");
+                    }
+                    int c = 0;
+                    for (int j = 0; j < 4; j++) {
+                        int digit = Character.digit(bytes[i + j], 16);
+                        if (digit < 0) {
+                            throw error("bad unicode escape");
+                        }
+                        c = (c << 4) | digit;
+                    }
+                    sb.append((char) c);
+                    i += 4;
+                } else if (escaped == 'n') {
+                    sb.append('\n');
+                } else if (escaped == 't') {
+                    sb.append('\t');
+                } else if (escaped == 'r') {
+                    sb.append('\r');
+                } else if (escaped == 'b') {
+                    sb.append('\b');
+                } else if (escaped == 'f') {
+                    sb.append('\f');
+                } else if ((escaped == '"') || (escaped == '\\') || (escaped == '/')) {
+                    sb.append((char) escaped);
+                } else {
+                    throw error("bad escape");
+                }
+                runStart = i;
+            }
+            sb.append(new String(bytes, runStart, stringEnd - runStart, StandardCharsets.UTF_8));
+            return sb.toString();
+        }
+
+        // PASSES OVER A VALUE WE DON'T USE, INCLUDING EVERYTHING INSIDE IT
+        void skipValue() throws IOException {
+            skipWhitespace();
+            if (position >= length) {
+                throw error("expected a value");
+            }
+            byte b = bytes[position];
+            if (b == '"') {
+                findString();
+            } else if ((b == '{') || (b == '[')) {
+                char close = (b == '{') ? '}' : ']';
+                position++;
+                if (!nextIs(close)) {
+                    do {
+                        if (b == '{') {
+                            readKey();
+                        }
+                        skipValue();
+                    } while (nextIs(','));
+                    expect(close);
+                }
+            } else {
+                // A NUMBER, true, false OR null
+                int start = position;
+                while ((position < length) && (bytes[position] != ',') && (bytes[position] != '}')
+                        && (bytes[position] != ']') && (bytes[position] > ' ')) {
+                    position++;
+                }
+                if (position == start) {
+                    throw error("expected a value");
+                }
+            }
+        }
+
+        // MOVES PAST THE NEXT CHARACTER, WHICH MUST BE c
+        void expect(char c) throws IOException {
+            if (!nextIs(c)) {
+                throw error("expected '" + c + "'");
+            }
+        }
+
+        // MOVES PAST THE NEXT CHARACTER ONLY IF IT'S c
+        boolean nextIs(char c) {
+            skipWhitespace();
+            if ((position < length) && (bytes[position] == c)) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        void skipWhitespace() {
+            while ((position < length) && ((bytes[position] == ' ') || (bytes[position] == '\n')
+                    || (bytes[position] == '\r') || (bytes[position] == '\t'))) {
+                position++;
+            }
+        }
+
+        // MAKES AN EXCEPTION THAT SAYS WHERE THE PROBLEM IS
+        IOException error(String problem) {
+            return new IOException(problem + " at byte " + position);
+        }
+    }
+
+    /**
+     * This writes one course at a time into a buffer it reuses, producing
+     * exactly what javax.json would for the same course.
+     */
+    static class CourseWriter {
+        // WHAT WE'VE WRITTEN AND HOW MUCH OF THE BUFFER IT FILLS
+        byte[] bytes;
+        int length;
+
+        CourseWriter() {
+            bytes = new byte[INITIAL_BUFFER_SIZE];
+        }
+
+        // WRITES THE WHOLE COURSE, REPLACING WHATEVER WAS WRITTEN BEFORE
+        void writeCourse(Course courseToSave) {
+            length = 0;
+            write('{');
+            writeKey(KEY_SUBJECT);
+            writeEnum(courseToSave.getSubject());
+            write(',');
+            writeKey(KEY_NUMBER);
+            writeInt(courseToSave.getNumber());
+            write(',');
+            writeKey(KEY_SEMESTER);
+            writeEnum(courseToSave.getSemester());
+            write(',');
+            writeKey(KEY_YEAR);
+            writeInt(courseToSave.getYear());
+            write(',');
+            writeKey(KEY_TITLE);
+            writeString(courseToSave.getTitle());
+            write(',');
+            writeKey(KEY_PAGES);
+            writeEnums(courseToSave.getPages());
+            write(',');
+            writeKey(KEY_INSTRUCTOR);
+            Instructor instructor = courseToSave.getInstructor();
+            write('{');
+            writeKey(KEY_INSTRUCTOR_NAME);
+            writeString(instructor.getName());
+            write(',');
+            writeKey(KEY_HOMEPAGE_URL);
+            writeString(instructor.getHomepageURL());
+            write('}');
+            write(',');
+            writeKey(KEY_STARTING_MONDAY);
+            writeLocalDate(courseToSave.getStartingMonday());
+            write(',');
+            writeKey(KEY_ENDING_FRIDAY);
+            writeLocalDate(courseToSave.getEndingFriday());
+            write(',');
+            writeKey(KEY_LECTURE_DAYS);
+            writeEnums(courseToSave.getLectureDays());
+            write('}');
+        }
+
+        void writeLocalDate(LocalDate date) {
+            write('{');
+            writeKey(KEY_YEAR);
+            writeInt(date.getYear());
+            write(',');
+            writeKey(KEY_MONTH);
+            writeInt(date.getMonthValue());
+            write(',');
+            writeKey(KEY_DAY);
+            writeInt(date.getDayOfMonth());
+            write('}');
+        }
+
+        void writeEnums(List<? extends Enum> constants) {
+            write('[');
+            for (int i = 0; i < constants.size(); i++) {
+                if (i > 0) {
+                    write(',');
+                }
+                writeEnum(constants.get(i));
+            }
+            write(']');
+        }
+
+        // ENUM NAMES ARE PLAIN ASCII, SO THEY NEVER NEED ESCAPING
+        void writeEnum(Enum constant) {
+            String name = constant.name();
+            ensureCapacity(name.length() + 2);
+            bytes[length++] = '"';
+            for (int i = 0; i < name.length(); i++) {
+                bytes[length++] = (byte) name.charAt(i);
+            }
+            bytes[length++] = '"';
+        }
+
+        void writeKey(byte[] key) {
+            ensureCapacity(key.length + 3);
+            bytes[length++] = '"';
+            System.arraycopy(key, 0, bytes, length, key.length);
+            length += key.length;
+            bytes[length++] = '"';
+            bytes[length++] = ':';
+        }
+
+        void writeInt(int value) {
+            ensureCapacity(11);
+            if (value < 0) {
+                bytes[length++] = '-';
+            }
+            long remaining = Math.abs((long) value);
+            int start = length;
+            do {
+                bytes[length++] = (byte) ('0' + (remaining % 10));
+                remaining /= 10;
+            } while (remaining > 0);
+
+            // THE DIGITS WENT IN BACKWARDS
+            for (int i = start, j = length - 1; i < j; i++, j--) {
+                byte digit = bytes[i];
+                bytes[i] = bytes[j];
+                bytes[j] = digit;
+            }
+        }
+
+        // WRITES A STRING AS UTF-8, ESCAPING THE SAME CHARACTERS javax.json DOES
+        void writeString(String text) {
+            // NO CHARACTER TAKES MORE THAN 6 BYTES, EVEN ESCAPED
+            ensureCapacity((text.length() * 6) + 2);
+            bytes[length++] = '"';
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == '"' || c == '\\') {
+                    bytes[length++] = '\\';
+                    bytes[length++] = (byte) c;
+                } else if (c < 0x20) {
+                    bytes[length++] = '\\';
+                    if (c == '\n') {
+                        bytes[length++] = 'n';
+                    } else if (c == '\t') {
+                        bytes[length++] = 't';
+                    } else if (c == '\r') {
+                        bytes[length++] = 'r';
+                    } else if (c == '\b') {
+                        bytes[length++] = 'b';
+                    } else if (c == '\f') {
+                        bytes[length++] = 'f';
+                    } else {
+                        bytes[length++] = 'u';
+                        bytes[length++] = '0';
+                        bytes[length++] = '0';
+                        bytes[length++] = HEX_DIGITS[c >> 4];
+                        bytes[length++] = HEX_DIGITS[c & 0xF];
+                    }
+                } else if (c < 0x80) {
+                    bytes[length++] = (byte) c;
+                } else if (c < 0x800) {
+                    bytes[length++] = (byte) (0xC0 | (c >> 6));
+                    bytes[length++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && (i + 1 < text.length())
+                        && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                    bytes[length++] = (byte) (0xF0 | (codePoint >> 18));
+                    bytes[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    bytes[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    bytes[length++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    // A LONE HALF OF A PAIR, WHICH UTF-8 CAN'T HOLD
+                    bytes[length++] = '?';
+                } else {
+                    bytes[length++] = (byte) (0xE0 | (c >> 12));
+                    bytes[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    bytes[length++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+            bytes[length++] = '"';
+        }
+
+        void write(char c) {
+            ensureCapacity(1);
+            bytes[length++] = (byte) c;
+        }
+
+        // MAKES SURE THERE'S ROOM FOR needed MORE BYTES
+        void ensureCapacity(int needed) {
+            if (length + needed > bytes.length) {
+                byte[] biggerBytes = new byte[Math.max(bytes.length * 2, length + needed)];
+                System.arraycopy(bytes, 0, biggerBytes, 0, length);
+                bytes = biggerBytes;
+            }
+        }
+    }
+}
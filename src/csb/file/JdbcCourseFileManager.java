@@ -0,0 +1,853 @@
+package csb.file;
+
+import csb.data.Course;
+import csb.data.CourseHeader;
+import csb.data.CoursePage;
+import csb.data.Instructor;
+import csb.data.Semester;
+import csb.data.Subject;
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This is a CourseFileManager that keeps courses in a database, reached
+ * through JDBC, with a table for the courses and others for their
+ * instructors, pages and lecture days. Since the tables are indexed by
+ * semester, year, subject and instructor, questions like which FALL 2015
+ * CSE courses someone teaches are answered by the database without loading
+ * any courses we don't want.
+ *
+ * <p>By default an embedded H2 database kept in the courses directory is
+ * used, but any database with a JDBC driver on the classpath will do, as
+ * only plain SQL is used. Note that no driver comes with this program.</p>
+ *
+ * <p>Courses are still identified by paths, like CSE219.csbd in the courses
+ * directory, so this works with everything that expects course files, but
+ * note that only the name of the file is used, as the course's key, and
+ * that no such file exists. When the file writer's durability is
+ * ON_BATCH_END, saved courses are written in batches of BATCH_SIZE rather
+ * than one at a time, with whatever is left written by close, which makes
+ * importing a great many courses much quicker. If a batch can't be
+ * written, its courses are written one at a time, so a course the database
+ * rejects is the only one lost, and the exception names it. The subjects
+ * and the last instructor are still saved as JSON.</p>
+ *
+ * @author Richard McKenna
+ */
+public class JdbcCourseFileManager extends JsonCourseFileManager {
+    // THE EXTENSION OF THE PATHS WE USE FOR COURSES
+    public static final String DATABASE_EXT = ".csbd";
+
+    // THE DATABASE WE USE WHEN NONE IS CHOSEN, IN THE COURSES DIRECTORY
+    public static final String DEFAULT_URL_PREFIX = "jdbc:h2:";
+    public static final String DEFAULT_DATABASE_NAME = "courses";
+
+    // HOW MANY QUEUED COURSES WE WRITE AT ONCE
+    static final int BATCH_SIZE = 500;
+
+    // OUR TABLES AND THEIR INDEXES. NOTE THAT DATES ARE STORED AS DAYS SINCE
+    // THE EPOCH AND ENUM CONSTANTS AS THEIR NAMES, SINCE EVERY DATABASE CAN
+    // STORE THOSE THE SAME WAY AND THEY'RE STILL EASY TO QUERY BY HAND
+    static final String[] CREATE_TABLES = {
+        "CREATE TABLE IF NOT EXISTS instructors ("
+            + "instructor_id INTEGER PRIMARY KEY, "
+            + "instructor_name VARCHAR(255) NOT NULL, "
+            + "homepage_url VARCHAR(1024) NOT NULL)",
+        "CREATE TABLE IF NOT EXISTS courses ("
+            + "course_key VARCHAR(255) PRIMARY KEY, "
+            + "subject VARCHAR(16) NOT NULL, "
+            + "course_number INTEGER NOT NULL, "
+            + "semester VARCHAR(16) NOT NULL, "
+            + "course_year INTEGER NOT NULL, "
+            + "title VARCHAR(1024) NOT NULL, "
+            + "instructor_id INTEGER NOT NULL REFERENCES instructors (instructor_id), "
+            + "starting_monday INTEGER NOT NULL, "
+            + "ending_friday INTEGER NOT NULL, "
+            + "saved_at BIGINT NOT NULL)",
+        "CREATE TABLE IF NOT EXISTS course_pages ("
+            + "course_key VARCHAR(255) NOT NULL REFERENCES courses (course_key), "
+            + "page_name VARCHAR(16) NOT NULL, "
+            + "PRIMARY KEY (course_key, page_name))",
+        "CREATE TABLE IF NOT EXISTS course_lecture_days ("
+            + "course_key VARCHAR(255) NOT NULL REFERENCES courses (course_key), "
+            + "day_name VARCHAR(16) NOT NULL, "
+            + "PRIMARY KEY (course_key, day_name))",
+        "CREATE INDEX IF NOT EXISTS instructors_by_name ON instructors (instructor_name, homepage_url)",
+        "CREATE INDEX IF NOT EXISTS courses_by_term ON courses (course_year, semester, subject)",
+        "CREATE INDEX IF NOT EXISTS courses_by_instructor ON courses (instructor_id)"
+    };
+
+    // THE STATEMENTS WE USE OVER AND OVER
+    static final String SELECT_INSTRUCTOR = "SELECT instructor_id FROM instructors "
+            + "WHERE instructor_name = ? AND homepage_url = ?";
+    static final String SELECT_MAX_INSTRUCTOR_ID = "SELECT MAX(instructor_id) FROM instructors";
+    static final String INSERT_INSTRUCTOR = "INSERT INTO instructors "
+            + "(instructor_id, instructor_name, homepage_url) VALUES (?, ?, ?)";
+    static final String DELETE_PAGES = "DELETE FROM course_pages WHERE course_key = ?";
+    static final String DELETE_LECTURE_DAYS = "DELETE FROM course_lecture_days WHERE course_key = ?";
+    static final String DELETE_COURSE = "DELETE FROM courses WHERE course_key = ?";
+    static final String INSERT_COURSE = "INSERT INTO courses "
+            + "(course_key, subject, course_number, semester, course_year, title, "
+            + "instructor_id, starting_monday, ending_friday, saved_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    static final String INSERT_PAGE = "INSERT INTO course_pages (course_key, page_name) VALUES (?, ?)";
+    static final String INSERT_LECTURE_DAY = "INSERT INTO course_lecture_days (course_key, day_name) VALUES (?, ?)";
+    static final String SELECT_COURSES = "SELECT c.course_key, c.subject, c.course_number, c.semester, "
+            + "c.course_year, c.title, i.instructor_name, i.homepage_url, c.starting_monday, c.ending_friday "
+            + "FROM courses c JOIN instructors i ON i.instructor_id = c.instructor_id";
+    static final String SELECT_COURSE_HEADER = "SELECT c.course_key, c.subject, c.course_number, c.semester, "
+            + "c.course_year, c.title, i.instructor_name "
+            + "FROM courses c JOIN instructors i ON i.instructor_id = c.instructor_id";
+    static final String SELECT_PAGES = "SELECT c.course_key, p.page_name FROM course_pages p "
+            + "JOIN courses c ON c.course_key = p.course_key "
+            + "JOIN instructors i ON i.instructor_id = c.instructor_id";
+    static final String SELECT_LECTURE_DAYS = "SELECT c.course_key, d.day_name FROM course_lecture_days d "
+            + "JOIN courses c ON c.course_key = d.course_key "
+            + "JOIN instructors i ON i.instructor_id = c.instructor_id";
+    static final String SELECT_COURSE_KEYS = "SELECT c.course_key FROM courses c "
+            + "JOIN instructors i ON i.instructor_id = c.instructor_id";
+    static final String SELECT_SAVE_TIMES = "SELECT c.course_key, c.saved_at FROM courses c";
+    static final String WHERE_COURSE_KEY = " WHERE c.course_key = ?";
+
+    // WHERE THE DATABASE IS, AND OUR CONNECTION TO IT, WHICH IS
+    // ONLY OPENED WHEN IT'S FIRST NEEDED
+    String databaseURL;
+    Connection connection;
+
+    // THE PREPARED STATEMENTS FOR SAVING AND LOADING ONE COURSE
+    PreparedStatement selectInstructorStatement;
+    PreparedStatement insertInstructorStatement;
+    PreparedStatement deletePagesStatement;
+    PreparedStatement deleteLectureDaysStatement;
+    PreparedStatement deleteCourseStatement;
+    PreparedStatement insertCourseStatement;
+    PreparedStatement insertPageStatement;
+    PreparedStatement insertLectureDayStatement;
+    PreparedStatement selectCourseStatement;
+    PreparedStatement selectCourseHeaderStatement;
+    PreparedStatement selectCoursePagesStatement;
+    PreparedStatement selectCourseLectureDaysStatement;
+    PreparedStatement selectSaveTimeStatement;
+
+    // THE ID OF EVERY INSTRUCTOR WE'VE LOOKED UP OR ADDED, AND
+    // THE ID THE NEXT INSTRUCTOR WE ADD WILL GET
+    HashMap<String, Integer> instructorIds;
+    int nextInstructorId;
+
+    // COURSES SAVED BUT NOT YET WRITTEN, KEYED BY COURSE, SO A COURSE
+    // SAVED TWICE IN ONE BATCH IS ONLY WRITTEN ONCE
+    LinkedHashMap<String, CourseRow> queuedRows;
+
+    /**
+     * This constructor sets up a file manager for the database at
+     * initDatabaseURL. Note that the database isn't opened until a
+     * course is first saved or loaded.
+     *
+     * @param initDatabaseURL The JDBC URL of the database.
+     */
+    public JdbcCourseFileManager(String initDatabaseURL) {
+        databaseURL = initDatabaseURL;
+        instructorIds = new HashMap();
+        nextInstructorId = -1;
+        queuedRows = new LinkedHashMap();
+    }
+
+    /**
+     * Provides the URL of the database we use when none is chosen, which
+     * is an embedded H2 database kept in coursesDir.
+     *
+     * @param coursesDir Directory the courses are kept in.
+     *
+     * @return The JDBC URL of the default database for coursesDir.
+     */
+    public static String getDefaultDatabaseURL(String coursesDir) {
+        return DEFAULT_URL_PREFIX + new File(coursesDir, DEFAULT_DATABASE_NAME).getAbsolutePath();
+    }
+
+    /**
+     * Accessor method for where the database is.
+     *
+     * @return The JDBC URL of the database.
+     */
+    public String getDatabaseURL() {
+        return databaseURL;
+    }
+
+    /**
+     * This method saves all the data associated with a course to the
+     * database, replacing whatever was there for the course before.
+     *
+     * @param courseToSave The course whose data we are saving.
+     * @param coursePath Path whose file name is the course's key.
+     *
+     * @throws IOException Thrown when the database can't be written.
+     */
+    @Override
+    public synchronized void saveCourse(Course courseToSave, String coursePath) throws IOException {
+        CourseRow row = new CourseRow(getKey(coursePath), courseToSave);
+        queuedRows.remove(row.key);
+        queuedRows.put(row.key, row);
+        if ((fileWriter.getDurability() != Durability.ON_BATCH_END) || (queuedRows.size() >= BATCH_SIZE)) {
+            writeQueuedRows();
+        }
+    }
+
+    /**
+     * Loads the courseToLoad argument using the data for the course found
+     * in the database.
+     *
+     * @param courseToLoad Course to load.
+     * @param coursePath Path whose file name is the course's key.
+     *
+     * @throws IOException Thrown when the database can't be read or the
+     * course isn't in it.
+     */
+    @Override
+    public synchronized void loadCourse(Course courseToLoad, String coursePath) throws IOException {
+        String key = getKey(coursePath);
+        writeQueuedRows();
+        try {
+            selectCourseStatement.setString(1, key);
+            try (ResultSet results = selectCourseStatement.executeQuery()) {
+                if (!results.next()) {
+                    throw new IOException("No course " + key + " in " + databaseURL);
+                }
+                loadCourseRow(results, courseToLoad);
+            }
+            courseToLoad.clearPages();
+            courseToLoad.clearLectureDays();
+            LinkedHashMap<String, Course> courses = new LinkedHashMap();
+            courses.put(key, courseToLoad);
+            selectCoursePagesStatement.setString(1, key);
+            loadPages(selectCoursePagesStatement, courses);
+            selectCourseLectureDaysStatement.setString(1, key);
+            loadLectureDays(selectCourseLectureDaysStatement, courses);
+        } catch (SQLException sqle) {
+            throw databaseError(sqle);
+        }
+    }
+
+    /**
+     * Loads just the header of the course with the key found in coursePath,
+     * for listing and searching courses. This is a single query that never
+     * touches the pages or lecture days tables.
+     *
+     * @param coursePath Path whose file name is the course's key.
+     *
+     * @return The course's header.
+     *
+     * @throws IOException Thrown when the database can't be read or the
+     * course isn't in it.
+     */
+    @Override
+    public synchronized CourseHeader loadCourseHeader(String coursePath) throws IOException {
+        String key = getKey(coursePath);
+        writeQueuedRows();
+        try {
+            selectCourseHeaderStatement.setString(1, key);
+            try (ResultSet results = selectCourseHeaderStatement.executeQuery()) {
+                if (!results.next()) {
+                    throw new IOException("No course " + key + " in " + databaseURL);
+                }
+                return new CourseHeader(Subject.valueOf(results.getString(2)), results.getInt(3),
+                        Semester.valueOf(results.getString(4)), results.getInt(5),
+                        results.getString(6), results.getString(7));
+            } catch (IllegalArgumentException iae) {
+                throw new IOException("Bad course " + key + " in " + databaseURL);
+            }
+        } catch (SQLException sqle) {
+            throw databaseError(sqle);
+        }
+    }
+
+    /**
+     * Loads all the courses matching everything provided, using the
+     * database's indexes, so courses that don't match are never read.
+     * Leave any of the arguments null, or the year 0, to match anything.
+     * These are handy for giving CourseSiteExporter's exportAll only
+     * the courses that need exporting.
+     *
+     * @param subject The subject of the courses to load.
+     * @param semester The semester of the courses to load.
+     * @param year The year of the courses to load.
+     * @param instructorName The name of the instructor of the courses to load.
+     *
+     * @return The matching courses, in order of course key.
+     *
+     * @throws IOException Thrown when the database can't be read.
+     */
+    public synchronized List<Course> loadCourses(Subject subject, Semester semester, int year,
+            String instructorName) throws IOException {
+        writeQueuedRows();
+        String where = makeWhereClause(subject, semester, year, instructorName);
+        LinkedHashMap<String, Course> courses = new LinkedHashMap();
+        try {
+            try (PreparedStatement selectCourses = connection.prepareStatement(
+                    SELECT_COURSES + where + " ORDER BY c.course_key")) {
+                bindWhereClause(selectCourses, subject, semester, year, instructorName);
+                try (ResultSet results = selectCourses.executeQuery()) {
+                    while (results.next()) {
+                        Course course = new Course(new Instructor("", ""));
+                        loadCourseRow(results, course);
+                        courses.put(results.getString(1), course);
+                    }
+                }
+            }
+            try (PreparedStatement selectPages = connection.prepareStatement(SELECT_PAGES + where)) {
+                bindWhereClause(selectPages, subject, semester, year, instructorName);
+                loadPages(selectPages, courses);
+            }
+            try (PreparedStatement selectLectureDays = connection.prepareStatement(SELECT_LECTURE_DAYS + where)) {
+                bindWhereClause(selectLectureDays, subject, semester, year, instructorName);
+                loadLectureDays(selectLectureDays, courses);
+            }
+        } catch (SQLException sqle) {
+            throw databaseError(sqle);
+        }
+        return new ArrayList(courses.values());
+    }
+
+    /**
+     * Finds the paths of all the courses matching everything provided,
+     * without loading any of them. Leave any of the arguments null, or
+     * the year 0, to match anything.
+     *
+     * @param coursesDir Directory the courses are kept in.
+     * @param subject The subject of the courses to find.
+     * @param semester The semester of the courses to find.
+     * @param year The year of the courses to find.
+     * @param instructorName The name of the instructor of the courses to find.
+     *
+     * @return The paths of the matching courses, in order.
+     *
+     * @throws IOException Thrown when the database can't be read.
+     */
+    public synchronized List<String> findCourseFilePaths(String coursesDir, Subject subject,
+            Semester semester, int year, String instructorName) throws IOException {
+        writeQueuedRows();
+        ArrayList<String> coursePaths = new ArrayList();
+        try (PreparedStatement selectKeys = connection.prepareStatement(SELECT_COURSE_KEYS
+                + makeWhereClause(subject, semester, year, instructorName) + " ORDER BY c.course_key")) {
+            bindWhereClause(selectKeys, subject, semester, year, instructorName);
+            try (ResultSet results = selectKeys.executeQuery()) {
+                while (results.next()) {
+                    coursePaths.add(new File(coursesDir, results.getString(1) + DATABASE_EXT).getPath());
+                }
+            }
+        } catch (SQLException sqle) {
+            throw databaseError(sqle);
+        }
+        return coursePaths;
+    }
+
+    /**
+     * Provides when a course was last saved, which like a file's
+     * modification time tells us if the course has changed.
+     *
+     * @param coursePath Path whose file name is the course's key.
+     *
+     * @return When the course was last saved, in milliseconds since the
+     * epoch, or -1 if the course isn't in the database.
+     *
+     * @throws IOException Thrown when the database can't be read.
+     */
+    public synchronized long getCourseSaveTime(String coursePath) throws IOException {
+        writeQueuedRows();
+        try {
+            selectSaveTimeStatement.setString(1, getKey(coursePath));
+            try (ResultSet results = selectSaveTimeStatement.executeQuery()) {
+                return results.next() ? results.getLong(2) : -1;
+            }
+        } catch (SQLException sqle) {
+            throw databaseError(sqle);
+        }
+    }
+
+    /**
+     * Provides the state of a course, which is when it was last saved.
+     *
+     * @param coursePath Path whose file name is the course's key.
+     *
+     * @return When the course was last saved, or -1 if the course isn't
+     * in the database, and 0, since a save time is all we need.
+     *
+     * @throws IOException Thrown when the database can't be read.
+     */
+    @Override
+    public long[] getCourseState(String coursePath) throws IOException {
+        return new long[] {getCourseSaveTime(coursePath), 0};
+    }
+
+    /**
+     * Provides the state of every course in the database all at once,
+     * which is much quicker than asking about each course.
+     *
+     * @param coursesDir Directory the courses are kept in.
+     *
+     * @return The state of each course, like getCourseState provides,
+     * keyed by course path.
+     *
+     * @throws IOException Thrown when the database can't be read.
+     */
+    @Override
+    public synchronized Map<String, long[]> getCourseStates(String coursesDir) throws IOException {
+        writeQueuedRows();
+        HashMap<String, long[]> courseStates = new HashMap();
+        try (Statement statement = connection.createStatement();
+                ResultSet results = statement.executeQuery(SELECT_SAVE_TIMES)) {
+            while (results.next()) {
+                courseStates.put(new File(coursesDir, results.getString(1) + DATABASE_EXT).getPath(),
+                        new long[] {results.getLong(2), 0});
+            }
+        } catch (SQLException sqle) {
+            throw databaseError(sqle);
+        }
+        return courseStates;
+    }
+
+    /**
+     * Provides the paths of all the courses in the database, like those
+     * provided by getCourseFilePath.
+     *
+     * @param coursesDir Directory the courses are kept in.
+     *
+     * @return The path of every course, in order.
+     *
+     * @throws IOException Thrown when the database can't be read.
+     */
+    @Override
+    public List<String> getCourseFilePaths(String coursesDir) throws IOException {
+        return findCourseFilePaths(coursesDir, null, null, 0, null);
+    }
+
+    /**
+     * Provides the extension of the paths used for courses.
+     *
+     * @return The extension of database course paths.
+     */
+    @Override
+    public String getCourseFileExtension() {
+        return DATABASE_EXT;
+    }
+
+    /**
+     * Writes any courses that are still queued and closes the database.
+     * The database is opened again if it's needed after this.
+     *
+     * @throws IOException Thrown when the queued courses can't be written.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        // DON'T OPEN THE DATABASE JUST TO CLOSE IT
+        if ((connection == null) && queuedRows.isEmpty()) {
+            return;
+        }
+        try {
+            writeQueuedRows();
+        } finally {
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (SQLException sqle) {
+                    throw databaseError(sqle);
+                } finally {
+                    connection = null;
+                    instructorIds.clear();
+                    nextInstructorId = -1;
+                }
+            }
+        }
+    }
+
+    // BELOW ARE THE PRIVATE HELPER METHODS
+
+    // GETS A COURSE'S KEY FROM ITS PATH, WHICH IS THE NAME OF THE FILE
+    private String getKey(String coursePath) {
+        String key = new File(coursePath).getName();
+        if (key.endsWith(DATABASE_EXT)) {
+            key = key.substring(0, key.length() - DATABASE_EXT.length());
+        }
+        return key;
+    }
+
+    // CONNECTS TO THE DATABASE IF WE AREN'T YET, MAKING OUR TABLES
+    // IF THEY AREN'T THERE AND PREPARING OUR STATEMENTS
+    private void openDatabase() throws IOException {
+        if (connection != null) {
+            return;
+        }
+        try {
+            connection = DriverManager.getConnection(databaseURL);
+            try (Statement statement = connection.createStatement()) {
+                for (String createTable : CREATE_TABLES) {
+                    statement.executeUpdate(createTable);
+                }
+            }
+            connection.setAutoCommit(false);
+            selectInstructorStatement = connection.prepareStatement(SELECT_INSTRUCTOR);
+            insertInstructorStatement = connection.prepareStatement(INSERT_INSTRUCTOR);
+            deletePagesStatement = connection.prepareStatement(DELETE_PAGES);
+            deleteLectureDaysStatement = connection.prepareStatement(DELETE_LECTURE_DAYS);
+            deleteCourseStatement = connection.prepareStatement(DELETE_COURSE);
+            insertCourseStatement = connection.prepareStatement(INSERT_COURSE);
+            insertPageStatement = connection.prepareStatement(INSERT_PAGE);
+            insertLectureDayStatement = connection.prepareStatement(INSERT_LECTURE_DAY);
+            selectCourseStatement = connection.prepareStatement(SELECT_COURSES + WHERE_COURSE_KEY);
+            selectCourseHeaderStatement = connection.prepareStatement(SELECT_COURSE_HEADER + WHERE_COURSE_KEY);
+            selectCoursePagesStatement = connection.prepareStatement(SELECT_PAGES + WHERE_COURSE_KEY);
+            selectCourseLectureDaysStatement = connection.prepareStatement(SELECT_LECTURE_DAYS + WHERE_COURSE_KEY);
+            selectSaveTimeStatement = connection.prepareStatement(SELECT_SAVE_TIMES + WHERE_COURSE_KEY);
+        } catch (SQLException sqle) {
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (SQLException closeException) {
+                    // WE'RE ALREADY REPORTING WHAT WENT WRONG
+                }
+                connection = null;
+            }
+            throw databaseError(sqle);
+        }
+    }
+
+    // WRITES ALL THE QUEUED COURSES IN ONE TRANSACTION. NOTE THAT THE
+    // DATABASE IS OPENED HERE, SO EVERYTHING THAT USES IT CALLS THIS FIRST.
+    // IF THE BATCH FAILS, THE COURSES ARE WRITTEN ONE AT A TIME SO THAT A
+    // BAD COURSE DOESN'T STOP THE OTHERS, AND THE ONES THAT STILL FAIL ARE
+    // NAMED IN THE EXCEPTION. A COURSE THE DATABASE REJECTED, LIKE ONE WITH
+    // A TITLE THAT'S TOO LONG, IS DROPPED, SINCE IT WOULD NEVER BE WRITTEN,
+    // BUT ANY OTHER FAILURE LEAVES THE COURSE QUEUED TO TRY AGAIN LATER
+    private void writeQueuedRows() throws IOException {
+        openDatabase();
+        if (queuedRows.isEmpty()) {
+            return;
+        }
+        ArrayList<CourseRow> rows = new ArrayList(queuedRows.values());
+        LinkedHashMap<String, SQLException> failures = new LinkedHashMap();
+        try {
+            writeRows(rows);
+            queuedRows.clear();
+            return;
+        } catch (SQLException sqle) {
+            if (rows.size() == 1) {
+                failures.put(rows.get(0).key, sqle);
+            }
+        }
+
+        // NOW TRY THEM ONE AT A TIME
+        if (failures.isEmpty()) {
+            for (CourseRow row : rows) {
+                try {
+                    writeRows(Collections.singletonList(row));
+                    queuedRows.remove(row.key);
+                } catch (SQLException sqle) {
+                    failures.put(row.key, sqle);
+                }
+            }
+            if (failures.isEmpty()) {
+                return;
+            }
+        }
+        for (Map.Entry<String, SQLException> failure : failures.entrySet()) {
+            if (isRejectedRow(failure.getValue())) {
+                queuedRows.remove(failure.getKey());
+            }
+        }
+        SQLException firstFailure = failures.values().iterator().next();
+        throw new IOException(databaseURL + ": couldn't save " + failures.keySet() + ": "
+                + firstFailure.getMessage(), firstFailure);
+    }
+
+    // TESTS WHETHER THE DATABASE REJECTED A ROW BECAUSE OF WHAT WAS IN IT,
+    // WHICH IS WHAT SQLSTATE CLASSES 22 (DATA) AND 23 (CONSTRAINTS) MEAN
+    private static boolean isRejectedRow(SQLException sqle) {
+        String sqlState = sqle.getSQLState();
+        return (sqlState != null) && (sqlState.startsWith("22") || sqlState.startsWith("23"));
+    }
+
+    // WRITES THE ROWS IN ONE TRANSACTION, USING ONE BATCH FOR EACH
+    // STATEMENT, ROLLING IT ALL BACK IF ANY OF IT FAILS
+    private void writeRows(Collection<CourseRow> rows) throws SQLException {
+        try {
+            // WE NEED THE INSTRUCTORS BEFORE THE COURSES THAT REFER TO THEM
+            for (CourseRow row : rows) {
+                row.instructorId = getInstructorId(row.instructorName, row.homepageURL);
+            }
+            insertInstructorStatement.executeBatch();
+
+            // GET RID OF WHAT WAS SAVED BEFORE, CHILDREN FIRST
+            for (CourseRow row : rows) {
+                deletePagesStatement.setString(1, row.key);
+                deletePagesStatement.addBatch();
+                deleteLectureDaysStatement.setString(1, row.key);
+                deleteLectureDaysStatement.addBatch();
+                deleteCourseStatement.setString(1, row.key);
+                deleteCourseStatement.addBatch();
+            }
+            deletePagesStatement.executeBatch();
+            deleteLectureDaysStatement.executeBatch();
+            deleteCourseStatement.executeBatch();
+
+            // AND PUT IN THE NEW
+            for (CourseRow row : rows) {
+                insertCourseStatement.setString(1, row.key);
+                insertCourseStatement.setString(2, row.subject);
+                insertCourseStatement.setInt(3, row.number);
+                insertCourseStatement.setString(4, row.semester);
+                insertCourseStatement.setInt(5, row.year);
+                insertCourseStatement.setString(6, row.title);
+                insertCourseStatement.setInt(7, row.instructorId);
+                insertCourseStatement.setLong(8, row.startingMonday);
+                insertCourseStatement.setLong(9, row.endingFriday);
+                insertCourseStatement.setLong(10, row.savedAt);
+                insertCourseStatement.addBatch();
+                for (String pageName : row.pageNames) {
+                    insertPageStatement.setString(1, row.key);
+                    insertPageStatement.setString(2, pageName);
+                    insertPageStatement.addBatch();
+                }
+                for (String dayName : row.lectureDayNames) {
+                    insertLectureDayStatement.setString(1, row.key);
+                    insertLectureDayStatement.setString(2, dayName);
+                    insertLectureDayStatement.addBatch();
+                }
+            }
+            insertCourseStatement.executeBatch();
+            insertPageStatement.executeBatch();
+            insertLectureDayStatement.executeBatch();
+            connection.commit();
+        } catch (SQLException sqle) {
+            // NONE OF IT WAS WRITTEN, SO FORGET ANY INSTRUCTORS WE JUST ADDED
+            instructorIds.clear();
+            nextInstructorId = -1;
+            try {
+                connection.rollback();
+                insertInstructorStatement.clearBatch();
+                deletePagesStatement.clearBatch();
+                deleteLectureDaysStatement.clearBatch();
+                deleteCourseStatement.clearBatch();
+                insertCourseStatement.clearBatch();
+                insertPageStatement.clearBatch();
+                insertLectureDayStatement.clearBatch();
+            } catch (SQLException rollbackException) {
+                // WE'RE ALREADY REPORTING WHAT WENT WRONG
+            }
+            throw sqle;
+        }
+    }
+
+    // GETS THE ID OF AN INSTRUCTOR, ADDING THE INSTRUCTOR TO THE
+    // BATCH OF INSTRUCTORS TO INSERT IF THEY AREN'T IN THE DATABASE
+    private int getInstructorId(String instructorName, String homepageURL) throws SQLException {
+        String instructorKey = instructorName + "\n" + homepageURL;
+        Integer instructorId = instructorIds.get(instructorKey);
+        if (instructorId != null) {
+            return instructorId;
+        }
+        selectInstructorStatement.setString(1, instructorName);
+        selectInstructorStatement.setString(2, homepageURL);
+        try (ResultSet results = selectInstructorStatement.executeQuery()) {
+            if (results.next()) {
+                instructorId = results.getInt(1);
+            }
+        }
+        if (instructorId == null) {
+            if (nextInstructorId < 0) {
+                try (Statement statement = connection.createStatement();
+                        ResultSet results = statement.executeQuery(SELECT_MAX_INSTRUCTOR_ID)) {
+                    nextInstructorId = results.next() ? results.getInt(1) + 1 : 1;
+                }
+            }
+            instructorId = nextInstructorId++;
+            insertInstructorStatement.setInt(1, instructorId);
+            insertInstructorStatement.setString(2, instructorName);
+            insertInstructorStatement.setString(3, homepageURL);
+            insertInstructorStatement.addBatch();
+        }
+        instructorIds.put(instructorKey, instructorId);
+        return instructorId;
+    }
+
+    // LOADS THE COURSE IN THE CURRENT ROW OF results, WHICH COME FROM
+    // SELECT_COURSES, INTO course, LEAVING ITS PAGES AND LECTURE DAYS
+    private void loadCourseRow(ResultSet results, Course course) throws SQLException, IOException {
+        try {
+            course.setSubject(Subject.valueOf(results.getString(2)));
+            course.setNumber(results.getInt(3));
+            course.setSemester(Semester.valueOf(results.getString(4)));
+            course.setYear(results.getInt(5));
+            course.setTitle(results.getString(6));
+            course.setInstructor(new Instructor(results.getString(7), results.getString(8)));
+            course.setStartingMonday(LocalDate.ofEpochDay(results.getLong(9)));
+            course.setEndingFriday(LocalDate.ofEpochDay(results.getLong(10)));
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new IOException("Bad course " + results.getString(1) + " in " + databaseURL);
+        }
+    }
+
+    // ADDS THE PAGES FOUND BY selectPages TO THE COURSES THEY BELONG TO,
+    // IN THE ORDER OF THE PAGES, NOT THE ORDER THE DATABASE GIVES THEM
+    private void loadPages(PreparedStatement selectPages, LinkedHashMap<String, Course> courses)
+            throws SQLException, IOException {
+        HashMap<String, EnumSet<CoursePage>> pages = new HashMap();
+        try (ResultSet results = selectPages.executeQuery()) {
+            while (results.next()) {
+                String key = results.getString(1);
+                EnumSet<CoursePage> coursePages = pages.get(key);
+                if (coursePages == null) {
+                    coursePages = EnumSet.noneOf(CoursePage.class);
+                    pages.put(key, coursePages);
+                }
+                try {
+                    coursePages.add(CoursePage.valueOf(results.getString(2)));
+                } catch (IllegalArgumentException iae) {
+                    throw new IOException("Bad page for course " + key + " in " + databaseURL);
+                }
+            }
+        }
+        for (String key : pages.keySet()) {
+            Course course = courses.get(key);
+            if (course != null) {
+                for (CoursePage page : pages.get(key)) {
+                    course.addPage(page);
+                }
+            }
+        }
+    }
+
+    // ADDS THE LECTURE DAYS FOUND BY selectLectureDays TO THE COURSES
+    // THEY BELONG TO, IN THE ORDER OF THE DAYS OF THE WEEK
+    private void loadLectureDays(PreparedStatement selectLectureDays, LinkedHashMap<String, Course> courses)
+            throws SQLException, IOException {
+        HashMap<String, EnumSet<DayOfWeek>> lectureDays = new HashMap();
+        try (ResultSet results = selectLectureDays.executeQuery()) {
+            while (results.next()) {
+                String key = results.getString(1);
+                EnumSet<DayOfWeek> courseLectureDays = lectureDays.get(key);
+                if (courseLectureDays == null) {
+                    courseLectureDays = EnumSet.noneOf(DayOfWeek.class);
+                    lectureDays.put(key, courseLectureDays);
+                }
+                try {
+                    courseLectureDays.add(DayOfWeek.valueOf(results.getString(2)));
+                } catch (IllegalArgumentException iae) {
+                    throw new IOException("Bad lecture day for course " + key + " in " + databaseURL);
+                }
+            }
+        }
+        for (String key : lectureDays.keySet()) {
+            Course course = courses.get(key);
+            if (course != null) {
+                for (DayOfWeek lectureDay : lectureDays.get(key)) {
+                    course.addLectureDay(lectureDay);
+                }
+            }
+        }
+    }
+
+    // MAKES THE WHERE CLAUSE FOR FINDING COURSES, WITH A PARAMETER
+    // FOR EACH OF THE ARGUMENTS THAT WASN'T LEFT OUT
+    private static String makeWhereClause(Subject subject, Semester semester, int year, String instructorName) {
+        StringBuilder where = new StringBuilder(" WHERE 1 = 1");
+        if (subject != null) {
+            where.append(" AND c.subject = ?");
+        }
+        if (semester != null) {
+            where.append(" AND c.semester = ?");
+        }
+        if (year != 0) {
+            where.append(" AND c.course_year = ?");
+        }
+        if (instructorName != null) {
+            where.append(" AND i.instructor_name = ?");
+        }
+        return where.toString();
+    }
+
+    // SETS THE PARAMETERS OF A STATEMENT USING makeWhereClause
+    private static void bindWhereClause(PreparedStatement statement, Subject subject, Semester semester,
+            int year, String instructorName) throws SQLException {
+        int parameter = 1;
+        if (subject != null) {
+            statement.setString(parameter++, subject.name());
+        }
+        if (semester != null) {
+            statement.setString(parameter++, semester.name());
+        }
+        if (year != 0) {
+            statement.setInt(parameter++, year);
+        }
+        if (instructorName != null) {
+            statement.setString(parameter++, instructorName);
+        }
+    }
+
+    // REPORTS A DATABASE PROBLEM THE WAY ALL OUR FILE MANAGERS REPORT PROBLEMS
+    private IOException databaseError(SQLException sqle) {
+        return new IOException(databaseURL + ": " + sqle.getMessage(), sqle);
+    }
+
+    /**
+     * This holds everything we write to the database for a course, taken
+     * from the course when it's saved, since the course may well change
+     * before its batch is written.
+     */
+    static class CourseRow {
+        String key;
+        String subject;
+        int number;
+        String semester;
+        int year;
+        String title;
+        String instructorName;
+        String homepageURL;
+        int instructorId;
+        long startingMonday;
+        long endingFriday;
+        long savedAt;
+        ArrayList<String> pageNames;
+        ArrayList<String> lectureDayNames;
+
+        CourseRow(String initKey, Course course) {
+            key = initKey;
+            subject = course.getSubject().name();
+            number = course.getNumber();
+            semester = course.getSemester().name();
+            year = course.getYear();
+            title = course.getTitle();
+            instructorName = course.getInstructor().getName();
+            homepageURL = course.getInstructor().getHomepageURL();
+            startingMonday = course.getStartingMonday().toEpochDay();
+            endingFriday = course.getEndingFriday().toEpochDay();
+            savedAt = System.currentTimeMillis();
+            pageNames = new ArrayList();
+            for (CoursePage page : course.getPages()) {
+                if (!pageNames.contains(page.name())) {
+                    pageNames.add(page.name());
+                }
+            }
+            lectureDayNames = new ArrayList();
+            for (DayOfWeek lectureDay : course.getLectureDays()) {
+                if (!lectureDayNames.contains(lectureDay.name())) {
+                    lectureDayNames.add(lectureDay.name());
+                }
+            }
+        }
+    }
+}
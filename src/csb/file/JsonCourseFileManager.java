@@ -2,27 +2,41 @@ package csb.file;
 
 import static csb.CSB_StartupConstants.PATH_COURSES;
 import csb.data.Course;
+import csb.data.CourseHeader;
 import csb.data.CoursePage;
 import csb.data.Instructor;
 import csb.data.Semester;
 import csb.data.Subject;
+import java.io.BufferedInputStream;
+import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.DateTimeException;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import javax.json.Json;
 import javax.json.JsonArray;
 import javax.json.JsonArrayBuilder;
+import javax.json.JsonBuilderFactory;
+import javax.json.JsonException;
 import javax.json.JsonObject;
 import javax.json.JsonReader;
+import javax.json.JsonReaderFactory;
 import javax.json.JsonWriter;
 import javax.json.JsonValue;
+import javax.json.JsonWriterFactory;
+import javax.json.stream.JsonParser;
+import javax.json.stream.JsonParserFactory;
 
 /**
  * This is a CourseFileManager that uses the JSON file format to 
@@ -52,6 +66,38 @@ public class JsonCourseFileManager implements CourseFileManager {
     public static String JSON_EXT = ".json";
     public static String SLASH = "/";
 
+    // FINDING THE JSON PROVIDER IS EXPENSIVE, SO RATHER THAN HAVING Json DO
+    // IT EVERY TIME WE READ OR WRITE, WE MAKE ALL OUR FACTORIES JUST ONCE
+    static final JsonParserFactory PARSER_FACTORY = Json.createParserFactory(null);
+    static final JsonReaderFactory READER_FACTORY = Json.createReaderFactory(null);
+    static final JsonWriterFactory WRITER_FACTORY = Json.createWriterFactory(null);
+    static final JsonBuilderFactory BUILDER_FACTORY = Json.createBuilderFactory(null);
+
+    // EVERYTHING WE SAVE IS WRITTEN THROUGH THIS, SO A CRASH NEVER
+    // LEAVES A HALF WRITTEN FILE BEHIND. SINCE THESE FILES ARE THE
+    // USER'S WORK WE MAKE SURE THEY'RE ON DISK BEFORE MOVING ON
+    AtomicFileWriter fileWriter = new AtomicFileWriter(Durability.ALWAYS);
+
+    /**
+     * Accessor method for the writer all saved files go through, which
+     * may be used to change how hard it works to get files onto the disk.
+     * 
+     * @return The writer used for saving files.
+     */
+    public AtomicFileWriter getFileWriter() {
+        return fileWriter;
+    }
+
+    /**
+     * Mutator method for the writer all saved files go through, which
+     * lets it be shared with other parts of the application.
+     * 
+     * @param initFileWriter The writer to use for saving files.
+     */
+    public void setFileWriter(AtomicFileWriter initFileWriter) {
+        fileWriter = initFileWriter;
+    }
+
     /**
      * This method saves all the data associated with a course to
      * a JSON file.
@@ -63,14 +109,20 @@ public class JsonCourseFileManager implements CourseFileManager {
      */
     @Override
     public void saveCourse(Course courseToSave) throws IOException {
-        // BUILD THE FILE PATH
-        String courseListing = "" + courseToSave.getSubject() + courseToSave.getNumber();
-        String jsonFilePath = PATH_COURSES + SLASH + courseListing + JSON_EXT;
-        
-        // INIT THE WRITER
-        OutputStream os = new FileOutputStream(jsonFilePath);
-        JsonWriter jsonWriter = Json.createWriter(os);  
-        
+        saveCourse(courseToSave, getCourseFilePath(courseToSave));
+    }
+
+    /**
+     * This method saves all the data associated with a course to
+     * the JSON file at jsonFilePath, rather than the courses directory.
+     * 
+     * @param courseToSave The course whose data we are saving.
+     * @param jsonFilePath Path of the file to save it to.
+     * 
+     * @throws IOException Thrown when there are issues writing
+     * to the JSON file.
+     */
+    public void saveCourse(Course courseToSave, String jsonFilePath) throws IOException {
         // MAKE A JSON ARRAY FOR THE PAGES ARRAY
         JsonArray pagesJsonArray = makePagesJsonArray(courseToSave.getPages());
         
@@ -85,7 +137,7 @@ public class JsonCourseFileManager implements CourseFileManager {
         JsonArray lectureDaysJsonArray = makeLectureDaysJsonArray(courseToSave.getLectureDays());
         
         // NOW BUILD THE COURSE USING EVERYTHING WE'VE ALREADY MADE
-        JsonObject courseJsonObject = Json.createObjectBuilder()
+        JsonObject courseJsonObject = BUILDER_FACTORY.createObjectBuilder()
                                     .add(JSON_SUBJECT, courseToSave.getSubject().toString())
                                     .add(JSON_NUMBER, courseToSave.getNumber())
                                     .add(JSON_SEMESTER, courseToSave.getSemester().toString())
@@ -99,58 +151,275 @@ public class JsonCourseFileManager implements CourseFileManager {
                 .build();
         
         // AND SAVE EVERYTHING AT ONCE
-        jsonWriter.writeObject(courseJsonObject);
+        saveJsonObject(courseJsonObject, jsonFilePath);
     }
     
+    /**
+     * Provides the path of the file the course is saved to, which is
+     * named after its subject and number.
+     * 
+     * @param course The course whose file we want.
+     * 
+     * @return The path of the course's JSON file.
+     */
+    @Override
+    public String getCourseFilePath(Course course) {
+        String courseListing = "" + course.getSubject() + course.getNumber();
+        return PATH_COURSES + SLASH + courseListing + getCourseFileExtension();
+    }
+
+    /**
+     * Provides the extension of the files courses are saved to.
+     * 
+     * @return The extension of JSON files.
+     */
+    @Override
+    public String getCourseFileExtension() {
+        return JSON_EXT;
+    }
+
+    /**
+     * Lists the paths of all the courses saved in coursesDir, which for
+     * JSON is every file there with the JSON extension.
+     * 
+     * @param coursesDir Directory the courses are kept in.
+     * 
+     * @return The path of every course, in order.
+     * 
+     * @throws IOException Thrown when the directory can't be listed.
+     */
+    @Override
+    public List<String> getCourseFilePaths(String coursesDir) throws IOException {
+        File[] courseFiles = new File(coursesDir).listFiles();
+        if (courseFiles == null) {
+            throw new IOException("Can't list " + coursesDir);
+        }
+        String courseFileExtension = getCourseFileExtension();
+        ArrayList<String> coursePaths = new ArrayList();
+        for (File courseFile : courseFiles) {
+            if (courseFile.getName().endsWith(courseFileExtension) && courseFile.isFile()) {
+                coursePaths.add(courseFile.getPath());
+            }
+        }
+        Collections.sort(coursePaths);
+        return coursePaths;
+    }
+
+    /**
+     * Provides the state of the course saved at coursePath, which for a
+     * course file is its modification time and size.
+     * 
+     * @param coursePath Path of the course's file.
+     * 
+     * @return The file's modification time and size, or -1 for both if
+     * there's no such file.
+     * 
+     * @throws IOException Thrown when the file can't be looked at.
+     */
+    @Override
+    public long[] getCourseState(String coursePath) throws IOException {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(new File(coursePath).toPath(),
+                    BasicFileAttributes.class);
+            return new long[] {attributes.lastModifiedTime().toMillis(), attributes.size()};
+        } catch (NoSuchFileException nsfe) {
+            return new long[] {-1, -1};
+        }
+    }
+
+    /**
+     * Provides the state of every course saved in coursesDir, like
+     * getCourseState does for one course. Note that a file removed while
+     * we're looking is left out.
+     * 
+     * @param coursesDir Directory the courses are kept in.
+     * 
+     * @return The state of each course, keyed by the path
+     * getCourseFilePaths provides for it, in order.
+     * 
+     * @throws IOException Thrown when the directory can't be listed.
+     */
+    @Override
+    public Map<String, long[]> getCourseStates(String coursesDir) throws IOException {
+        LinkedHashMap<String, long[]> courseStates = new LinkedHashMap();
+        for (String coursePath : getCourseFilePaths(coursesDir)) {
+            long[] courseState = getCourseState(coursePath);
+            if (courseState[1] >= 0) {
+                courseStates.put(coursePath, courseState);
+            }
+        }
+        return courseStates;
+    }
+
+    /**
+     * Releases anything this file manager holds open, making sure everything
+     * it has saved is on disk first. Note that JSON files are never held
+     * open, so there's nothing to do here, but other formats may have to.
+     * 
+     * @throws IOException Thrown when what was saved can't be finished.
+     */
+    @Override
+    public void close() throws IOException {
+        // NOTHING TO DO
+    }
+
     /**
      * Loads the courseToLoad argument using the data found in the json file.
+     * Note that the file is read as a stream of parser events that go right
+     * into the course, without building a tree of JSON objects first, and
+     * that the course is only changed once the whole file has been read.
      * 
      * @param courseToLoad Course to load.
      * @param jsonFilePath File containing the data to load.
      * 
-     * @throws IOException Thrown when IO fails.
+     * @throws IOException Thrown when IO fails or the file isn't a course.
      */
     @Override
     public void loadCourse(Course courseToLoad, String jsonFilePath) throws IOException {
-        // LOAD THE JSON FILE WITH ALL THE DATA
-        JsonObject json = loadJSONFile(jsonFilePath);
-        
+        // EVERYTHING WE READ, WHICH WON'T GO INTO THE COURSE UNTIL WE'RE DONE
+        Subject subject = null;
+        Semester semester = null;
+        Integer year = null;
+        Integer number = null;
+        String title = null;
+        ArrayList<CoursePage> pages = null;
+        ArrayList<DayOfWeek> lectureDays = null;
+        Instructor instructor = null;
+        LocalDate startingMonday = null;
+        LocalDate endingFriday = null;
+
+        try (InputStream is = new BufferedInputStream(new FileInputStream(jsonFilePath));
+                JsonParser parser = PARSER_FACTORY.createParser(is)) {
+            nextEvent(parser, JsonParser.Event.START_OBJECT);
+            JsonParser.Event event = parser.next();
+            while (event == JsonParser.Event.KEY_NAME) {
+                String key = parser.getString();
+                if (key.equals(JSON_SUBJECT)) {
+                    subject = Subject.valueOf(readString(parser));
+                } else if (key.equals(JSON_SEMESTER)) {
+                    semester = Semester.valueOf(readString(parser));
+                } else if (key.equals(JSON_YEAR)) {
+                    year = readInt(parser);
+                } else if (key.equals(JSON_NUMBER)) {
+                    number = readInt(parser);
+                } else if (key.equals(JSON_TITLE)) {
+                    title = readString(parser);
+                } else if (key.equals(JSON_PAGES)) {
+                    pages = new ArrayList();
+                    nextEvent(parser, JsonParser.Event.START_ARRAY);
+                    while (parser.next() == JsonParser.Event.VALUE_STRING) {
+                        pages.add(CoursePage.valueOf(parser.getString()));
+                    }
+                } else if (key.equals(JSON_LECTURE_DAYS)) {
+                    lectureDays = new ArrayList();
+                    nextEvent(parser, JsonParser.Event.START_ARRAY);
+                    while (parser.next() == JsonParser.Event.VALUE_STRING) {
+                        lectureDays.add(DayOfWeek.valueOf(parser.getString()));
+                    }
+                } else if (key.equals(JSON_INSTRUCTOR)) {
+                    instructor = readInstructor(parser);
+                } else if (key.equals(JSON_STARTING_MONDAY)) {
+                    startingMonday = readLocalDate(parser);
+                } else if (key.equals(JSON_ENDING_FRIDAY)) {
+                    endingFriday = readLocalDate(parser);
+                } else {
+                    // NOT SOMETHING WE USE, SO PASS OVER IT
+                    skipValue(parser, parser.next());
+                }
+                event = parser.next();
+            }
+        } catch (JsonException | IllegalArgumentException | DateTimeException e) {
+            // THE FILE ISN'T WHAT WE EXPECTED, WHICH WE'LL TREAT LIKE ANY
+            // OTHER PROBLEM READING IT
+            throw new IOException(jsonFilePath + ": " + e.getMessage());
+        }
+
+        // MAKE SURE WE GOT EVERYTHING A COURSE NEEDS
+        if ((subject == null) || (semester == null) || (year == null) || (number == null)
+                || (title == null) || (pages == null) || (lectureDays == null)
+                || (instructor == null) || (startingMonday == null) || (endingFriday == null)) {
+            throw new IOException(jsonFilePath + ": missing course data");
+        }
+
         // NOW LOAD THE COURSE
-        courseToLoad.setSubject(Subject.valueOf(json.getString(JSON_SUBJECT)));
-        courseToLoad.setSemester(Semester.valueOf(json.getString(JSON_SEMESTER)));
-        courseToLoad.setYear(json.getInt(JSON_YEAR));
-        courseToLoad.setNumber(json.getInt(JSON_NUMBER));
-        courseToLoad.setTitle(json.getString(JSON_TITLE));
+        courseToLoad.setSubject(subject);
+        courseToLoad.setSemester(semester);
+        courseToLoad.setYear(year);
+        courseToLoad.setNumber(number);
+        courseToLoad.setTitle(title);
         
         // GET THE PAGES TO INCLUDE 
         courseToLoad.clearPages();
-        JsonArray jsonPagesArray = json.getJsonArray(JSON_PAGES);
-        for (int i = 0; i < jsonPagesArray.size(); i++)
-            courseToLoad.addPage(CoursePage.valueOf(jsonPagesArray.getString(i)));
+        for (CoursePage page : pages)
+            courseToLoad.addPage(page);
         
         // GET THE LECTURE DAYS TO INCLUDE
         courseToLoad.clearLectureDays();
-        JsonArray jsonLectureDaysArray = json.getJsonArray(JSON_LECTURE_DAYS);
-        for (int i = 0; i < jsonLectureDaysArray.size(); i++)
-            courseToLoad.addLectureDay(DayOfWeek.valueOf(jsonLectureDaysArray.getString(i)));
-
-        // LOAD AND SET THE INSTRUCTOR
-        JsonObject jsonInstructor = json.getJsonObject(JSON_INSTRUCTOR);
-        Instructor instructor = new Instructor( jsonInstructor.getString(JSON_INSTRUCTOR_NAME),
-                                                jsonInstructor.getString(JSON_HOMEPAGE_URL));
+        for (DayOfWeek lectureDay : lectureDays)
+            courseToLoad.addLectureDay(lectureDay);
+
+        // SET THE INSTRUCTOR
         courseToLoad.setInstructor(instructor);
         
-        JsonObject startingMonday = json.getJsonObject(JSON_STARTING_MONDAY);
-        int year = startingMonday.getInt(JSON_YEAR);
-        int month = startingMonday.getInt(JSON_MONTH);
-        int day = startingMonday.getInt(JSON_DAY);
-        courseToLoad.setStartingMonday(LocalDate.of(year, month, day));
-        
-        JsonObject endingFriday = json.getJsonObject(JSON_ENDING_FRIDAY);
-        year = endingFriday.getInt(JSON_YEAR);
-        month = endingFriday.getInt(JSON_MONTH);
-        day = startingMonday.getInt(JSON_DAY);
-        courseToLoad.setEndingFriday(LocalDate.of(year, month, day));
+        // AND THE DATES
+        courseToLoad.setStartingMonday(startingMonday);
+        courseToLoad.setEndingFriday(endingFriday);
+    }
+
+    /**
+     * Loads just the header of the course in the json file, for listing
+     * and searching courses. Note that the parser stops as soon as it has
+     * everything in the header, so the rest of the file is never read.
+     * 
+     * @param jsonFilePath File containing the course.
+     * 
+     * @return The course's header.
+     * 
+     * @throws IOException Thrown when IO fails or the file isn't a course.
+     */
+    @Override
+    public CourseHeader loadCourseHeader(String jsonFilePath) throws IOException {
+        Subject subject = null;
+        Semester semester = null;
+        Integer year = null;
+        Integer number = null;
+        String title = null;
+        String instructorName = null;
+
+        try (InputStream is = new BufferedInputStream(new FileInputStream(jsonFilePath));
+                JsonParser parser = PARSER_FACTORY.createParser(is)) {
+            nextEvent(parser, JsonParser.Event.START_OBJECT);
+            JsonParser.Event event = parser.next();
+            while (event == JsonParser.Event.KEY_NAME) {
+                String key = parser.getString();
+                if (key.equals(JSON_SUBJECT)) {
+                    subject = Subject.valueOf(readString(parser));
+                } else if (key.equals(JSON_SEMESTER)) {
+                    semester = Semester.valueOf(readString(parser));
+                } else if (key.equals(JSON_YEAR)) {
+                    year = readInt(parser);
+                } else if (key.equals(JSON_NUMBER)) {
+                    number = readInt(parser);
+                } else if (key.equals(JSON_TITLE)) {
+                    title = readString(parser);
+                } else if (key.equals(JSON_INSTRUCTOR)) {
+                    instructorName = readInstructor(parser).getName();
+                } else {
+                    // THE PAGES, DAYS AND DATES AREN'T PART OF THE HEADER
+                    skipValue(parser, parser.next());
+                }
+
+                // STOP AS SOON AS WE HAVE THE WHOLE HEADER
+                if ((subject != null) && (semester != null) && (year != null) && (number != null)
+                        && (title != null) && (instructorName != null)) {
+                    return new CourseHeader(subject, number, semester, year, title, instructorName);
+                }
+                event = parser.next();
+            }
+        } catch (JsonException | IllegalArgumentException e) {
+            throw new IOException(jsonFilePath + ": " + e.getMessage());
+        }
+        throw new IOException(jsonFilePath + ": missing course data");
     }
     
     /**
@@ -162,10 +431,8 @@ public class JsonCourseFileManager implements CourseFileManager {
      */
     @Override
     public void saveLastInstructor(Instructor lastInstructor, String jsonFilePath) throws IOException {
-        OutputStream os = new FileOutputStream(jsonFilePath);
-        JsonWriter jsonWriter = Json.createWriter(os); 
         JsonObject instructorJsonObject = makeInstructorJsonObject(lastInstructor);
-        jsonWriter.writeObject(instructorJsonObject);
+        saveJsonObject(instructorJsonObject, jsonFilePath);
     }
     
     /**
@@ -190,9 +457,7 @@ public class JsonCourseFileManager implements CourseFileManager {
     @Override
     public void saveSubjects(List<Object> subjects, String jsonFilePath) throws IOException {
         JsonObject arrayObject = buildJsonArrayObject(subjects);
-        OutputStream os = new FileOutputStream(jsonFilePath);
-        JsonWriter jsonWriter = Json.createWriter(os);  
-        jsonWriter.writeObject(arrayObject);        
+        saveJsonObject(arrayObject, jsonFilePath);
     }
     
     /**
@@ -214,15 +479,102 @@ public class JsonCourseFileManager implements CourseFileManager {
    
     // AND HERE ARE THE PRIVATE HELPER METHODS TO HELP THE PUBLIC ONES
     
+    // MOVES THE PARSER TO ITS NEXT EVENT, WHICH MUST BE THE ONE EXPECTED
+    private void nextEvent(JsonParser parser, JsonParser.Event expected) throws IOException {
+        JsonParser.Event event = parser.next();
+        if (event != expected) {
+            throw new IOException("Expected " + expected + " but found " + event);
+        }
+    }
+
+    // READS THE NEXT VALUE, WHICH MUST BE A STRING
+    private String readString(JsonParser parser) throws IOException {
+        nextEvent(parser, JsonParser.Event.VALUE_STRING);
+        return parser.getString();
+    }
+
+    // READS THE NEXT VALUE, WHICH MUST BE A NUMBER
+    private int readInt(JsonParser parser) throws IOException {
+        nextEvent(parser, JsonParser.Event.VALUE_NUMBER);
+        return parser.getInt();
+    }
+
+    // READS AN INSTRUCTOR OBJECT
+    private Instructor readInstructor(JsonParser parser) throws IOException {
+        String name = null;
+        String homepageURL = null;
+        nextEvent(parser, JsonParser.Event.START_OBJECT);
+        while (parser.next() == JsonParser.Event.KEY_NAME) {
+            String key = parser.getString();
+            if (key.equals(JSON_INSTRUCTOR_NAME)) {
+                name = readString(parser);
+            } else if (key.equals(JSON_HOMEPAGE_URL)) {
+                homepageURL = readString(parser);
+            } else {
+                skipValue(parser, parser.next());
+            }
+        }
+        if ((name == null) || (homepageURL == null)) {
+            throw new IOException("Incomplete " + JSON_INSTRUCTOR);
+        }
+        return new Instructor(name, homepageURL);
+    }
+
+    // READS A DATE OBJECT
+    private LocalDate readLocalDate(JsonParser parser) throws IOException {
+        int year = -1;
+        int month = -1;
+        int day = -1;
+        nextEvent(parser, JsonParser.Event.START_OBJECT);
+        while (parser.next() == JsonParser.Event.KEY_NAME) {
+            String key = parser.getString();
+            if (key.equals(JSON_YEAR)) {
+                year = readInt(parser);
+            } else if (key.equals(JSON_MONTH)) {
+                month = readInt(parser);
+            } else if (key.equals(JSON_DAY)) {
+                day = readInt(parser);
+            } else {
+                skipValue(parser, parser.next());
+            }
+        }
+        return LocalDate.of(year, month, day);
+    }
+
+    // PASSES OVER A VALUE WE DON'T USE, INCLUDING EVERYTHING INSIDE IT
+    private void skipValue(JsonParser parser, JsonParser.Event event) {
+        int depth = 0;
+        while (true) {
+            if ((event == JsonParser.Event.START_OBJECT) || (event == JsonParser.Event.START_ARRAY)) {
+                depth++;
+            } else if ((event == JsonParser.Event.END_OBJECT) || (event == JsonParser.Event.END_ARRAY)) {
+                depth--;
+            }
+            if (depth == 0) {
+                return;
+            }
+            event = parser.next();
+        }
+    }
+
     // LOADS A JSON FILE AS A SINGLE OBJECT AND RETURNS IT
     private JsonObject loadJSONFile(String jsonFilePath) throws IOException {
-        InputStream is = new FileInputStream(jsonFilePath);
-        JsonReader jsonReader = Json.createReader(is);
-        JsonObject json = jsonReader.readObject();
-        jsonReader.close();
-        is.close();
-        return json;
+        try (InputStream is = new FileInputStream(jsonFilePath);
+                JsonReader jsonReader = READER_FACTORY.createReader(is)) {
+            return jsonReader.readObject();
+        }
     }    
+
+    // SAVES A SINGLE OBJECT TO A JSON FILE, REPLACING THE OLD FILE
+    // ONLY ONCE THE NEW ONE HAS BEEN COMPLETELY WRITTEN
+    private void saveJsonObject(JsonObject json, String jsonFilePath) throws IOException {
+        try (AtomicFileWriter.AtomicOutput output = fileWriter.open(jsonFilePath)) {
+            JsonWriter jsonWriter = WRITER_FACTORY.createWriter(output.getOutputStream());
+            jsonWriter.writeObject(json);
+            jsonWriter.close();
+            output.commit();
+        }
+    }
     
     // LOADS AN ARRAY OF A SPECIFIC NAME FROM A JSON FILE AND
     // RETURNS IT AS AN ArrayList FULL OF THE DATA FOUND
@@ -240,7 +592,7 @@ public class JsonCourseFileManager implements CourseFileManager {
     
     // MAKES AND RETURNS A JSON OBJECT FOR THE PROVIDED INSTRUCTOR
     private JsonObject makeInstructorJsonObject(Instructor instructor) {
-        JsonObject jso = Json.createObjectBuilder().add(JSON_INSTRUCTOR_NAME, instructor.getName())
+        JsonObject jso = BUILDER_FACTORY.createObjectBuilder().add(JSON_INSTRUCTOR_NAME, instructor.getName())
                                                    .add(JSON_HOMEPAGE_URL, instructor.getHomepageURL())
                                                    .build(); 
         return jso;                
@@ -248,7 +600,7 @@ public class JsonCourseFileManager implements CourseFileManager {
 
     // MAKES AND RETURNS A JSON OBJECT FOR THE PROVIDED DATE
     private JsonObject makeLocalDateJsonObject(LocalDate dateToSave) {
-        JsonObject jso = Json.createObjectBuilder().add(JSON_YEAR, dateToSave.getYear())
+        JsonObject jso = BUILDER_FACTORY.createObjectBuilder().add(JSON_YEAR, dateToSave.getYear())
                                                    .add(JSON_MONTH, dateToSave.getMonthValue())
                                                    .add(JSON_DAY, dateToSave.getDayOfMonth())
                                                    .build(); 
@@ -264,7 +616,7 @@ public class JsonCourseFileManager implements CourseFileManager {
 
     // BUILDS AND RETURNS A JsonArray CONTAINING ALL THE PAGES FOR THIS COURSE
     public JsonArray makePagesJsonArray(List<CoursePage> data) {
-        JsonArrayBuilder jsb = Json.createArrayBuilder();
+        JsonArrayBuilder jsb = BUILDER_FACTORY.createArrayBuilder();
         for (CoursePage cP : data) {
            jsb.add(cP.toString());
         }
@@ -274,7 +626,7 @@ public class JsonCourseFileManager implements CourseFileManager {
 
     // BUILDS AND RETURNS A JsonArray CONTAINING ALL THE LECTURE DAYS FOR THIS COURSE
     public JsonArray makeLectureDaysJsonArray(List<DayOfWeek> data) {
-        JsonArrayBuilder jsb = Json.createArrayBuilder();
+        JsonArrayBuilder jsb = BUILDER_FACTORY.createArrayBuilder();
         for (DayOfWeek dow : data) {
             jsb.add(dow.toString());
         }
@@ -284,7 +636,7 @@ public class JsonCourseFileManager implements CourseFileManager {
 
     // BUILDS AND RETURNS A JsonArray CONTAINING THE PROVIDED DATA
     public JsonArray buildJsonArray(List<Object> data) {
-        JsonArrayBuilder jsb = Json.createArrayBuilder();
+        JsonArrayBuilder jsb = BUILDER_FACTORY.createArrayBuilder();
         for (Object d : data) {
            jsb.add(d.toString());
         }
@@ -296,7 +648,7 @@ public class JsonCourseFileManager implements CourseFileManager {
     // THAT CONTAINS THE PROVIDED DATA
     public JsonObject buildJsonArrayObject(List<Object> data) {
         JsonArray jA = buildJsonArray(data);
-        JsonObject arrayObject = Json.createObjectBuilder().add(JSON_SUBJECTS, jA).build();
+        JsonObject arrayObject = BUILDER_FACTORY.createObjectBuilder().add(JSON_SUBJECTS, jA).build();
         return arrayObject;
     }
 }
@@ -0,0 +1,767 @@
+package csb.file;
+
+import static csb.CSB_StartupConstants.PATH_COURSES;
+import csb.data.Course;
+import csb.data.CourseHeader;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * This is a CourseFileManager that keeps every course in one log file
+ * rather than one file per course. Saving a course appends a record with
+ * the course, encoded by BinaryCourseCodec, to the end of the log, and an
+ * index in memory maps each course to where its latest record is, so
+ * loading a course is a single read from the log, which is memory-mapped.
+ *
+ * <p>Every so often the index is written to a checkpoint file, so when
+ * the log is opened only the records appended since the checkpoint have
+ * to be read to rebuild the index. As courses are saved again their old
+ * records are left behind in the log, so once they take up enough of it
+ * the log is compacted in the background, copying only the latest record
+ * of each course into a new log that then replaces the old one.</p>
+ *
+ * <p>Courses are still identified by paths, like CSE219.csbl in the courses
+ * directory, so this works with everything that expects course files, but
+ * note that only the name of the file is used, as the course's key, and
+ * that no such file exists. The subjects and the last instructor are still
+ * saved as JSON.</p>
+ *
+ * @author Richard McKenna
+ */
+public class LogCourseFileManager extends JsonCourseFileManager {
+    // THE EXTENSION OF THE PATHS WE USE FOR COURSES
+    public static final String LOG_EXT = ".csbl";
+
+    // THE NAMES OF OUR FILES IN THE COURSES DIRECTORY
+    public static final String LOG_FILE_NAME = "courses.csblog";
+    public static final String CHECKPOINT_FILE_NAME = "courses.csblog.checkpoint";
+    static final String COMPACT_FILE_NAME = "courses.csblog.compact";
+
+    // THESE START THE LOG, THE CHECKPOINT, AND EVERY RECORD
+    static final int LOG_MAGIC = 0x4353424C;
+    static final int CHECKPOINT_MAGIC = 0x43534249;
+    static final int RECORD_MAGIC = 0x43534252;
+    static final int LOG_VERSION = 1;
+
+    // THE LOG'S HEADER IS ITS MAGIC, VERSION AND GENERATION, WHICH GOES
+    // UP EVERY TIME IT'S COMPACTED SO A CHECKPOINT CAN'T BE USED WITH
+    // THE WRONG LOG
+    static final int LOG_HEADER_SIZE = 4 + 4 + 8;
+
+    // A RECORD IS ITS MAGIC, KEY LENGTH AND VALUE LENGTH, THEN THE
+    // KEY AND VALUE, AND THEN A CHECKSUM OF THE KEY AND VALUE
+    static final int RECORD_HEADER_SIZE = 4 + 4 + 4;
+    static final int RECORD_TRAILER_SIZE = 4;
+    static final int MAX_KEY_LENGTH = 1024;
+    static final int MAX_VALUE_LENGTH = 1 << 24;
+
+    // HOW MANY RECORDS WE APPEND BETWEEN CHECKPOINTS
+    static final int CHECKPOINT_INTERVAL = 1000;
+
+    // WE COMPACT ONCE THE LOG IS AT LEAST THIS BIG AND AT LEAST
+    // THIS MUCH OF IT IS OLD RECORDS
+    static final long COMPACTION_MIN_LOG_SIZE = 1 << 20;
+    static final double COMPACTION_GARBAGE_RATIO = 0.5;
+
+    // THE DIRECTORY WITH OUR FILES, AND THE FILES THEMSELVES
+    File coursesDir;
+    File logFile;
+    File checkpointFile;
+
+    // THE OPEN LOG, HOW MUCH OF IT HAS BEEN WRITTEN, AND ITS GENERATION,
+    // NOTE THAT THE LOG IS ONLY OPENED WHEN IT'S FIRST NEEDED
+    FileChannel logChannel;
+    long logSize;
+    long generation;
+
+    // THE LOG MAPPED INTO MEMORY FOR READING, RECORDS APPENDED SINCE IT
+    // WAS MAPPED ARE JUST READ, UNTIL THERE ARE AS MANY BYTES OF THEM AS
+    // ARE MAPPED, AND THEN THE WHOLE LOG IS MAPPED AGAIN
+    MappedByteBuffer mappedLog;
+
+    // WHERE THE LATEST RECORD OF EACH COURSE IS, KEYED BY COURSE
+    HashMap<String, RecordLocation> index;
+
+    // HOW MANY BYTES OF THE LOG ARE TAKEN UP BY LIVE RECORDS
+    long liveBytes;
+
+    // HOW MANY RECORDS HAVE BEEN APPENDED SINCE THE LAST CHECKPOINT,
+    // AND WHETHER ANY OF THEM STILL HAVE TO BE FORCED TO DISK
+    int appendsSinceCheckpoint;
+    boolean unforcedAppends;
+
+    // COMPACTION RUNS ON THIS, AND ONLY ONE RUNS AT A TIME
+    ExecutorService compactionExecutor;
+    boolean compacting;
+
+    /**
+     * This constructor sets up a store in the usual courses directory.
+     */
+    public LogCourseFileManager() {
+        this(PATH_COURSES);
+    }
+
+    /**
+     * This constructor sets up a store in initCoursesDir. Note that
+     * nothing is read until a course is first saved or loaded.
+     *
+     * @param initCoursesDir Directory for the log and its checkpoint.
+     */
+    public LogCourseFileManager(String initCoursesDir) {
+        coursesDir = new File(initCoursesDir);
+        logFile = new File(coursesDir, LOG_FILE_NAME);
+        checkpointFile = new File(coursesDir, CHECKPOINT_FILE_NAME);
+        index = new HashMap();
+    }
+
+    /**
+     * This method saves all the data associated with a course by appending
+     * it to the log, after which it's what will be loaded for the course.
+     *
+     * @param courseToSave The course whose data we are saving.
+     * @param coursePath Path whose file name is the course's key.
+     *
+     * @throws IOException Thrown when the log can't be written.
+     */
+    @Override
+    public void saveCourse(Course courseToSave, String coursePath) throws IOException {
+        byte[] value = BinaryCourseCodec.encode(courseToSave);
+        boolean startCompaction;
+        synchronized (this) {
+            openLog();
+            String key = getKey(coursePath);
+            RecordLocation location = appendRecord(logChannel, logSize, key, value);
+            logSize += location.length;
+            if (fileWriter.getDurability() == Durability.ALWAYS) {
+                logChannel.force(false);
+            } else {
+                unforcedAppends = true;
+            }
+            RecordLocation oldLocation = index.put(key, location);
+            liveBytes += location.length - ((oldLocation == null) ? 0 : oldLocation.length);
+            appendsSinceCheckpoint++;
+            if (appendsSinceCheckpoint >= CHECKPOINT_INTERVAL) {
+                saveCheckpoint();
+            }
+            startCompaction = needsCompaction();
+            if (startCompaction) {
+                compacting = true;
+            }
+        }
+        if (startCompaction) {
+            compactInBackground();
+        }
+    }
+
+    /**
+     * Loads the courseToLoad argument using the latest record for the
+     * course in the log.
+     *
+     * @param courseToLoad Course to load.
+     * @param coursePath Path whose file name is the course's key.
+     *
+     * @throws IOException Thrown when IO fails or the course isn't in the log.
+     */
+    @Override
+    public void loadCourse(Course courseToLoad, String coursePath) throws IOException {
+        String key = getKey(coursePath);
+        byte[] value = readLatestValue(key);
+        try {
+            BinaryCourseCodec.decode(value, courseToLoad);
+        } catch (IOException ioe) {
+            throw new IOException(key + ": " + ioe.getMessage());
+        }
+    }
+
+    /**
+     * Loads just the header of the latest record for the course in the
+     * log, for listing and searching courses.
+     *
+     * @param coursePath Path whose file name is the course's key.
+     *
+     * @return The course's header.
+     *
+     * @throws IOException Thrown when IO fails or the course isn't in the log.
+     */
+    @Override
+    public CourseHeader loadCourseHeader(String coursePath) throws IOException {
+        String key = getKey(coursePath);
+        byte[] value = readLatestValue(key);
+        try {
+            return BinaryCourseCodec.decodeHeader(value);
+        } catch (IOException ioe) {
+            throw new IOException(key + ": " + ioe.getMessage());
+        }
+    }
+
+    /**
+     * Provides the extension of the paths used for courses.
+     *
+     * @return The extension of log course paths.
+     */
+    @Override
+    public String getCourseFileExtension() {
+        return LOG_EXT;
+    }
+
+    /**
+     * Provides the paths of all the courses in the log, like those
+     * provided by getCourseFilePath.
+     *
+     * @return The path of every course, in order.
+     *
+     * @throws IOException Thrown when the log can't be opened.
+     */
+    public synchronized List<String> getCourseFilePaths() throws IOException {
+        openLog();
+        ArrayList<String> coursePaths = new ArrayList();
+        for (String key : index.keySet()) {
+            coursePaths.add(new File(coursesDir, key + LOG_EXT).getPath());
+        }
+        Collections.sort(coursePaths);
+        return coursePaths;
+    }
+
+    /**
+     * Provides the paths of all the courses in the log. Note that a log
+     * only has the courses of its own directory, so coursesDir is ignored.
+     *
+     * @param coursesDir Directory the courses are kept in.
+     *
+     * @return The path of every course, in order.
+     *
+     * @throws IOException Thrown when the log can't be opened.
+     */
+    @Override
+    public List<String> getCourseFilePaths(String coursesDir) throws IOException {
+        return getCourseFilePaths();
+    }
+
+    /**
+     * Provides where the latest record of a course is in the log, which
+     * changes every time the course is saved or the log is compacted.
+     *
+     * @param coursePath Path whose file name is the course's key.
+     *
+     * @return Where the course's record starts in the log, or -1 if the
+     * course isn't in the log.
+     *
+     * @throws IOException Thrown when the log can't be opened.
+     */
+    public synchronized long getRecordOffset(String coursePath) throws IOException {
+        openLog();
+        RecordLocation location = index.get(getKey(coursePath));
+        return (location == null) ? -1 : location.offset;
+    }
+
+    /**
+     * Provides how many times the log has been compacted, since
+     * compaction moves every record.
+     *
+     * @return The generation of the log.
+     *
+     * @throws IOException Thrown when the log can't be opened.
+     */
+    public synchronized long getGeneration() throws IOException {
+        openLog();
+        return generation;
+    }
+
+    /**
+     * Provides the state of a course, which is where its latest record
+     * is in the log and the generation of the log, since saving the
+     * course moves its record, and so does compacting the log.
+     *
+     * @param coursePath Path whose file name is the course's key.
+     *
+     * @return Where the course's record starts, or -1 if the course isn't
+     * in the log, and the log's generation.
+     *
+     * @throws IOException Thrown when the log can't be opened.
+     */
+    @Override
+    public synchronized long[] getCourseState(String coursePath) throws IOException {
+        openLog();
+        RecordLocation location = index.get(getKey(coursePath));
+        return new long[] {(location == null) ? -1 : location.offset, generation};
+    }
+
+    /**
+     * Provides the state of every course in the log, like getCourseState
+     * does for one course. Note that a log only has the courses of its own
+     * directory, so coursesDir is ignored.
+     *
+     * @param coursesDir Directory the courses are kept in.
+     *
+     * @return The state of each course, keyed by the path
+     * getCourseFilePaths provides for it, in order.
+     *
+     * @throws IOException Thrown when the log can't be opened.
+     */
+    @Override
+    public synchronized Map<String, long[]> getCourseStates(String coursesDir) throws IOException {
+        openLog();
+        TreeMap<String, long[]> courseStates = new TreeMap();
+        for (Map.Entry<String, RecordLocation> entry : index.entrySet()) {
+            courseStates.put(new File(this.coursesDir, entry.getKey() + LOG_EXT).getPath(),
+                    new long[] {entry.getValue().offset, generation});
+        }
+        return courseStates;
+    }
+
+    /**
+     * Provides how many bytes of the log are used, including the old
+     * records that compaction will get rid of.
+     *
+     * @return The size of the log, in bytes.
+     *
+     * @throws IOException Thrown when the log can't be opened.
+     */
+    public synchronized long getLogSize() throws IOException {
+        openLog();
+        return logSize;
+    }
+
+    /**
+     * Rewrites the log with only the latest record of each course. Note
+     * that courses may still be saved and loaded while this runs.
+     *
+     * @throws IOException Thrown when the new log can't be written.
+     */
+    public void compact() throws IOException {
+        synchronized (this) {
+            if (compacting) {
+                return;
+            }
+            openLog();
+            compacting = true;
+        }
+        runCompaction();
+    }
+
+    /**
+     * Writes a checkpoint, makes sure everything appended is on disk, and
+     * closes the log, waiting for any compaction to finish first. The log
+     * is opened again if it's needed after this.
+     *
+     * @throws IOException Thrown when the log can't be forced or closed.
+     */
+    @Override
+    public void close() throws IOException {
+        ExecutorService executor;
+        synchronized (this) {
+            executor = compactionExecutor;
+            compactionExecutor = null;
+        }
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            if (logChannel != null) {
+                saveCheckpoint();
+                logChannel.close();
+                logChannel = null;
+                mappedLog = null;
+            }
+        }
+    }
+
+    // BELOW ARE THE PRIVATE HELPER METHODS
+
+    // GETS A COURSE'S KEY FROM ITS PATH, WHICH IS THE NAME OF THE FILE
+    private String getKey(String coursePath) {
+        String key = new File(coursePath).getName();
+        if (key.endsWith(LOG_EXT)) {
+            key = key.substring(0, key.length() - LOG_EXT.length());
+        }
+        return key;
+    }
+
+    // OPENS THE LOG IF IT ISN'T OPEN YET, MAKING IT IF THERE ISN'T ONE,
+    // AND REBUILDS THE INDEX FROM THE CHECKPOINT AND WHAT CAME AFTER IT
+    private void openLog() throws IOException {
+        if (logChannel != null) {
+            return;
+        }
+        coursesDir.mkdirs();
+        FileChannel channel = FileChannel.open(logFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() < LOG_HEADER_SIZE) {
+                // A NEW LOG
+                generation = 0;
+                writeLogHeader(channel, generation);
+                channel.force(true);
+                index.clear();
+                liveBytes = 0;
+                logSize = LOG_HEADER_SIZE;
+            } else {
+                ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_SIZE);
+                readFully(channel, header, 0);
+                header.flip();
+                if ((header.getInt() != LOG_MAGIC) || (header.getInt() != LOG_VERSION)) {
+                    throw new IOException(logFile + " is not a course log we can read");
+                }
+                generation = header.getLong();
+                long scanFrom = loadCheckpoint(channel.size());
+                logSize = scanRecords(channel, scanFrom);
+
+                // ANYTHING AFTER THE LAST WHOLE RECORD WAS CUT
+                // SHORT BY A CRASH, SO WE GET RID OF IT
+                if (logSize < channel.size()) {
+                    channel.truncate(logSize);
+                }
+            }
+        } catch (IOException ioe) {
+            channel.close();
+            throw ioe;
+        }
+        logChannel = channel;
+        mappedLog = null;
+        appendsSinceCheckpoint = 0;
+        unforcedAppends = false;
+    }
+
+    // LOADS THE CHECKPOINT, IF IT'S FOR THIS LOG, AND PROVIDES HOW FAR INTO
+    // THE LOG IT COVERS, WHICH IS WHERE WE START READING RECORDS FROM
+    private long loadCheckpoint(long channelSize) {
+        index.clear();
+        liveBytes = 0;
+        if (!checkpointFile.exists()) {
+            return LOG_HEADER_SIZE;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(checkpointFile)))) {
+            if ((in.readInt() != CHECKPOINT_MAGIC) || (in.readLong() != generation)) {
+                return LOG_HEADER_SIZE;
+            }
+            long coveredSize = in.readLong();
+            if (coveredSize > channelSize) {
+                return LOG_HEADER_SIZE;
+            }
+            int numEntries = in.readInt();
+            for (int i = 0; i < numEntries; i++) {
+                String key = in.readUTF();
+                RecordLocation location = new RecordLocation(in.readLong(), in.readInt(), in.readInt());
+                index.put(key, location);
+                liveBytes += location.length;
+            }
+            return coveredSize;
+        } catch (IOException ioe) {
+            // A DAMAGED CHECKPOINT, SO WE READ THE WHOLE LOG INSTEAD
+            index.clear();
+            liveBytes = 0;
+            return LOG_HEADER_SIZE;
+        }
+    }
+
+    // SAVES THE INDEX, AND HOW MUCH OF THE LOG IT COVERS, TO THE CHECKPOINT,
+    // MAKING SURE THE LOG IS ON DISK FIRST SO THE CHECKPOINT NEVER POINTS
+    // TO RECORDS THAT A CRASH COULD LOSE
+    private void saveCheckpoint() throws IOException {
+        if (unforcedAppends) {
+            logChannel.force(false);
+            unforcedAppends = false;
+        }
+        try (AtomicFileWriter.AtomicOutput output = fileWriter.open(checkpointFile.getPath())) {
+            DataOutputStream out = new DataOutputStream(output.getOutputStream());
+            out.writeInt(CHECKPOINT_MAGIC);
+            out.writeLong(generation);
+            out.writeLong(logSize);
+            out.writeInt(index.size());
+            for (Map.Entry<String, RecordLocation> entry : index.entrySet()) {
+                RecordLocation location = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeLong(location.offset);
+                out.writeInt(location.length);
+                out.writeInt(location.keyLength);
+            }
+            out.flush();
+            output.commit();
+        }
+        appendsSinceCheckpoint = 0;
+    }
+
+    // READS EVERY WHOLE RECORD FROM position ON INTO THE INDEX, PROVIDING
+    // WHERE THE LAST WHOLE RECORD ENDS
+    private long scanRecords(FileChannel channel, long position) throws IOException {
+        long channelSize = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        while (position + RECORD_HEADER_SIZE + RECORD_TRAILER_SIZE <= channelSize) {
+            header.clear();
+            readFully(channel, header, position);
+            header.flip();
+            int magic = header.getInt();
+            int keyLength = header.getInt();
+            int valueLength = header.getInt();
+            if ((magic != RECORD_MAGIC) || (keyLength < 0) || (keyLength > MAX_KEY_LENGTH)
+                    || (valueLength < 0) || (valueLength > MAX_VALUE_LENGTH)) {
+                break;
+            }
+            int length = RECORD_HEADER_SIZE + keyLength + valueLength + RECORD_TRAILER_SIZE;
+            if (position + length > channelSize) {
+                break;
+            }
+            ByteBuffer body = ByteBuffer.allocate(keyLength + valueLength + RECORD_TRAILER_SIZE);
+            readFully(channel, body, position + RECORD_HEADER_SIZE);
+            body.flip();
+            CRC32 crc = new CRC32();
+            crc.update(body.array(), 0, keyLength + valueLength);
+            if ((int) crc.getValue() != body.getInt(keyLength + valueLength)) {
+                break;
+            }
+            String key = new String(body.array(), 0, keyLength, StandardCharsets.UTF_8);
+            RecordLocation location = new RecordLocation(position, length, keyLength);
+            RecordLocation oldLocation = index.put(key, location);
+            liveBytes += length - ((oldLocation == null) ? 0 : oldLocation.length);
+            position += length;
+        }
+        return position;
+    }
+
+    // APPENDS A RECORD AT position IN channel, PROVIDING WHERE IT WENT
+    private static RecordLocation appendRecord(FileChannel channel, long position, String key, byte[] value)
+            throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        if (keyBytes.length > MAX_KEY_LENGTH) {
+            throw new IOException("Course key too long: " + key);
+        }
+        int length = RECORD_HEADER_SIZE + keyBytes.length + value.length + RECORD_TRAILER_SIZE;
+        ByteBuffer record = ByteBuffer.allocate(length);
+        record.putInt(RECORD_MAGIC);
+        record.putInt(keyBytes.length);
+        record.putInt(value.length);
+        record.put(keyBytes);
+        record.put(value);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), RECORD_HEADER_SIZE, keyBytes.length + value.length);
+        record.putInt((int) crc.getValue());
+        record.flip();
+        while (record.hasRemaining()) {
+            position += channel.write(record, position);
+        }
+        return new RecordLocation(position - length, length, keyBytes.length);
+    }
+
+    // READS THE VALUE OF THE LATEST RECORD FOR THE COURSE WITH key
+    private synchronized byte[] readLatestValue(String key) throws IOException {
+        openLog();
+        RecordLocation location = index.get(key);
+        if (location == null) {
+            throw new IOException("No course " + key + " in " + logFile);
+        }
+        return readValue(location);
+    }
+
+    // READS THE VALUE OF A RECORD, THROUGH THE MAPPED LOG IF WE CAN
+    private byte[] readValue(RecordLocation location) throws IOException {
+        int valueLength = location.length - RECORD_HEADER_SIZE - location.keyLength - RECORD_TRAILER_SIZE;
+        long valueOffset = location.offset + RECORD_HEADER_SIZE + location.keyLength;
+        byte[] value = new byte[valueLength];
+        if (logSize <= Integer.MAX_VALUE) {
+            // ONLY MAP THE LOG AGAIN ONCE WHAT'S BEEN APPENDED SINCE IS AS
+            // BIG AS WHAT'S MAPPED, SO SAVING AND LOADING ONE COURSE OVER
+            // AND OVER DOESN'T MAP THE WHOLE LOG EVERY TIME
+            if ((mappedLog == null) || (logSize - mappedLog.limit() >= mappedLog.limit())) {
+                mappedLog = logChannel.map(FileChannel.MapMode.READ_ONLY, 0, logSize);
+            }
+            if (location.offset + location.length <= mappedLog.limit()) {
+                ByteBuffer view = mappedLog.duplicate();
+                view.position((int) valueOffset);
+                view.get(value);
+                return value;
+            }
+        }
+        // IT'S PAST THE MAPPED PART, OR THE LOG IS TOO BIG TO
+        // MAP IN ONE PIECE, SO WE JUST READ IT
+        readFully(logChannel, ByteBuffer.wrap(value), valueOffset);
+        return value;
+    }
+
+    // TESTS TO SEE IF ENOUGH OF THE LOG IS OLD RECORDS TO BE WORTH COMPACTING
+    private boolean needsCompaction() {
+        return !compacting && (logSize >= COMPACTION_MIN_LOG_SIZE)
+                && ((logSize - LOG_HEADER_SIZE - liveBytes) >= (logSize * COMPACTION_GARBAGE_RATIO));
+    }
+
+    // RUNS A COMPACTION THAT HAS ALREADY BEEN MARKED AS STARTED
+    private void runCompaction() throws IOException {
+        try {
+            compactLog();
+        } finally {
+            synchronized (this) {
+                compacting = false;
+            }
+        }
+    }
+
+    // STARTS A COMPACTION THAT HAS ALREADY BEEN MARKED AS STARTED
+    // ON OUR BACKGROUND THREAD
+    private synchronized void compactInBackground() {
+        if (compactionExecutor == null) {
+            compactionExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "Course Log Compaction");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        compactionExecutor.execute(() -> {
+            try {
+                runCompaction();
+            } catch (IOException ioe) {
+                // THE OLD LOG IS STILL FINE, SO WE'LL JUST TRY AGAIN LATER
+            }
+        });
+    }
+
+    // COPIES THE LATEST RECORD OF EACH COURSE INTO A NEW LOG AND SWAPS IT IN.
+    // MOST OF THE COPYING IS DONE WITHOUT HOLDING THE LOCK, THEN ONCE IT'S
+    // HELD AGAIN WE COPY WHATEVER WAS SAVED IN THE MEANTIME AND SWAP
+    private void compactLog() throws IOException {
+        // TAKE A SNAPSHOT OF WHAT'S LIVE RIGHT NOW
+        HashMap<String, RecordLocation> snapshot;
+        long snapshotSize;
+        long newGeneration;
+        FileChannel oldChannel;
+        synchronized (this) {
+            snapshot = new HashMap(index);
+            snapshotSize = logSize;
+            newGeneration = generation + 1;
+            oldChannel = logChannel;
+        }
+
+        File compactFile = new File(coursesDir, COMPACT_FILE_NAME);
+        FileChannel newChannel = FileChannel.open(compactFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        boolean swapped = false;
+        try {
+            writeLogHeader(newChannel, newGeneration);
+            long newSize = LOG_HEADER_SIZE;
+            HashMap<String, RecordLocation> newIndex = new HashMap();
+            for (Map.Entry<String, RecordLocation> entry : snapshot.entrySet()) {
+                newSize = copyRecord(oldChannel, entry.getValue(), newChannel, newSize, entry.getKey(), newIndex);
+            }
+
+            synchronized (this) {
+                if (logChannel != oldChannel) {
+                    // THE LOG WAS CLOSED WHILE WE WERE COPYING IT
+                    return;
+                }
+
+                // BRING OVER ANYTHING SAVED SINCE THE SNAPSHOT
+                for (Map.Entry<String, RecordLocation> entry : index.entrySet()) {
+                    if (entry.getValue().offset >= snapshotSize) {
+                        newSize = copyRecord(logChannel, entry.getValue(), newChannel, newSize, entry.getKey(), newIndex);
+                    }
+                }
+                newChannel.force(true);
+
+                // AND SWAP IN THE NEW LOG
+                try {
+                    Files.move(compactFile.toPath(), logFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException amnse) {
+                    Files.move(compactFile.toPath(), logFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+                swapped = true;
+                logChannel.close();
+                logChannel = newChannel;
+                mappedLog = null;
+                generation = newGeneration;
+                logSize = newSize;
+                index = newIndex;
+                liveBytes = 0;
+                for (RecordLocation location : index.values()) {
+                    liveBytes += location.length;
+                }
+                unforcedAppends = false;
+                saveCheckpoint();
+            }
+        } finally {
+            if (!swapped) {
+                newChannel.close();
+                Files.deleteIfExists(compactFile.toPath());
+            }
+        }
+    }
+
+    // COPIES ONE RECORD FROM ONE LOG TO THE END OF ANOTHER, ADDING IT TO
+    // newIndex AND PROVIDING WHERE THE NEW LOG NOW ENDS
+    private static long copyRecord(FileChannel fromChannel, RecordLocation location,
+            FileChannel toChannel, long toPosition, String key, HashMap<String, RecordLocation> newIndex)
+            throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(location.length);
+        readFully(fromChannel, record, location.offset);
+        record.flip();
+        long position = toPosition;
+        while (record.hasRemaining()) {
+            position += toChannel.write(record, position);
+        }
+        newIndex.put(key, new RecordLocation(toPosition, location.length, location.keyLength));
+        return position;
+    }
+
+    // WRITES THE HEADER THAT STARTS A LOG
+    private static void writeLogHeader(FileChannel channel, long logGeneration) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_SIZE);
+        header.putInt(LOG_MAGIC);
+        header.putInt(LOG_VERSION);
+        header.putLong(logGeneration);
+        header.flip();
+        long position = 0;
+        while (header.hasRemaining()) {
+            position += channel.write(header, position);
+        }
+    }
+
+    // FILLS buffer FROM channel STARTING AT position
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int bytesRead = channel.read(buffer, position);
+            if (bytesRead < 0) {
+                throw new IOException("Unexpected end of course log");
+            }
+            position += bytesRead;
+        }
+    }
+
+    /**
+     * This is where a record is in the log.
+     */
+    static class RecordLocation {
+        long offset;
+        int length;
+        int keyLength;
+
+        RecordLocation(long initOffset, int initLength, int initKeyLength) {
+            offset = initOffset;
+            length = initLength;
+            keyLength = initKeyLength;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package csb.file;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import properties_manager.PropertiesManager;
+
+/**
+ * This class keeps a snapshot of the properties loaded from properties.xml,
+ * so later launches don't have to parse it and validate it against its
+ * schema all over again, which is one of the slowest parts of starting up.
+ * The snapshot is a compact file next to properties.xml that records every
+ * property's name and value, along with SHA-256 hashes of properties.xml and
+ * the schema, so it's only used while neither file has changed. A missing,
+ * stale or damaged snapshot is simply ignored, and the properties are loaded
+ * and validated the usual way, after which a new snapshot is saved.
+ *
+ * <p>Note that the snapshot only holds plain properties, so if properties.xml
+ * has any property options no snapshot is saved, and they're always loaded
+ * the usual way.</p>
+ *
+ * @author Richard McKenna
+ */
+public class PropertiesSnapshot {
+    // THE FILE IN THE DATA DIRECTORY WHERE WE KEEP THE SNAPSHOT
+    public static final String SNAPSHOT_FILE_NAME = ".properties_snapshot";
+
+    // THESE START THE SNAPSHOT FILE, SO WE KNOW IT'S ONE WE CAN READ
+    static final int SNAPSHOT_MAGIC = 0x43534250;
+    static final int SNAPSHOT_VERSION = 1;
+
+    // THE NAMES IN properties.xml WE LOOK FOR
+    static final String XML_PROPERTY = "property";
+    static final String XML_PROPERTY_OPTIONS = "property_options";
+    static final String XML_NAME = "name";
+
+    // THE FILES THE PROPERTIES COME FROM, AND WHERE THE SNAPSHOT GOES
+    File propertiesFile;
+    File schemaFile;
+    File snapshotFile;
+
+    // THE HASHES OF properties.xml AND THE SCHEMA, WHICH WE ONLY WORK OUT
+    // ONCE, BEFORE THE PROPERTIES ARE LOADED, SO IF A FILE CHANGES WHILE
+    // THEY'RE BEING LOADED THE SNAPSHOT WE SAVE WON'T MATCH IT
+    byte[] propertiesHash;
+    byte[] schemaHash;
+
+    // THE SNAPSHOT DOESN'T NEED TO REACH THE DISK, SINCE
+    // WE CAN ALWAYS MAKE IT AGAIN
+    AtomicFileWriter fileWriter;
+
+    /**
+     * This constructor sets up a snapshot of the properties in the data
+     * directory, without reading anything yet.
+     *
+     * @param dataPath The directory with properties.xml and its schema.
+     * @param propertiesFileName The name of the properties file.
+     * @param schemaFileName The name of the properties file's schema.
+     */
+    public PropertiesSnapshot(String dataPath, String propertiesFileName, String schemaFileName) {
+        propertiesFile = new File(dataPath, propertiesFileName);
+        schemaFile = new File(dataPath, schemaFileName);
+        snapshotFile = new File(dataPath, SNAPSHOT_FILE_NAME);
+        fileWriter = new AtomicFileWriter(Durability.NONE);
+    }
+
+    /**
+     * Loads the properties in the snapshot, as long as properties.xml
+     * and its schema haven't changed since it was saved.
+     *
+     * @return Every property's value, keyed by its name, or null if there's
+     * no snapshot we can use, in which case the properties must be loaded
+     * the usual way.
+     */
+    public Map<String, String> load() {
+        try {
+            propertiesHash = hash(propertiesFile);
+            schemaHash = hash(schemaFile);
+        } catch (IOException ioe) {
+            // LET THE USUAL LOADING REPORT WHAT'S WRONG WITH THE FILES
+            return null;
+        }
+        if (!snapshotFile.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotFile)))) {
+            if ((in.readInt() != SNAPSHOT_MAGIC) || (in.readInt() != SNAPSHOT_VERSION)) {
+                return null;
+            }
+            byte[] savedPropertiesHash = new byte[propertiesHash.length];
+            byte[] savedSchemaHash = new byte[schemaHash.length];
+            in.readFully(savedPropertiesHash);
+            in.readFully(savedSchemaHash);
+            if (!Arrays.equals(savedPropertiesHash, propertiesHash) || !Arrays.equals(savedSchemaHash, schemaHash)) {
+                // ONE OF THE FILES HAS CHANGED
+                return null;
+            }
+            int numProperties = in.readInt();
+            LinkedHashMap<String, String> properties = new LinkedHashMap();
+            for (int i = 0; i < numProperties; i++) {
+                String name = in.readUTF();
+                properties.put(name, in.readUTF());
+            }
+            return properties;
+        } catch (IOException ioe) {
+            // IT'S DAMAGED, SO WE'LL JUST MAKE A NEW ONE
+            return null;
+        }
+    }
+
+    /**
+     * Saves a snapshot of every property in properties.xml, with the values
+     * props has for them. This should be called right after props has loaded
+     * and validated properties.xml, and only after load has been called,
+     * since the snapshot is saved with the hashes load worked out.
+     *
+     * @param props The properties loaded from properties.xml.
+     *
+     * @return true if the snapshot was saved, false if properties.xml has
+     * something the snapshot can't hold.
+     *
+     * @throws IOException Thrown when properties.xml can't be read or the
+     * snapshot can't be saved.
+     */
+    public boolean save(PropertiesManager props) throws IOException {
+        if ((propertiesHash == null) || (schemaHash == null)) {
+            throw new IOException("No hashes to save " + snapshotFile + " with");
+        }
+
+        // properties.xml HAS ALREADY BEEN VALIDATED, SO ALL WE
+        // NEED FROM IT NOW ARE THE NAMES OF ITS PROPERTIES
+        LinkedHashMap<String, String> properties = new LinkedHashMap();
+        byte[] propertiesBytes = Files.readAllBytes(propertiesFile.toPath());
+        try {
+            XMLStreamReader reader = XMLInputFactory.newInstance()
+                    .createXMLStreamReader(new ByteArrayInputStream(propertiesBytes));
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                        continue;
+                    }
+                    if (reader.getLocalName().equals(XML_PROPERTY_OPTIONS)) {
+                        return false;
+                    } else if (reader.getLocalName().equals(XML_PROPERTY)) {
+                        String name = reader.getAttributeValue(null, XML_NAME);
+                        String value = (name == null) ? null : props.getProperty(name);
+                        if (value == null) {
+                            return false;
+                        }
+                        properties.put(name, value);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException xmlse) {
+            throw new IOException(propertiesFile + ": " + xmlse.getMessage());
+        }
+
+        try (AtomicFileWriter.AtomicOutput output = fileWriter.open(snapshotFile.getPath())) {
+            DataOutputStream out = new DataOutputStream(output.getOutputStream());
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.write(propertiesHash);
+            out.write(schemaHash);
+            out.writeInt(properties.size());
+            for (Map.Entry<String, String> property : properties.entrySet()) {
+                out.writeUTF(property.getKey());
+                out.writeUTF(property.getValue());
+            }
+            out.flush();
+            output.commit();
+        }
+        return true;
+    }
+
+    // BELOW ARE THE PRIVATE HELPER METHODS
+
+    // WORKS OUT THE SHA-256 HASH OF A FILE'S CONTENTS
+    private static byte[] hash(File file) throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(file.toPath()));
+        } catch (NoSuchAlgorithmException nsae) {
+            // EVERY JAVA PLATFORM HAS SHA-256
+            throw new IOException(nsae);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package csb.file;
+
+import static csb.file.CourseSiteExporter.*;
+import csb.data.CoursePage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import javax.swing.text.html.HTML;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+/**
+ * This class is a base page that has been compiled into a list of ready to
+ * write byte segments with slots in between them for the course-specific
+ * content. Since everything in a base page other than its slots is the same
+ * for every course, exporting a page just means writing these segments with
+ * each slot's content in between, without any parsing or DOM building.
+ * Note that once compiled, a SegmentTemplate never changes, so it may be
+ * used by many exports at once.
+ *
+ * @author Richard McKenna
+ */
+public class SegmentTemplate {
+    /**
+     * These are the places in a base page where course content goes.
+     */
+    public enum Slot {
+        TITLE,
+        NAVBAR,
+        BANNER,
+        SCHEDULE,
+        INSTRUCTOR_LINK
+    }
+
+    // WE PUT THESE AROUND A SLOT'S NAME TO MARK WHERE IT IS
+    // IN THE PAGE WHILE COMPILING
+    static final String SLOT_MARKER_START = "@@CSB_SLOT_";
+    static final String SLOT_MARKER_END = "@@";
+
+    // THE PARTS OF THE PAGE THAT NEVER CHANGE, NOTE THAT THERE
+    // IS ALWAYS ONE MORE SEGMENT THAN THERE ARE SLOTS
+    ByteBuffer[] segments;
+
+    // THE SLOTS THAT GO BETWEEN THE SEGMENTS
+    Slot[] slots;
+
+    // ONLY COMPILE CAN MAKE THESE
+    private SegmentTemplate(ByteBuffer[] initSegments, Slot[] initSlots) {
+        segments = initSegments;
+        slots = initSlots;
+    }
+
+    /**
+     * Compiles the templateDoc base page into segments and slots. Note that
+     * every slot must be found exactly where we expect it, if not the base
+     * page is rejected here rather than when a course is exported.
+     *
+     * @param templateDoc The base page to compile, note that it will be
+     * changed by compiling it.
+     * @param requiredSlots The slots this page must have.
+     *
+     * @return The compiled template.
+     *
+     * @throws IOException Thrown when the base page is missing a slot,
+     * has a slot on the wrong type of element, or can't be written.
+     */
+    public static SegmentTemplate compile(Document templateDoc, Slot... requiredSlots) throws IOException {
+        // FIRST MARK EVERY SLOT THE PAGE NEEDS
+        for (Slot slot : requiredSlots) {
+            Node slotNode = findSlotNode(templateDoc, slot);
+            String marker = SLOT_MARKER_START + slot + SLOT_MARKER_END;
+            if (slot == Slot.TITLE) {
+                slotNode.setTextContent(marker);
+            } else {
+                slotNode.appendChild(templateDoc.createTextNode(marker));
+            }
+        }
+
+        // THEN WRITE THE PAGE THE SAME WAY THE DOM EXPORTER WOULD
+        String page;
+        try {
+            Transformer transformer = TransformerFactory.newInstance().newTransformer();
+            setOutputProperties(transformer);
+            ByteArrayOutputStream pageBytes = new ByteArrayOutputStream();
+            transformer.transform(new DOMSource(templateDoc), new StreamResult(pageBytes));
+            page = new String(pageBytes.toByteArray(), StandardCharsets.UTF_8);
+        } catch (TransformerException te) {
+            throw new IOException(te.getMessage());
+        }
+
+        // AND CUT IT UP AT THE MARKERS
+        ArrayList<ByteBuffer> segmentsList = new ArrayList();
+        ArrayList<Slot> slotsList = new ArrayList();
+        int segmentStart = 0;
+        int markerStart = page.indexOf(SLOT_MARKER_START);
+        while (markerStart >= 0) {
+            int nameStart = markerStart + SLOT_MARKER_START.length();
+            int nameEnd = page.indexOf(SLOT_MARKER_END, nameStart);
+            Slot slot;
+            try {
+                slot = Slot.valueOf(page.substring(nameStart, nameEnd));
+            } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                throw new IOException("Unknown slot marker in base page at " + markerStart);
+            }
+            segmentsList.add(encode(page.substring(segmentStart, markerStart)));
+            slotsList.add(slot);
+            segmentStart = nameEnd + SLOT_MARKER_END.length();
+            markerStart = page.indexOf(SLOT_MARKER_START, segmentStart);
+        }
+        segmentsList.add(encode(page.substring(segmentStart)));
+
+        // MAKE SURE WE FOUND EACH SLOT EXACTLY ONCE
+        if (slotsList.size() != requiredSlots.length) {
+            throw new IOException("Base page has " + slotsList.size()
+                    + " slots but " + requiredSlots.length + " were expected");
+        }
+        return new SegmentTemplate(
+                segmentsList.toArray(new ByteBuffer[segmentsList.size()]),
+                slotsList.toArray(new Slot[slotsList.size()]));
+    }
+
+    /**
+     * Writes a page of a course's site to outputFilePath, which is done
+     * with a single gather-write of our segments and the course's content.
+     *
+     * @param fragments The already built content of the course's pages.
+     * @param currentPage The page being written, used for the navbar.
+     * @param fileWriter The writer the page is written through.
+     * @param outputFilePath Path of the file to write.
+     *
+     * @throws IOException Thrown when the file can't be written.
+     */
+    public void render(CourseFragments fragments, CoursePage currentPage,
+            AtomicFileWriter fileWriter, String outputFilePath) throws IOException {
+        // PUT THE SEGMENTS AND SLOT CONTENT TOGETHER IN ORDER
+        ByteBuffer[] page = new ByteBuffer[segments.length + slots.length];
+        for (int i = 0; i < slots.length; i++) {
+            page[2 * i] = segments[i].duplicate();
+            page[2 * i + 1] = fragments.getSlotHTML(slots[i], currentPage);
+        }
+        page[page.length - 1] = segments[segments.length - 1].duplicate();
+
+        // AND WRITE THEM ALL AT ONCE
+        try (AtomicFileWriter.AtomicOutput output = fileWriter.open(outputFilePath)) {
+            output.write(page);
+            output.commit();
+        }
+    }
+
+    // BELOW ARE THE PRIVATE HELPER METHODS
+
+    // FINDS THE NODE WHERE A SLOT'S CONTENT GOES
+    private static Node findSlotNode(Document doc, Slot slot) throws IOException {
+        Node slotNode;
+        if (slot == Slot.TITLE) {
+            slotNode = doc.getElementsByTagName(HTML.Tag.TITLE.toString()).item(0);
+        } else {
+            slotNode = getNodeWithId(doc, getSlotTag(slot), getSlotId(slot));
+        }
+        if (slotNode == null) {
+            throw new IOException("Base page is missing its " + slot + " slot");
+        }
+        if (slotNode.getTextContent().contains(SLOT_MARKER_START)) {
+            throw new IOException("Base page already has a marker in its " + slot + " slot");
+        }
+        return slotNode;
+    }
+
+    // THE id OF THE ELEMENT FOR EACH SLOT
+    private static String getSlotId(Slot slot) {
+        if (slot == Slot.NAVBAR) {
+            return ID_NAVBAR;
+        } else if (slot == Slot.BANNER) {
+            return ID_BANNER;
+        } else if (slot == Slot.SCHEDULE) {
+            return ID_SCHEDULE;
+        } else {
+            return ID_INSTRUCTOR_LINK;
+        }
+    }
+
+    // THE TYPE OF ELEMENT EACH SLOT MUST BE
+    private static String getSlotTag(Slot slot) {
+        if (slot == Slot.SCHEDULE) {
+            return HTML.Tag.TABLE.toString();
+        } else if (slot == Slot.INSTRUCTOR_LINK) {
+            return HTML.Tag.SPAN.toString();
+        } else {
+            return HTML.Tag.DIV.toString();
+        }
+    }
+
+    // TURNS TEXT INTO READ-ONLY UTF-8 BYTES READY FOR WRITING
+    static ByteBuffer encode(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer();
+    }
+}
@@ -0,0 +1,212 @@
+package csb.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class keeps a single copy of each site asset, like a stylesheet or
+ * image, no matter how many course sites use it. Each asset is stored under
+ * a name made from a digest of its contents, so identical files are only
+ * ever stored once. Course sites then get a hard link to the stored copy
+ * or, if the file system can't do that, a relative symbolic link, and if
+ * that doesn't work either, a plain copy.
+ *
+ * @author Richard McKenna
+ */
+public class SharedAssetStore {
+    // THE ALGORITHM WE USE FOR NAMING STORED ASSETS
+    static final String DIGEST_ALGORITHM = "SHA-256";
+
+    // USED FOR GETTING THE EXTENSION OF AN ASSET'S FILE NAME
+    static final String DOT = ".";
+
+    // THESE ARE THE WAYS AN ASSET MAY BE PLACED IN A COURSE SITE
+    public enum Placement {
+        HARD_LINK,
+        SYMBOLIC_LINK,
+        COPY
+    }
+
+    // THE DIRECTORY WHERE ALL THE STORED ASSETS GO
+    File storeDir;
+
+    // THE DIGESTS OF THE SOURCE FILES WE'VE ALREADY SEEN, SO WE
+    // DON'T HAVE TO READ A FILE AGAIN UNLESS IT CHANGES
+    ConcurrentHashMap<String, SourceDigest> sourceDigests;
+
+    // WHETHER THE FILE SYSTEM HAS LET US MAKE EACH TYPE OF LINK, ONCE
+    // ONE FAILS WE DON'T BOTHER TRYING IT AGAIN
+    volatile boolean hardLinksSupported;
+    volatile boolean symbolicLinksSupported;
+
+    /**
+     * This constructor sets up a store that keeps its assets in the
+     * initStoreDir directory, which is made if it doesn't exist yet.
+     * Note that for hard links to work this directory must be on the
+     * same file system as the course sites.
+     *
+     * @param initStoreDir Directory where the stored assets go.
+     */
+    public SharedAssetStore(String initStoreDir) {
+        storeDir = new File(initStoreDir);
+        sourceDigests = new ConcurrentHashMap();
+        hardLinksSupported = true;
+        symbolicLinksSupported = true;
+    }
+
+    /**
+     * Places the asset found at sourceFile at destinationFile, making sure
+     * the store has a copy first and then linking to it. Anything already
+     * found at destinationFile is replaced.
+     *
+     * @param sourceFile The asset, like a file in the base site.
+     * @param destinationFile Where the asset should be in a course site.
+     *
+     * @return How the asset was placed.
+     *
+     * @throws IOException Thrown when the asset can't be read, stored,
+     * linked or copied.
+     */
+    public Placement placeAsset(File sourceFile, File destinationFile) throws IOException {
+        Path storedPath = storeAsset(sourceFile);
+        Path destinationPath = destinationFile.toPath();
+        Files.deleteIfExists(destinationPath);
+
+        // A HARD LINK IS BEST SINCE IT LOOKS JUST LIKE A REAL FILE
+        if (hardLinksSupported) {
+            try {
+                Files.createLink(destinationPath, storedPath);
+                return Placement.HARD_LINK;
+            } catch (UnsupportedOperationException | IOException e) {
+                hardLinksSupported = false;
+            }
+        }
+
+        // NEXT BEST IS A RELATIVE LINK, WHICH STILL WORKS IF THE
+        // WHOLE SITES DIRECTORY IS MOVED SOMEWHERE ELSE
+        if (symbolicLinksSupported) {
+            try {
+                Path linkDir = destinationPath.toAbsolutePath().getParent();
+                Path target = linkDir.relativize(storedPath.toAbsolutePath());
+                Files.createSymbolicLink(destinationPath, target);
+                return Placement.SYMBOLIC_LINK;
+            } catch (UnsupportedOperationException | IOException e) {
+                symbolicLinksSupported = false;
+            }
+        }
+
+        // AND IF ALL ELSE FAILS WE JUST COPY IT
+        AssetSynchronizer.transferFile(storedPath, destinationPath);
+        return Placement.COPY;
+    }
+
+    /**
+     * Makes sure the store has a copy of the asset found at sourceFile. Note
+     * that the stored copy gets the same modification time as the original
+     * so that links to it look just like the original.
+     *
+     * @param sourceFile The asset to store.
+     *
+     * @return The path of the stored copy.
+     *
+     * @throws IOException Thrown when the asset can't be read or stored.
+     */
+    public Path storeAsset(File sourceFile) throws IOException {
+        String digest = getDigest(sourceFile);
+        File storedFile = new File(storeDir, digest + getExtension(sourceFile));
+        if (!storedFile.exists()) {
+            storeDir.mkdirs();
+
+            // WRITE IT UNDER A NAME NOBODY ELSE WILL USE AND THEN MOVE IT
+            // INTO PLACE, SO NOBODY EVER LINKS TO A HALF WRITTEN FILE
+            Path tempPath = AtomicFileWriter.makeTempPath(storedFile.toPath());
+            try {
+                AssetSynchronizer.transferFile(sourceFile.toPath(), tempPath);
+                Files.move(tempPath, storedFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException faee) {
+                // ANOTHER EXPORT STORED IT FIRST, WHICH IS FINE
+            } finally {
+                Files.deleteIfExists(tempPath);
+            }
+        } else {
+            // THE SAME CONTENTS MAY COME FROM A FILE THAT WAS TOUCHED SINCE WE
+            // STORED IT, SO KEEP THE TIMES MATCHING OR IT WOULD LOOK CHANGED
+            FileTime sourceTime = Files.getLastModifiedTime(sourceFile.toPath());
+            if (!sourceTime.equals(Files.getLastModifiedTime(storedFile.toPath()))) {
+                Files.setLastModifiedTime(storedFile.toPath(), sourceTime);
+            }
+        }
+        return storedFile.toPath();
+    }
+
+    // GETS THE DIGEST OF A SOURCE FILE, ONLY READING IT IF WE
+    // HAVEN'T YET OR IF IT HAS CHANGED SINCE WE DID
+    private String getDigest(File sourceFile) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(sourceFile.toPath(), BasicFileAttributes.class);
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        long size = attributes.size();
+        String key = sourceFile.getAbsolutePath();
+        SourceDigest sourceDigest = sourceDigests.get(key);
+        if ((sourceDigest == null)
+                || (sourceDigest.lastModified != lastModified)
+                || (sourceDigest.size != size)) {
+            sourceDigest = new SourceDigest(digestFile(sourceFile), lastModified, size);
+            sourceDigests.put(key, sourceDigest);
+        }
+        return sourceDigest.digest;
+    }
+
+    // READS THE WHOLE FILE TO MAKE ITS DIGEST
+    static String digestFile(File sourceFile) throws IOException {
+        try {
+            MessageDigest md = MessageDigest.getInstance(DIGEST_ALGORITHM);
+            byte[] buffer = new byte[8192];
+            try (InputStream is = new DigestInputStream(Files.newInputStream(sourceFile.toPath()), md)) {
+                while (is.read(buffer) >= 0) {
+                    // THE STREAM DIGESTS AS IT READS
+                }
+            }
+            StringBuilder hex = new StringBuilder();
+            for (byte b : md.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException nsae) {
+            // EVERY JAVA PLATFORM HAS TO SUPPORT SHA-256
+            throw new IllegalStateException(nsae);
+        }
+    }
+
+    // GETS THE EXTENSION OF A FILE'S NAME, LIKE .css, WHICH STORED FILES
+    // KEEP SO BROWSERS AND SERVERS STILL KNOW WHAT TYPE THEY ARE
+    private String getExtension(File file) {
+        String name = file.getName();
+        int dotIndex = name.lastIndexOf(DOT);
+        return (dotIndex > 0) ? name.substring(dotIndex) : "";
+    }
+
+    // THE DIGEST OF A SOURCE FILE ALONG WITH WHAT WE NEED TO
+    // KNOW ABOUT IT TO TELL WHEN IT'S OUT OF DATE
+    class SourceDigest {
+        String digest;
+        long lastModified;
+        long size;
+
+        SourceDigest(String initDigest, long initLastModified, long initSize) {
+            digest = initDigest;
+            lastModified = initLastModified;
+            size = initSize;
+        }
+    }
+}
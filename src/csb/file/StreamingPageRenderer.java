@@ -0,0 +1,358 @@
+package csb.file;
+
+import static csb.file.CourseSiteExporter.*;
+import csb.data.Course;
+import csb.data.CoursePage;
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import javax.swing.text.html.HTML;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXTransformerFactory;
+import javax.xml.transform.sax.TransformerHandler;
+import javax.xml.transform.stream.StreamResult;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.ext.DefaultHandler2;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * This class renders the pages of a course's site without ever building a DOM.
+ * The base page is parsed as a stream of SAX events, which are passed right
+ * along to the same serializer the DOM exporter uses. As the navbar, banner,
+ * schedule table, and instructor span go by we add the course's content to
+ * them. This means memory use doesn't grow with the number of weeks in the
+ * schedule, and the resulting file is the same as the DOM exporter's.
+ *
+ * @author Richard McKenna
+ */
+public class StreamingPageRenderer {
+    // THIS SAX PROPERTY LETS US HEAR ABOUT COMMENTS, WHICH WE NEED TO KEEP
+    static final String PROPERTY_LEXICAL_HANDLER = "http://xml.org/sax/properties/lexical-handler";
+
+    // THE TYPE OF ALL THE ATTRIBUTES WE ADD
+    static final String CDATA = "CDATA";
+
+    // THESE MAKE OUR PARSERS AND SERIALIZERS
+    SAXParserFactory parserFactory;
+    SAXTransformerFactory transformerFactory;
+
+    // PARSERS AREN'T THREAD SAFE, SO EACH THREAD GETS ITS OWN
+    ThreadLocal<SAXParser> parsers;
+
+    /**
+     * This constructor sets up the factories for parsing base pages and
+     * writing course pages, using the same parser settings as our template
+     * cache.
+     */
+    public StreamingPageRenderer() {
+        parserFactory = SAXParserFactory.newInstance();
+        parserFactory.setValidating(false);
+        parserFactory.setNamespaceAware(false);
+        parserFactory.setXIncludeAware(false);
+        setFeature(TemplateCache.FEATURE_LOAD_EXTERNAL_DTD, false);
+        setFeature(TemplateCache.FEATURE_EXTERNAL_GENERAL_ENTITIES, false);
+        setFeature(TemplateCache.FEATURE_EXTERNAL_PARAMETER_ENTITIES, false);
+        transformerFactory = (SAXTransformerFactory)TransformerFactory.newInstance();
+        parsers = new ThreadLocal();
+    }
+
+    /**
+     * Streams the base page found at templatePath to outputFilePath,
+     * filling in all of the course's data along the way.
+     *
+     * @param fragments The already built content of the course's pages.
+     * @param currentPage The page being rendered, used for the navbar.
+     * @param templatePath Path to the base page.
+     * @param fileWriter The writer the page is written through.
+     * @param outputFilePath Path of the page to write.
+     *
+     * @throws IOException Thrown when the base page can't be read or the
+     * course page can't be written.
+     * @throws SAXException Thrown when the base page can't be parsed.
+     * @throws ParserConfigurationException Thrown when a parser can't be made.
+     * @throws TransformerConfigurationException Thrown when a serializer
+     * can't be made.
+     */
+    public void renderPage(CourseFragments fragments, CoursePage currentPage, String templatePath,
+            AtomicFileWriter fileWriter, String outputFilePath)
+            throws IOException, SAXException, ParserConfigurationException, TransformerConfigurationException {
+        // THIS WRITES THE EVENTS WE PASS IT JUST LIKE THE DOM EXPORTER WOULD
+        TransformerHandler serializer;
+        synchronized (transformerFactory) {
+            serializer = transformerFactory.newTransformerHandler();
+        }
+        setOutputProperties(serializer.getTransformer());
+
+        // AND WE'LL WRITE STRAIGHT TO THE FILE THROUGH A BUFFER
+        try (AtomicFileWriter.AtomicOutput output = fileWriter.open(outputFilePath)) {
+            serializer.setResult(new StreamResult(output.getOutputStream()));
+
+            // NOW PUSH THE BASE PAGE THROUGH OUR FILTER
+            PageFilter filter = new PageFilter(fragments, currentPage, serializer);
+            SAXParser parser = getParser();
+            parser.setProperty(PROPERTY_LEXICAL_HANDLER, filter);
+            parser.parse(new File(templatePath), filter);
+            output.commit();
+        }
+    }
+
+    // GETS THIS THREAD'S PARSER, MAKING IT IF NEEDED
+    private SAXParser getParser() throws ParserConfigurationException, SAXException {
+        SAXParser parser = parsers.get();
+        if (parser == null) {
+            synchronized (parserFactory) {
+                parser = parserFactory.newSAXParser();
+            }
+            parsers.set(parser);
+        }
+        return parser;
+    }
+
+    // SETS A PARSER FEATURE IF THE PARSER SUPPORTS IT
+    private void setFeature(String feature, boolean value) {
+        try {
+            parserFactory.setFeature(feature, value);
+        } catch (ParserConfigurationException | SAXException e) {
+            // NOT SUPPORTED, SO WE'LL LIVE WITH THE DEFAULT
+        }
+    }
+
+    /**
+     * This filter passes all the events for the base page to the serializer,
+     * adding the course's content as it finds the elements it goes in. Note
+     * that this is done where a DOM exporter would add it, which is as the
+     * last children of each of these elements. Note that only the schedule
+     * page has a schedule table.
+     */
+    class PageFilter extends DefaultHandler2 {
+        // WHERE ALL THE EVENTS GO
+        TransformerHandler serializer;
+
+        // THE COURSE WHOSE DATA WE ARE ADDING, ALONG WITH THE
+        // PARTS OF IT THAT ARE ALREADY BUILT
+        CourseFragments fragments;
+        Course courseToExport;
+
+        // THE PAGE WE'RE RENDERING
+        CoursePage currentPage;
+
+        // FOR EACH OPEN ELEMENT, THE ID OF THE CONTENT WE ADD
+        // TO IT WHEN IT CLOSES, OR AN EMPTY STRING IF NONE
+        ArrayDeque<String> openElements;
+
+        // WE ONLY FILL IN THE FIRST ELEMENT FOUND FOR EACH, LIKE THE DOM EXPORTER
+        boolean titleFound;
+        boolean inTitle;
+        boolean navBarFound;
+        boolean bannerFound;
+        boolean scheduleFound;
+        boolean instructorFound;
+
+        PageFilter(CourseFragments initFragments, CoursePage initCurrentPage, TransformerHandler initSerializer) {
+            fragments = initFragments;
+            courseToExport = fragments.getCourse();
+            currentPage = initCurrentPage;
+            serializer = initSerializer;
+            openElements = new ArrayDeque();
+        }
+
+        @Override
+        public void startDocument() throws SAXException {
+            serializer.startDocument();
+        }
+
+        @Override
+        public void endDocument() throws SAXException {
+            serializer.endDocument();
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+            // WE'LL BE REPLACING EVERYTHING INSIDE THE TITLE
+            if (!titleFound && qName.equals(HTML.Tag.TITLE.toString())) {
+                titleFound = true;
+                inTitle = true;
+                serializer.startElement(uri, localName, qName, sortAttributes(attributes));
+                sendText(fragments.getTitleText());
+                openElements.push("");
+                return;
+            }
+
+            // SHOULD WE BE ADDING ANYTHING TO THIS ELEMENT?
+            String id = attributes.getValue(HTML.Attribute.ID.toString());
+            String slot = "";
+            if (id != null) {
+                if (!navBarFound && id.equals(ID_NAVBAR) && qName.equals(HTML.Tag.DIV.toString())) {
+                    navBarFound = true;
+                    slot = ID_NAVBAR;
+                } else if (!bannerFound && id.equals(ID_BANNER) && qName.equals(HTML.Tag.DIV.toString())) {
+                    bannerFound = true;
+                    slot = ID_BANNER;
+                } else if (!scheduleFound && id.equals(ID_SCHEDULE) && qName.equals(HTML.Tag.TABLE.toString())) {
+                    scheduleFound = true;
+                    slot = ID_SCHEDULE;
+                } else if (!instructorFound && id.equals(ID_INSTRUCTOR_LINK) && qName.equals(HTML.Tag.SPAN.toString())) {
+                    instructorFound = true;
+                    slot = ID_INSTRUCTOR_LINK;
+                }
+            }
+            openElements.push(slot);
+            serializer.startElement(uri, localName, qName, sortAttributes(attributes));
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            // ADD THE COURSE CONTENT AS THE LAST CHILDREN OF THIS ELEMENT
+            String slot = openElements.pop();
+            if (slot.equals(ID_NAVBAR)) {
+                sendNavBar();
+            } else if (slot.equals(ID_BANNER)) {
+                sendBanner();
+            } else if (slot.equals(ID_SCHEDULE)) {
+                sendScheduleTable();
+            } else if (slot.equals(ID_INSTRUCTOR_LINK)) {
+                sendInstructor();
+            }
+            inTitle = false;
+            serializer.endElement(uri, localName, qName);
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) throws SAXException {
+            if (!inTitle) {
+                serializer.characters(ch, start, length);
+            }
+        }
+
+        @Override
+        public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+            characters(ch, start, length);
+        }
+
+        @Override
+        public void processingInstruction(String target, String data) throws SAXException {
+            serializer.processingInstruction(target, data);
+        }
+
+        @Override
+        public void comment(char[] ch, int start, int length) throws SAXException {
+            if (!inTitle) {
+                serializer.comment(ch, start, length);
+            }
+        }
+
+        @Override
+        public void startCDATA() throws SAXException {
+            serializer.startCDATA();
+        }
+
+        @Override
+        public void endCDATA() throws SAXException {
+            serializer.endCDATA();
+        }
+
+        // NOTE THAT WE DON'T PASS ALONG THE DTD EVENTS, SINCE THE DOM
+        // EXPORTER DOESN'T WRITE THE DOCTYPE EITHER
+
+        // SENDS ALL THE NAV BAR LINKS
+        private void sendNavBar() throws SAXException {
+            for (CoursePage page : courseToExport.getPages()) {
+                String linkClass = (page == currentPage) ? CLASS_OPEN_NAV : CLASS_NAV;
+                startElement(HTML.Tag.A,
+                        HTML.Attribute.CLASS, linkClass,
+                        HTML.Attribute.HREF, getLink(page),
+                        HTML.Attribute.ID, getLinkId(page));
+                sendText(getLinkHeader(page));
+                endElement(HTML.Tag.A);
+            }
+        }
+
+        // SENDS THE BANNER TEXT
+        private void sendBanner() throws SAXException {
+            sendText(fragments.getBannerText());
+            startElement(HTML.Tag.BR);
+            endElement(HTML.Tag.BR);
+            sendText(courseToExport.getTitle());
+        }
+
+        // SENDS TWO ROWS FOR EACH WEEK OF THE SCHEDULE, ONE AT A TIME
+        private void sendScheduleTable() throws SAXException {
+            String[] dayHeaders = {MONDAY_HEADER, TUESDAY_HEADER, WEDNESDAY_HEADER, THURSDAY_HEADER, FRIDAY_HEADER};
+            LocalDate countingDate = courseToExport.getStartingMonday();
+            LocalDate endingFriday = courseToExport.getEndingFriday();
+            while (!countingDate.isAfter(endingFriday)) {
+                // FIRST THE DAY OF THE WEEK HEADERS
+                startElement(HTML.Tag.TR);
+                for (String dayHeader : dayHeaders) {
+                    startElement(HTML.Tag.TH, HTML.Attribute.CLASS, CLASS_SCH);
+                    sendText(dayHeader);
+                    endElement(HTML.Tag.TH);
+                }
+                endElement(HTML.Tag.TR);
+
+                // THEN THE DATES
+                startElement(HTML.Tag.TR);
+                for (int i = 0; i < dayHeaders.length; i++) {
+                    startElement(HTML.Tag.TD, HTML.Attribute.CLASS, CLASS_SCH);
+                    startElement(HTML.Tag.STRONG);
+                    sendText(countingDate.getMonthValue() + SLASH + countingDate.getDayOfMonth());
+                    endElement(HTML.Tag.STRONG);
+                    endElement(HTML.Tag.TD);
+                    countingDate = countingDate.plusDays(1);
+                }
+                endElement(HTML.Tag.TR);
+
+                // AND ON TO NEXT MONDAY
+                countingDate = countingDate.plusDays(7 - dayHeaders.length);
+            }
+        }
+
+        // SENDS THE LINK TO THE INSTRUCTOR'S HOMEPAGE
+        private void sendInstructor() throws SAXException {
+            startElement(HTML.Tag.A, HTML.Attribute.HREF, courseToExport.getInstructor().getHomepageURL());
+            sendText(courseToExport.getInstructor().getName());
+            endElement(HTML.Tag.A);
+        }
+
+        // STARTS AN ELEMENT WITH THE PROVIDED ATTRIBUTE NAMES AND VALUES,
+        // WHICH MUST ALREADY BE IN ALPHABETICAL ORDER
+        private void startElement(HTML.Tag tag, Object... attributeNamesAndValues) throws SAXException {
+            AttributesImpl attributes = new AttributesImpl();
+            for (int i = 0; i < attributeNamesAndValues.length; i += 2) {
+                String name = attributeNamesAndValues[i].toString();
+                attributes.addAttribute("", name, name, CDATA, (String)attributeNamesAndValues[i + 1]);
+            }
+            serializer.startElement("", tag.toString(), tag.toString(), attributes);
+        }
+
+        private void endElement(HTML.Tag tag) throws SAXException {
+            serializer.endElement("", tag.toString(), tag.toString());
+        }
+
+        private void sendText(String text) throws SAXException {
+            serializer.characters(text.toCharArray(), 0, text.length());
+        }
+
+        // PUTS THE ATTRIBUTES IN THE ORDER A DOM WOULD HAVE THEM IN
+        private Attributes sortAttributes(Attributes attributes) {
+            Integer[] order = new Integer[attributes.getLength()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> attributes.getQName(a).compareTo(attributes.getQName(b)));
+            AttributesImpl sorted = new AttributesImpl();
+            for (Integer i : order) {
+                sorted.addAttribute(attributes.getURI(i), attributes.getLocalName(i),
+                        attributes.getQName(i), attributes.getType(i), attributes.getValue(i));
+            }
+            return sorted;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package csb.file;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.HashSet;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+/**
+ * This class keeps parsed copies of the base site pages so that exporting
+ * lots of courses doesn't mean loading and parsing the same template file
+ * over and over again. Each template is parsed once and then handed out as
+ * a deep copy, which is much cheaper than parsing. Note that a template is
+ * parsed again if its file's modification time or size changes.
+ *
+ * @author Richard McKenna
+ */
+public class TemplateCache {
+    // THESE PARSER FEATURES KEEP US FROM FETCHING EXTERNAL DTDs
+    // AND ENTITIES, WHICH OUR TEMPLATES NEVER NEED
+    static final String FEATURE_LOAD_EXTERNAL_DTD = "http://apache.org/xml/features/nonvalidating/load-external-dtd";
+    static final String FEATURE_EXTERNAL_GENERAL_ENTITIES = "http://xml.org/sax/features/external-general-entities";
+    static final String FEATURE_EXTERNAL_PARAMETER_ENTITIES = "http://xml.org/sax/features/external-parameter-entities";
+
+    // WE USE THESE FOR INDEXING THE ELEMENTS IN A TEMPLATE BY id
+    static final String ALL_ELEMENTS = "*";
+    static final String ID_ATTRIBUTE = "id";
+
+    // WE ONLY NEED ONE PARSER FACTORY, SETUP FOR SPEED
+    DocumentBuilderFactory docFactory;
+
+    // AND ONE PARSER, WHICH IS ONLY EVER USED WHILE HOLDING THIS CACHE'S LOCK
+    DocumentBuilder docBuilder;
+
+    // HERE ARE ALL THE TEMPLATES WE'VE PARSED SO FAR, KEYED BY FILE PATH
+    HashMap<String, CachedTemplate> templates;
+
+    /**
+     * This constructor sets up an empty cache along with a parser factory
+     * that is non-validating, not namespace aware, and that will not go
+     * looking for external DTDs or entities.
+     */
+    public TemplateCache() {
+        templates = new HashMap();
+        docFactory = DocumentBuilderFactory.newInstance();
+        docFactory.setValidating(false);
+        docFactory.setNamespaceAware(false);
+        docFactory.setXIncludeAware(false);
+        docFactory.setExpandEntityReferences(false);
+        setFeature(FEATURE_LOAD_EXTERNAL_DTD, false);
+        setFeature(FEATURE_EXTERNAL_GENERAL_ENTITIES, false);
+        setFeature(FEATURE_EXTERNAL_PARAMETER_ENTITIES, false);
+    }
+
+    /**
+     * Provides a copy of the template found at templatePath that the caller
+     * is free to change. The template file is only parsed the first time
+     * it's requested or after it has changed on disk.
+     *
+     * @param templatePath Path to the base page to load.
+     *
+     * @return A deep copy of the parsed template.
+     *
+     * @throws IOException Thrown when the template file can't be read.
+     * @throws SAXException Thrown when the template file can't be parsed.
+     * @throws ParserConfigurationException Thrown when a parser can't be made.
+     */
+    public synchronized Document getTemplate(String templatePath)
+            throws IOException, SAXException, ParserConfigurationException {
+        // HAND OUT A COPY SO THE ORIGINAL IS NEVER CHANGED
+        return (Document)getCachedTemplate(templatePath).doc.cloneNode(true);
+    }
+
+    /**
+     * Provides the template found at templatePath compiled into segments
+     * around the provided slots. Note that the template is only compiled
+     * again when its file changes.
+     *
+     * @param templatePath Path to the base page to load.
+     * @param slots The slots the base page must have.
+     *
+     * @return The compiled template, which may be shared.
+     *
+     * @throws IOException Thrown when the template file can't be read or
+     * is missing any of the slots.
+     * @throws SAXException Thrown when the template file can't be parsed.
+     * @throws ParserConfigurationException Thrown when a parser can't be made.
+     */
+    public synchronized SegmentTemplate getSegmentTemplate(String templatePath, SegmentTemplate.Slot... slots)
+            throws IOException, SAXException, ParserConfigurationException {
+        CachedTemplate template = getCachedTemplate(templatePath);
+        if (template.segments == null) {
+            template.segments = SegmentTemplate.compile((Document)template.doc.cloneNode(true), slots);
+        }
+        return template.segments;
+    }
+
+    /**
+     * Provides a digest of the bytes of the template found at templatePath,
+     * which changes whenever the template file's contents change.
+     *
+     * @param templatePath Path to the base page.
+     *
+     * @return The digest of the template file, as hex text.
+     *
+     * @throws IOException Thrown when the template file can't be read.
+     * @throws SAXException Thrown when the template file can't be parsed.
+     * @throws ParserConfigurationException Thrown when a parser can't be made.
+     */
+    public synchronized String getTemplateDigest(String templatePath)
+            throws IOException, SAXException, ParserConfigurationException {
+        return getCachedTemplate(templatePath).digest;
+    }
+
+    /**
+     * Empties the cache, meaning all templates will be parsed again
+     * the next time they are requested.
+     */
+    public synchronized void clear() {
+        templates.clear();
+    }
+
+    // GETS THE TEMPLATE FOR templatePath, PARSING IT IF WE
+    // DON'T ALREADY HAVE IT OR IF IT'S OUT OF DATE
+    private CachedTemplate getCachedTemplate(String templatePath)
+            throws IOException, SAXException, ParserConfigurationException {
+        File templateFile = new File(templatePath);
+        BasicFileAttributes attributes = Files.readAttributes(templateFile.toPath(), BasicFileAttributes.class);
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        long size = attributes.size();
+
+        // ONLY PARSE IT IF WE DON'T HAVE IT OR IT'S BEEN CHANGED
+        CachedTemplate template = templates.get(templatePath);
+        if ((template == null)
+                || (template.lastModified != lastModified)
+                || (template.size != size)) {
+            if (docBuilder == null) {
+                docBuilder = docFactory.newDocumentBuilder();
+            }
+            // WE READ THE BYTES OURSELVES SO WE CAN ALSO DIGEST THEM
+            byte[] templateBytes = Files.readAllBytes(templateFile.toPath());
+            InputSource templateSource = new InputSource(new ByteArrayInputStream(templateBytes));
+            templateSource.setSystemId(templateFile.toURI().toString());
+            Document doc = docBuilder.parse(templateSource);
+            indexIds(doc);
+            template = new CachedTemplate(doc, lastModified, size);
+            template.digest = ExportManifest.digest(templateBytes);
+            templates.put(templatePath, template);
+        }
+        return template;
+    }
+
+    // MARKS EVERY id ATTRIBUTE IN THE DOCUMENT AS AN ID SO THAT ELEMENTS
+    // CAN BE FOUND WITH getElementById RATHER THAN SEARCHING FOR THEM. NOTE
+    // THAT COPIES OF THE DOCUMENT KEEP THIS INDEX, SO WE ONLY DO IT ONCE
+    private void indexIds(Document doc) {
+        HashSet<String> ids = new HashSet();
+        NodeList elements = doc.getElementsByTagName(ALL_ELEMENTS);
+        for (int i = 0; i < elements.getLength(); i++) {
+            Element element = (Element)elements.item(i);
+            String id = element.getAttribute(ID_ATTRIBUTE);
+
+            // ONLY THE FIRST ELEMENT WITH EACH id GETS INDEXED
+            if (!id.isEmpty() && ids.add(id)) {
+                element.setIdAttribute(ID_ATTRIBUTE, true);
+            }
+        }
+    }
+
+    // SETS A PARSER FEATURE, NOTE THAT NOT EVERY PARSER SUPPORTS
+    // THESE, IN WHICH CASE WE JUST LIVE WITH ITS DEFAULTS
+    private void setFeature(String feature, boolean value) {
+        try {
+            docFactory.setFeature(feature, value);
+        } catch (ParserConfigurationException pce) {
+            // NOT SUPPORTED, SO NOTHING TO DO
+        }
+    }
+
+    // A PARSED TEMPLATE ALONG WITH WHAT WE NEED TO KNOW ABOUT
+    // ITS FILE TO TELL WHEN IT'S OUT OF DATE
+    class CachedTemplate {
+        Document doc;
+        long lastModified;
+        long size;
+
+        // THE DIGEST OF THE TEMPLATE FILE'S BYTES
+        String digest;
+
+        // THE COMPILED TEMPLATE, WHICH IS ONLY MADE IF IT'S NEEDED
+        SegmentTemplate segments;
+
+        CachedTemplate(Document initDoc, long initLastModified, long initSize) {
+            doc = initDoc;
+            lastModified = initLastModified;
+            size = initSize;
+        }
+    }
+}
@@ -8,7 +8,6 @@ import csb.data.CourseDataManager;
 import csb.data.CourseDataView;
 import csb.data.CoursePage;
 import csb.controller.FileController;
-import csb.data.Instructor;
 import csb.data.Semester;
 import csb.data.Subject;
 import csb.file.CourseFileManager;
@@ -359,9 +358,7 @@ public class CSB_GUI implements CourseDataView {
         System.out.println(Semester.valueOf(courseSemesterComboBox.getSelectionModel().getSelectedItem().toString()));
         course.setYear(Integer.parseInt(courseYearComboBox.getSelectionModel().getSelectedItem().toString()));
         course.setTitle(courseTitleTextField.getText());
-        Instructor instructor = course.getInstructor();
-        instructor.setName(instructorNameTextField.getText());
-        instructor.setHomepageURL(instructorURLTextField.getText());
+        course.setInstructorInfo(instructorNameTextField.getText(), instructorURLTextField.getText());
         updatePageUsingCheckBox(indexPageCheckBox, course, CoursePage.INDEX);
         updatePageUsingCheckBox(syllabusPageCheckBox, course, CoursePage.SYLLABUS);
         updatePageUsingCheckBox(schedulePageCheckBox, course, CoursePage.SCHEDULE);
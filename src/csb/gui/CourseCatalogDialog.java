@@ -0,0 +1,155 @@
+package csb.gui;
+
+import csb.file.CourseCatalog;
+import csb.file.CourseCatalogEntry;
+import javafx.event.ActionEvent;
+import javafx.event.EventHandler;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
+import javafx.scene.control.TextField;
+import javafx.scene.input.MouseButton;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.stage.Modality;
+import javafx.stage.Stage;
+
+/**
+ * This class serves to present a dialog listing all the courses in the
+ * course catalog, which the user may search by typing part of a course's
+ * subject and number, title or instructor, and then pick one to open. If
+ * the course the user wants isn't listed, they may browse for its file
+ * instead.
+ *
+ * @author Richard McKenna
+ */
+public class CourseCatalogDialog extends Stage {
+    // GUI CONTROLS FOR OUR DIALOG
+    VBox catalogPane;
+    Scene catalogScene;
+    Label messageLabel;
+    TextField searchTextField;
+    ListView<CourseCatalogEntry> coursesListView;
+    Button openButton;
+    Button browseButton;
+    Button cancelButton;
+    String selection;
+
+    // THE CATALOG WE'RE SHOWING
+    CourseCatalog catalog;
+
+    // CONSTANT CHOICES
+    public static final String OPEN = "Open";
+    public static final String BROWSE = "Browse...";
+    public static final String CANCEL = "Cancel";
+
+    /**
+     * Initializes this dialog so that it can be used repeatedly.
+     *
+     * @param primaryStage The owner of this modal dialog.
+     * @param initCatalog The catalog of courses to choose from.
+     */
+    public CourseCatalogDialog(Stage primaryStage, CourseCatalog initCatalog) {
+        // MAKE THIS DIALOG MODAL, MEANING OTHERS WILL WAIT
+        // FOR IT WHEN IT IS DISPLAYED
+        initModality(Modality.WINDOW_MODAL);
+        initOwner(primaryStage);
+        catalog = initCatalog;
+
+        // LABEL TO DISPLAY THE CUSTOM MESSAGE
+        messageLabel = new Label();
+
+        // THE USER NARROWS DOWN THE LIST BY TYPING HERE
+        searchTextField = new TextField();
+        searchTextField.textProperty().addListener((observable, oldValue, newValue) -> {
+            coursesListView.getItems().setAll(catalog.search(newValue));
+        });
+
+        // AND PICKS A COURSE FROM HERE, DOUBLE CLICKING OPENS IT RIGHT AWAY
+        coursesListView = new ListView();
+        coursesListView.setPrefSize(500, 300);
+        coursesListView.setOnMouseClicked(me -> {
+            if ((me.getButton() == MouseButton.PRIMARY) && (me.getClickCount() == 2)
+                    && (getSelectedEntry() != null)) {
+                CourseCatalogDialog.this.selection = OPEN;
+                CourseCatalogDialog.this.hide();
+            }
+        });
+
+        EventHandler catalogHandler = (EventHandler<ActionEvent>) (ActionEvent ae) -> {
+            Button sourceButton = (Button)ae.getSource();
+            CourseCatalogDialog.this.selection = sourceButton.getText();
+            CourseCatalogDialog.this.hide();
+        };
+
+        // OPEN, BROWSE, AND CANCEL BUTTONS
+        openButton = new Button(OPEN);
+        browseButton = new Button(BROWSE);
+        cancelButton = new Button(CANCEL);
+        openButton.setOnAction(catalogHandler);
+        browseButton.setOnAction(catalogHandler);
+        cancelButton.setOnAction(catalogHandler);
+
+        // WE CAN ONLY OPEN A COURSE ONCE ONE IS SELECTED
+        openButton.disableProperty().bind(coursesListView.getSelectionModel().selectedItemProperty().isNull());
+
+        // NOW ORGANIZE OUR BUTTONS
+        HBox buttonBox = new HBox();
+        buttonBox.getChildren().add(openButton);
+        buttonBox.getChildren().add(browseButton);
+        buttonBox.getChildren().add(cancelButton);
+
+        // WE'LL PUT EVERYTHING HERE
+        catalogPane = new VBox();
+        catalogPane.setAlignment(Pos.CENTER);
+        catalogPane.getChildren().add(messageLabel);
+        catalogPane.getChildren().add(searchTextField);
+        catalogPane.getChildren().add(coursesListView);
+        catalogPane.getChildren().add(buttonBox);
+
+        // MAKE IT LOOK NICE
+        catalogPane.setPadding(new Insets(10, 20, 20, 20));
+        catalogPane.setSpacing(10);
+
+        // AND PUT IT IN THE WINDOW
+        catalogScene = new Scene(catalogPane);
+        this.setScene(catalogScene);
+    }
+
+    /**
+     * Accessor method for getting the selection the user made.
+     *
+     * @return Either OPEN, BROWSE, or CANCEL, depending on which
+     * button the user selected when this dialog was presented.
+     */
+    public String getSelection() {
+        return selection;
+    }
+
+    /**
+     * Accessor method for getting the course the user picked.
+     *
+     * @return The entry of the selected course, or null if none is selected.
+     */
+    public CourseCatalogEntry getSelectedEntry() {
+        return coursesListView.getSelectionModel().getSelectedItem();
+    }
+
+    /**
+     * This method loads a custom message into the label, fills the list
+     * with every course in the catalog, and then pops open the dialog.
+     *
+     * @param message Message to appear inside the dialog.
+     */
+    public void show(String message) {
+        messageLabel.setText(message);
+        selection = CANCEL;
+        searchTextField.clear();
+        coursesListView.getItems().setAll(catalog.getEntries());
+        searchTextField.requestFocus();
+        this.showAndWait();
+    }
+}
@@ -0,0 +1,361 @@
+package csb.test;
+
+import static csb.CSB_StartupConstants.PATH_COURSES;
+import csb.data.Course;
+import csb.data.CoursePage;
+import csb.data.Instructor;
+import csb.data.Semester;
+import csb.data.Subject;
+import csb.file.BinaryCourseFileManager;
+import csb.file.BulkLoadResult;
+import csb.file.CourseBulkLoader;
+import csb.file.CourseCatalog;
+import csb.file.CourseFileManager;
+import csb.file.Durability;
+import csb.file.FastJsonCourseFileManager;
+import csb.file.JdbcCourseFileManager;
+import csb.file.JsonCourseFileManager;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class is used to compare how fast our file managers load courses.
+ * It writes a corpus of made up course files to a temporary directory, once
+ * as JSON and once in our binary format, and then times loading all of them
+ * with each file manager, a few times over
+ * so the JIT has had a chance to do its work. It also times just reading
+ * the bytes of every file without parsing them, which is as fast as any
+ * file manager that reads one file per course could ever be, and checks
+ * that every file manager loads every course just as it was saved. It
+ * also checks that FastJsonCourseFileManager saves courses byte for byte
+ * the way JsonCourseFileManager does, both the made up ones and the ones
+ * in PATH_COURSES, so it should be run from the project directory. Then
+ * it times loading the whole corpus with a CourseBulkLoader using different
+ * numbers of threads, and last of all it times building a CourseCatalog
+ * of the JSON files, opening it
+ * again, refreshing it when nothing has changed, and searching it. If the
+ * H2 driver is on the classpath it also times saving the corpus to our
+ * default database, loading all of it back, and a query for some of it.
+ * Note that
+ * the number of files may be provided as an argument, by default there
+ * are 50,000.
+ *
+ * @author Richard McKenna
+ */
+public class CSB_Test_CourseFileBenchmark {
+    // HOW MANY FILES WE TEST WITH UNLESS TOLD OTHERWISE
+    static final int DEFAULT_NUM_FILES = 50000;
+
+    // HOW MANY TIMES WE LOAD THE WHOLE CORPUS WITH EACH FILE MANAGER
+    static final int NUM_ROUNDS = 5;
+
+    // HOW MANY THREADS WE TRY BULK LOADING WITH
+    static final int[] BULK_LOAD_THREADS = {1, 2, 8};
+
+    /**
+     * Here's where we'll do the test.
+     *
+     * @param args The number of files to test with, if not the default.
+     */
+    public static void main(String[] args) throws IOException {
+        int numFiles = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_NUM_FILES;
+        File corpusDir = Files.createTempDirectory("csb_corpus").toFile();
+        try {
+            // MAKE THE CORPUS, WITHOUT WAITING FOR EACH FILE TO REACH THE DISK
+            FastJsonCourseFileManager fastFileManager = new FastJsonCourseFileManager();
+            fastFileManager.getFileWriter().setDurability(Durability.NONE);
+            String[] filePaths = new String[numFiles];
+            for (int i = 0; i < numFiles; i++) {
+                filePaths[i] = new File(corpusDir, "course" + i + JsonCourseFileManager.JSON_EXT).getPath();
+                fastFileManager.saveCourse(makeCourse(i), filePaths[i]);
+            }
+            BinaryCourseFileManager binaryFileManager = new BinaryCourseFileManager();
+            binaryFileManager.getFileWriter().setDurability(Durability.NONE);
+            String[] binaryFilePaths = new String[numFiles];
+            for (int i = 0; i < numFiles; i++) {
+                binaryFilePaths[i] = new File(corpusDir, "course" + i + BinaryCourseFileManager.BINARY_EXT).getPath();
+                binaryFileManager.saveCourse(makeCourse(i), binaryFilePaths[i]);
+            }
+            System.out.println("Wrote " + numFiles + " course files to " + corpusDir + " in each format, "
+                    + getTotalBytes(filePaths) + " bytes of JSON and "
+                    + getTotalBytes(binaryFilePaths) + " bytes of binary");
+
+            // MAKE SURE EACH FILE MANAGER GETS BACK WHAT WAS SAVED, AND THAT
+            // BOTH JSON FILE MANAGERS SAVE EXACTLY THE SAME FILES
+            JsonCourseFileManager jsonFileManager = new JsonCourseFileManager();
+            jsonFileManager.getFileWriter().setDurability(Durability.NONE);
+            checkSaving(jsonFileManager, fastFileManager, filePaths, corpusDir);
+            checkLoading("JsonCourseFileManager", jsonFileManager, filePaths);
+            checkLoading("FastJsonCourseFileManager", fastFileManager, filePaths);
+            checkLoading("BinaryCourseFileManager", binaryFileManager, binaryFilePaths);
+
+            // AND TIME LOADING IT
+            double readMillis = timeReading(filePaths);
+            double jsonMillis = timeLoading(jsonFileManager, filePaths);
+            double fastMillis = timeLoading(fastFileManager, filePaths);
+            double binaryReadMillis = timeReading(binaryFilePaths);
+            double binaryMillis = timeLoading(binaryFileManager, binaryFilePaths);
+            System.out.printf("Just reading the files:    %.1f ms%n", readMillis);
+            System.out.printf("JsonCourseFileManager:     %.1f ms%n", jsonMillis);
+            System.out.printf("FastJsonCourseFileManager: %.1f ms%n", fastMillis);
+            System.out.printf("Speedup: %.1fx%n", jsonMillis / fastMillis);
+            System.out.printf("Just reading binary files: %.1f ms%n", binaryReadMillis);
+            System.out.printf("BinaryCourseFileManager:   %.1f ms%n", binaryMillis);
+            System.out.printf("Speedup: %.1fx%n", jsonMillis / binaryMillis);
+
+            // NOW LOAD THE SAME COURSES SEVERAL AT A TIME
+            timeBulkLoading("JsonCourseFileManager", jsonFileManager, filePaths);
+            timeBulkLoading("BinaryCourseFileManager", binaryFileManager, binaryFilePaths);
+
+            // AND SEE HOW THE CATALOG DOES WITH THIS MANY COURSES
+            timeCatalog(corpusDir, jsonFileManager);
+
+            // AND THE DATABASE, IF WE CAN
+            timeDatabase(corpusDir, numFiles);
+        } finally {
+            for (File file : corpusDir.listFiles()) {
+                file.delete();
+            }
+            corpusDir.delete();
+        }
+    }
+
+    // LOADS EVERY FILE ONCE, COUNTING THE COURSES THAT DON'T COME BACK
+    // JUST THE WAY makeCourse MADE THEM
+    private static void checkLoading(String name, CourseFileManager fileManager, String[] filePaths)
+            throws IOException {
+        int wrongCourses = 0;
+        for (int i = 0; i < filePaths.length; i++) {
+            Course course = new Course(new Instructor("", ""));
+            fileManager.loadCourse(course, filePaths[i]);
+            if (!isSameCourse(course, makeCourse(i))) {
+                wrongCourses++;
+            }
+        }
+        if (wrongCourses == 0) {
+            System.out.println(name + " loads every course as it was saved");
+        } else {
+            System.out.println(name + " LOADS " + wrongCourses + " COURSES WRONG");
+        }
+    }
+
+    // SAVES EVERY COURSE IN THE CORPUS AND IN PATH_COURSES WITH BOTH JSON
+    // FILE MANAGERS, COUNTING THE COURSES THEY DON'T SAVE THE SAME WAY
+    private static void checkSaving(JsonCourseFileManager jsonFileManager,
+            FastJsonCourseFileManager fastFileManager, String[] filePaths, File corpusDir) throws IOException {
+        ArrayList<Course> courses = new ArrayList();
+        for (int i = 0; i < filePaths.length; i++) {
+            courses.add(makeCourse(i));
+        }
+        File[] dataFiles = new File(PATH_COURSES).listFiles((dir, name) -> name.endsWith(JsonCourseFileManager.JSON_EXT));
+        if (dataFiles != null) {
+            for (File dataFile : dataFiles) {
+                Course course = new Course(new Instructor("", ""));
+                jsonFileManager.loadCourse(course, dataFile.getPath());
+                courses.add(course);
+            }
+        }
+        String jsonPath = new File(corpusDir, "saved_by_json.tmp").getPath();
+        String fastPath = new File(corpusDir, "saved_by_fast_json.tmp").getPath();
+        int differentCourses = 0;
+        for (Course course : courses) {
+            jsonFileManager.saveCourse(course, jsonPath);
+            fastFileManager.saveCourse(course, fastPath);
+            if (!Arrays.equals(Files.readAllBytes(Paths.get(jsonPath)), Files.readAllBytes(Paths.get(fastPath)))) {
+                differentCourses++;
+            }
+        }
+        if (differentCourses == 0) {
+            System.out.println("Both JSON file managers save all " + courses.size() + " courses the same way");
+        } else {
+            System.out.println("THE JSON FILE MANAGERS SAVE " + differentCourses + " COURSES DIFFERENTLY");
+        }
+    }
+
+    // TESTS TO SEE IF TWO COURSES HAVE ALL THE SAME DATA
+    private static boolean isSameCourse(Course course, Course otherCourse) {
+        return (course.getSubject() == otherCourse.getSubject())
+                && (course.getNumber() == otherCourse.getNumber())
+                && (course.getSemester() == otherCourse.getSemester())
+                && (course.getYear() == otherCourse.getYear())
+                && course.getTitle().equals(otherCourse.getTitle())
+                && course.getInstructor().getName().equals(otherCourse.getInstructor().getName())
+                && course.getInstructor().getHomepageURL().equals(otherCourse.getInstructor().getHomepageURL())
+                && (course.getPagesMask() == otherCourse.getPagesMask())
+                && (course.getLectureDaysMask() == otherCourse.getLectureDaysMask())
+                && course.getStartingMonday().equals(otherCourse.getStartingMonday())
+                && course.getEndingFriday().equals(otherCourse.getEndingFriday());
+    }
+
+    // LOADS EVERY FILE NUM_ROUNDS TIMES, RETURNING THE FASTEST ROUND
+    private static double timeLoading(CourseFileManager fileManager, String[] filePaths) throws IOException {
+        Course course = new Course(new Instructor("", ""));
+        long bestNanos = Long.MAX_VALUE;
+        for (int round = 0; round < NUM_ROUNDS; round++) {
+            long startNanos = System.nanoTime();
+            for (String filePath : filePaths) {
+                fileManager.loadCourse(course, filePath);
+            }
+            bestNanos = Math.min(bestNanos, System.nanoTime() - startNanos);
+        }
+        return bestNanos / 1000000.0;
+    }
+
+    // LOADS EVERY FILE NUM_ROUNDS TIMES WITH A BULK LOADER FOR EACH NUMBER
+    // OF THREADS IN BULK_LOAD_THREADS, REPORTING THE FASTEST ROUND OF EACH
+    private static void timeBulkLoading(String name, CourseFileManager fileManager, String[] filePaths) {
+        CourseBulkLoader bulkLoader = new CourseBulkLoader(fileManager);
+        for (int loadThreads : BULK_LOAD_THREADS) {
+            bulkLoader.setLoadThreads(loadThreads);
+            double bestMillis = Double.MAX_VALUE;
+            int failures = 0;
+            for (int round = 0; round < NUM_ROUNDS; round++) {
+                BulkLoadResult result = bulkLoader.loadAll(Arrays.asList(filePaths), (coursePath, loadedCourse) -> { });
+                bestMillis = Math.min(bestMillis, result.getElapsedMillis());
+                failures += result.getFailures().size();
+            }
+            System.out.printf("%s, bulk loaded on %d threads: %.1f ms%s%n", name, loadThreads, bestMillis,
+                    (failures == 0) ? "" : ", " + failures + " FAILED");
+        }
+    }
+
+    // TIMES BUILDING A CATALOG FROM SCRATCH, OPENING IT AGAIN, REFRESHING
+    // IT WHEN NO COURSE HAS CHANGED, AND SEARCHING IT
+    private static void timeCatalog(File corpusDir, CourseFileManager fileManager) throws IOException {
+        long startNanos = System.nanoTime();
+        CourseCatalog catalog = new CourseCatalog(corpusDir.getPath(), fileManager);
+        int entries = catalog.refresh();
+        double buildMillis = (System.nanoTime() - startNanos) / 1000000.0;
+
+        // THE REST ARE QUICK ENOUGH THAT WE TAKE THE FASTEST ROUND
+        long bestOpenNanos = Long.MAX_VALUE;
+        long bestRefreshNanos = Long.MAX_VALUE;
+        long bestSearchNanos = Long.MAX_VALUE;
+        int matches = 0;
+        for (int round = 0; round < NUM_ROUNDS; round++) {
+            startNanos = System.nanoTime();
+            catalog = new CourseCatalog(corpusDir.getPath(), fileManager);
+            bestOpenNanos = Math.min(bestOpenNanos, System.nanoTime() - startNanos);
+
+            startNanos = System.nanoTime();
+            if (catalog.refresh() != 0) {
+                System.out.println("REFRESHING THE CATALOG CHANGED IT, WHEN NO COURSE HAD CHANGED");
+            }
+            bestRefreshNanos = Math.min(bestRefreshNanos, System.nanoTime() - startNanos);
+
+            startNanos = System.nanoTime();
+            matches = catalog.search("instructor 4999").size();
+            bestSearchNanos = Math.min(bestSearchNanos, System.nanoTime() - startNanos);
+        }
+        System.out.printf("Building a catalog of %d courses: %.1f ms%n", entries, buildMillis);
+        System.out.printf("Opening the catalog:       %.1f ms%n", bestOpenNanos / 1000000.0);
+        System.out.printf("Refreshing it, no changes: %.1f ms%n", bestRefreshNanos / 1000000.0);
+        System.out.printf("Searching it, %d matches: %.1f ms%n", matches, bestSearchNanos / 1000000.0);
+    }
+
+    // TIMES SAVING THE CORPUS TO THE DEFAULT DATABASE IN corpusDir, LOADING
+    // ALL OF IT BACK AT ONCE, AND LOADING JUST ONE SEMESTER'S COURSES IN ONE
+    // SUBJECT, AFTER CHECKING THAT EVERY COURSE COMES BACK AS IT WAS SAVED
+    private static void timeDatabase(File corpusDir, int numFiles) throws IOException {
+        try {
+            Class.forName("org.h2.Driver");
+        } catch (ClassNotFoundException cnfe) {
+            System.out.println("No H2 driver on the classpath, so the database wasn't timed");
+            return;
+        }
+        String databaseURL = JdbcCourseFileManager.getDefaultDatabaseURL(corpusDir.getPath());
+        String[] coursePaths = new String[numFiles];
+        JdbcCourseFileManager databaseFileManager = new JdbcCourseFileManager(databaseURL);
+        databaseFileManager.getFileWriter().setDurability(Durability.ON_BATCH_END);
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < numFiles; i++) {
+            coursePaths[i] = new File(corpusDir, "course" + i + JdbcCourseFileManager.DATABASE_EXT).getPath();
+            databaseFileManager.saveCourse(makeCourse(i), coursePaths[i]);
+        }
+        databaseFileManager.close();
+        double saveMillis = (System.nanoTime() - startNanos) / 1000000.0;
+
+        databaseFileManager = new JdbcCourseFileManager(databaseURL);
+        try {
+            checkLoading("JdbcCourseFileManager", databaseFileManager, coursePaths);
+            long bestLoadAllNanos = Long.MAX_VALUE;
+            long bestQueryNanos = Long.MAX_VALUE;
+            int numLoaded = 0;
+            int numMatched = 0;
+            for (int round = 0; round < NUM_ROUNDS; round++) {
+                startNanos = System.nanoTime();
+                numLoaded = databaseFileManager.loadCourses(null, null, 0, null).size();
+                bestLoadAllNanos = Math.min(bestLoadAllNanos, System.nanoTime() - startNanos);
+
+                startNanos = System.nanoTime();
+                List<Course> matches = databaseFileManager.loadCourses(Subject.values()[0], Semester.values()[0],
+                        2000, null);
+                bestQueryNanos = Math.min(bestQueryNanos, System.nanoTime() - startNanos);
+                numMatched = matches.size();
+            }
+            System.out.printf("Saving %d courses to %s: %.1f ms%n", numFiles, databaseURL, saveMillis);
+            System.out.printf("Loading all %d of them:    %.1f ms%n", numLoaded, bestLoadAllNanos / 1000000.0);
+            System.out.printf("Loading %d of them by subject, semester and year: %.1f ms%n",
+                    numMatched, bestQueryNanos / 1000000.0);
+        } finally {
+            databaseFileManager.close();
+        }
+    }
+
+    // READS THE BYTES OF EVERY FILE NUM_ROUNDS TIMES, RETURNING THE FASTEST ROUND
+    private static double timeReading(String[] filePaths) throws IOException {
+        long bestNanos = Long.MAX_VALUE;
+        for (int round = 0; round < NUM_ROUNDS; round++) {
+            long startNanos = System.nanoTime();
+            for (String filePath : filePaths) {
+                Files.readAllBytes(Paths.get(filePath));
+            }
+            bestNanos = Math.min(bestNanos, System.nanoTime() - startNanos);
+        }
+        return bestNanos / 1000000.0;
+    }
+
+    // ADDS UP THE SIZES OF ALL THE FILES
+    private static long getTotalBytes(String[] filePaths) {
+        long totalBytes = 0;
+        for (String filePath : filePaths) {
+            totalBytes += new File(filePath).length();
+        }
+        return totalBytes;
+    }
+
+    // MAKES A COURSE THAT'S A LITTLE DIFFERENT FOR EACH i
+    private static Course makeCourse(int i) {
+        Course course = new Course(new Instructor("Instructor " + i, "http://www.example.com/~" + i));
+        Subject[] subjects = Subject.values();
+        Semester[] semesters = Semester.values();
+        course.setSubject(subjects[i % subjects.length]);
+        course.setNumber(100 + (i % 400));
+        course.setSemester(semesters[i % semesters.length]);
+        course.setYear(2000 + (i % 20));
+        course.setTitle("Course Number " + i);
+        for (CoursePage page : CoursePage.values()) {
+            if ((i + page.ordinal()) % 3 != 0) {
+                course.addPage(page);
+            }
+        }
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if ((i + day.ordinal()) % 2 == 0) {
+                course.addLectureDay(day);
+            }
+        }
+        LocalDate startingMonday = LocalDate.of(course.getYear(), 1, 1)
+                .with(TemporalAdjusters.nextOrSame(DayOfWeek.MONDAY)).plusWeeks(i % 20);
+        course.setStartingMonday(startingMonday);
+        course.setEndingFriday(startingMonday.plusWeeks(14).plusDays(4));
+        return course;
+    }
+}
@@ -0,0 +1,391 @@
+package csb.test;
+
+import csb.data.Course;
+import csb.data.Instructor;
+import csb.data.Semester;
+import csb.data.Subject;
+import csb.file.Durability;
+import csb.file.LogCourseFileManager;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * This class is used to test how our course log recovers from the things
+ * that can go wrong with it. It checks that a record cut short by a crash
+ * is thrown away when the log is opened, that a checkpoint is used when
+ * it's for the log and ignored when it isn't, that a course saved after
+ * the log was mapped loads its latest version, and that courses saved
+ * while the log is being compacted aren't lost. Each test works in its
+ * own temporary directory, which is deleted when it's done.
+ *
+ * @author Richard McKenna
+ */
+public class CSB_Test_LogCourseFileManager {
+    // HOW MANY COURSES WE PUT IN THE LOG FOR THE COMPACTION TEST,
+    // WHICH HAS TO BE ENOUGH THAT COPYING THEM TAKES A WHILE
+    static final int NUM_COMPACTION_COURSES = 20000;
+
+    // HOW MANY TIMES WE TRY TO SAVE COURSES WHILE A COMPACTION IS COPYING
+    static final int NUM_COMPACTION_ATTEMPTS = 5;
+
+    // HOW MANY COURSES ARE IN THE LOG, AND HOW MANY TIMES WE SAVE AND
+    // LOAD ONE, FOR THE TEST OF LOADING WHAT WAS JUST SAVED
+    static final int NUM_MAPPED_COURSES = 1000;
+    static final int NUM_SAVE_AND_LOADS = 5000;
+
+    // HOW MANY CHECKS HAVE FAILED
+    static int failures = 0;
+
+    /**
+     * Here's where we'll do the tests.
+     */
+    public static void main(String[] args) throws Exception {
+        testTornTail();
+        testCheckpointReused();
+        testStaleCheckpointIgnored();
+        testLoadsPastMapping();
+        testSavesDuringCompaction();
+        if (failures == 0) {
+            System.out.println("ALL TESTS PASSED");
+        } else {
+            System.out.println(failures + " CHECKS FAILED");
+            System.exit(1);
+        }
+    }
+
+    // A CRASH IN THE MIDDLE OF AN APPEND LEAVES PART OF A RECORD AT THE END
+    // OF THE LOG, WHICH HAS TO BE CUT OFF SO THE NEXT APPEND GOES AFTER THE
+    // LAST WHOLE RECORD RATHER THAN AFTER THE GARBAGE
+    private static void testTornTail() throws Exception {
+        System.out.println("TORN TAIL");
+        File dir = Files.createTempDirectory("csb_log").toFile();
+        try {
+            LogCourseFileManager fileManager = makeFileManager(dir);
+            fileManager.saveCourse(makeCourse(0, 0), coursePath(dir, 0));
+            fileManager.saveCourse(makeCourse(1, 0), coursePath(dir, 1));
+            fileManager.saveCourse(makeCourse(2, 0), coursePath(dir, 2));
+            long lastOffset = fileManager.getRecordOffset(coursePath(dir, 2));
+            long goodSize = fileManager.getLogSize();
+            fileManager.close();
+
+            // PRETEND WE CRASHED HALF WAY THROUGH WRITING ANOTHER COPY OF THE LAST RECORD
+            File logFile = new File(dir, LogCourseFileManager.LOG_FILE_NAME);
+            byte[] lastRecord = readBytes(logFile, lastOffset, (int) (goodSize - lastOffset));
+            appendBytes(logFile, Arrays.copyOf(lastRecord, lastRecord.length / 2));
+            check(logFile.length() > goodSize, "the log has a torn record at the end");
+
+            // OPENING THE LOG SHOULD CUT IT OFF
+            fileManager = makeFileManager(dir);
+            check(fileManager.getLogSize() == goodSize, "the log size is back to the last whole record");
+            check(logFile.length() == goodSize, "the torn record was truncated from the file");
+            for (int i = 0; i < 3; i++) {
+                check(loadTitle(fileManager, dir, i).equals(makeTitle(i, 0)), "course " + i + " still loads");
+            }
+
+            // AND WHAT WE SAVE NEXT SHOULD BE FOUND WHEN THE LOG IS OPENED AGAIN
+            fileManager.saveCourse(makeCourse(3, 0), coursePath(dir, 3));
+            fileManager.close();
+            new File(dir, LogCourseFileManager.CHECKPOINT_FILE_NAME).delete();
+            fileManager = makeFileManager(dir);
+            check(loadTitle(fileManager, dir, 3).equals(makeTitle(3, 0)), "a course saved after the truncation loads");
+            fileManager.close();
+        } finally {
+            deleteAll(dir);
+        }
+    }
+
+    // A CHECKPOINT FOR THIS LOG MEANS ONLY WHAT CAME AFTER IT GETS READ,
+    // WHICH WE CAN TELL BY DAMAGING A RECORD THE CHECKPOINT COVERS, SINCE
+    // READING THE WHOLE LOG WOULD STOP AT THAT RECORD
+    private static void testCheckpointReused() throws Exception {
+        System.out.println("CHECKPOINT REUSED");
+        File dir = Files.createTempDirectory("csb_log").toFile();
+        try {
+            LogCourseFileManager fileManager = makeFileManager(dir);
+            for (int i = 0; i < 3; i++) {
+                fileManager.saveCourse(makeCourse(i, 0), coursePath(dir, i));
+            }
+            long firstOffset = fileManager.getRecordOffset(coursePath(dir, 0));
+            fileManager.close();
+
+            // BREAK THE MAGIC NUMBER OF THE FIRST RECORD, BUT NOT ITS VALUE
+            File logFile = new File(dir, LogCourseFileManager.LOG_FILE_NAME);
+            writeBytes(logFile, firstOffset, new byte[]{0, 0, 0, 0});
+
+            // THEN SAVE ONE MORE COURSE, WHICH ISN'T IN THE CHECKPOINT
+            fileManager = makeFileManager(dir);
+            for (int i = 0; i < 3; i++) {
+                check(loadTitle(fileManager, dir, i).equals(makeTitle(i, 0)), "course " + i + " loads from the checkpoint");
+            }
+            fileManager.saveCourse(makeCourse(3, 0), coursePath(dir, 3));
+            File checkpointFile = new File(dir, LogCourseFileManager.CHECKPOINT_FILE_NAME);
+            byte[] checkpoint = Files.readAllBytes(checkpointFile.toPath());
+            fileManager.close();
+
+            // PUT BACK THE OLD CHECKPOINT SO THE LAST COURSE HAS TO BE READ FROM THE LOG
+            Files.write(checkpointFile.toPath(), checkpoint);
+            fileManager = makeFileManager(dir);
+            check(loadTitle(fileManager, dir, 0).equals(makeTitle(0, 0)), "the damaged record was never scanned");
+            check(loadTitle(fileManager, dir, 3).equals(makeTitle(3, 0)), "a record after the checkpoint was scanned");
+            fileManager.close();
+        } finally {
+            deleteAll(dir);
+        }
+    }
+
+    // A CHECKPOINT FOR AN OLDER GENERATION OF THE LOG, OR ONE THAT COVERS
+    // MORE THAN THE LOG HAS, POINTS AT THE WRONG PLACES, SO IT HAS TO BE
+    // IGNORED AND THE WHOLE LOG READ INSTEAD
+    private static void testStaleCheckpointIgnored() throws Exception {
+        System.out.println("STALE CHECKPOINT IGNORED");
+        File dir = Files.createTempDirectory("csb_log").toFile();
+        try {
+            // SAVE EVERY COURSE TWICE SO COMPACTING MOVES THEM ALL
+            LogCourseFileManager fileManager = makeFileManager(dir);
+            for (int version = 0; version < 2; version++) {
+                for (int i = 0; i < 3; i++) {
+                    fileManager.saveCourse(makeCourse(i, version), coursePath(dir, i));
+                }
+            }
+            fileManager.close();
+            File checkpointFile = new File(dir, LogCourseFileManager.CHECKPOINT_FILE_NAME);
+            File oldCheckpointFile = new File(dir, "old.checkpoint");
+            Files.copy(checkpointFile.toPath(), oldCheckpointFile.toPath());
+
+            fileManager = makeFileManager(dir);
+            long oldGeneration = fileManager.getGeneration();
+            long oldLogSize = fileManager.getLogSize();
+            fileManager.compact();
+            check(fileManager.getGeneration() == oldGeneration + 1, "compacting made a new generation");
+
+            // GROW THE NEW LOG PAST THE OLD ONE, SO ONLY THE GENERATION
+            // TELLS THE OLD CHECKPOINT ISN'T FOR IT
+            int extraVersion = 0;
+            while (fileManager.getLogSize() < oldLogSize) {
+                fileManager.saveCourse(makeCourse(3, extraVersion++), coursePath(dir, 3));
+            }
+            long[] offsets = new long[4];
+            for (int i = 0; i < 4; i++) {
+                offsets[i] = fileManager.getRecordOffset(coursePath(dir, i));
+            }
+            fileManager.close();
+
+            // A CHECKPOINT FROM BEFORE THE COMPACTION
+            Files.copy(oldCheckpointFile.toPath(), checkpointFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            fileManager = makeFileManager(dir);
+            for (int i = 0; i < 4; i++) {
+                check(fileManager.getRecordOffset(coursePath(dir, i)) == offsets[i],
+                        "course " + i + " is where the compacted log has it");
+            }
+            for (int i = 0; i < 3; i++) {
+                check(loadTitle(fileManager, dir, i).equals(makeTitle(i, 1)), "course " + i + " loads its latest version");
+            }
+            check(loadTitle(fileManager, dir, 3).equals(makeTitle(3, extraVersion - 1)), "course 3 loads its latest version");
+            fileManager.close();
+
+            // A CHECKPOINT THAT COVERS MORE THAN THE LOG, LIKE AFTER THE LOG
+            // LOST RECORDS THAT WEREN'T ON DISK YET
+            fileManager = makeFileManager(dir);
+            fileManager.saveCourse(makeCourse(4, 0), coursePath(dir, 4));
+            long lastOffset = fileManager.getRecordOffset(coursePath(dir, 4));
+            fileManager.close();
+            File logFile = new File(dir, LogCourseFileManager.LOG_FILE_NAME);
+            try (RandomAccessFile log = new RandomAccessFile(logFile, "rw")) {
+                log.setLength(lastOffset);
+            }
+            fileManager = makeFileManager(dir);
+            check(fileManager.getRecordOffset(coursePath(dir, 4)) == -1, "the lost course isn't in the index");
+            check(fileManager.getLogSize() == lastOffset, "the log ends where the lost course started");
+            for (int i = 0; i < 3; i++) {
+                check(loadTitle(fileManager, dir, i).equals(makeTitle(i, 1)), "course " + i + " still loads");
+            }
+            fileManager.close();
+        } finally {
+            deleteAll(dir);
+        }
+    }
+
+    // COMPACTION COPIES MOST OF THE LOG WITHOUT HOLDING THE LOCK, SO COURSES
+    // CAN BE SAVED TO THE OLD LOG WHILE IT DOES, AND THOSE HAVE TO BE
+    // BROUGHT OVER TO THE NEW LOG BEFORE IT'S SWAPPED IN
+    private static void testSavesDuringCompaction() throws Exception {
+        System.out.println("SAVES DURING COMPACTION");
+        File dir = Files.createTempDirectory("csb_log").toFile();
+        try {
+            LogCourseFileManager fileManager = makeFileManager(dir);
+            int[] versions = new int[NUM_COMPACTION_COURSES];
+            for (int i = 0; i < NUM_COMPACTION_COURSES; i++) {
+                fileManager.saveCourse(makeCourse(i, 0), coursePath(dir, i));
+            }
+
+            // KEEP SAVING COURSES UNTIL THE COMPACTION IS DONE, COUNTING THE
+            // SAVES THAT WENT INTO THE OLD LOG WHILE IT WAS RUNNING
+            int savesIntoOldLog = 0;
+            for (int attempt = 0; (attempt < NUM_COMPACTION_ATTEMPTS) && (savesIntoOldLog == 0); attempt++) {
+                long oldGeneration = fileManager.getGeneration();
+                LogCourseFileManager compactingFileManager = fileManager;
+                IOException[] compactionError = new IOException[1];
+                Thread compactionThread = new Thread(() -> {
+                    try {
+                        compactingFileManager.compact();
+                    } catch (IOException ioe) {
+                        compactionError[0] = ioe;
+                    }
+                });
+                compactionThread.start();
+                int i = 0;
+                while (compactionThread.isAlive()) {
+                    versions[i]++;
+                    fileManager.saveCourse(makeCourse(i, versions[i]), coursePath(dir, i));
+                    if (fileManager.getGeneration() == oldGeneration) {
+                        savesIntoOldLog++;
+                    }
+                    i = (i + 1) % NUM_COMPACTION_COURSES;
+                }
+                compactionThread.join();
+                check(compactionError[0] == null, "the compaction worked");
+                check(fileManager.getGeneration() == oldGeneration + 1, "the compacted log was swapped in");
+            }
+            System.out.println("    " + savesIntoOldLog + " saves went into the old log during compaction");
+            check(savesIntoOldLog > 0, "some saves happened while the compaction was copying");
+
+            // EVERY COURSE SHOULD HAVE ITS LATEST VERSION, BOTH NOW AND
+            // AFTER THE LOG IS OPENED AGAIN
+            checkVersions(fileManager, dir, versions, "after compacting");
+            fileManager.close();
+            fileManager = makeFileManager(dir);
+            checkVersions(fileManager, dir, versions, "after reopening");
+            fileManager.close();
+        } finally {
+            deleteAll(dir);
+        }
+    }
+
+    // A COURSE SAVED AFTER THE LOG WAS MAPPED IS PAST THE END OF THE
+    // MAPPING, SO IT HAS TO BE READ FROM THE LOG, AND ONCE ENOUGH HAS BEEN
+    // SAVED THE LOG IS MAPPED AGAIN, AND EITHER WAY WE HAVE TO GET THE
+    // LATEST VERSION, NOT WHATEVER WAS MAPPED
+    private static void testLoadsPastMapping() throws Exception {
+        System.out.println("LOADS PAST MAPPING");
+        File dir = Files.createTempDirectory("csb_log").toFile();
+        try {
+            LogCourseFileManager fileManager = makeFileManager(dir);
+            int[] versions = new int[NUM_MAPPED_COURSES];
+            for (int i = 0; i < NUM_MAPPED_COURSES; i++) {
+                fileManager.saveCourse(makeCourse(i, 0), coursePath(dir, i));
+            }
+            checkVersions(fileManager, dir, versions, "once the log is mapped");
+
+            // SAVE AND LOAD ONE COURSE AFTER ANOTHER, WHICH GROWS THE LOG
+            // PAST WHAT'S MAPPED SEVERAL TIMES OVER
+            long mappedSize = fileManager.getLogSize();
+            int wrongVersions = 0;
+            for (int j = 0; j < NUM_SAVE_AND_LOADS; j++) {
+                int i = (j * 7) % NUM_MAPPED_COURSES;
+                versions[i]++;
+                fileManager.saveCourse(makeCourse(i, versions[i]), coursePath(dir, i));
+                if (!loadTitle(fileManager, dir, i).equals(makeTitle(i, versions[i]))) {
+                    wrongVersions++;
+                }
+            }
+            check(fileManager.getLogSize() > 4 * mappedSize, "the log grew well past what was mapped");
+            check(wrongVersions == 0, "each course loads the version just saved"
+                    + ((wrongVersions == 0) ? "" : " (" + wrongVersions + " don't)"));
+            checkVersions(fileManager, dir, versions, "after all the saves");
+            fileManager.close();
+        } finally {
+            deleteAll(dir);
+        }
+    }
+
+    // CHECKS THAT EVERY COURSE LOADS THE VERSION IT WAS LAST SAVED WITH
+    private static void checkVersions(LogCourseFileManager fileManager, File dir, int[] versions, String when)
+            throws IOException {
+        int wrongVersions = 0;
+        for (int i = 0; i < versions.length; i++) {
+            if (!loadTitle(fileManager, dir, i).equals(makeTitle(i, versions[i]))) {
+                wrongVersions++;
+            }
+        }
+        check(wrongVersions == 0, "every course has its latest version " + when
+                + ((wrongVersions == 0) ? "" : " (" + wrongVersions + " don't)"));
+    }
+
+    // MAKES A FILE MANAGER FOR THE LOG IN dir THAT DOESN'T WAIT FOR THE DISK
+    private static LogCourseFileManager makeFileManager(File dir) {
+        LogCourseFileManager fileManager = new LogCourseFileManager(dir.getPath());
+        fileManager.getFileWriter().setDurability(Durability.NONE);
+        return fileManager;
+    }
+
+    // MAKES A COURSE, WHOSE TITLE SAYS WHICH COURSE AND VERSION IT IS
+    private static Course makeCourse(int i, int version) {
+        Course course = new Course(new Instructor("Instructor " + i, "http://www.example.com/~" + i));
+        course.setSubject(Subject.CSE);
+        course.setNumber(i);
+        course.setSemester(Semester.FALL);
+        course.setYear(2015);
+        course.setTitle(makeTitle(i, version));
+        course.setStartingMonday(LocalDate.of(2015, 8, 31));
+        course.setEndingFriday(LocalDate.of(2015, 12, 11));
+        return course;
+    }
+
+    private static String makeTitle(int i, int version) {
+        return "Course " + i + " Version " + version;
+    }
+
+    private static String coursePath(File dir, int i) {
+        return new File(dir, "CSE" + i + LogCourseFileManager.LOG_EXT).getPath();
+    }
+
+    private static String loadTitle(LogCourseFileManager fileManager, File dir, int i) throws IOException {
+        Course course = new Course(new Instructor("", ""));
+        fileManager.loadCourse(course, coursePath(dir, i));
+        return course.getTitle();
+    }
+
+    // REPORTS WHETHER A CHECK PASSED, COUNTING IT IF IT DIDN'T
+    private static void check(boolean passed, String description) {
+        System.out.println((passed ? "    PASSED: " : "    FAILED: ") + description);
+        if (!passed) {
+            failures++;
+        }
+    }
+
+    private static byte[] readBytes(File file, long offset, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            raf.seek(offset);
+            raf.readFully(bytes);
+        }
+        return bytes;
+    }
+
+    private static void writeBytes(File file, long offset, byte[] bytes) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(offset);
+            raf.write(bytes);
+        }
+    }
+
+    private static void appendBytes(File file, byte[] bytes) throws IOException {
+        writeBytes(file, file.length(), bytes);
+    }
+
+    // DELETES A FILE, OR A DIRECTORY AND EVERYTHING IN IT
+    private static void deleteAll(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteAll(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,334 @@
+package csb.test;
+
+import static csb.CSB_StartupConstants.PATH_BASE;
+import csb.data.Course;
+import csb.data.CoursePage;
+import csb.data.Instructor;
+import csb.data.Semester;
+import csb.data.Subject;
+import csb.file.AtomicFileWriter;
+import csb.file.CourseFragments;
+import csb.file.CourseSiteExporter;
+import static csb.file.CourseSiteExporter.*;
+import csb.file.Durability;
+import csb.file.ExportEngine;
+import csb.file.ExportManifest;
+import csb.file.TemplateCache;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Arrays;
+import javax.swing.text.html.HTML;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+/**
+ * This class is used to compare how fast our export engines build the
+ * schedule page, which is the one page that grows with the course, since
+ * it has a table row for every week. It makes courses that run for 15, 52
+ * and 500 weeks and times exporting each one's schedule page with each
+ * engine, after exporting all of them enough times first that the JIT has
+ * had a chance to do its work. So there's something to compare the engines
+ * to, it first times a BASELINE that builds the page the way the DOM engine
+ * used to, without the template's ids indexed, searching the whole page for
+ * the schedule table every week and making every week's MONDAY-FRIDAY
+ * headers from scratch, and then checks that each engine's page matches
+ * the baseline's, ignoring the whitespace around tags, since the SEGMENTS
+ * engine doesn't indent what it puts in its slots. Each engine is also
+ * timed exporting a course's whole site, all five pages of it, the way
+ * exportCourseSite does after the course has changed. Note that the base
+ * site is read from PATH_BASE, so this should be run from the project
+ * directory, and that different numbers of weeks may be provided as
+ * arguments.
+ *
+ * @author Richard McKenna
+ */
+public class CSB_Test_ScheduleExportBenchmark {
+    // HOW MANY WEEKS OUR COURSES RUN UNLESS TOLD OTHERWISE
+    static final int[] DEFAULT_NUM_WEEKS = {15, 52, 500};
+
+    // HOW MANY TIMES WE EXPORT EACH COURSE BEFORE WE START TIMING, AND
+    // THEN HOW MANY TIMES WE EXPORT IT IN EACH ROUND WE TIME
+    static final int NUM_WARMUP_EXPORTS = 200;
+    static final int NUM_TIMED_EXPORTS = 100;
+
+    // HOW MANY ROUNDS WE TIME FOR EACH ENGINE AND COURSE
+    static final int NUM_ROUNDS = 5;
+
+    // WHAT WE TIME, WHICH IS THE BASELINE, OR AN ENGINE EXPORTING
+    // THE SCHEDULE PAGE OR THE WHOLE SITE
+    interface CourseExport {
+        void export(Course course) throws IOException;
+    }
+
+    /**
+     * Here's where we'll do the test.
+     *
+     * @param args The numbers of weeks to test with, if not the defaults.
+     */
+    public static void main(String[] args) throws IOException {
+        int[] numWeeks = DEFAULT_NUM_WEEKS;
+        if (args.length > 0) {
+            numWeeks = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                numWeeks[i] = Integer.parseInt(args[i]);
+            }
+        }
+        if (!new File(PATH_BASE).isDirectory()) {
+            System.out.println("NO BASE SITE AT " + PATH_BASE + ", RUN THIS FROM THE PROJECT DIRECTORY");
+            return;
+        }
+
+        Course[] courses = new Course[numWeeks.length];
+        for (int i = 0; i < numWeeks.length; i++) {
+            courses[i] = makeCourse(numWeeks[i]);
+        }
+
+        File sitesDir = Files.createTempDirectory("csb_sites").toFile();
+        try {
+            File exportDir = new File(sitesDir, "schedule");
+            exportDir.mkdir();
+            File pageFile = new File(exportDir, SCHEDULE_PAGE);
+
+            // FIRST THE BASELINE, KEEPING EACH COURSE'S PAGE SO
+            // WE CAN CHECK THE ENGINES MAKE THE SAME ONE
+            BaselineScheduleExporter baseline = new BaselineScheduleExporter(PATH_BASE);
+            byte[][] baselinePages = new byte[courses.length][];
+            for (int i = 0; i < courses.length; i++) {
+                baseline.export(courses[i], pageFile.getPath());
+                baselinePages[i] = Files.readAllBytes(pageFile.toPath());
+            }
+            timeAll("BASELINE", course -> baseline.export(course, pageFile.getPath()),
+                    courses, numWeeks, pageFile, baselinePages);
+
+            for (ExportEngine engine : ExportEngine.values()) {
+                // EACH ENGINE GETS ITS OWN EXPORTER, SO NOTHING ONE HAS
+                // CACHED IS USED BY ANOTHER
+                CourseSiteExporter exporter = new CourseSiteExporter(PATH_BASE, sitesDir.getPath(), engine);
+                timeAll(engine.toString(), course -> exporter.exportSchedulePage(course, exportDir.getPath()),
+                        courses, numWeeks, pageFile, baselinePages);
+
+                // NOW THE WHOLE SITE, FORGETTING WHAT WAS EXPORTED
+                // LAST TIME SO THAT EVERY PAGE IS WRITTEN AGAIN
+                File siteDir = new File(sitesDir, courses[0].getSubject().toString() + courses[0].getNumber());
+                File manifestFile = new File(siteDir, ExportManifest.MANIFEST_FILE_NAME);
+                timeAll(engine + " SITE", course -> {
+                    manifestFile.delete();
+                    exporter.exportCourseSite(course);
+                }, courses, numWeeks, new File(siteDir, SCHEDULE_PAGE), baselinePages);
+            }
+        } finally {
+            deleteAll(sitesDir);
+        }
+    }
+
+    // WARMS UP AND THEN TIMES EXPORTING EVERY COURSE'S SCHEDULE PAGE, AND
+    // REPORTS HOW LONG IT TOOK AND WHETHER THE PAGE MATCHES THE BASELINE'S
+    private static void timeAll(String name, CourseExport export, Course[] courses, int[] numWeeks,
+            File pageFile, byte[][] baselinePages) throws IOException {
+        // WARM UP WITH EVERY COURSE, OTHERWISE THE FIRST ONE
+        // WE TIME WOULD LOOK SLOWER THAN IT IS
+        for (Course course : courses) {
+            for (int i = 0; i < NUM_WARMUP_EXPORTS; i++) {
+                export.export(course);
+            }
+        }
+
+        // AND NOW TIME THEM
+        for (int i = 0; i < courses.length; i++) {
+            double millis = timeExporting(export, courses[i]);
+            byte[] page = Files.readAllBytes(pageFile.toPath());
+            System.out.printf("%-14s %4d weeks: %8.3f ms per export, %d bytes, %s%n",
+                    name, numWeeks[i], millis, page.length,
+                    isSamePage(page, baselinePages[i]) ? "same page as baseline" : "DIFFERENT FROM BASELINE");
+        }
+    }
+
+    // TESTS TO SEE IF TWO PAGES ARE THE SAME OTHER THAN THE WHITESPACE AROUND TAGS
+    private static boolean isSamePage(byte[] page, byte[] otherPage) {
+        if (Arrays.equals(page, otherPage)) {
+            return true;
+        }
+        String pageText = new String(page, StandardCharsets.UTF_8).replaceAll("\\s*(<|>)\\s*", "$1");
+        String otherPageText = new String(otherPage, StandardCharsets.UTF_8).replaceAll("\\s*(<|>)\\s*", "$1");
+        return pageText.equals(otherPageText);
+    }
+
+    // EXPORTS THE SCHEDULE PAGE NUM_TIMED_EXPORTS TIMES IN EACH OF NUM_ROUNDS
+    // ROUNDS, RETURNING THE AVERAGE TIME OF AN EXPORT IN THE FASTEST ROUND
+    private static double timeExporting(CourseExport export, Course course) throws IOException {
+        long bestNanos = Long.MAX_VALUE;
+        for (int round = 0; round < NUM_ROUNDS; round++) {
+            long startNanos = System.nanoTime();
+            for (int i = 0; i < NUM_TIMED_EXPORTS; i++) {
+                export.export(course);
+            }
+            bestNanos = Math.min(bestNanos, System.nanoTime() - startNanos);
+        }
+        return bestNanos / 1000000.0 / NUM_TIMED_EXPORTS;
+    }
+
+    // MAKES A COURSE THAT MEETS THREE TIMES A WEEK FOR numWeeks WEEKS
+    private static Course makeCourse(int numWeeks) {
+        Course course = new Course(new Instructor("Joe Shmo", "http://www.joeshmo.com"));
+        course.setSubject(Subject.CSE);
+        course.setNumber(219);
+        course.setSemester(Semester.FALL);
+        course.setYear(2015);
+        course.setTitle("Computer Science III");
+        for (CoursePage page : CoursePage.values()) {
+            course.addPage(page);
+        }
+        course.addLectureDay(DayOfWeek.MONDAY);
+        course.addLectureDay(DayOfWeek.WEDNESDAY);
+        course.addLectureDay(DayOfWeek.FRIDAY);
+        LocalDate startingMonday = LocalDate.of(2015, 8, 31);
+        course.setStartingMonday(startingMonday);
+        course.setEndingFriday(startingMonday.plusWeeks(numWeeks - 1).plusDays(4));
+        return course;
+    }
+
+    /**
+     * This builds and saves the schedule page the way the DOM engine did
+     * before templates had their ids indexed. Every element is found by
+     * searching all the elements with its tag, the schedule table is
+     * searched for again every week, and every week's MONDAY-FRIDAY headers
+     * are made from scratch. The template copy and the saving are the same
+     * as the DOM engine's, so only the page building differs.
+     */
+    static class BaselineScheduleExporter {
+        // THE LINK IDS, HEADERS AND PAGES OF THE NAV BAR, IN CoursePage ORDER
+        static final String[] LINK_IDS = {ID_HOME_LINK, ID_SYLLABUS_LINK, ID_SCHEDULE_LINK,
+            ID_HWS_LINK, ID_PROJECTS_LINK};
+        static final String[] LINK_HEADERS = {INDEX_HEADER, SYLLABUS_HEADER, SCHEDULE_HEADER,
+            HWS_HEADER, PROJECTS_HEADER};
+        static final String[] LINKS = {INDEX_PAGE, SYLLABUS_PAGE, SCHEDULE_PAGE, HWS_PAGE, PROJECTS_PAGE};
+
+        String templatePath;
+        TemplateCache templateCache;
+        Transformer transformer;
+        AtomicFileWriter fileWriter;
+
+        BaselineScheduleExporter(String baseDir) throws IOException {
+            templatePath = baseDir + SLASH + SCHEDULE_PAGE;
+            templateCache = new TemplateCache();
+            try {
+                transformer = TransformerFactory.newInstance().newTransformer();
+            } catch (TransformerException te) {
+                throw new IOException(te.getMessage());
+            }
+            transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+            transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
+            fileWriter = new AtomicFileWriter(Durability.NONE);
+        }
+
+        void export(Course course, String pagePath) throws IOException {
+            try {
+                CourseFragments fragments = new CourseFragments(course);
+                Document doc = templateCache.getTemplate(templatePath);
+                doc.getElementsByTagName(HTML.Tag.TITLE.toString()).item(0).setTextContent(fragments.getTitleText());
+                buildNavBar(doc, course);
+                setBanner(doc, fragments);
+                fillScheduleTable(doc, course);
+                Node instructorSpan = findNode(doc, HTML.Tag.SPAN.toString(), ID_INSTRUCTOR_LINK);
+                Element instructorLink = doc.createElement(HTML.Tag.A.toString());
+                instructorLink.setAttribute(HTML.Attribute.HREF.toString(), course.getInstructor().getHomepageURL());
+                instructorLink.setTextContent(course.getInstructor().getName());
+                instructorSpan.appendChild(instructorLink);
+                try (AtomicFileWriter.AtomicOutput output = fileWriter.open(pagePath)) {
+                    transformer.transform(new DOMSource(doc), new StreamResult(output.getOutputStream()));
+                    output.commit();
+                }
+            } catch (SAXException | ParserConfigurationException | TransformerException exception) {
+                throw new IOException(exception.getMessage());
+            }
+        }
+
+        void buildNavBar(Document doc, Course course) {
+            Node navBarNode = findNode(doc, HTML.Tag.DIV.toString(), ID_NAVBAR);
+            for (CoursePage page : course.getPages()) {
+                Element navLink = doc.createElement(HTML.Tag.A.toString());
+                navLink.setAttribute(HTML.Attribute.ID.toString(), LINK_IDS[page.ordinal()]);
+                navLink.setAttribute(HTML.Attribute.HREF.toString(), LINKS[page.ordinal()]);
+                navLink.setTextContent(LINK_HEADERS[page.ordinal()]);
+                navLink.setAttribute(HTML.Attribute.CLASS.toString(),
+                        (page == CoursePage.SCHEDULE) ? CLASS_OPEN_NAV : CLASS_NAV);
+                navBarNode.appendChild(navLink);
+            }
+        }
+
+        void setBanner(Document doc, CourseFragments fragments) {
+            Node bannerNode = findNode(doc, HTML.Tag.DIV.toString(), ID_BANNER);
+            bannerNode.appendChild(doc.createTextNode(fragments.getBannerText()));
+            bannerNode.appendChild(doc.createElement(HTML.Tag.BR.toString()));
+            bannerNode.appendChild(doc.createTextNode(fragments.getCourse().getTitle()));
+        }
+
+        void fillScheduleTable(Document doc, Course course) {
+            LocalDate countingDate = course.getStartingMonday();
+            while (!countingDate.isAfter(course.getEndingFriday())) {
+                // A NEW ROW OF HEADERS EVERY WEEK
+                Element headerRow = doc.createElement(HTML.Tag.TR.toString());
+                for (String dayOfWeekText : new String[] {MONDAY_HEADER, TUESDAY_HEADER,
+                        WEDNESDAY_HEADER, THURSDAY_HEADER, FRIDAY_HEADER}) {
+                    Element header = doc.createElement(HTML.Tag.TH.toString());
+                    header.setAttribute(HTML.Attribute.CLASS.toString(), CLASS_SCH);
+                    header.setTextContent(dayOfWeekText);
+                    headerRow.appendChild(header);
+                }
+                Element dataRow = doc.createElement(HTML.Tag.TR.toString());
+                for (int x = 0; x < 5; x++) {
+                    Element data = doc.createElement(HTML.Tag.TD.toString());
+                    data.setAttribute(HTML.Attribute.CLASS.toString(), CLASS_SCH);
+                    Element bold = doc.createElement(HTML.Tag.STRONG.toString());
+                    bold.setTextContent(countingDate.getMonthValue() + SLASH + countingDate.getDayOfMonth());
+                    data.appendChild(bold);
+                    dataRow.appendChild(data);
+                    countingDate = countingDate.plusDays(1);
+                }
+                countingDate = countingDate.plusDays(2);
+
+                // AND SEARCH FOR THE TABLE ALL OVER AGAIN
+                Node scheduleTableNode = findNode(doc, HTML.Tag.TABLE.toString(), ID_SCHEDULE);
+                scheduleTableNode.appendChild(headerRow);
+                scheduleTableNode.appendChild(dataRow);
+            }
+        }
+
+        // FINDS AN ELEMENT BY SEARCHING EVERY ELEMENT WITH ITS TAG
+        Node findNode(Document doc, String tagType, String searchID) {
+            NodeList nodes = doc.getElementsByTagName(tagType);
+            for (int i = 0; i < nodes.getLength(); i++) {
+                Node idAttr = nodes.item(i).getAttributes().getNamedItem(HTML.Attribute.ID.toString());
+                if ((idAttr != null) && idAttr.getNodeValue().equals(searchID)) {
+                    return nodes.item(i);
+                }
+            }
+            return null;
+        }
+    }
+
+    // DELETES A FILE, OR A DIRECTORY AND EVERYTHING IN IT
+    private static void deleteAll(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteAll(child);
+            }
+        }
+        file.delete();
+    }
+}